@@ -33,4 +33,16 @@ public interface AccountLedgerConstant extends NulsConstant {
      * 默认200NULS
      */
     long MAX_VALUE = 20000000000L;
+
+    String CFG_ACCOUNT_LEDGER_SECTION = "account-ledger";
+    /**
+     * 是否维护全链地址交易索引，默认开启
+     * Whether to maintain the chain-wide address transaction index, enabled by default
+     */
+    String CFG_ADDRESS_TX_INDEX = "address.tx.index";
+    /**
+     * 并行建立地址交易索引时每个任务处理的区块数
+     * The number of blocks handled by each task when building the address transaction index in parallel
+     */
+    int ADDRESS_TX_INDEX_BUILD_RANGE = 1000;
 }
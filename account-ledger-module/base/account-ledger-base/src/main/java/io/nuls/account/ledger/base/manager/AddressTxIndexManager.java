@@ -0,0 +1,345 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.ledger.constant.AccountLedgerConstant;
+import io.nuls.account.ledger.storage.po.AddressTxIndexPo;
+import io.nuls.account.ledger.storage.service.AddressTxIndexStorageService;
+import io.nuls.contract.entity.tx.CallContractTransaction;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.cfg.NulsConfig;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.service.BlockService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 维护全链地址交易索引
+ * 新区块在保存和回滚时增量更新索引，启动时按高度区间并行补建缺失的部分，补建完成前查询返回null，调用者应退回到逐块扫描
+ * 区块中的交易序号与blockService.getBlock(height, true)一致，即合约转账交易紧跟在产生它的合约调用交易之后
+ * Maintains the chain-wide address transaction index.
+ * The index is updated incrementally when blocks are saved and rolled back, and the missing part is built in parallel
+ * over height ranges on startup. Queries return null until it is built, the callers should fall back to scanning the blocks.
+ * The tx index in a block is the same as in blockService.getBlock(height, true), that is the contract transfer
+ * transactions follow the contract call transaction that produced them.
+ */
+@Component
+public class AddressTxIndexManager {
+
+    @Autowired
+    private AddressTxIndexStorageService addressTxIndexStorageService;
+    @Autowired
+    private BlockService blockService;
+    @Autowired
+    private LedgerService ledgerService;
+
+    private Boolean enabled;
+
+    private volatile boolean complete;
+
+    /**
+     * 区块的索引写入和主链校验后的补建写入都在该锁内进行，补建不会覆盖之后发生的回滚
+     * The index writes of the blocks and the checked writes of the build happen under this lock,
+     * so the build never overwrites a later rollback.
+     */
+    private final Lock indexLock = new ReentrantLock();
+
+    /**
+     * 本次补建开始后索引写入失败的最低高度，已索引高度不能越过它
+     * The lowest height whose index write failed since the current build started, the indexed height never passes it.
+     */
+    private long failedHeight = Long.MAX_VALUE;
+
+    /**
+     * 最近一次增量保存或回滚后的区块高度，补建期间增量索引的区块在补建完成时计入已索引高度
+     * The block height after the latest incremental save or rollback. The blocks indexed incrementally during the build
+     * are counted into the indexed height when the build completes.
+     */
+    private long incrementalHeight = -1;
+
+    public boolean isEnabled() {
+        if (enabled == null) {
+            enabled = NulsConfig.MODULES_CONFIG == null || NulsConfig.MODULES_CONFIG.getCfgValue(
+                    AccountLedgerConstant.CFG_ACCOUNT_LEDGER_SECTION, AccountLedgerConstant.CFG_ADDRESS_TX_INDEX, true);
+        }
+        return enabled;
+    }
+
+    /**
+     * 索引已保存区块的交易，txs需要是完整区块的交易列表
+     * Index the transactions of a saved block, txs should be the transaction list of a whole block.
+     */
+    public void blockSaved(List<Transaction> txs) {
+        long height = getBlockHeight(txs);
+        if (height < 0) {
+            return;
+        }
+        List<Transaction> txList = new ArrayList<>();
+        for (Transaction tx : txs) {
+            txList.add(tx);
+            if (tx instanceof CallContractTransaction && ((CallContractTransaction) tx).getContractTransferTxs() != null) {
+                txList.addAll(((CallContractTransaction) tx).getContractTransferTxs());
+            }
+        }
+        indexLock.lock();
+        try {
+            // 没有待补建的区块时，紧接已索引高度的区块在同一批次中推进已索引高度
+            // With no build pending, a block right after the indexed height advances it in the same batch.
+            boolean advance = complete && height == addressTxIndexStorageService.getIndexedHeight() + 1;
+            Result result = addressTxIndexStorageService.saveBlockIndex(height, txList, advance);
+            if (result.isFailed()) {
+                Log.warn("save address tx index failed, height " + height);
+                indexFailed(height);
+            } else {
+                incrementalHeight = height;
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * 删除回滚区块的索引
+     * Delete the index of a rolled back block.
+     */
+    public void blockRolledBack(List<Transaction> txs) {
+        long height = getBlockHeight(txs);
+        if (height < 0) {
+            return;
+        }
+        indexLock.lock();
+        try {
+            boolean lower = addressTxIndexStorageService.getIndexedHeight() >= height;
+            Result result = addressTxIndexStorageService.deleteBlockIndex(height, lower);
+            if (result.isFailed()) {
+                Log.warn("delete address tx index failed, height " + height);
+                indexFailed(height);
+            } else {
+                incrementalHeight = height - 1;
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * 索引写入失败，标记索引不完整并把已索引高度降到失败高度之前，下次启动时由buildIndex补建，调用方持有indexLock
+     * An index write failed. Mark the index incomplete and lower the indexed height below the failed height,
+     * so buildIndex fills the gap on the next start. The caller holds indexLock.
+     */
+    private void indexFailed(long height) {
+        complete = false;
+        failedHeight = Math.min(failedHeight, height);
+        if (addressTxIndexStorageService.getIndexedHeight() >= height
+                && addressTxIndexStorageService.saveIndexedHeight(height - 1).isFailed()) {
+            Log.warn("lower the address tx indexed height failed, height " + (height - 1));
+        }
+    }
+
+    /**
+     * 只处理以coinbase交易开头的完整区块，合约转账等单独保存或回滚的交易列表不处理
+     * Only whole blocks, which start with the coinbase transaction, are handled. Lists such as the contract transfers
+     * saved or rolled back on their own are skipped.
+     */
+    private long getBlockHeight(List<Transaction> txs) {
+        if (!isEnabled() || txs == null || txs.isEmpty() || txs.get(0).getType() != ProtocolConstant.TX_TYPE_COINBASE) {
+            return -1;
+        }
+        return txs.get(0).getBlockHeight();
+    }
+
+    /**
+     * 按高度区间并行补建已索引高度到当前最新高度之间的索引，之后的区块由blockSaved增量索引
+     * Build the index between the indexed height and the current best height in parallel over height ranges,
+     * the blocks after it are indexed incrementally by blockSaved.
+     */
+    public void buildIndex() {
+        if (!isEnabled()) {
+            return;
+        }
+        long from;
+        long to = NulsContext.getInstance().getBestHeight();
+        indexLock.lock();
+        try {
+            // 之前失败的高度都在已索引高度之后，会被这次补建覆盖
+            // The heights that failed before are all above the indexed height, this build covers them.
+            failedHeight = Long.MAX_VALUE;
+            from = addressTxIndexStorageService.getIndexedHeight() + 1;
+            if (from > to) {
+                complete = countIncrementalBlocks(to);
+                return;
+            }
+        } finally {
+            indexLock.unlock();
+        }
+        Log.info("build address tx index from " + from + " to " + to);
+        int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor pool = TaskManager.createThreadPool(threadCount, 0,
+                new NulsThreadFactory(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "AddressTxIndexBuilder"));
+        List<Future<Boolean>> futureList = new ArrayList<>();
+        List<Long> endList = new ArrayList<>();
+        for (long start = from; start <= to; start += AccountLedgerConstant.ADDRESS_TX_INDEX_BUILD_RANGE) {
+            long rangeStart = start;
+            long rangeEnd = Math.min(start + AccountLedgerConstant.ADDRESS_TX_INDEX_BUILD_RANGE - 1, to);
+            futureList.add(pool.submit(() -> buildRange(rangeStart, rangeEnd)));
+            endList.add(rangeEnd);
+        }
+        try {
+            // 按区间顺序推进已索引高度，中断后下次启动从第一个未完成的区间继续
+            // Advance the indexed height in range order, so an interrupted build resumes from the first unfinished range.
+            for (int i = 0; i < futureList.size(); i++) {
+                if (!futureList.get(i).get() || !advanceIndexedHeight(endList.get(i))) {
+                    return;
+                }
+            }
+            indexLock.lock();
+            try {
+                complete = countIncrementalBlocks(to);
+            } finally {
+                indexLock.unlock();
+            }
+            Log.info("address tx index built up to " + to + ", complete: " + complete);
+        } catch (Exception e) {
+            Log.error("build address tx index error.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 推进已索引高度，不越过补建开始后写入失败的高度
+     * Advance the indexed height, never past a height whose index write failed since the build started.
+     */
+    private boolean advanceIndexedHeight(long height) {
+        indexLock.lock();
+        try {
+            if (height >= failedHeight) {
+                return false;
+            }
+            return addressTxIndexStorageService.saveIndexedHeight(height).isSuccess();
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * 补建到to之后，把补建期间增量索引的区块计入已索引高度，调用方持有indexLock
+     * After the build reaches to, count the blocks indexed incrementally during the build into the indexed height.
+     * The caller holds indexLock.
+     *
+     * @return 索引是否完整/whether the index is complete
+     */
+    private boolean countIncrementalBlocks(long to) {
+        if (failedHeight != Long.MAX_VALUE) {
+            return false;
+        }
+        if (incrementalHeight > to && addressTxIndexStorageService.getIndexedHeight() < incrementalHeight
+                && addressTxIndexStorageService.saveIndexedHeight(incrementalHeight).isFailed()) {
+            Log.warn("save the address tx indexed height failed, height " + incrementalHeight);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean buildRange(long start, long end) {
+        for (long height = start; height <= end; height++) {
+            if (!buildBlock(height)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 索引主链上该高度的区块，读取区块期间主链可能已经切换，保存前在indexLock内确认区块hash仍与主链一致
+     * 区块头先于索引回调改变，所以确认一致后保存的索引会被之后的回滚正确删除
+     * Index the block at the height of the main chain. The main chain may switch while the block is read, so the block hash
+     * is checked against the main chain under indexLock before saving. The header changes before the index callbacks,
+     * so an index saved after the check is correctly deleted by any later rollback.
+     */
+    private boolean buildBlock(long height) {
+        for (int i = 0; i < 2; i++) {
+            Block block = blockService.getBlock(height, true).getData();
+            if (block == null) {
+                Log.warn("build address tx index failed, block not found, height " + height);
+                return false;
+            }
+            indexLock.lock();
+            try {
+                BlockHeader header = blockService.getBlockHeader(height).getData();
+                if (header == null || !block.getHeader().getHash().equals(header.getHash())) {
+                    continue;
+                }
+                if (addressTxIndexStorageService.saveBlockIndex(height, block.getTxs(), false).isFailed()) {
+                    Log.warn("build address tx index failed, height " + height);
+                    return false;
+                }
+                return true;
+            } finally {
+                indexLock.unlock();
+            }
+        }
+        Log.warn("build address tx index failed, the main chain changed, height " + height);
+        return false;
+    }
+
+    /**
+     * 按高度和区块内顺序获取与地址相关的全部已确认交易，索引未建好或不完整时返回null
+     * Get all the confirmed transactions related to the address in height and in-block order,
+     * returns null when the index is not built or incomplete.
+     */
+    public List<Transaction> getTxList(byte[] address) {
+        if (!complete) {
+            return null;
+        }
+        List<AddressTxIndexPo> indexList = addressTxIndexStorageService.getIndexList(address);
+        List<Transaction> txList = new ArrayList<>(indexList.size());
+        for (AddressTxIndexPo po : indexList) {
+            Transaction tx = ledgerService.getTx(po.getTxHash());
+            if (tx == null) {
+                Log.warn("address tx index is inconsistent, tx not found at height " + po.getHeight());
+                return null;
+            }
+            txList.add(tx);
+        }
+        return txList;
+    }
+}
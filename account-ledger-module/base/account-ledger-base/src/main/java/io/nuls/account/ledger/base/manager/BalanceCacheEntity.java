@@ -26,37 +26,178 @@
 package io.nuls.account.ledger.base.manager;
 
 import io.nuls.account.model.Balance;
+import io.nuls.kernel.constant.NulsConstant;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+
+import java.util.*;
 
 /**
+ * 一个地址的余额状态：按UTXO增量维护的可用和锁定金额，以及按解锁高度、解锁时间排序的锁定UTXO队列
+ * 到期的锁定UTXO在读取余额时从队列中取出并转为可用，不需要重新计算整个地址；回滚使最新高度降低时，按高度解锁的UTXO重新转为锁定
+ * 本类不是线程安全的，由BalanceManager的分段锁保护
+ * The balance state of an address: the usable and locked amounts maintained incrementally from the utxos,
+ * and the queues of the locked utxos ordered by unlock height and unlock time.
+ * The expired utxos are moved to usable when the balance is read, without recalculating the whole address.
+ * When a rollback lowers the best height, the utxos unlocked by height are moved back to locked.
+ * This class is not thread safe, it is guarded by the lock stripes of the BalanceManager.
+ *
  * author Facjas
  * date 2018/6/12.
  */
 public class BalanceCacheEntity {
-    private Balance balance;
-    long lowestLockHeigh;
-    long earlistLockTime;
 
-    public Balance getBalance() {
+    private static final Comparator<CoinEntry> LOCK_TIME_COMPARATOR = Comparator.comparingLong(entry -> entry.lockTime);
+
+    private final Map<ByteArrayWrapper, CoinEntry> coinMap = new HashMap<>();
+
+    private final PriorityQueue<CoinEntry> heightLockQueue = new PriorityQueue<>(LOCK_TIME_COMPARATOR);
+
+    /**
+     * 已按高度解锁的UTXO，解锁高度最高的在前，用于回滚时重新锁定
+     * The utxos unlocked by height, the highest unlock height first, used to lock them again on rollback.
+     */
+    private final PriorityQueue<CoinEntry> heightUnlockedQueue = new PriorityQueue<>(LOCK_TIME_COMPARATOR.reversed());
+
+    private final PriorityQueue<CoinEntry> timeLockQueue = new PriorityQueue<>(LOCK_TIME_COMPARATOR);
+
+    private long usable;
+
+    private long locked;
+
+    private long bestHeight = -1;
+
+    /**
+     * 添加或覆盖一个UTXO
+     * Add or replace a utxo.
+     */
+    public void addCoin(byte[] key, Coin coin, long bestHeight, long currentTime) {
+        removeCoin(key);
+        updateBestHeight(bestHeight);
+        CoinEntry entry = new CoinEntry(coin.getNa().getValue(), coin.getLockTime());
+        coinMap.put(new ByteArrayWrapper(key), entry);
+        if (isUsable(entry.lockTime, bestHeight, currentTime)) {
+            usable += entry.amount;
+            if (isHeightLock(entry.lockTime)) {
+                heightUnlockedQueue.add(entry);
+            }
+            return;
+        }
+        entry.locked = true;
+        locked += entry.amount;
+        // the consensus lock type is unlocked by a new utxo only
+        if (entry.lockTime <= 0L) {
+            return;
+        }
+        if (entry.lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE) {
+            timeLockQueue.add(entry);
+        } else {
+            heightLockQueue.add(entry);
+        }
+    }
+
+    /**
+     * 移除一个UTXO，队列中的记录在出队时跳过
+     * Remove a utxo, its record in the queues is skipped when it is polled.
+     */
+    public void removeCoin(byte[] key) {
+        CoinEntry entry = coinMap.remove(new ByteArrayWrapper(key));
+        if (entry == null) {
+            return;
+        }
+        entry.removed = true;
+        if (entry.locked) {
+            locked -= entry.amount;
+        } else {
+            usable -= entry.amount;
+        }
+    }
+
+    /**
+     * 先把到期的锁定UTXO转为可用，再返回余额
+     * Move the expired utxos to usable first, then return the balance.
+     */
+    public Balance getBalance(long bestHeight, long currentTime) {
+        updateBestHeight(bestHeight);
+        unlock(timeLockQueue, currentTime);
+
+        Balance balance = new Balance();
+        balance.setUsable(Na.valueOf(usable));
+        balance.setLocked(Na.valueOf(locked));
+        balance.setBalance(Na.valueOf(usable + locked));
         return balance;
     }
 
-    public void setBalance(Balance balance) {
-        this.balance = balance;
+    /**
+     * 最新高度升高时解锁到期的UTXO，降低时重新锁定解锁高度高于它的UTXO
+     * Unlock the expired utxos when the best height rises, lock the utxos whose unlock height is above it again when it falls.
+     */
+    private void updateBestHeight(long height) {
+        if (height < bestHeight) {
+            while (!heightUnlockedQueue.isEmpty() && heightUnlockedQueue.peek().lockTime > height) {
+                CoinEntry entry = heightUnlockedQueue.poll();
+                if (entry.removed || entry.locked) {
+                    continue;
+                }
+                entry.locked = true;
+                usable -= entry.amount;
+                locked += entry.amount;
+                heightLockQueue.add(entry);
+            }
+        } else {
+            for (CoinEntry entry : unlock(heightLockQueue, height)) {
+                heightUnlockedQueue.add(entry);
+            }
+        }
+        bestHeight = height;
     }
 
-    public long getLowestLockHeigh() {
-        return lowestLockHeigh;
+    private List<CoinEntry> unlock(PriorityQueue<CoinEntry> queue, long bound) {
+        List<CoinEntry> unlockedList = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().lockTime <= bound) {
+            CoinEntry entry = queue.poll();
+            if (entry.removed || !entry.locked) {
+                continue;
+            }
+            entry.locked = false;
+            locked -= entry.amount;
+            usable += entry.amount;
+            unlockedList.add(entry);
+        }
+        return unlockedList;
     }
 
-    public void setLowestLockHeigh(long lowestLockHeigh) {
-        this.lowestLockHeigh = lowestLockHeigh;
+    private static boolean isHeightLock(long lockTime) {
+        return lockTime > 0L && lockTime <= NulsConstant.BlOCKHEIGHT_TIME_DIVIDE;
     }
 
-    public long getEarlistLockTime() {
-        return earlistLockTime;
+    /**
+     * 和Coin.usable()的规则一致
+     * The same rules as Coin.usable().
+     */
+    private static boolean isUsable(long lockTime, long bestHeight, long currentTime) {
+        if (lockTime < 0) {
+            return false;
+        }
+        if (lockTime == 0) {
+            return true;
+        }
+        if (lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE) {
+            return lockTime <= currentTime;
+        }
+        return lockTime <= bestHeight;
     }
 
-    public void setEarlistLockTime(long earlistLockTime) {
-        this.earlistLockTime = earlistLockTime;
+    private static class CoinEntry {
+        private final long amount;
+        private final long lockTime;
+        private boolean locked;
+        private boolean removed;
+
+        private CoinEntry(long amount, long lockTime) {
+            this.amount = amount;
+            this.lockTime = lockTime;
+        }
     }
 }
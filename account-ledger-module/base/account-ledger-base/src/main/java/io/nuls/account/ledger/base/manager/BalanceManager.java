@@ -25,46 +25,64 @@
 
 package io.nuls.account.ledger.base.manager;
 
-import io.nuls.account.ledger.base.util.CoinComparator;
 import io.nuls.account.ledger.constant.AccountLedgerErrorCode;
+import io.nuls.account.ledger.storage.service.LocalUtxoListener;
 import io.nuls.account.ledger.storage.service.LocalUtxoStorageService;
 import io.nuls.account.model.Account;
 import io.nuls.kernel.model.Address;
 import io.nuls.account.model.Balance;
 import io.nuls.account.service.AccountService;
-import io.nuls.core.tools.crypto.Base58;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.model.Entry;
-import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.Coin;
-import io.nuls.kernel.model.Na;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.utils.AddressTool;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 管理与缓存本地账户的余额
+ * 每个地址的余额在第一次读取时从该地址的UTXO计算，之后随本地UTXO的写入和删除增量更新，锁定到期由BalanceCacheEntity的队列处理
+ * 按地址分段加锁，不同地址之间的读写互不阻塞
+ * Manages and caches the balances of the local accounts.
+ * The balance of an address is calculated from its own utxos when it is read the first time, then it is updated
+ * incrementally when local utxos are saved or deleted, and the expired locks are handled by the queues of BalanceCacheEntity.
+ * The locks are striped by address, so reads and writes of different addresses do not block each other.
  */
 
 @Component
-public class BalanceManager {
+public class BalanceManager implements LocalUtxoListener, InitializingBean {
+
+    private static final int LOCK_STRIPES = 16;
 
     @Autowired
     private LocalUtxoStorageService localUtxoStorageService;
     @Autowired
     private AccountService accountService;
 
-    private Map<String, BalanceCacheEntity> balanceMap = new HashMap<>();
+    private Map<String, BalanceCacheEntity> balanceMap = new ConcurrentHashMap<>();
+
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
 
-    private Lock lock = new ReentrantLock();
+    public BalanceManager() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        localUtxoStorageService.addUtxoListener(this);
+    }
 
     /**
      * 初始化缓存本地所有账户的余额信息
@@ -97,23 +115,20 @@ public class BalanceManager {
      * 获取账户余额
      */
     public Result<Balance> getBalance(byte[] address) {
+        if (address == null || address.length != Address.ADDRESS_LENGTH) {
+            return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR);
+        }
+        String addressKey = AddressTool.getStringAddressByBytes(address);
+        Lock lock = getLock(addressKey);
         lock.lock();
         try {
-            if (address == null || address.length != Address.ADDRESS_LENGTH) {
-                return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR);
-            }
-
-            String addressKey = AddressTool.getStringAddressByBytes(address);
             BalanceCacheEntity entity = balanceMap.get(addressKey);
+            if (entity == null) {
+                entity = loadBalance(address, addressKey);
+            }
             Balance balance = null;
-            if (entity == null || (entity.getEarlistLockTime() > 0L && entity.getEarlistLockTime() <= TimeService.currentTimeMillis())) {
-                try {
-                    balance = calBalanceByAddress(address);
-                } catch (NulsException e) {
-                    Log.info("getbalance of address[" + AddressTool.getStringAddressByBytes(address) + "] error");
-                }
-            } else {
-                balance = entity.getBalance();
+            if (entity != null) {
+                balance = entity.getBalance(NulsContext.getInstance().getBestHeight(), TimeService.currentTimeMillis());
             }
             return Result.getSuccess().setData(balance);
         } finally {
@@ -125,68 +140,37 @@ public class BalanceManager {
      * 刷新余额，其实就是删除缓存，下次获取时再重新计算
      */
     public void refreshBalance(byte[] address) {
-            if (address != null) {
-                balanceMap.remove(AddressTool.getStringAddressByBytes(address));
-            }
-    }
-
-    public void refreshBalance() {
+        if (address == null) {
+            return;
+        }
+        String addressKey = AddressTool.getStringAddressByBytes(address);
+        Lock lock = getLock(addressKey);
         lock.lock();
         try {
-            balanceMap.clear();
+            balanceMap.remove(addressKey);
         } finally {
             lock.unlock();
         }
     }
 
+    public void refreshBalance() {
+        balanceMap.clear();
+    }
+
     /**
-     * 计算账户的余额，这个方法应该和获取余额方法互斥，避免并发导致数据不准确
+     * 重新计算账户的余额，只读取该地址的UTXO
+     * Recalculate the balance of the account from the utxos of the address only.
      */
     public Balance calBalanceByAddress(byte[] address) throws NulsException {
+        String addressKey = AddressTool.getStringAddressByBytes(address);
+        Lock lock = getLock(addressKey);
         lock.lock();
         try {
-            if (accountService.getAccount(address).isFailed()) {
+            BalanceCacheEntity entity = loadBalance(address, addressKey);
+            if (entity == null) {
                 return null;
             }
-            List<Coin> coinList = getCoinListByAddress(address);
-            Collections.sort(coinList, CoinComparator.getInstance());
-
-            BalanceCacheEntity balanceCacheEntity = new BalanceCacheEntity();
-
-            Na usable = Na.ZERO;
-            Na locked = Na.ZERO;
-            for (Coin coin : coinList) {
-                if (coin.usable()) {
-                    usable = usable.add(coin.getNa());
-                } else {
-                    locked = locked.add(coin.getNa());
-                    long lockTime = coin.getLockTime();
-                    // the consensus lock type
-                    if (lockTime <= 0L) {
-                        continue;
-                    }
-                    // the height lock type
-                    if (balanceCacheEntity.getLowestLockHeigh() == 0L || (lockTime < NulsConstant.BlOCKHEIGHT_TIME_DIVIDE && lockTime < balanceCacheEntity.getLowestLockHeigh())) {
-                        balanceCacheEntity.setLowestLockHeigh(lockTime);
-                        continue;
-                    }
-                    // the time lock type
-                    if (balanceCacheEntity.getEarlistLockTime() == 0L || (lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE && lockTime < balanceCacheEntity.getEarlistLockTime())) {
-                        balanceCacheEntity.setEarlistLockTime(lockTime);
-                        continue;
-                    }
-                }
-            }
-
-
-            Balance balance = new Balance();
-            balance.setUsable(usable);
-            balance.setLocked(locked);
-            balance.setBalance(usable.add(locked));
-            balanceCacheEntity.setBalance(balance);
-
-            balanceMap.put(AddressTool.getStringAddressByBytes(address), balanceCacheEntity);
-            return balance;
+            return entity.getBalance(NulsContext.getInstance().getBestHeight(), TimeService.currentTimeMillis());
         } finally {
             lock.unlock();
         }
@@ -194,7 +178,7 @@ public class BalanceManager {
 
     public List<Coin> getCoinListByAddress(byte[] address) {
         List<Coin> coinList = new ArrayList<>();
-        Collection<Entry<byte[], byte[]>> rawList = localUtxoStorageService.loadAllCoinList();
+        Collection<Entry<byte[], byte[]>> rawList = localUtxoStorageService.loadCoinList(address);
         for (Entry<byte[], byte[]> coinEntry : rawList) {
             Coin coin = new Coin();
             try {
@@ -212,26 +196,77 @@ public class BalanceManager {
         return coinList;
     }
 
-    public void refreshBalanceIfNesessary() {
-            long bestHeight = NulsContext.getInstance().getBestHeight();
-            Set<String> set = new HashSet<>(balanceMap.keySet());
-            for (String address : set) {
-                BalanceCacheEntity entity = balanceMap.get(address);
-                if (entity == null) {
-                    balanceMap.remove(address);
-                    continue;
-                }
-                if (entity.getEarlistLockTime() == 0L && entity.getLowestLockHeigh() == 0L) {
-                    continue;
-                }
-                if (entity.getLowestLockHeigh() > 0L && entity.getLowestLockHeigh() <= bestHeight) {
-                    balanceMap.remove(address);
-                    continue;
-                }
-                if (entity.getEarlistLockTime() > 0L && entity.getEarlistLockTime() <= TimeService.currentTimeMillis()) {
-                    balanceMap.remove(address);
-                    continue;
-                }
+    @Override
+    public void utxoSaved(byte[] key, byte[] value) {
+        Coin coin = parseCoin(value);
+        if (coin == null) {
+            return;
+        }
+        String addressKey = AddressTool.getStringAddressByBytes(coin.getAddress());
+        Lock lock = getLock(addressKey);
+        lock.lock();
+        try {
+            BalanceCacheEntity entity = balanceMap.get(addressKey);
+            if (entity != null) {
+                entity.addCoin(key, coin, NulsContext.getInstance().getBestHeight(), TimeService.currentTimeMillis());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void utxoDeleted(byte[] key, byte[] value) {
+        Coin coin = parseCoin(value);
+        if (coin == null) {
+            return;
+        }
+        String addressKey = AddressTool.getStringAddressByBytes(coin.getAddress());
+        Lock lock = getLock(addressKey);
+        lock.lock();
+        try {
+            BalanceCacheEntity entity = balanceMap.get(addressKey);
+            if (entity != null) {
+                entity.removeCoin(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用者需要持有该地址的锁
+     * The caller must hold the lock of the address.
+     */
+    private BalanceCacheEntity loadBalance(byte[] address, String addressKey) {
+        if (accountService.getAccount(address).isFailed()) {
+            return null;
+        }
+        long bestHeight = NulsContext.getInstance().getBestHeight();
+        long currentTime = TimeService.currentTimeMillis();
+        BalanceCacheEntity entity = new BalanceCacheEntity();
+        for (Entry<byte[], byte[]> coinEntry : localUtxoStorageService.loadCoinList(address)) {
+            Coin coin = parseCoin(coinEntry.getValue());
+            if (coin != null && Arrays.equals(coin.getAddress(), address)) {
+                entity.addCoin(coinEntry.getKey(), coin, bestHeight, currentTime);
             }
+        }
+        balanceMap.put(addressKey, entity);
+        return entity;
+    }
+
+    private Coin parseCoin(byte[] value) {
+        Coin coin = new Coin();
+        try {
+            coin.parse(value, 0);
+        } catch (NulsException e) {
+            Log.info("parse coin form db error");
+            return null;
+        }
+        return coin;
+    }
+
+    private Lock getLock(String addressKey) {
+        return locks[(addressKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
     }
 }
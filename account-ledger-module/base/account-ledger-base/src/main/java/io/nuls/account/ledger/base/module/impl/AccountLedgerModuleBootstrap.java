@@ -24,6 +24,7 @@
 package io.nuls.account.ledger.base.module.impl;
 
 import io.nuls.account.constant.AccountConstant;
+import io.nuls.account.ledger.base.manager.AddressTxIndexManager;
 import io.nuls.account.ledger.base.manager.BalanceManager;
 import io.nuls.account.ledger.base.task.CheckUnConfirmTxThread;
 import io.nuls.account.ledger.constant.AccountLedgerConstant;
@@ -53,6 +54,8 @@ public class AccountLedgerModuleBootstrap extends AbstractAccountLedgerModule {
         this.waitForDependencyRunning(AccountConstant.MODULE_ID_ACCOUNT, ProtocolConstant.MODULE_ID_PROTOCOL);
         BalanceManager balanceManager = NulsContext.getServiceBean(BalanceManager.class);
         balanceManager.initAccountBalance();
+        AddressTxIndexManager addressTxIndexManager = NulsContext.getServiceBean(AddressTxIndexManager.class);
+        TaskManager.createAndRunThread(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "AddressTxIndexThread", addressTxIndexManager::buildIndex);
         ScheduledThreadPoolExecutor executor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "CheckUnConfirmTxThread"));
         executor.scheduleAtFixedRate(NulsContext.getServiceBean(CheckUnConfirmTxThread.class), 10, 10, TimeUnit.MINUTES);
     }
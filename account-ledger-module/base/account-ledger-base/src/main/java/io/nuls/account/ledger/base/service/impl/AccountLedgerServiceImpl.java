@@ -27,6 +27,7 @@ package io.nuls.account.ledger.base.service.impl;
 
 import io.nuls.account.constant.AccountConstant;
 import io.nuls.account.constant.AccountErrorCode;
+import io.nuls.account.ledger.base.manager.AddressTxIndexManager;
 import io.nuls.account.ledger.base.manager.BalanceManager;
 import io.nuls.account.ledger.base.service.LocalUtxoService;
 import io.nuls.account.ledger.base.service.TransactionInfoService;
@@ -104,6 +105,9 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
     @Autowired
     private BalanceManager balanceManager;
 
+    @Autowired
+    private AddressTxIndexManager addressTxIndexManager;
+
     @Autowired
     private TransactionService transactionService;
 
@@ -135,6 +139,7 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         if (txs == null || txs.size() == 0) {
             return Result.getSuccess().setData(0);
         }
+        addressTxIndexManager.blockSaved(txs);
 
         List<byte[]> localAddresses = AccountLegerUtils.getLocalAddresses();
 
@@ -159,8 +164,6 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
             }
         }
 
-        balanceManager.refreshBalanceIfNesessary();
-
         return Result.getSuccess().setData(savedTxList.size());
     }
 
@@ -204,10 +207,6 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         } else {
             unconfirmedTransactionStorageService.deleteUnconfirmedTx(tx.getHash());
         }
-
-        for (int i = 0; i < addresses.size(); i++) {
-            balanceManager.refreshBalance(addresses.get(i));
-        }
         result.setData(new Integer(1));
         return result;
     }
@@ -314,10 +313,6 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         }
 
         result = unconfirmedTransactionStorageService.saveUnconfirmedTx(tx.getHash(), tx);
-
-        for (int i = 0; i < addresses.size(); i++) {
-            balanceManager.refreshBalance(addresses.get(i));
-        }
         return result;
     }
 
@@ -330,11 +325,8 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
 
     @Override
     public Result<Integer> rollbackTransactions(List<Transaction> txs) {
-        Result result = rollbackTransactions(txs, true);
-        if (result.isSuccess()) {
-            balanceManager.refreshBalanceIfNesessary();
-        }
-        return result;
+        addressTxIndexManager.blockRolledBack(txs);
+        return rollbackTransactions(txs, true);
     }
 
     private Result<Integer> rollbackTransactions(List<Transaction> txs, boolean isCheckMine) {
@@ -395,10 +387,6 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         }
         result = unconfirmedTransactionStorageService.deleteUnconfirmedTx(tx.getHash());
 
-        for (int i = 0; i < addresses.size(); i++) {
-            balanceManager.refreshBalance(addresses.get(i));
-        }
-
         if (usedTxSets != null) {
             CoinData coinData = tx.getCoinData();
             if (coinData != null) {
@@ -1302,6 +1290,25 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
             return Result.getFailed(AccountErrorCode.ADDRESS_ERROR);
         }
 
+        // 地址交易索引建好后只读取与该地址相关的交易，否则逐块扫描
+        // Only read the transactions related to the address once the address tx index is built, otherwise scan every block.
+        List<Transaction> indexedTxList = addressTxIndexManager.getTxList(addressBytes);
+        if (indexedTxList != null) {
+            for (Transaction tx : indexedTxList) {
+                importConfirmedTransaction(tx, addressBytes);
+            }
+        } else {
+            importLedgerByScanning(addressBytes);
+        }
+        try {
+            balanceManager.refreshBalance(addressBytes);
+        } catch (Exception e) {
+            Log.info(address);
+        }
+        return Result.getSuccess();
+    }
+
+    private void importLedgerByScanning(byte[] addressBytes) {
         long start = 0;
         long end = NulsContext.getInstance().getBestHeight();
         while (start <= end) {
@@ -1317,12 +1324,6 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
                 break;
             }
         }
-        try {
-            balanceManager.refreshBalance(addressBytes);
-        } catch (Exception e) {
-            Log.info(address);
-        }
-        return Result.getSuccess();
     }
 
     @Override
@@ -1420,10 +1421,7 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         TransactionInfoPo txInfoPo = new TransactionInfoPo(tx);
         txInfoPo.setStatus(status);
 
-        List<byte[]> addresses1 = localUtxoService.unlockCoinData(tx, newLockTime).getData();
-        for (byte[] address : addresses1) {
-            balanceManager.refreshBalance(address);
-        }
+        localUtxoService.unlockCoinData(tx, newLockTime);
         return Result.getSuccess();
     }
 
@@ -1437,10 +1435,7 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         TransactionInfoPo txInfoPo = new TransactionInfoPo(tx);
         txInfoPo.setStatus(status);
 
-        List<byte[]> addresses1 = localUtxoService.rollbackUnlockTxCoinData(tx).getData();
-        for (byte[] address : addresses1) {
-            balanceManager.refreshBalance(address);
-        }
+        localUtxoService.rollbackUnlockTxCoinData(tx);
 
         CoinData coinData = tx.getCoinData();
         if (coinData != null) {
@@ -24,7 +24,6 @@
 package io.nuls.account.ledger.base.task;
 
 
-import io.nuls.account.ledger.base.manager.BalanceManager;
 import io.nuls.account.ledger.base.service.TransactionInfoService;
 import io.nuls.account.ledger.base.service.impl.AccountLedgerServiceImpl;
 import io.nuls.account.ledger.base.util.AccountLegerUtils;
@@ -39,7 +38,6 @@ import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.*;
-import io.nuls.kernel.utils.AddressTool;
 import io.nuls.kernel.utils.VarInt;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.protocol.service.TransactionService;
@@ -66,9 +64,6 @@ public class CheckUnConfirmTxThread implements Runnable {
     @Autowired
     private LocalUtxoStorageService localUtxoStorageService;
 
-    @Autowired
-    private BalanceManager balanceManager;
-
     @Autowired
     private TransactionInfoService transactionInfoService;
 
@@ -105,14 +100,6 @@ public class CheckUnConfirmTxThread implements Runnable {
                 }
             } else {
                 deleteUnconfirmedTransaction(tx);
-                List<byte[]> addresses = tx.getAllRelativeAddress();
-                Set<String> set = new HashSet<>();
-                for (byte[] address : addresses) {
-                    if (AccountLegerUtils.isLocalAccount(address) && set.add(AddressTool.getStringAddressByBytes(address))) {
-                        balanceManager.refreshBalance(address);
-                    }
-                }
-
             }
         }
     }
@@ -0,0 +1,333 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.ledger.storage.po.AddressTxIndexPo;
+import io.nuls.account.ledger.storage.service.AddressTxIndexStorageService;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.*;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.model.SmallBlock;
+import io.nuls.protocol.model.tx.CoinBaseTransaction;
+import io.nuls.protocol.service.BlockService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+public class AddressTxIndexManagerTest {
+
+    private AddressTxIndexManager manager;
+    private MemoryIndexStorage storage;
+    private MemoryBlockService blockService;
+
+    @Before
+    public void init() throws Exception {
+        manager = new AddressTxIndexManager();
+        storage = new MemoryIndexStorage();
+        blockService = new MemoryBlockService();
+        setField("addressTxIndexStorageService", storage);
+        setField("blockService", blockService);
+        for (long height = 0; height <= 5; height++) {
+            blockService.addBlock(block(height, "main"));
+        }
+        NulsContext.getInstance().setBestBlock(blockService.blocks.get(5L));
+    }
+
+    /**
+     * 从已索引高度之后继续补建，完成后推进已索引高度
+     * The build resumes after the indexed height and advances the indexed height when it is done.
+     */
+    @Test
+    public void testBuildResume() {
+        storage.indexedHeight = 2;
+        manager.buildIndex();
+        assertEquals(new TreeSet<>(Arrays.asList(3L, 4L, 5L)), storage.savedHeights);
+        assertEquals(5, storage.indexedHeight);
+        assertNotNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+    }
+
+    /**
+     * 补建中某个区块写入失败时不推进已索引高度，索引保持不完整
+     * A failed write during the build keeps the indexed height and leaves the index incomplete.
+     */
+    @Test
+    public void testBuildFailureKeepsIndexedHeight() {
+        storage.indexedHeight = 2;
+        storage.failedHeight = 4;
+        manager.buildIndex();
+        assertEquals(2, storage.indexedHeight);
+        assertNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+    }
+
+    /**
+     * 读取的区块不在当前主链上时不保存它的索引
+     * The index of a block that is no longer on the main chain is not saved.
+     */
+    @Test
+    public void testBuildChecksMainChain() {
+        storage.indexedHeight = 2;
+        blockService.staleBlocks.put(4L, block(4, "fork"));
+        manager.buildIndex();
+        assertFalse(storage.savedHeights.contains(4L));
+        assertEquals(2, storage.indexedHeight);
+        assertNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+    }
+
+    /**
+     * 增量写入失败时索引变为不完整，已索引高度降到失败高度之前，下次补建从这里开始
+     * A failed incremental write makes the index incomplete and lowers the indexed height below the failed height,
+     * so the next build starts from there.
+     */
+    @Test
+    public void testBlockSavedFailure() {
+        manager.buildIndex();
+        assertEquals(5, storage.indexedHeight);
+        assertNotNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+
+        storage.failedHeight = 3;
+        manager.blockSaved(blockService.blocks.get(3L).getTxs());
+        assertEquals(2, storage.indexedHeight);
+        assertNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+
+        storage.failedHeight = -1;
+        storage.savedHeights.clear();
+        manager.buildIndex();
+        assertEquals(new TreeSet<>(Arrays.asList(3L, 4L, 5L)), storage.savedHeights);
+        assertEquals(5, storage.indexedHeight);
+    }
+
+    /**
+     * 索引完整后，增量保存和回滚的区块在同一批次中推进或降低已索引高度
+     * Once the index is complete, the blocks saved and rolled back incrementally advance or lower the indexed height in the same batch.
+     */
+    @Test
+    public void testIncrementalIndexedHeight() {
+        manager.buildIndex();
+        assertEquals(5, storage.indexedHeight);
+
+        Block block6 = block(6, "main");
+        manager.blockSaved(block6.getTxs());
+        assertEquals(6, storage.indexedHeight);
+        manager.blockRolledBack(block6.getTxs());
+        assertEquals(5, storage.indexedHeight);
+        assertFalse(storage.savedHeights.contains(6L));
+        assertNotNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+    }
+
+    /**
+     * 补建期间增量索引的区块在补建完成时计入已索引高度
+     * The blocks indexed incrementally during the build are counted into the indexed height when the build completes.
+     */
+    @Test
+    public void testBuildCountsIncrementalBlocks() {
+        storage.indexedHeight = 2;
+        manager.blockSaved(block(6, "main").getTxs());
+        manager.blockSaved(block(7, "main").getTxs());
+        assertEquals(2, storage.indexedHeight);
+
+        manager.buildIndex();
+        assertEquals(7, storage.indexedHeight);
+        manager.blockSaved(block(8, "main").getTxs());
+        assertEquals(8, storage.indexedHeight);
+    }
+
+    @Test
+    public void testBlockRolledBackFailure() {
+        manager.buildIndex();
+        storage.failedHeight = 5;
+        manager.blockRolledBack(blockService.blocks.get(5L).getTxs());
+        assertEquals(4, storage.indexedHeight);
+        assertNull(manager.getTxList(new byte[Address.ADDRESS_LENGTH]));
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = AddressTxIndexManager.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(manager, value);
+    }
+
+    private Block block(long height, String branch) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setHash(NulsDigestData.calcDigestData((branch + height).getBytes()));
+        CoinBaseTransaction coinBase = new CoinBaseTransaction();
+        coinBase.setBlockHeight(height);
+        coinBase.setHash(NulsDigestData.calcDigestData((branch + "coinbase" + height).getBytes()));
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(new ArrayList<>(Collections.singletonList(coinBase)));
+        return block;
+    }
+
+    private static class MemoryIndexStorage implements AddressTxIndexStorageService {
+
+        private long indexedHeight = -1;
+        private long failedHeight = -1;
+        private final Set<Long> savedHeights = Collections.synchronizedSet(new TreeSet<>());
+
+        @Override
+        public Result saveBlockIndex(long height, List<Transaction> txList, boolean updateIndexedHeight) {
+            if (height == failedHeight) {
+                return Result.getFailed(KernelErrorCode.FAILED);
+            }
+            savedHeights.add(height);
+            if (updateIndexedHeight) {
+                indexedHeight = height;
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result deleteBlockIndex(long height, boolean updateIndexedHeight) {
+            if (height == failedHeight) {
+                return Result.getFailed(KernelErrorCode.FAILED);
+            }
+            savedHeights.remove(height);
+            if (updateIndexedHeight) {
+                indexedHeight = height - 1;
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public List<AddressTxIndexPo> getIndexList(byte[] address) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public long getIndexedHeight() {
+            return indexedHeight;
+        }
+
+        @Override
+        public Result saveIndexedHeight(long height) {
+            indexedHeight = height;
+            return Result.getSuccess();
+        }
+    }
+
+    /**
+     * staleBlocks中的区块在读取时返回，模拟读取期间主链已经切换
+     * The blocks in staleBlocks are returned by the reads, as if the main chain switched while they were read.
+     */
+    private static class MemoryBlockService implements BlockService {
+
+        private final Map<Long, Block> blocks = new HashMap<>();
+        private final Map<Long, Block> staleBlocks = new HashMap<>();
+
+        void addBlock(Block block) {
+            blocks.put(block.getHeader().getHeight(), block);
+        }
+
+        @Override
+        public Result<Block> getGengsisBlock() {
+            return getBlock(0L);
+        }
+
+        @Override
+        public Result<Block> getBestBlock() {
+            return Result.getSuccess().setData(NulsContext.getInstance().getBestBlock());
+        }
+
+        @Override
+        public Result<BlockHeader> getBestBlockHeader() {
+            return Result.getSuccess().setData(NulsContext.getInstance().getBestBlock().getHeader());
+        }
+
+        @Override
+        public Result<BlockHeader> getBlockHeader(long height) {
+            Block block = blocks.get(height);
+            return Result.getSuccess().setData(block == null ? null : block.getHeader());
+        }
+
+        @Override
+        public Result<BlockHeader> getBlockHeader(NulsDigestData hash) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result<Block> getBlock(NulsDigestData hash) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result<Block> getBlock(NulsDigestData hash, boolean isNeedContractTransfer) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result<Block> getBlock(long height) {
+            Block block = staleBlocks.containsKey(height) ? staleBlocks.get(height) : blocks.get(height);
+            return Result.getSuccess().setData(block);
+        }
+
+        @Override
+        public Result<Block> getBlock(long height, boolean isNeedContractTransfer) {
+            return getBlock(height);
+        }
+
+        @Override
+        public Result<List<BlockHeader>> getBlockHeaders(long fromHeight, long toHeight) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeader> visitor) {
+            return 0;
+        }
+
+        @Override
+        public int scanBlocks(long fromHeight, long toHeight, boolean descending, Predicate<Block> visitor) {
+            return 0;
+        }
+
+        @Override
+        public Result saveBlock(Block block) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result rollbackBlock(Block block) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result forwardBlock(NulsDigestData hash, Node excludeNode) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result broadcastBlock(SmallBlock block) {
+            return Result.getSuccess();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.model.Balance;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BalanceCacheEntityTest {
+
+    private static final long TIME_LOCK = 1600000000000L;
+
+    /**
+     * 按高度锁定的UTXO在高度到达时解锁，回滚使高度降低时重新锁定
+     * A utxo locked by height is unlocked when the height is reached, and locked again when a rollback lowers the height.
+     */
+    @Test
+    public void testHeightLockRollback() {
+        BalanceCacheEntity entity = new BalanceCacheEntity();
+        entity.addCoin(new byte[]{1}, new Coin(new byte[23], Na.valueOf(100L), 0L), 10L, 0L);
+        entity.addCoin(new byte[]{2}, new Coin(new byte[23], Na.valueOf(20L), 12L), 10L, 0L);
+        entity.addCoin(new byte[]{3}, new Coin(new byte[23], Na.valueOf(3L), 8L), 10L, 0L);
+        assertBalance(entity.getBalance(10L, 0L), 103L, 20L);
+
+        assertBalance(entity.getBalance(12L, 0L), 123L, 0L);
+        assertBalance(entity.getBalance(11L, 0L), 103L, 20L);
+        assertBalance(entity.getBalance(7L, 0L), 100L, 23L);
+        assertBalance(entity.getBalance(12L, 0L), 123L, 0L);
+
+        entity.removeCoin(new byte[]{2});
+        assertBalance(entity.getBalance(7L, 0L), 100L, 3L);
+    }
+
+    /**
+     * 按时间锁定的UTXO在时间到达时解锁，共识锁定(-1)只能通过删除解除
+     * A utxo locked by time is unlocked when the time is reached, the consensus lock (-1) is only released by removal.
+     */
+    @Test
+    public void testTimeAndConsensusLock() {
+        BalanceCacheEntity entity = new BalanceCacheEntity();
+        entity.addCoin(new byte[]{1}, new Coin(new byte[23], Na.valueOf(10L), TIME_LOCK), 10L, TIME_LOCK - 1);
+        entity.addCoin(new byte[]{2}, new Coin(new byte[23], Na.valueOf(5L), -1L), 10L, TIME_LOCK - 1);
+        assertBalance(entity.getBalance(10L, TIME_LOCK - 1), 0L, 15L);
+        assertBalance(entity.getBalance(10L, TIME_LOCK), 10L, 5L);
+
+        entity.removeCoin(new byte[]{2});
+        assertBalance(entity.getBalance(100L, TIME_LOCK), 10L, 0L);
+    }
+
+    /**
+     * 二进制key不能因为字符集转换而冲突，相同key覆盖旧值
+     * Binary keys must not collide through charset conversion, the same key replaces the old value.
+     */
+    @Test
+    public void testBinaryKeys() {
+        BalanceCacheEntity entity = new BalanceCacheEntity();
+        entity.addCoin(new byte[]{(byte) 0x80}, new Coin(new byte[23], Na.valueOf(1L), 0L), 0L, 0L);
+        entity.addCoin(new byte[]{(byte) 0x81}, new Coin(new byte[23], Na.valueOf(2L), 0L), 0L, 0L);
+        assertBalance(entity.getBalance(0L, 0L), 3L, 0L);
+
+        entity.addCoin(new byte[]{(byte) 0x81}, new Coin(new byte[23], Na.valueOf(4L), 0L), 0L, 0L);
+        assertBalance(entity.getBalance(0L, 0L), 5L, 0L);
+        entity.removeCoin(new byte[]{(byte) 0x80});
+        assertBalance(entity.getBalance(0L, 0L), 4L, 0L);
+    }
+
+    private void assertBalance(Balance balance, long usable, long locked) {
+        assertEquals(usable, balance.getUsable().getValue());
+        assertEquals(locked, balance.getLocked().getValue());
+        assertEquals(usable + locked, balance.getBalance().getValue());
+    }
+}
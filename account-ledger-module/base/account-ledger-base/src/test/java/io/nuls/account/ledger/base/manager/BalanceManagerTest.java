@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.ledger.storage.service.LocalUtxoListener;
+import io.nuls.account.ledger.storage.service.LocalUtxoStorageService;
+import io.nuls.account.model.Balance;
+import io.nuls.account.service.AccountService;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.db.model.Entry;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BalanceManagerTest {
+
+    private BalanceManager manager;
+    private MemoryUtxoStorage storage;
+    private byte[] address;
+
+    @Before
+    public void init() throws Exception {
+        manager = new BalanceManager();
+        storage = new MemoryUtxoStorage();
+        AccountService accountService = (AccountService) Proxy.newProxyInstance(AccountService.class.getClassLoader(),
+                new Class[]{AccountService.class}, (proxy, method, args) -> Result.getSuccess());
+        setField("localUtxoStorageService", storage);
+        setField("accountService", accountService);
+        manager.afterPropertiesSet();
+
+        address = new byte[Address.ADDRESS_LENGTH];
+        Arrays.fill(address, (byte) 7);
+        setBestHeight(10L);
+    }
+
+    /**
+     * 第一次读取时从地址的UTXO计算余额，之后随UTXO的写入和删除增量更新
+     * The balance is calculated from the utxos of the address on the first read, then updated as utxos are saved and deleted.
+     */
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        storage.saveUTXO(new byte[]{1}, new Coin(address, Na.valueOf(100L), 0L).serialize());
+        storage.saveUTXO(new byte[]{2}, new Coin(address, Na.valueOf(20L), 12L).serialize());
+        assertBalance(100L, 20L);
+
+        storage.saveUTXO(new byte[]{3}, new Coin(address, Na.valueOf(5L), -1L).serialize());
+        assertBalance(100L, 25L);
+        storage.deleteUTXO(new byte[]{1});
+        assertBalance(0L, 25L);
+    }
+
+    /**
+     * 最新高度越过锁定高度时解锁，回滚到锁定高度之前时重新锁定
+     * A coin is unlocked when the best height passes its lock height, and locked again when a rollback goes below it.
+     */
+    @Test
+    public void testUnlockAndRollback() throws Exception {
+        storage.saveUTXO(new byte[]{1}, new Coin(address, Na.valueOf(20L), 12L).serialize());
+        assertBalance(0L, 20L);
+
+        setBestHeight(12L);
+        assertBalance(20L, 0L);
+        setBestHeight(11L);
+        assertBalance(0L, 20L);
+        setBestHeight(12L);
+        assertBalance(20L, 0L);
+    }
+
+    private void assertBalance(long usable, long locked) {
+        Balance balance = manager.getBalance(address).getData();
+        assertNotNull(balance);
+        assertEquals(usable, balance.getUsable().getValue());
+        assertEquals(locked, balance.getLocked().getValue());
+    }
+
+    private void setBestHeight(long height) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        Block block = new Block();
+        block.setHeader(header);
+        NulsContext.getInstance().setBestBlock(block);
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = BalanceManager.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(manager, value);
+    }
+
+    private static class MemoryUtxoStorage implements LocalUtxoStorageService {
+
+        private final Map<String, Entry<byte[], byte[]>> utxoMap = new LinkedHashMap<>();
+        private final List<LocalUtxoListener> listeners = new ArrayList<>();
+
+        @Override
+        public Result saveUTXO(byte[] key, byte[] value) {
+            utxoMap.put(Hex.encode(key), new Entry<>(key, value));
+            for (LocalUtxoListener listener : listeners) {
+                listener.utxoSaved(key, value);
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result batchSaveUTXO(Map<byte[], byte[]> utxos) {
+            for (Map.Entry<byte[], byte[]> entry : utxos.entrySet()) {
+                saveUTXO(entry.getKey(), entry.getValue());
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result deleteUTXO(byte[] key) {
+            Entry<byte[], byte[]> entry = utxoMap.remove(Hex.encode(key));
+            if (entry != null) {
+                for (LocalUtxoListener listener : listeners) {
+                    listener.utxoDeleted(key, entry.getValue());
+                }
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result batchDeleteUTXO(Set<byte[]> utxos) {
+            for (byte[] key : utxos) {
+                deleteUTXO(key);
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Collection<Entry<byte[], byte[]>> loadAllCoinList() {
+            return new ArrayList<>(utxoMap.values());
+        }
+
+        @Override
+        public Collection<Entry<byte[], byte[]>> loadCoinList(byte[] address) {
+            return new ArrayList<>(utxoMap.values());
+        }
+
+        @Override
+        public void addUtxoListener(LocalUtxoListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public Result batchSaveAndDeleteUTXO(List<Entry<byte[], byte[]>> utxosToSave, List<byte[]> utxosToDelete) {
+            for (Entry<byte[], byte[]> entry : utxosToSave) {
+                saveUTXO(entry.getKey(), entry.getValue());
+            }
+            for (byte[] key : utxosToDelete) {
+                deleteUTXO(key);
+            }
+            return Result.getSuccess();
+        }
+
+        @Override
+        public byte[] getUtxoBytes(byte[] owner) {
+            Entry<byte[], byte[]> entry = utxoMap.get(Hex.encode(owner));
+            return entry == null ? null : entry.getValue();
+        }
+
+        @Override
+        public Coin getUtxo(byte[] owner) {
+            return null;
+        }
+    }
+}
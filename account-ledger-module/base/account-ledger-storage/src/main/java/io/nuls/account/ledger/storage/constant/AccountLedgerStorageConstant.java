@@ -39,4 +39,16 @@ public interface AccountLedgerStorageConstant {
     String DB_NAME_ACCOUNT_LEDGER_TX = "account_ledger_tx";
     String DB_NAME_ACCOUNT_LEDGER_COINDATA = "account_ledger_coindata";
 
+    /**
+     * 全链地址交易索引：地址+高度+交易序号 -> 交易hash
+     * The chain-wide address transaction index: address + height + tx index -> tx hash
+     */
+    String DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX = "account_ledger_address_tx_index";
+
+    /**
+     * 每个高度索引过的地址，用于回滚，以及已建好索引的高度
+     * The addresses indexed at each height for rolling back, and the height the index has been built up to
+     */
+    String DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX = "account_ledger_height_address_index";
+
 }
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.storage.po;
+
+import io.nuls.kernel.model.NulsDigestData;
+
+/**
+ * 地址交易索引的一条记录：交易所在的高度、在区块中的序号和交易hash
+ * One entry of the address transaction index: the height, the position in the block and the hash of the transaction.
+ */
+public class AddressTxIndexPo {
+
+    private long height;
+
+    private int txIndex;
+
+    private NulsDigestData txHash;
+
+    public AddressTxIndexPo(long height, int txIndex, NulsDigestData txHash) {
+        this.height = height;
+        this.txIndex = txIndex;
+        this.txHash = txHash;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public int getTxIndex() {
+        return txIndex;
+    }
+
+    public NulsDigestData getTxHash() {
+        return txHash;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.storage.service;
+
+import io.nuls.account.ledger.storage.po.AddressTxIndexPo;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+
+import java.util.List;
+
+/**
+ * 全链地址交易索引，按地址、高度、交易序号排序，使导入账户只需读取与该地址相关的交易
+ * The chain-wide address transaction index, ordered by address, height and tx index,
+ * so that importing an account only reads the transactions related to the address.
+ */
+public interface AddressTxIndexStorageService {
+
+    /**
+     * 索引一个区块的交易，txList中的序号即交易序号
+     * Index the transactions of a block, the position in txList is the tx index.
+     *
+     * @param height              区块高度/block height
+     * @param txList              区块中的交易/the transactions of the block
+     * @param updateIndexedHeight 是否在同一批次中把已索引高度设为height/whether to set the indexed height to height in the same batch
+     */
+    Result saveBlockIndex(long height, List<Transaction> txList, boolean updateIndexedHeight);
+
+    /**
+     * 删除一个区块的全部索引
+     * Delete all the index entries of a block.
+     *
+     * @param height              区块高度/block height
+     * @param updateIndexedHeight 是否在同一批次中把已索引高度设为height - 1/whether to set the indexed height to height - 1 in the same batch
+     */
+    Result deleteBlockIndex(long height, boolean updateIndexedHeight);
+
+    /**
+     * 按高度和交易序号升序获取地址的索引
+     * Get the index entries of the address in ascending height and tx index order.
+     *
+     * @param address 地址/address
+     */
+    List<AddressTxIndexPo> getIndexList(byte[] address);
+
+    /**
+     * 获取已建好索引的高度，该高度及以下的区块都已索引，没有时返回-1
+     * Get the height the index has been built up to, all the blocks at or below it are indexed, -1 when none.
+     */
+    long getIndexedHeight();
+
+    Result saveIndexedHeight(long height);
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.storage.service;
+
+/**
+ * 本地UTXO变更监听器，UTXO写入数据库成功后回调，用于增量维护依赖本地UTXO的缓存（如账户余额）
+ * Listener of the local utxo changes, called after the change has been written to the database successfully,
+ * used to maintain the caches built on the local utxos (such as the balances) incrementally.
+ */
+public interface LocalUtxoListener {
+
+    /**
+     * UTXO被写入，key已存在时是覆盖
+     * A utxo was written, it replaces the old value when the key exists.
+     *
+     * @param key   UTXO的key/the key of the utxo
+     * @param value 序列化的Coin/the serialized coin
+     */
+    void utxoSaved(byte[] key, byte[] value);
+
+    /**
+     * UTXO被删除
+     * A utxo was deleted.
+     *
+     * @param key   UTXO的key/the key of the utxo
+     * @param value 删除前的序列化的Coin/the serialized coin before it was deleted
+     */
+    void utxoDeleted(byte[] key, byte[] value);
+}
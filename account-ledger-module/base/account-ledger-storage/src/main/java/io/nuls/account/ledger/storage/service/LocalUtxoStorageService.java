@@ -48,6 +48,18 @@ public interface LocalUtxoStorageService {
 
     Collection<Entry<byte[], byte[]>> loadAllCoinList();
 
+    /**
+     * 获取一个地址的所有本地UTXO，不遍历全部UTXO
+     * Get the local utxos of the address without scanning all the utxos.
+     */
+    Collection<Entry<byte[], byte[]>> loadCoinList(byte[] address);
+
+    /**
+     * 注册本地UTXO变更监听器
+     * Register a listener of the local utxo changes.
+     */
+    void addUtxoListener(LocalUtxoListener listener);
+
     Result batchSaveAndDeleteUTXO(List<Entry<byte[], byte[]>> utxosToSave, List<byte[]> utxosToDelete);
 
     byte[] getUtxoBytes(byte[] owner);
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.account.ledger.storage.service.impl;
+
+import io.nuls.account.ledger.storage.constant.AccountLedgerStorageConstant;
+import io.nuls.account.ledger.storage.po.AddressTxIndexPo;
+import io.nuls.account.ledger.storage.service.AddressTxIndexStorageService;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
+import io.nuls.kernel.model.Address;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 地址交易索引的key为 地址(23字节)+高度(8字节大端)+交易序号(4字节大端)，字节序即(地址, 高度, 交易序号)的顺序
+ * The key of the address transaction index is address(23 bytes) + height(8 bytes big-endian) + tx index(4 bytes big-endian),
+ * so the bytewise order is the (address, height, tx index) order.
+ */
+@Component
+public class AddressTxIndexStorageServiceImpl implements AddressTxIndexStorageService, InitializingBean {
+
+    private static final byte[] INDEXED_HEIGHT_KEY = "indexed_height".getBytes();
+
+    @Autowired
+    private DBService dbService;
+
+    @Override
+    public void afterPropertiesSet() throws NulsException {
+        createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX);
+        createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX);
+    }
+
+    private void createArea(String area) {
+        Result result = dbService.createArea(area);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+    }
+
+    @Override
+    public Result saveBlockIndex(long height, List<Transaction> txList, boolean updateIndexedHeight) {
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        // 重复索引同一高度时先清掉旧数据
+        // Clear the old entries first when the same height is indexed again.
+        deleteBlockIndex(batch, height);
+        Map<String, byte[]> addressMap = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < txList.size(); i++) {
+                Transaction tx = txList.get(i);
+                if (tx == null) {
+                    continue;
+                }
+                byte[] txHash = tx.getHash().serialize();
+                List<byte[]> addressList = tx.getAllRelativeAddress();
+                for (byte[] address : addressList) {
+                    if (address == null || address.length != Address.ADDRESS_LENGTH) {
+                        continue;
+                    }
+                    batch.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX, createKey(address, height, i), txHash);
+                    addressMap.put(Hex.encode(address), address);
+                }
+            }
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        byte[] addresses = ArraysTool.concatenate(addressMap.values().toArray(new byte[addressMap.size()][]));
+        batch.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, heightKey(height), addresses);
+        if (updateIndexedHeight) {
+            batch.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, INDEXED_HEIGHT_KEY, heightKey(height));
+        }
+        return batch.executeBatch();
+    }
+
+    @Override
+    public Result deleteBlockIndex(long height, boolean updateIndexedHeight) {
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        deleteBlockIndex(batch, height);
+        if (updateIndexedHeight) {
+            batch.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, INDEXED_HEIGHT_KEY, heightKey(height - 1));
+        }
+        return batch.executeBatch();
+    }
+
+    private void deleteBlockIndex(MultiAreaBatchOperation batch, long height) {
+        byte[] heightKey = heightKey(height);
+        byte[] addresses = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, heightKey);
+        if (addresses == null) {
+            return;
+        }
+        for (int offset = 0; offset + Address.ADDRESS_LENGTH <= addresses.length; offset += Address.ADDRESS_LENGTH) {
+            byte[] prefix = new byte[Address.ADDRESS_LENGTH + 8];
+            System.arraycopy(addresses, offset, prefix, 0, Address.ADDRESS_LENGTH);
+            System.arraycopy(heightKey, 0, prefix, Address.ADDRESS_LENGTH, 8);
+            DBCursor cursor = dbService.openCursor(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX, prefix);
+            if (cursor == null) {
+                continue;
+            }
+            try {
+                while (cursor.hasNext()) {
+                    batch.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX, cursor.next().getKey());
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        batch.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, heightKey);
+    }
+
+    @Override
+    public List<AddressTxIndexPo> getIndexList(byte[] address) {
+        List<AddressTxIndexPo> indexList = new ArrayList<>();
+        if (address == null || address.length != Address.ADDRESS_LENGTH) {
+            return indexList;
+        }
+        DBCursor cursor = dbService.openCursor(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_ADDRESS_TX_INDEX, address);
+        if (cursor == null) {
+            return indexList;
+        }
+        try {
+            while (cursor.hasNext()) {
+                Entry<byte[], byte[]> entry = cursor.next();
+                ByteBuffer key = ByteBuffer.wrap(entry.getKey(), Address.ADDRESS_LENGTH, 12);
+                NulsDigestData txHash = new NulsDigestData();
+                txHash.parse(entry.getValue(), 0);
+                indexList.add(new AddressTxIndexPo(key.getLong(), key.getInt(), txHash));
+            }
+        } catch (NulsException e) {
+            Log.error(e);
+        } finally {
+            cursor.close();
+        }
+        return indexList;
+    }
+
+    @Override
+    public long getIndexedHeight() {
+        byte[] value = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, INDEXED_HEIGHT_KEY);
+        if (value == null || value.length != 8) {
+            return -1;
+        }
+        return ByteBuffer.wrap(value).getLong();
+    }
+
+    @Override
+    public Result saveIndexedHeight(long height) {
+        return dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_HEIGHT_ADDRESS_INDEX, INDEXED_HEIGHT_KEY, heightKey(height));
+    }
+
+    private static byte[] heightKey(long height) {
+        return ByteBuffer.allocate(8).putLong(height).array();
+    }
+
+    private static byte[] createKey(byte[] address, long height, int txIndex) {
+        return ByteBuffer.allocate(Address.ADDRESS_LENGTH + 12).put(address).putLong(height).putInt(txIndex).array();
+    }
+}
@@ -25,7 +25,9 @@
 package io.nuls.account.ledger.storage.service.impl;
 
 import io.nuls.account.ledger.storage.constant.AccountLedgerStorageConstant;
+import io.nuls.account.ledger.storage.service.LocalUtxoListener;
 import io.nuls.account.ledger.storage.service.LocalUtxoStorageService;
+import io.nuls.core.tools.crypto.Hex;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.model.Entry;
@@ -42,6 +44,7 @@ import io.nuls.ledger.service.LedgerService;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author Facjas
@@ -58,7 +61,15 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
     @Autowired
     private LedgerService ledgerService;
 
-    private Map<String, Entry<byte[], byte[]>> cacheMap;
+    private volatile Map<String, Entry<byte[], byte[]>> cacheMap;
+
+    /**
+     * 按地址分组的本地UTXO，和cacheMap同步维护
+     * The local utxos grouped by address, maintained together with cacheMap.
+     */
+    private final Map<String, Map<String, Entry<byte[], byte[]>>> addressCoinMap = new ConcurrentHashMap<>();
+
+    private final List<LocalUtxoListener> listenerList = new CopyOnWriteArrayList<>();
 
     @Override
     public void afterPropertiesSet() throws NulsException {
@@ -71,23 +82,105 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
 
     @Override
     public Collection<Entry<byte[], byte[]>> loadAllCoinList() {
-        if(cacheMap == null) {
-            cacheMap = new ConcurrentHashMap<>();
+        return getCacheMap().values();
+    }
+
+    @Override
+    public Collection<Entry<byte[], byte[]>> loadCoinList(byte[] address) {
+        getCacheMap();
+        if (address == null) {
+            return Collections.emptyList();
+        }
+        Map<String, Entry<byte[], byte[]>> coinMap = addressCoinMap.get(Hex.encode(address));
+        if (coinMap == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(coinMap.values());
+    }
 
-            List<Entry<byte[], byte[]>> coinList = dbService.entryList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
-            for(Entry<byte[], byte[]> entry : coinList) {
-                cacheMap.put(new String(entry.getKey()), entry);
+    @Override
+    public void addUtxoListener(LocalUtxoListener listener) {
+        listenerList.add(listener);
+    }
+
+    private Map<String, Entry<byte[], byte[]>> getCacheMap() {
+        Map<String, Entry<byte[], byte[]>> map = cacheMap;
+        if (map != null) {
+            return map;
+        }
+        synchronized (this) {
+            if (cacheMap == null) {
+                map = new ConcurrentHashMap<>();
+                List<Entry<byte[], byte[]>> coinList = dbService.entryList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
+                for (Entry<byte[], byte[]> entry : coinList) {
+                    String key = new String(entry.getKey());
+                    map.put(key, entry);
+                    String address = getAddressKey(entry.getValue());
+                    if (address != null) {
+                        addressCoinMap.computeIfAbsent(address, k -> new ConcurrentHashMap<>()).put(key, entry);
+                    }
+                }
+                cacheMap = map;
             }
+            return cacheMap;
+        }
+    }
+
+    private void cachePut(Entry<byte[], byte[]> entry) {
+        String key = new String(entry.getKey());
+        Entry<byte[], byte[]> old = getCacheMap().put(key, entry);
+        if (old != null) {
+            removeFromAddress(key, old);
+        }
+        String address = getAddressKey(entry.getValue());
+        if (address != null) {
+            addressCoinMap.computeIfAbsent(address, k -> new ConcurrentHashMap<>()).put(key, entry);
+        }
+        for (LocalUtxoListener listener : listenerList) {
+            listener.utxoSaved(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void cacheRemove(byte[] keyBytes) {
+        String key = new String(keyBytes);
+        Entry<byte[], byte[]> old = getCacheMap().remove(key);
+        if (old == null) {
+            return;
+        }
+        removeFromAddress(key, old);
+        for (LocalUtxoListener listener : listenerList) {
+            listener.utxoDeleted(old.getKey(), old.getValue());
+        }
+    }
+
+    private void removeFromAddress(String key, Entry<byte[], byte[]> entry) {
+        String address = getAddressKey(entry.getValue());
+        if (address == null) {
+            return;
+        }
+        Map<String, Entry<byte[], byte[]>> coinMap = addressCoinMap.get(address);
+        if (coinMap != null) {
+            coinMap.remove(key);
+        }
+    }
+
+    private String getAddressKey(byte[] value) {
+        Coin coin = new Coin();
+        try {
+            coin.parse(value, 0);
+        } catch (NulsException e) {
+            Log.info("parse coin form db error");
+            return null;
         }
-        return cacheMap.values();
+        return Hex.encode(coin.getAddress());
     }
 
     @Override
     public Result saveUTXO(byte[] key, byte[] value) {
         Result result = dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key, value);
 
-        if(result.isSuccess() && cacheMap != null) {
-            cacheMap.put(new String(key), new Entry(key, value));
+        if (result.isSuccess()) {
+            cachePut(new Entry(key, value));
         }
 
         return result;
@@ -106,10 +199,8 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
         }
         Result result = Result.getSuccess().setData(new Integer(utxos.size()));
 
-        if(result.isSuccess() && cacheMap != null) {
-            for(Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
-                cacheMap.put(new String(entry.getKey()), new Entry(entry.getKey(), entry.getValue()));
-            }
+        for (Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
+            cachePut(new Entry(entry.getKey(), entry.getValue()));
         }
 
         return result;
@@ -118,8 +209,8 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
     @Override
     public Result deleteUTXO(byte[] key) {
         Result result = dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key);
-        if(result.isSuccess() && cacheMap != null) {
-            cacheMap.remove(new String(key));
+        if (result.isSuccess()) {
+            cacheRemove(key);
         }
         return result;
     }
@@ -136,10 +227,8 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
         }
         Result result = Result.getSuccess().setData(new Integer(utxos.size()));
 
-        if(result.isSuccess() && cacheMap != null) {
-            for (byte[] key : utxos) {
-                cacheMap.remove(new String(key));
-            }
+        for (byte[] key : utxos) {
+            cacheRemove(key);
         }
         return result;
     }
@@ -159,13 +248,13 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
         }
         Result result = Result.getSuccess().setData(new Integer(utxosToSave.size() + utxosToDelete.size()));
 
-        if(result.isSuccess() && cacheMap != null) {
-            for(Entry<byte[], byte[]> entry : utxosToSave) {
-                cacheMap.put(new String(entry.getKey()), entry);
-            }
-            for (byte[] key : utxosToDelete) {
-                cacheMap.remove(new String(key));
-            }
+        // 和数据库批量操作的顺序一致：先删除再写入
+        // The same order as the batch: delete first, then put.
+        for (byte[] key : utxosToDelete) {
+            cacheRemove(key);
+        }
+        for (Entry<byte[], byte[]> entry : utxosToSave) {
+            cachePut(entry);
         }
 
         return result;
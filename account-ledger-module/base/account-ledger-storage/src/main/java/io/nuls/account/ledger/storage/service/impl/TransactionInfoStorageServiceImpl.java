@@ -31,6 +31,7 @@ import io.nuls.account.ledger.storage.service.TransactionInfoStorageService;
 import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
@@ -46,7 +47,6 @@ import javax.naming.PartialResultException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * author Facjas
@@ -78,20 +78,23 @@ public class TransactionInfoStorageServiceImpl implements TransactionInfoStorage
     @Override
     public List<TransactionInfoPo> getTransactionInfoListByAddress(byte[] address) throws NulsException {
         List<TransactionInfoPo> infoPoList = new ArrayList<>();
-        Set<byte[]> keySet = dbService.keySet(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
-        if (keySet == null || keySet.isEmpty()) {
+        if (address == null || address.length != Address.ADDRESS_LENGTH) {
             return infoPoList;
         }
-
-        byte[] addressKey = new byte[Address.ADDRESS_LENGTH];
-        for (byte[] key : keySet) {
-            System.arraycopy(key, 0, addressKey, 0, Address.ADDRESS_LENGTH);
-            if (java.util.Arrays.equals(addressKey, address)) {
-                byte[] values = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, key);
+        // key以地址开头，只遍历该地址前缀范围内的数据
+        // Keys start with the address, only walk the entries under the address prefix.
+        DBCursor cursor = dbService.openCursor(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, address);
+        if (cursor == null) {
+            return infoPoList;
+        }
+        try {
+            while (cursor.hasNext()) {
                 TransactionInfoPo transactionInfoPo = new TransactionInfoPo();
-                transactionInfoPo.parse(values, 0);
+                transactionInfoPo.parse(cursor.next().getValue(), 0);
                 infoPoList.add(transactionInfoPo);
             }
+        } finally {
+            cursor.close();
         }
         return infoPoList;
     }
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.storage.service.impl;
+
+import io.nuls.account.ledger.storage.po.AddressTxIndexPo;
+import io.nuls.account.ledger.storage.service.AddressTxIndexStorageService;
+import io.nuls.db.module.impl.LevelDbModuleBootstrap;
+import io.nuls.kernel.MicroKernelBootstrap;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AddressTxIndexStorageServiceImplTest {
+
+    private static AddressTxIndexStorageService service;
+
+    @BeforeClass
+    public static void initKernel() {
+        MicroKernelBootstrap mk = MicroKernelBootstrap.getInstance();
+        mk.init();
+        mk.start();
+
+        LevelDbModuleBootstrap bootstrap = new LevelDbModuleBootstrap();
+        bootstrap.init();
+        bootstrap.start();
+
+        service = NulsContext.getServiceBean(AddressTxIndexStorageService.class);
+    }
+
+    /**
+     * 索引按高度和交易序号排序，只返回与地址相关的交易，回滚后删除该高度的全部索引
+     * The index is ordered by height and tx index and only holds the transactions related to the address,
+     * a rollback deletes all the entries of the height.
+     */
+    @Test
+    public void testSaveAndDeleteBlockIndex() {
+        byte[] addressA = address(1);
+        byte[] addressB = address(2);
+        Transaction tx1 = tx("tx1", addressA);
+        Transaction tx2 = tx("tx2", addressB);
+        Transaction tx3 = tx("tx3", addressA, addressB);
+        Transaction tx4 = tx("tx4", addressA);
+
+        assertTrue(service.saveBlockIndex(11, Arrays.asList(tx4), false).isSuccess());
+        assertTrue(service.saveBlockIndex(10, Arrays.asList(tx1, tx2, tx3), false).isSuccess());
+
+        List<AddressTxIndexPo> indexList = service.getIndexList(addressA);
+        assertEquals(3, indexList.size());
+        assertIndex(indexList.get(0), 10, 0, tx1);
+        assertIndex(indexList.get(1), 10, 2, tx3);
+        assertIndex(indexList.get(2), 11, 0, tx4);
+        indexList = service.getIndexList(addressB);
+        assertEquals(2, indexList.size());
+        assertIndex(indexList.get(0), 10, 1, tx2);
+        assertIndex(indexList.get(1), 10, 2, tx3);
+
+        // 重复索引同一高度时替换旧数据
+        // Indexing the same height again replaces the old entries.
+        assertTrue(service.saveBlockIndex(10, Arrays.asList(tx2), false).isSuccess());
+        assertEquals(1, service.getIndexList(addressA).size());
+        assertEquals(1, service.getIndexList(addressB).size());
+
+        assertTrue(service.deleteBlockIndex(10, false).isSuccess());
+        assertTrue(service.deleteBlockIndex(11, false).isSuccess());
+        assertTrue(service.getIndexList(addressA).isEmpty());
+        assertTrue(service.getIndexList(addressB).isEmpty());
+    }
+
+    /**
+     * 已索引高度与区块索引在同一批次中写入
+     * The indexed height is written in the same batch as the block index.
+     */
+    @Test
+    public void testUpdateIndexedHeightInBatch() {
+        Transaction tx = tx("tx5", address(3));
+        assertTrue(service.saveBlockIndex(20, Arrays.asList(tx), true).isSuccess());
+        assertEquals(20L, service.getIndexedHeight());
+        assertEquals(1, service.getIndexList(address(3)).size());
+        assertTrue(service.deleteBlockIndex(20, true).isSuccess());
+        assertEquals(19L, service.getIndexedHeight());
+        assertTrue(service.getIndexList(address(3)).isEmpty());
+        assertTrue(service.saveIndexedHeight(-1).isSuccess());
+    }
+
+    @Test
+    public void testIndexedHeight() {
+        assertTrue(service.saveIndexedHeight(-1).isSuccess());
+        assertEquals(-1, service.getIndexedHeight());
+        assertTrue(service.saveIndexedHeight(1286L).isSuccess());
+        assertEquals(1286L, service.getIndexedHeight());
+        assertTrue(service.saveIndexedHeight(-1).isSuccess());
+    }
+
+    private void assertIndex(AddressTxIndexPo po, long height, int txIndex, Transaction tx) {
+        assertEquals(height, po.getHeight());
+        assertEquals(txIndex, po.getTxIndex());
+        assertEquals(tx.getHash(), po.getTxHash());
+    }
+
+    private byte[] address(int seed) {
+        byte[] address = new byte[Address.ADDRESS_LENGTH];
+        Arrays.fill(address, (byte) seed);
+        return address;
+    }
+
+    private Transaction tx(String seed, byte[]... addresses) {
+        Transaction tx = new Transaction(2) {
+            @Override
+            protected TransactionLogicData parseTxData(NulsByteBuffer byteBuffer) throws NulsException {
+                return null;
+            }
+
+            @Override
+            public String getInfo(byte[] address) {
+                return null;
+            }
+        };
+        CoinData coinData = new CoinData();
+        List<Coin> to = new ArrayList<>();
+        for (byte[] address : addresses) {
+            to.add(new Coin(address, Na.NA));
+        }
+        coinData.setTo(to);
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(seed.getBytes()));
+        return tx;
+    }
+}
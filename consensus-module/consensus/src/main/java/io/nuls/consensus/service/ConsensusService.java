@@ -67,6 +67,28 @@ public interface ConsensusService {
      */
     Result addBlock(Block block);
 
+    /**
+     * synchronous block from other peers,
+     * when verified is true, the block fields, merkle hash and signatures have been verified by the downloader
+     *
+     * 同步区块，verified为true时下载器已经验证过区块字段、梅克尔根和签名，顺序处理时不再重复验证
+     * @param block
+     * @param verified
+     * @return Result
+     */
+    Result addBlock(Block block, boolean verified);
+
+    /**
+     * Verify that the header list is a valid header chain following startHeader(linkage, signatures, round and packing order),
+     * used by the headers-first synchronization before the block bodies are downloaded
+     *
+     * 验证headerList是否是startHeader之后合法的区块头链(连接、签名、轮次和打包顺序)，用于先同步区块头再下载区块
+     * @param startHeader
+     * @param headerList
+     * @return Result
+     */
+    Result verifyHeaderChain(BlockHeader startHeader, List<BlockHeader> headerList);
+
     /**
      * Roll back the latest block and roll back the status of the chain in the consensus service memory
      *
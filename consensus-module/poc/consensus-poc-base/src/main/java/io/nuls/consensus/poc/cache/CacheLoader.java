@@ -42,7 +42,6 @@ import io.nuls.consensus.poc.storage.utils.PunishLogComparator;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
-import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.protocol.service.BlockService;
 
 import java.util.ArrayList;
@@ -75,69 +74,48 @@ public class CacheLoader {
 
         List<Block> blockList = new ArrayList<>();
 
-        Block block = blockService.getBestBlock().getData();
+        BlockHeader bestHeader = blockService.getBestBlockHeader().getData();
 
-        if (null == block) {
+        if (null == bestHeader) {
             return blockList;
         }
-
-        for (int i = size; i >= 0; i--) {
-
-            if (block == null) {
-                break;
-            }
-
-            blockList.add(0, block);
-
-            if (block.getHeader().getHeight() == 0L) {
-                break;
-            }
-
-            NulsDigestData preHash = block.getHeader().getPreHash();
-            block = blockService.getBlock(preHash).getData();
-            if (block == null || block.getHeader().getHeight() == 0L) {
-                break;
-            }
-        }
-
+        long bestHeight = bestHeader.getHeight();
+        // 创世块只在它是最新块时加载
+        // The genesis block is only loaded when it is the best block.
+        long startHeight = bestHeight == 0L ? 0L : Math.max(1L, bestHeight - size);
+        blockService.scanBlocks(startHeight, bestHeight, false, block -> blockList.add(block));
         return blockList;
     }
 
     /**
+     * 从数据存储中加载最近size轮的区块头，从最新高度倒序顺序扫描，遇到更早轮次时停止
+     * Load the block headers of the latest size rounds from the data store,
+     * scanning down from the best height and stopping at the first older round.
      *
-     * @param size
-     * @return
+     * @param size 加载的轮次数量/round count
+     * @return 按高度排序的区块头列表/block header list in height order
      */
     public List<BlockHeader> loadBlockHeaders(int size) {
 
         List<BlockHeader> blockHeaderList = new ArrayList<>();
 
-        BlockHeader blockHeader = blockService.getBestBlockHeader().getData();
+        BlockHeader bestHeader = blockService.getBestBlockHeader().getData();
 
-        if (null == blockHeader) {
+        if (null == bestHeader) {
             return blockHeaderList;
         }
-        BlockExtendsData roundData = new BlockExtendsData(blockHeader.getExtend());
+        BlockExtendsData roundData = new BlockExtendsData(bestHeader.getExtend());
         long breakRoundIndex = roundData.getRoundIndex() - size;
-        while (true) {
-            if (blockHeader == null) {
-                break;
-            }
-
-            blockHeaderList.add(0, blockHeader);
-
-            if (blockHeader.getHeight() == 0L) {
-                break;
-            }
-
-            NulsDigestData preHash = blockHeader.getPreHash();
-            blockHeader = blockService.getBlockHeader(preHash).getData();
-            BlockExtendsData blockRoundData = new BlockExtendsData(blockHeader.getExtend());
-            if (blockRoundData.getRoundIndex() <= breakRoundIndex) {
-                break;
+        long bestHeight = bestHeader.getHeight();
+        blockService.scanBlockHeaders(0L, bestHeight, true, blockHeader -> {
+            if (blockHeader.getHeight() != bestHeight &&
+                    new BlockExtendsData(blockHeader.getExtend()).getRoundIndex() <= breakRoundIndex) {
+                return false;
             }
-        }
-
+            blockHeaderList.add(blockHeader);
+            return true;
+        });
+        Collections.reverse(blockHeaderList);
         return blockHeaderList;
     }
 
@@ -27,17 +27,30 @@
 package io.nuls.consensus.poc.cache;
 
 import io.nuls.cache.LimitHashMap;
+import io.nuls.consensus.poc.constant.PocConsensusConstant;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import io.nuls.kernel.utils.VarInt;
+import org.spongycastle.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.io.IOException;
+import java.util.*;
 
 /**
  * 交易 缓存
+ * 按手续费率排序，祖先交易（花费了池中其他交易的输出）按整个交易包的手续费率计算，高手续费率的子交易会带着它的祖先交易优先打包
+ * 以交易hash和被花费的输出建立索引，超过内存上限时淘汰手续费率最低的交易及其后代交易
+ * 祖先交易和后代交易的数量、大小都有上限，超过上限的交易被拒绝，使交易链上的遍历保持在很小的范围内
+ * Transaction cache.
+ * Ordered by fee rate, a transaction spending the outputs of other pooled transactions is scored by the fee rate of the whole package with its ancestors,
+ * so a child with high fee rate gets its ancestors packed first.
+ * Indexed by the transaction hash and by the spent outputs, the transactions with the lowest fee rate are evicted together with their descendants when the memory limit is exceeded.
+ * The count and size of the ancestors and of the descendants are limited, the transactions exceeding the limits are rejected,
+ * so the walks along the transaction chains stay small.
  *
  * @author ln
  * @date 2018/4/13
@@ -46,13 +59,23 @@ public final class TxMemoryPool {
 
     private final static TxMemoryPool INSTANCE = new TxMemoryPool();
 
-    private Queue<Transaction> txQueue;
+    private final Map<NulsDigestData, TxEntry> txMap = new HashMap<>();
+
+    /**
+     * 被花费的输出(txHash + index) -> 花费它的交易
+     * The spent output(txHash + index) -> the transaction spending it.
+     */
+    private final Map<ByteArrayWrapper, TxEntry> spentMap = new HashMap<>();
+
+    private final TreeSet<TxEntry> sortedSet = new TreeSet<>();
+
+    private long totalSize;
+
+    private long sequence;
 
     private LimitHashMap<NulsDigestData, Transaction> orphanContainer;
 
     private TxMemoryPool() {
-        txQueue = new LinkedBlockingDeque<>();
-
 //        orphanContainer = new CacheMap<>("orphan-txs", 256, NulsDigestData.class, TxContainer.class, 3600, 0, null);
         this.orphanContainer = new LimitHashMap(200000);
     }
@@ -61,56 +84,152 @@ public final class TxMemoryPool {
         return INSTANCE;
     }
 
+    /**
+     * 交易池按手续费率排序，不再区分放入头部还是尾部，保留此方法兼容旧的调用
+     * The pool is ordered by fee rate, there is no head or tail any more, this method is kept for the old callers.
+     */
     public boolean addInFirst(Transaction tx, boolean isOrphan) {
-        try {
-            if (tx == null) {
-                return false;
-            }
-            //check Repeatability
-            if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
-            } else {
-                ((LinkedBlockingDeque) txQueue).addFirst(tx);
-            }
+        return add(tx, isOrphan);
+    }
+
+    public boolean add(Transaction tx, boolean isOrphan) {
+        if (tx == null) {
+            return false;
+        }
+        //check Repeatability
+        if (isOrphan) {
+            NulsDigestData hash = tx.getHash();
+            orphanContainer.put(hash, tx);
             return true;
-        } finally {
+        }
+        synchronized (this) {
+            return addTx(tx);
         }
     }
 
-    public boolean add(Transaction tx, boolean isOrphan) {
-        try {
-            if (tx == null) {
+    private boolean addTx(Transaction tx) {
+        NulsDigestData hash = tx.getHash();
+        if (txMap.containsKey(hash)) {
+            return false;
+        }
+        List<Coin> froms = tx.getCoinData() == null ? Collections.emptyList() : tx.getCoinData().getFrom();
+        // 池中已有交易花费了同一个输出，先到先得
+        // Another pooled transaction spends the same output, first seen wins.
+        for (Coin from : froms) {
+            if (spentMap.containsKey(new ByteArrayWrapper(from.getOwner()))) {
                 return false;
             }
-            //check Repeatability
-            if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
-            } else {
-                txQueue.offer(tx);
+        }
+        byte[] hashBytes;
+        try {
+            hashBytes = hash.serialize();
+        } catch (IOException e) {
+            Log.error(e);
+            return false;
+        }
+        TxEntry entry = new TxEntry(tx, hash, sequence++);
+        Set<TxEntry> parents = new HashSet<>();
+        for (Coin from : froms) {
+            TxEntry parent = txMap.get(getFromTxHash(from.getOwner()));
+            if (parent != null) {
+                parents.add(parent);
+            }
+        }
+        // 子交易先于父交易进入交易池时，补上父子关系
+        // Link the children that entered the pool before this transaction.
+        Set<TxEntry> children = new HashSet<>();
+        if (tx.getCoinData() != null) {
+            for (int i = 0, length = tx.getCoinData().getTo().size(); i < length; i++) {
+                TxEntry child = spentMap.get(new ByteArrayWrapper(Arrays.concatenate(hashBytes, new VarInt(i).encode())));
+                if (child != null) {
+                    children.add(child);
+                }
             }
-            return true;
-        } finally {
         }
+        if (!checkChainLimits(entry, collect(parents, true), collect(children, false))) {
+            return false;
+        }
+        for (Coin from : froms) {
+            spentMap.put(new ByteArrayWrapper(from.getOwner()), entry);
+        }
+        for (TxEntry parent : parents) {
+            entry.parents.add(parent);
+            parent.children.add(entry);
+        }
+        for (TxEntry child : children) {
+            entry.children.add(child);
+            child.parents.add(entry);
+        }
+        txMap.put(hash, entry);
+        totalSize += entry.size;
+        refreshPackage(entry);
+        if (!entry.children.isEmpty()) {
+            for (TxEntry descendant : getDescendants(entry)) {
+                refreshPackage(descendant);
+            }
+        }
+        while (totalSize > PocConsensusConstant.TX_MEMORY_POOL_MAX_SIZE && !sortedSet.isEmpty()) {
+            removeWithDescendants(sortedSet.last());
+        }
+        return txMap.containsKey(hash);
     }
 
     /**
-     * Get a TxContainer, the first TxContainer received, removed from the memory pool after acquisition
+     * Get a TxContainer, the best TxContainer by fee rate, removed from the memory pool after acquisition
      * <p>
-     * 获取一笔交易，最先收到的交易，获取之后从内存池中移除
+     * 获取一笔交易，手续费率最高的交易，获取之后从内存池中移除
      *
      * @return TxContainer
      */
     public Transaction get() {
-        return txQueue.poll();
+        return get(Long.MAX_VALUE);
+    }
+
+    /**
+     * 获取一笔不超过maxSize字节的最优交易，获取之后从内存池中移除
+     * 最优交易包中的祖先交易会先于后代交易返回，打包时可以按返回顺序依次验证
+     * 区块快满时大部分交易都放不进去，连续跳过一定数量的交易后停止查找，避免每次都扫描整个交易池
+     * Get the best transaction not larger than maxSize bytes, removed from the memory pool after acquisition.
+     * The ancestors of the best package are returned before their descendants, so they can be verified in the returned order when packing.
+     * When the block is almost full most transactions do not fit, the search stops after skipping a bounded number of them
+     * instead of scanning the whole pool on every call.
+     *
+     * @param maxSize 区块剩余的字节数/the bytes left in the block
+     * @return null when no transaction fits
+     */
+    public synchronized Transaction get(long maxSize) {
+        int misses = 0;
+        for (TxEntry entry : sortedSet) {
+            TxEntry root = getRoot(entry);
+            if (root.size <= maxSize) {
+                removePacked(root);
+                return root.tx;
+            }
+            if (++misses >= PocConsensusConstant.TX_MEMORY_POOL_MAX_PACK_MISSES) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按打包顺序取出总大小不超过maxSize字节的最优交易
+     * Take out the best transactions in packing order, whose total size is not larger than maxSize bytes.
+     */
+    public synchronized List<Transaction> getBest(long maxSize) {
+        List<Transaction> txList = new ArrayList<>();
+        Transaction tx;
+        while ((tx = get(maxSize)) != null) {
+            txList.add(tx);
+            maxSize -= tx.size();
+        }
+        return txList;
     }
 
-    public List<Transaction> getAll() {
-        List<Transaction> txs = new ArrayList<>();
-        Iterator<Transaction> it = txQueue.iterator();
-        while (it.hasNext()) {
-            txs.add(it.next());
+    public synchronized List<Transaction> getAll() {
+        List<Transaction> txs = new ArrayList<>(sortedSet.size());
+        for (TxEntry entry : sortedSet) {
+            txs.add(entry.tx);
         }
         return txs;
     }
@@ -134,20 +253,21 @@ public final class TxMemoryPool {
     }
 
     public void clear() {
-        try {
-            txQueue.clear();
-
-            orphanContainer.clear();
-        } finally {
+        synchronized (this) {
+            txMap.clear();
+            spentMap.clear();
+            sortedSet.clear();
+            totalSize = 0L;
         }
+        orphanContainer.clear();
     }
 
-    public int size() {
-        return txQueue.size();
+    public synchronized int size() {
+        return txMap.size();
     }
 
-    public int getPoolSize() {
-        return txQueue.size();
+    public synchronized int getPoolSize() {
+        return txMap.size();
     }
 
     public int getOrphanPoolSize() {
@@ -157,4 +277,198 @@ public final class TxMemoryPool {
     public void removeOrphan(NulsDigestData hash) {
         this.orphanContainer.remove(hash);
     }
+
+    private NulsDigestData getFromTxHash(byte[] owner) {
+        NulsDigestData fromTxHash = new NulsDigestData();
+        try {
+            fromTxHash.parse(owner, 0);
+        } catch (NulsException e) {
+            return null;
+        }
+        return fromTxHash;
+    }
+
+    /**
+     * 沿着父交易找到最早进入交易池、没有父交易的祖先交易
+     * Walk up the parents to the earliest ancestor which has no parent in the pool.
+     */
+    private TxEntry getRoot(TxEntry entry) {
+        TxEntry root = entry;
+        while (!root.parents.isEmpty()) {
+            TxEntry earliest = null;
+            for (TxEntry parent : root.parents) {
+                if (earliest == null || parent.sequence < earliest.sequence) {
+                    earliest = parent;
+                }
+            }
+            root = earliest;
+        }
+        return root;
+    }
+
+    /**
+     * 交易被打包，它的后代交易的祖先交易包变小
+     * The transaction is packed, the ancestor packages of its descendants become smaller.
+     */
+    private void removePacked(TxEntry entry) {
+        Set<TxEntry> descendants = getDescendants(entry);
+        detach(entry);
+        for (TxEntry descendant : descendants) {
+            refreshPackage(descendant);
+        }
+    }
+
+    /**
+     * 交易被淘汰，依赖它的后代交易一起淘汰
+     * The transaction is evicted, the descendants depending on it are evicted together.
+     */
+    private void removeWithDescendants(TxEntry entry) {
+        Set<TxEntry> descendants = getDescendants(entry);
+        detach(entry);
+        for (TxEntry descendant : descendants) {
+            detach(descendant);
+        }
+    }
+
+    private void detach(TxEntry entry) {
+        sortedSet.remove(entry);
+        txMap.remove(entry.hash);
+        totalSize -= entry.size;
+        if (entry.tx.getCoinData() != null) {
+            for (Coin from : entry.tx.getCoinData().getFrom()) {
+                spentMap.remove(new ByteArrayWrapper(from.getOwner()));
+            }
+        }
+        for (TxEntry parent : entry.parents) {
+            parent.children.remove(entry);
+        }
+        for (TxEntry child : entry.children) {
+            child.parents.remove(entry);
+        }
+    }
+
+    private Set<TxEntry> getDescendants(TxEntry entry) {
+        return collect(entry.children, false);
+    }
+
+    /**
+     * 从给定的交易出发，沿父交易(up为true)或子交易收集所有可达的交易，包含给定的交易
+     * Collect all the transactions reachable from the given ones along the parents(up is true) or the children, the given ones included.
+     */
+    private Set<TxEntry> collect(Collection<TxEntry> from, boolean up) {
+        Set<TxEntry> result = new HashSet<>();
+        Deque<TxEntry> stack = new ArrayDeque<>(from);
+        while (!stack.isEmpty()) {
+            TxEntry next = stack.pop();
+            if (result.add(next)) {
+                stack.addAll(up ? next.parents : next.children);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 检查加入交易后，它自己、它的祖先交易和后代交易都不超过祖先/后代交易的数量和大小上限
+     * 先于父交易进入交易池的后代交易会把两边的交易链连起来，按连起来之后的交易链计算，结果偏保守
+     * Check that after adding the transaction, neither itself nor its ancestors or descendants exceed the count and size limits of the ancestors and descendants.
+     * The descendants that entered the pool before this transaction join the chains on both sides, the check counts the joined chains and is conservative.
+     *
+     * @param entry       新的交易/the new transaction
+     * @param ancestors   新交易的所有祖先交易/all the ancestors of the new transaction
+     * @param descendants 新交易的所有后代交易/all the descendants of the new transaction
+     */
+    private boolean checkChainLimits(TxEntry entry, Set<TxEntry> ancestors, Set<TxEntry> descendants) {
+        long ancestorSize = entry.size + sizeOf(ancestors);
+        long descendantSize = entry.size + sizeOf(descendants);
+        if (ancestors.size() + 1 > PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_COUNT
+                || ancestorSize > PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_SIZE
+                || descendants.size() + 1 > PocConsensusConstant.TX_MEMORY_POOL_MAX_DESCENDANT_COUNT
+                || descendantSize > PocConsensusConstant.TX_MEMORY_POOL_MAX_DESCENDANT_SIZE) {
+            return false;
+        }
+        // 每个祖先交易多出新交易和它的后代交易
+        // Every ancestor gains the new transaction and its descendants.
+        for (TxEntry ancestor : ancestors) {
+            Set<TxEntry> existing = collect(ancestor.children, false);
+            if (existing.size() + 1 + descendants.size() + 1 > PocConsensusConstant.TX_MEMORY_POOL_MAX_DESCENDANT_COUNT
+                    || sizeOf(existing) + ancestor.size + descendantSize > PocConsensusConstant.TX_MEMORY_POOL_MAX_DESCENDANT_SIZE) {
+                return false;
+            }
+        }
+        // 每个后代交易多出新交易和它的祖先交易
+        // Every descendant gains the new transaction and its ancestors.
+        for (TxEntry descendant : descendants) {
+            Set<TxEntry> existing = collect(descendant.parents, true);
+            if (existing.size() + 1 + ancestors.size() + 1 > PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_COUNT
+                    || sizeOf(existing) + descendant.size + ancestorSize > PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long sizeOf(Set<TxEntry> entries) {
+        long size = 0L;
+        for (TxEntry entry : entries) {
+            size += entry.size;
+        }
+        return size;
+    }
+
+    /**
+     * 重新计算交易和它所有祖先交易组成的交易包的手续费和大小，并更新排序
+     * Recalculate the fee and size of the package of the transaction and all its ancestors, and update the order.
+     */
+    private void refreshPackage(TxEntry entry) {
+        sortedSet.remove(entry);
+        long packageFee = entry.fee;
+        long packageSize = entry.size;
+        Set<TxEntry> ancestors = new HashSet<>();
+        Deque<TxEntry> stack = new ArrayDeque<>(entry.parents);
+        while (!stack.isEmpty()) {
+            TxEntry parent = stack.pop();
+            if (ancestors.add(parent)) {
+                packageFee += parent.fee;
+                packageSize += parent.size;
+                stack.addAll(parent.parents);
+            }
+        }
+        entry.score = entry.systemTx ? Double.MAX_VALUE : (double) packageFee / packageSize;
+        sortedSet.add(entry);
+    }
+
+    private static class TxEntry implements Comparable<TxEntry> {
+
+        private final Transaction tx;
+        private final NulsDigestData hash;
+        private final long sequence;
+        private final long fee;
+        private final int size;
+        private final boolean systemTx;
+        private final Set<TxEntry> parents = new HashSet<>();
+        private final Set<TxEntry> children = new HashSet<>();
+        /**
+         * 交易包(自身和所有池中祖先交易)的手续费率，系统交易最优先
+         * Fee rate of the package(itself and all the pooled ancestors), the system transactions come first.
+         */
+        private double score;
+
+        TxEntry(Transaction tx, NulsDigestData hash, long sequence) {
+            this.tx = tx;
+            this.hash = hash;
+            this.sequence = sequence;
+            this.systemTx = tx.isSystemTx();
+            this.fee = tx.getFee().getValue();
+            this.size = Math.max(tx.size(), 1);
+        }
+
+        @Override
+        public int compareTo(TxEntry o) {
+            int result = Double.compare(o.score, this.score);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(this.sequence, o.sequence);
+        }
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.cache;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.func.TimeService;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import io.nuls.kernel.utils.VarInt;
+import org.spongycastle.util.Arrays;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 孤儿交易池，以孤儿交易缺少的输出(txHash + index)建立索引
+ * 父交易被接受时，只唤醒等待它的输出的孤儿交易，不需要每次遍历整个孤儿池
+ * 进入孤儿池的交易已经通过了签名验证，唤醒后只需要重新验证账本
+ * 超过存活时间、数量上限或者内存上限时，最早进入的孤儿交易被淘汰
+ * Orphan transaction pool, indexed by the outputs(txHash + index) the orphans are waiting for.
+ * When a parent transaction is accepted, only the orphans waiting for its outputs are woken, the whole pool is not scanned every time.
+ * The transactions in the pool have passed the signature verification, only the ledger needs to be verified again after waking.
+ * The earliest orphans are evicted when they expire, or when the count limit or the memory limit is exceeded.
+ */
+public class TxOrphanPool {
+
+    private final int maxCount;
+
+    private final long maxSize;
+
+    /**
+     * 按进入顺序排列，最早的在前
+     * In insertion order, the earliest first.
+     */
+    private final LinkedHashMap<NulsDigestData, OrphanEntry> orphanMap = new LinkedHashMap<>();
+
+    /**
+     * 缺少的输出 -> 等待它的孤儿交易，检查过仍不存在的输出被移到末尾，下次从未检查的输出开始
+     * The missing output -> the orphans waiting for it. The outputs checked and still missing are moved to the end,
+     * so the next check starts from the unchecked ones.
+     */
+    private final LinkedHashMap<ByteArrayWrapper, Set<OrphanEntry>> waitingMap = new LinkedHashMap<>();
+
+    private long totalSize;
+
+    /**
+     * 孤儿交易的进入序号，用于唤醒时按进入顺序排列
+     * Sequence number of the orphans, used to sort the woken orphans in insertion order.
+     */
+    private long sequence;
+
+    public TxOrphanPool(int maxCount, long maxSize) {
+        this.maxCount = maxCount;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 放入孤儿交易
+     * Put the orphan into the pool.
+     *
+     * @param tx             孤儿交易/the orphan
+     * @param missingOutputs 缺少的输出，为空时等待所有的输入/the missing outputs, all the inputs are waited for when it is empty
+     */
+    public boolean add(Transaction tx, List<byte[]> missingOutputs) {
+        NulsDigestData hash = tx.getHash();
+        if (orphanMap.containsKey(hash)) {
+            return false;
+        }
+        if (missingOutputs == null || missingOutputs.isEmpty()) {
+            missingOutputs = new ArrayList<>();
+            for (Coin from : tx.getCoinData().getFrom()) {
+                missingOutputs.add(from.getOwner());
+            }
+        }
+        OrphanEntry entry = new OrphanEntry(tx, hash, tx.size(), TimeService.currentTimeMillis(), sequence++);
+        for (byte[] output : missingOutputs) {
+            ByteArrayWrapper key = new ByteArrayWrapper(output);
+            entry.waitingKeys.add(key);
+            waitingMap.computeIfAbsent(key, k -> new HashSet<>()).add(entry);
+        }
+        orphanMap.put(hash, entry);
+        totalSize += entry.size;
+        while (orphanMap.size() > maxCount || totalSize > maxSize) {
+            remove(orphanMap.values().iterator().next());
+        }
+        return orphanMap.containsKey(hash);
+    }
+
+    /**
+     * 取出等待这笔交易的输出的孤儿交易，按进入顺序排列
+     * Take out the orphans waiting for the outputs of the transaction, in insertion order.
+     */
+    public List<Transaction> takeWaiting(Transaction parent) {
+        if (orphanMap.isEmpty() || parent.getCoinData() == null) {
+            return Collections.emptyList();
+        }
+        byte[] hashBytes;
+        try {
+            hashBytes = parent.getHash().serialize();
+        } catch (IOException e) {
+            Log.error(e);
+            return Collections.emptyList();
+        }
+        Set<OrphanEntry> wokenSet = new HashSet<>();
+        for (int i = 0, length = parent.getCoinData().getTo().size(); i < length; i++) {
+            Set<OrphanEntry> waitingSet = waitingMap.get(new ByteArrayWrapper(Arrays.concatenate(hashBytes, new VarInt(i).encode())));
+            if (waitingSet != null) {
+                wokenSet.addAll(waitingSet);
+            }
+        }
+        return take(wokenSet);
+    }
+
+    /**
+     * 取出缺少的输出中有任意一个已经存在的孤儿交易，用于父交易不经过交易池而直接被区块确认的情况
+     * 每次最多检查maxCheckCount个输出，仍不存在的输出移到末尾，多次调用后轮流检查到所有输出
+     * Take out the orphans that any of whose missing outputs exists now, for the parents confirmed by blocks without going through the memory pool.
+     * At most maxCheckCount outputs are checked each time, the ones still missing are moved to the end,
+     * so all the outputs are checked in turn over the calls.
+     */
+    public List<Transaction> takeResolved(OutputChecker checker, int maxCheckCount) {
+        Set<OrphanEntry> wokenSet = new HashSet<>();
+        List<ByteArrayWrapper> missingKeys = new ArrayList<>();
+        Iterator<Map.Entry<ByteArrayWrapper, Set<OrphanEntry>>> it = waitingMap.entrySet().iterator();
+        for (int i = 0; i < maxCheckCount && it.hasNext(); i++) {
+            Map.Entry<ByteArrayWrapper, Set<OrphanEntry>> entry = it.next();
+            if (checker.exist(entry.getKey().getBytes())) {
+                wokenSet.addAll(entry.getValue());
+            } else {
+                missingKeys.add(entry.getKey());
+            }
+        }
+        for (ByteArrayWrapper key : missingKeys) {
+            waitingMap.put(key, waitingMap.remove(key));
+        }
+        return take(wokenSet);
+    }
+
+    /**
+     * 淘汰进入时间早于minTime的孤儿交易，孤儿池按进入顺序排列，遇到未过期的即可停止
+     * Evict the orphans which entered before minTime, the pool is in insertion order so it stops at the first one not expired.
+     */
+    public int removeExpired(long minTime) {
+        int count = 0;
+        Iterator<OrphanEntry> it = orphanMap.values().iterator();
+        while (it.hasNext()) {
+            OrphanEntry entry = it.next();
+            if (entry.addTime >= minTime) {
+                break;
+            }
+            it.remove();
+            detach(entry);
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        return orphanMap.size();
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    private List<Transaction> take(Set<OrphanEntry> wokenSet) {
+        if (wokenSet.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<OrphanEntry> entryList = new ArrayList<>(wokenSet);
+        entryList.sort(Comparator.comparingLong(entry -> entry.sequence));
+        List<Transaction> txList = new ArrayList<>(entryList.size());
+        for (OrphanEntry entry : entryList) {
+            txList.add(entry.tx);
+            remove(entry);
+        }
+        return txList;
+    }
+
+    private void remove(OrphanEntry entry) {
+        orphanMap.remove(entry.hash);
+        detach(entry);
+    }
+
+    private void detach(OrphanEntry entry) {
+        totalSize -= entry.size;
+        for (ByteArrayWrapper key : entry.waitingKeys) {
+            Set<OrphanEntry> waitingSet = waitingMap.get(key);
+            if (waitingSet != null) {
+                waitingSet.remove(entry);
+                if (waitingSet.isEmpty()) {
+                    waitingMap.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查输出是否已经存在
+     * Check whether the output exists.
+     */
+    public interface OutputChecker {
+        boolean exist(byte[] output);
+    }
+
+    private static class OrphanEntry {
+        private final Transaction tx;
+        private final NulsDigestData hash;
+        private final int size;
+        private final long addTime;
+        private final long sequence;
+        private final List<ByteArrayWrapper> waitingKeys = new ArrayList<>();
+
+        OrphanEntry(Transaction tx, NulsDigestData hash, int size, long addTime, long sequence) {
+            this.tx = tx;
+            this.hash = hash;
+            this.size = size;
+            this.addTime = addTime;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -75,6 +75,12 @@ public interface PocConsensusConstant {
      */
     int INIT_BLOCKS_COUNT = 10;
 
+    /**
+     * Interval of writing the consensus state snapshot of the master chain, in seconds
+     * 主链共识状态快照的写入间隔，单位秒
+     */
+    long SNAPSHOT_INTERVAL_SECONDS = 10 * 60L;
+
     /**
      * Consensus memory expiration data cleaning interval, in milliseconds
      * 共识内存过期数据清理间隔时间，单位毫秒
@@ -101,4 +107,40 @@ public interface PocConsensusConstant {
     long RED_PUNISH_LOCK_TIME = 60 * 24 * 3600000L;
 
     double RED_PUNISH_CREDIT_VAL = -1D;
+
+    /**
+     * Maximum total size of the transactions in the memory pool, in bytes, the lowest fee rate ones are evicted beyond it
+     * 交易池中交易的最大总字节数，超过时淘汰手续费率最低的交易
+     */
+    long TX_MEMORY_POOL_MAX_SIZE = 256 * 1024 * 1024L;
+
+    /**
+     * Maximum number of pooled ancestors of a transaction, including itself, the transactions exceeding it are rejected
+     * 交易在交易池中的祖先交易数量上限（包含自身），超过时拒绝该交易
+     */
+    int TX_MEMORY_POOL_MAX_ANCESTOR_COUNT = 25;
+
+    /**
+     * Maximum total size of the pooled ancestors of a transaction, including itself, in bytes
+     * 交易在交易池中的祖先交易总字节数上限（包含自身）
+     */
+    long TX_MEMORY_POOL_MAX_ANCESTOR_SIZE = 101 * 1000L;
+
+    /**
+     * Maximum number of pooled descendants of a transaction, including itself, the transactions exceeding it are rejected
+     * 交易在交易池中的后代交易数量上限（包含自身），超过时拒绝新的交易
+     */
+    int TX_MEMORY_POOL_MAX_DESCENDANT_COUNT = 25;
+
+    /**
+     * Maximum total size of the pooled descendants of a transaction, including itself, in bytes
+     * 交易在交易池中的后代交易总字节数上限（包含自身）
+     */
+    long TX_MEMORY_POOL_MAX_DESCENDANT_SIZE = 101 * 1000L;
+
+    /**
+     * Maximum number of the transactions skipped because they do not fit in the block, the search stops beyond it
+     * 打包时因放不进区块而跳过的交易数量上限，超过时停止查找
+     */
+    int TX_MEMORY_POOL_MAX_PACK_MISSES = 1000;
 }
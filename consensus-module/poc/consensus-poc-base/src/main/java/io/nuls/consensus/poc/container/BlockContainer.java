@@ -37,6 +37,11 @@ public class BlockContainer {
     private Block block;
     private Node node;
     private int status;
+    /**
+     * 下载器是否已经验证过区块字段、梅克尔根和签名
+     * Whether the block fields, merkle hash and signatures have been verified by the downloader.
+     */
+    private boolean verified;
 
     public BlockContainer() {
     }
@@ -75,4 +80,12 @@ public class BlockContainer {
     public void setNode(Node node) {
         this.node = node;
     }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public void setVerified(boolean verified) {
+        this.verified = verified;
+    }
 }
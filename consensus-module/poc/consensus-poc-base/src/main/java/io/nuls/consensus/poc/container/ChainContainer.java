@@ -108,7 +108,7 @@ public class ChainContainer implements Cloneable {
                 agent.setTxHash(agentTx.getHash());
                 agent.setTime(agentTx.getTime());
 
-                agentList.add(agent);
+                chain.addAgent(agent);
             } else if (txType == ConsensusConstant.TX_TYPE_JOIN_CONSENSUS) {
 
                 // 加入共识交易，设置该交易的高度和删除高度，然后加入列表
@@ -121,7 +121,7 @@ public class ChainContainer implements Cloneable {
                 deposit.setBlockHeight(height);
                 deposit.setTxHash(depositTx.getHash());
                 deposit.setTime(depositTx.getTime());
-                depositList.add(deposit);
+                chain.addDeposit(deposit);
 
             } else if (txType == ConsensusConstant.TX_TYPE_CANCEL_DEPOSIT) {
 
@@ -129,13 +129,12 @@ public class ChainContainer implements Cloneable {
 
                 NulsDigestData joinHash = cancelDepositTx.getTxData().getJoinTxHash();
 
-                Iterator<Deposit> it = depositList.iterator();
-                while (it.hasNext()) {
-                    Deposit deposit = it.next();
+                for (int i = 0; i < depositList.size(); i++) {
+                    Deposit deposit = depositList.get(i);
                     cancelDepositTx.getTxData().setAddress(deposit.getAddress());
                     if (deposit.getTxHash().equals(joinHash)) {
                         if (deposit.getDelHeight() == -1L) {
-                            deposit.setDelHeight(height);
+                            chain.getWritableDeposit(i).setDelHeight(height);
                         }
                         break;
                     }
@@ -146,21 +145,19 @@ public class ChainContainer implements Cloneable {
 
                 NulsDigestData agentHash = stopAgentTx.getTxData().getCreateTxHash();
 
-                Iterator<Deposit> it = depositList.iterator();
-                while (it.hasNext()) {
-                    Deposit deposit = it.next();
+                for (int i = 0; i < depositList.size(); i++) {
+                    Deposit deposit = depositList.get(i);
                     if (deposit.getAgentHash().equals(agentHash) && deposit.getDelHeight() == -1L) {
-                        deposit.setDelHeight(height);
+                        chain.getWritableDeposit(i).setDelHeight(height);
                     }
                 }
 
-                Iterator<Agent> ita = agentList.iterator();
-                while (ita.hasNext()) {
-                    Agent agent = ita.next();
+                for (int i = 0; i < agentList.size(); i++) {
+                    Agent agent = agentList.get(i);
                     stopAgentTx.getTxData().setAddress(agent.getAgentAddress());
                     if (agent.getTxHash().equals(agentHash)) {
                         if (agent.getDelHeight() == -1L) {
-                            agent.setDelHeight(height);
+                            getWritableAgent(i).setDelHeight(height);
                         }
                         break;
                     }
@@ -175,22 +172,24 @@ public class ChainContainer implements Cloneable {
                 po.setTime(tx.getTime());
                 po.setType(PunishType.RED.getCode());
                 redList.add(po);
-                for (Agent agent : agentList) {
+                for (int j = 0; j < agentList.size(); j++) {
+                    Agent agent = agentList.get(j);
                     if (!Arrays.equals(agent.getAgentAddress(), po.getAddress())) {
                         continue;
                     }
                     if (agent.getDelHeight() > 0) {
                         continue;
                     }
-                    agent.setDelHeight(height);
-                    for (Deposit deposit : depositList) {
+                    getWritableAgent(j).setDelHeight(height);
+                    for (int i = 0; i < depositList.size(); i++) {
+                        Deposit deposit = depositList.get(i);
                         if (!deposit.getAgentHash().equals(agent.getTxHash())) {
                             continue;
                         }
                         if (deposit.getDelHeight() > 0) {
                             continue;
                         }
-                        deposit.setDelHeight(height);
+                        chain.getWritableDeposit(i).setDelHeight(height);
                     }
                 }
             } else if (txType == ConsensusConstant.TX_TYPE_YELLOW_PUNISH) {
@@ -203,6 +202,7 @@ public class ChainContainer implements Cloneable {
                     po.setTime(tx.getTime());
                     po.setType(PunishType.YELLOW.getCode());
                     yellowList.add(po);
+                    chain.getIndex().yellowPunishAdded(po);
                 }
             }
         }
@@ -210,6 +210,7 @@ public class ChainContainer implements Cloneable {
         chain.setEndBlockHeader(block.getHeader());
         blockList.add(block);
         blockHeaderList.add(block.getHeader());
+        chain.getIndex().blockHeaderAdded(block.getHeader());
 
         return true;
     }
@@ -220,6 +221,13 @@ public class ChainContainer implements Cloneable {
 
 
     public Result verifyBlock(Block block, boolean isDownload, boolean isNeedCheckCoinBaseTx) {
+        return verifyBlock(block, isDownload, isNeedCheckCoinBaseTx, false);
+    }
+
+    /**
+     * @param isVerified 区块字段、梅克尔根和签名是否已经验证过/whether the block fields, merkle hash and signatures have been verified already
+     */
+    public Result verifyBlock(Block block, boolean isDownload, boolean isNeedCheckCoinBaseTx, boolean isVerified) {
 
         if (block == null || chain.getEndBlockHeader() == null) {
             return Result.getFailed();
@@ -229,8 +237,9 @@ public class ChainContainer implements Cloneable {
         if (blockHeader == null) {
             return Result.getFailed();
         }
-        //todo 是否是重复验证
-        block.verifyWithException();
+        if (!isVerified) {
+            block.verifyWithException();
+        }
 
         // Verify that the block is properly connected
         // 验证区块是否正确连接
@@ -637,7 +646,11 @@ public class ChainContainer implements Cloneable {
     }
 
     public Result verifyAndAddBlock(Block block, boolean isDownload, boolean isNeedCheckCoinBaseTx) {
-        Result result = verifyBlock(block, isDownload, isNeedCheckCoinBaseTx);
+        return verifyAndAddBlock(block, isDownload, isNeedCheckCoinBaseTx, false);
+    }
+
+    public Result verifyAndAddBlock(Block block, boolean isDownload, boolean isNeedCheckCoinBaseTx, boolean isVerified) {
+        Result result = verifyBlock(block, isDownload, isNeedCheckCoinBaseTx, isVerified);
         if (result.isSuccess()) {
             if (!addBlock(block)) {
                 return Result.getFailed();
@@ -676,6 +689,7 @@ public class ChainContainer implements Cloneable {
 
         chain.setEndBlockHeader(blockHeaderList.get(blockHeaderList.size() - 2));
         BlockHeader rollbackBlockHeader = blockHeaderList.remove(blockHeaderList.size() - 1);
+        chain.getIndex().blockHeaderRemoved(rollbackBlockHeader);
 
         // update txs
         List<Agent> agentList = chain.getAgentList();
@@ -688,24 +702,20 @@ public class ChainContainer implements Cloneable {
         for (int i = agentList.size() - 1; i >= 0; i--) {
             Agent agent = agentList.get(i);
 
-            if (agent.getDelHeight() == height) {
-                agent.setDelHeight(-1L);
-            }
-
             if (agent.getBlockHeight() == height) {
-                agentList.remove(i);
+                chain.removeAgent(i);
+            } else if (agent.getDelHeight() == height) {
+                getWritableAgent(i).setDelHeight(-1L);
             }
         }
 
         for (int i = depositList.size() - 1; i >= 0; i--) {
             Deposit deposit = depositList.get(i);
 
-            if (deposit.getDelHeight() == height) {
-                deposit.setDelHeight(-1L);
-            }
-
             if (deposit.getBlockHeight() == height) {
-                depositList.remove(i);
+                chain.removeDeposit(i);
+            } else if (deposit.getDelHeight() == height) {
+                chain.getWritableDeposit(i).setDelHeight(-1L);
             }
         }
 
@@ -716,6 +726,7 @@ public class ChainContainer implements Cloneable {
             }
             if (tempYellow.getHeight() == height) {
                 yellowList.remove(i);
+                chain.getIndex().yellowPunishRemoved(tempYellow);
             }
         }
 
@@ -735,6 +746,19 @@ public class ChainContainer implements Cloneable {
         return true;
     }
 
+    /**
+     * 获取可以修改的代理，代理被复制时同时更新轮次成员的引用
+     * Get the agent at the position for modification, the round members are updated when the agent is copied.
+     */
+    private Agent getWritableAgent(int i) {
+        Agent agent = chain.getAgentList().get(i);
+        Agent writableAgent = chain.getWritableAgent(i);
+        if (writableAgent != agent) {
+            roundManager.agentReplaced(agent, writableAgent);
+        }
+        return writableAgent;
+    }
+
     private void addBlockInBlockList(List<Block> blockList) {
         BlockService blockService = NulsContext.getServiceBean(BlockService.class);
         if (blockList.isEmpty()) {
@@ -764,40 +788,25 @@ public class ChainContainer implements Cloneable {
         newChain.setId(chainContainer.getChain().getId());
         newChain.setStartBlockHeader(chain.getStartBlockHeader());
         newChain.setEndBlockHeader(chain.getEndBlockHeader());
-        newChain.setBlockHeaderList(new ArrayList<>(chain.getBlockHeaderList()));
-        newChain.setBlockList(new ArrayList<>(chain.getBlockList()));
+        // 分叉链只引用主链的列表，回滚到分叉点只缩短共享的前缀，之后的区块记录在自己的尾部；
+        // 代理和委托在分叉链第一次修改时才复制
+        // The fork chain only references the lists of the master chain. Rolling back to the fork point only shortens
+        // the shared prefix and later blocks are recorded in its own tail. Agents and deposits are copied when the
+        // fork chain modifies them for the first time.
+        newChain.setBlockHeaderList(new SharedPrefixList<>(chain.getBlockHeaderList()));
+        newChain.setBlockList(new SharedPrefixList<>(chain.getBlockList()));
 
         if (chain.getAgentList() != null) {
-            List<Agent> agentList = new ArrayList<>();
-
-            for (Agent agent : chain.getAgentList()) {
-                try {
-                    agentList.add(agent.clone());
-                } catch (CloneNotSupportedException e) {
-                    Log.error(e);
-                }
-            }
-
-            newChain.setAgentList(agentList);
+            newChain.shareAgentList(chain.getAgentList());
         }
         if (chain.getDepositList() != null) {
-            List<Deposit> depositList = new ArrayList<>();
-
-            for (Deposit deposit : chain.getDepositList()) {
-                try {
-                    depositList.add(deposit.clone());
-                } catch (CloneNotSupportedException e) {
-                    Log.error(e);
-                }
-            }
-
-            newChain.setDepositList(depositList);
+            newChain.shareDepositList(chain.getDepositList());
         }
         if (chain.getYellowPunishList() != null) {
-            newChain.setYellowPunishList(new ArrayList<>(chain.getYellowPunishList()));
+            newChain.setYellowPunishList(new SharedPrefixList<>(chain.getYellowPunishList()));
         }
         if (chain.getRedPunishList() != null) {
-            newChain.setRedPunishList(new ArrayList<>(chain.getRedPunishList()));
+            newChain.setRedPunishList(new SharedPrefixList<>(chain.getRedPunishList()));
         }
         ChainContainer newChainContainer = new ChainContainer(newChain);
 
@@ -28,12 +28,23 @@ package io.nuls.consensus.poc.manager;
 
 import io.nuls.consensus.poc.cache.CacheLoader;
 import io.nuls.consensus.poc.constant.PocConsensusConstant;
+import io.nuls.consensus.poc.locker.Lockers;
+import io.nuls.consensus.poc.model.BlockExtendsData;
+import io.nuls.consensus.poc.model.MeetingRound;
 import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.consensus.poc.protocol.entity.Deposit;
 import io.nuls.consensus.poc.container.ChainContainer;
 import io.nuls.consensus.poc.model.Chain;
+import io.nuls.consensus.poc.protocol.util.AgentComparator;
+import io.nuls.consensus.poc.protocol.util.DepositComparator;
+import io.nuls.consensus.poc.protocol.util.PoConvertUtil;
+import io.nuls.consensus.poc.storage.po.AgentPo;
+import io.nuls.consensus.poc.storage.po.ConsensusSnapshotPo;
+import io.nuls.consensus.poc.storage.po.DepositPo;
 import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.consensus.poc.storage.service.ConsensusSnapshotStorageService;
 import io.nuls.consensus.poc.storage.service.PunishLogStorageService;
+import io.nuls.consensus.poc.storage.utils.PunishLogComparator;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.context.NulsContext;
@@ -42,7 +53,10 @@ import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.protocol.service.BlockService;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
@@ -61,6 +75,10 @@ public class CacheManager {
 
     public void load() throws NulsException {
 
+        if (loadFromSnapshot()) {
+            return;
+        }
+
         //load storage data to memory
 
         List<BlockHeader> blockHeaderList = cacheLoader.loadBlockHeaders(PocConsensusConstant.INIT_HEADERS_OF_ROUND_COUNT);
@@ -95,6 +113,136 @@ public class CacheManager {
         chainManager.getMasterChain().initRound();
     }
 
+    /**
+     * 从快照恢复主链，快照不是最新区块的状态或恢复出的轮次与快照不一致时返回false，由调用者从区块数据重新加载
+     * Restore the master chain from the snapshot. It returns false when the snapshot is not the state of the best block
+     * or the restored round differs from the snapshot, then the caller reloads from the block data.
+     */
+    private boolean loadFromSnapshot() {
+        ConsensusSnapshotStorageService snapshotStorageService = NulsContext.getServiceBean(ConsensusSnapshotStorageService.class);
+        ConsensusSnapshotPo snapshot = snapshotStorageService.get();
+        if (snapshot == null || snapshot.getBlockList().isEmpty() || snapshot.getBlockHeaderList().isEmpty()) {
+            return false;
+        }
+        BlockHeader bestHeader = NulsContext.getServiceBean(BlockService.class).getBestBlockHeader().getData();
+        Block endBlock = snapshot.getBlockList().get(snapshot.getBlockList().size() - 1);
+        if (bestHeader == null || !bestHeader.getHash().equals(snapshot.getBestHash()) ||
+                !endBlock.getHeader().getHash().equals(snapshot.getBestHash())) {
+            Log.info("the consensus snapshot is out of date, height: " + snapshot.getBestHeight());
+            return false;
+        }
+        try {
+            List<Agent> agentList = new ArrayList<>();
+            for (AgentPo po : snapshot.getAgentList()) {
+                agentList.add(PoConvertUtil.poToAgent(po));
+            }
+            Collections.sort(agentList, new AgentComparator());
+            List<Deposit> depositList = new ArrayList<>();
+            for (DepositPo po : snapshot.getDepositList()) {
+                depositList.add(PoConvertUtil.poToDeposit(po));
+            }
+            Collections.sort(depositList, new DepositComparator());
+            List<PunishLogPo> yellowPunishList = snapshot.getYellowPunishList();
+            Collections.sort(yellowPunishList, new PunishLogComparator());
+            List<PunishLogPo> redPunishList = snapshot.getRedPunishList();
+            Collections.sort(redPunishList, new PunishLogComparator());
+
+            Chain masterChain = new Chain();
+            masterChain.setBlockHeaderList(snapshot.getBlockHeaderList());
+            masterChain.setBlockList(snapshot.getBlockList());
+            masterChain.setStartBlockHeader(snapshot.getBlockList().get(0).getHeader());
+            masterChain.setEndBlockHeader(endBlock.getHeader());
+            masterChain.setAgentList(agentList);
+            masterChain.setDepositList(depositList);
+            masterChain.setYellowPunishList(yellowPunishList);
+            masterChain.setRedPunishList(redPunishList);
+
+            ChainContainer masterChainContainer = new ChainContainer(masterChain);
+            chainManager.setMasterChain(masterChainContainer);
+            masterChainContainer.initRound();
+
+            // 用恢复出的数据重新计算的轮次必须与快照时的轮次一致
+            // The round recomputed from the restored data must be the same as the round of the snapshot.
+            MeetingRound round = findRound(masterChainContainer, snapshot.getRoundIndex());
+            if (round == null || round.getStartTime() != snapshot.getRoundStartTime() ||
+                    round.getMemberCount() != snapshot.getRoundMemberCount()) {
+                Log.warn("the round restored from the consensus snapshot is different, reload from the blocks");
+                chainManager.clear();
+                return false;
+            }
+        } catch (Exception e) {
+            Log.warn("restore the consensus snapshot failed: " + e.getMessage());
+            chainManager.clear();
+            return false;
+        }
+        Log.info("consensus cache restored from the snapshot, height: " + snapshot.getBestHeight());
+        return true;
+    }
+
+    /**
+     * 把主链当前的共识状态写入快照，在CHAIN_LOCK内复制状态，序列化和写入在锁外进行
+     * Write the current consensus state of the master chain to the snapshot, the state is copied under CHAIN_LOCK
+     * and serialized and written outside of it.
+     */
+    public boolean saveSnapshot() {
+        ChainContainer masterChainContainer = chainManager.getMasterChain();
+        if (masterChainContainer == null) {
+            return false;
+        }
+        ConsensusSnapshotPo snapshot = new ConsensusSnapshotPo();
+        Lockers.CHAIN_LOCK.lock();
+        try {
+            Chain chain = masterChainContainer.getChain();
+            Block bestBlock = chain.getBestBlock();
+            if (bestBlock == null || chain.getBlockHeaderList().isEmpty()) {
+                return false;
+            }
+            BlockExtendsData extendsData = new BlockExtendsData(bestBlock.getHeader().getExtend());
+            MeetingRound round = findRound(masterChainContainer, extendsData.getRoundIndex());
+            if (round == null) {
+                return false;
+            }
+            snapshot.setBestHash(bestBlock.getHeader().getHash());
+            snapshot.setBestHeight(bestBlock.getHeader().getHeight());
+            snapshot.setRoundIndex(round.getIndex());
+            snapshot.setRoundStartTime(round.getStartTime());
+            snapshot.setRoundMemberCount(round.getMemberCount());
+            snapshot.setBlockHeaderList(new ArrayList<>(chain.getBlockHeaderList()));
+            snapshot.setBlockList(new ArrayList<>(chain.getBlockList()));
+            for (Agent agent : chain.getAgentList()) {
+                snapshot.getAgentList().add(PoConvertUtil.agentToPo(agent));
+            }
+            for (Deposit deposit : chain.getDepositList()) {
+                snapshot.getDepositList().add(PoConvertUtil.depositToPo(deposit));
+            }
+            snapshot.setYellowPunishList(new ArrayList<>(chain.getYellowPunishList()));
+            snapshot.setRedPunishList(new ArrayList<>(chain.getRedPunishList()));
+        } finally {
+            Lockers.CHAIN_LOCK.unlock();
+        }
+        boolean success = NulsContext.getServiceBean(ConsensusSnapshotStorageService.class).save(snapshot);
+        if (success) {
+            Log.info("consensus snapshot saved, height: " + snapshot.getBestHeight());
+        }
+        return success;
+    }
+
+    /**
+     * 在轮次列表和当前轮次的上一轮中查找指定轮次
+     * Find the round in the round list and the previous round of the current round.
+     */
+    private MeetingRound findRound(ChainContainer chainContainer, long roundIndex) {
+        MeetingRound round = chainContainer.getRoundManager().getRoundByIndex(roundIndex);
+        if (round != null && round.getIndex() == roundIndex) {
+            return round;
+        }
+        MeetingRound currentRound = chainContainer.getCurrentRound();
+        if (currentRound != null && currentRound.getPreRound() != null && currentRound.getPreRound().getIndex() == roundIndex) {
+            return currentRound.getPreRound();
+        }
+        return null;
+    }
+
     public void reload() throws NulsException {
         clear();
         load();
@@ -31,10 +31,8 @@ import io.nuls.consensus.poc.config.ConsensusConfig;
 import io.nuls.consensus.poc.locker.Lockers;
 import io.nuls.consensus.poc.model.*;
 import io.nuls.consensus.poc.protocol.constant.PocConsensusProtocolConstant;
-import io.nuls.consensus.poc.protocol.constant.PunishType;
 import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.consensus.poc.protocol.entity.Deposit;
-import io.nuls.consensus.poc.storage.po.PunishLogPo;
 import io.nuls.core.tools.calc.DoubleUtils;
 import io.nuls.core.tools.log.ConsensusLog;
 import io.nuls.core.tools.log.Log;
@@ -323,25 +321,7 @@ public class RoundManager {
     }
 
     private List<Deposit> getDepositListByAgentId(NulsDigestData agentHash, long startBlockHeight) {
-
-        List<Deposit> depositList = chain.getDepositList();
-        List<Deposit> resultList = new ArrayList<>();
-
-        for (int i = depositList.size() - 1; i >= 0; i--) {
-            Deposit deposit = depositList.get(i);
-            if (deposit.getDelHeight() != -1L && deposit.getDelHeight() <= startBlockHeight) {
-                continue;
-            }
-            if (deposit.getBlockHeight() > startBlockHeight || deposit.getBlockHeight() < 0L) {
-                continue;
-            }
-            if (!deposit.getAgentHash().equals(agentHash)) {
-                continue;
-            }
-            resultList.add(deposit);
-        }
-
-        return resultList;
+        return chain.getIndex().getDepositList(agentHash, startBlockHeight);
     }
 
     private List<Agent> getAliveAgentList(long startBlockHeight) {
@@ -368,7 +348,7 @@ public class RoundManager {
             roundStart = 0;
         }
         long blockCount = getBlockCountByAddress(member.getPackingAddress(), roundStart, roundData.getRoundIndex() - 1);
-        long sumRoundVal = getPunishCountByAddress(member.getAgentAddress(), roundStart, roundData.getRoundIndex() - 1, PunishType.YELLOW.getCode());
+        long sumRoundVal = getPunishCountByAddress(member.getAgentAddress(), roundStart, roundData.getRoundIndex() - 1);
         double ability = DoubleUtils.div(blockCount, PocConsensusProtocolConstant.RANGE_OF_CAPACITY_COEFFICIENT);
 
         double penalty = DoubleUtils.div(DoubleUtils.mul(PocConsensusProtocolConstant.CREDIT_MAGIC_NUM, sumRoundVal),
@@ -377,27 +357,8 @@ public class RoundManager {
         return DoubleUtils.round(DoubleUtils.sub(ability, penalty), 4);
     }
 
-    private long getPunishCountByAddress(byte[] address, long roundStart, long roundEnd, int code) {
-        long count = 0;
-        List<PunishLogPo> punishList = new ArrayList<>(chain.getYellowPunishList());
-
-        if (code == PunishType.RED.getCode()) {
-            punishList = chain.getRedPunishList();
-        }
-
-        for (int i = punishList.size() - 1; i >= 0; i--) {
-            PunishLogPo punish = punishList.get(i);
-
-            if (punish.getRoundIndex() > roundEnd) {
-                continue;
-            }
-            if (punish.getRoundIndex() < roundStart) {
-                break;
-            }
-            if (Arrays.equals(punish.getAddress(), address)) {
-                count++;
-            }
-        }
+    private long getPunishCountByAddress(byte[] address, long roundStart, long roundEnd) {
+        long count = chain.getIndex().getYellowPunishCount(address, roundStart, roundEnd);
         //每一轮的惩罚都有可能包含上一轮次的惩罚记录，即计算从a到a+99轮的惩罚记录时，a轮的惩罚中可能是惩罚某个地址在a-1轮未出块，导致100轮最多可能有101个惩罚记录，在这里处理下
         //Each round of punishment is likely to contain a rounds punishment record, calculated from a to a + 99 rounds of punishment record,
         // a round of punishment is likely to be punished in an address in a - 1 round not out of the blocks,
@@ -409,24 +370,7 @@ public class RoundManager {
     }
 
     private long getBlockCountByAddress(byte[] packingAddress, long roundStart, long roundEnd) {
-        long count = 0;
-        List<BlockHeader> blockHeaderList = chain.getBlockHeaderList();
-
-        for (int i = blockHeaderList.size() - 1; i >= 0; i--) {
-            BlockHeader blockHeader = blockHeaderList.get(i);
-            BlockExtendsData roundData = new BlockExtendsData(blockHeader.getExtend());
-
-            if (roundData.getRoundIndex() > roundEnd) {
-                continue;
-            }
-            if (roundData.getRoundIndex() < roundStart) {
-                break;
-            }
-            if (Arrays.equals(blockHeader.getPackingAddress(), packingAddress)) {
-                count++;
-            }
-        }
-        return count;
+        return chain.getIndex().getBlockCount(packingAddress, roundStart, roundEnd);
     }
 
     private BlockHeader getFirstBlockHeightOfPreRoundByRoundIndex(long roundIndex) {
@@ -457,6 +401,33 @@ public class RoundManager {
         return firstBlockHeader;
     }
 
+    /**
+     * 本链复制了一个共享的代理后，让轮次成员引用复制后的代理，成员才能看到本链对代理的修改
+     * After this chain copied a shared agent, let the round members reference the copy,
+     * so that they see the changes this chain makes to the agent.
+     */
+    public void agentReplaced(Agent oldAgent, Agent newAgent) {
+        Lockers.ROUND_LOCK.lock();
+        try {
+            Set<MeetingRound> visitedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (MeetingRound round : roundList) {
+                MeetingRound meetingRound = round;
+                while (meetingRound != null && visitedSet.add(meetingRound)) {
+                    if (meetingRound.getMemberList() != null) {
+                        for (MeetingMember member : meetingRound.getMemberList()) {
+                            if (member.getAgent() == oldAgent) {
+                                member.setAgent(newAgent);
+                            }
+                        }
+                    }
+                    meetingRound = meetingRound.getPreRound();
+                }
+            }
+        } finally {
+            Lockers.ROUND_LOCK.unlock();
+        }
+    }
+
     public Chain getChain() {
         return chain;
     }
@@ -31,13 +31,12 @@ import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.consensus.poc.protocol.entity.Deposit;
 import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.str.StringUtils;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Transaction;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author ln
@@ -54,11 +53,25 @@ public class Chain implements Cloneable {
     private List<Deposit> depositList;
     private List<PunishLogPo> yellowPunishList;
     private List<PunishLogPo> redPunishList;
+    private ChainIndex index;
+    /**
+     * 从其它链共享委托列表后，本链自己创建或复制过的委托；为null时列表中的委托都属于本链
+     * The deposits created or copied by this chain after the deposit list was shared from another chain,
+     * null when all the deposits in the list belong to this chain.
+     */
+    private Set<Deposit> ownedDeposits;
+    /**
+     * 从其它链共享代理列表后，本链自己创建或复制过的代理；为null时列表中的代理都属于本链
+     * The agents created or copied by this chain after the agent list was shared from another chain,
+     * null when all the agents in the list belong to this chain.
+     */
+    private Set<Agent> ownedAgents;
 
     public Chain() {
         blockHeaderList = new ArrayList<>();
         blockList = new ArrayList<>();
         id = StringUtils.getNewUUID();
+        index = new ChainIndex(this);
     }
 
     public void setId(String id) {
@@ -119,10 +132,12 @@ public class Chain implements Cloneable {
 
     public void setAgentList(List<Agent> agentList) {
         this.agentList = agentList;
+        this.ownedAgents = null;
     }
 
     public void setDepositList(List<Deposit> depositList) {
         this.depositList = depositList;
+        this.ownedDeposits = null;
     }
 
     public List<PunishLogPo> getYellowPunishList() {
@@ -141,6 +156,148 @@ public class Chain implements Cloneable {
         this.redPunishList = redPunishList;
     }
 
+    /**
+     * 共享另一条链的委托对象，只引用对方的列表，委托对象在第一次修改时才复制（写时复制）
+     * Share the deposits of another chain. Only the list of the other chain is referenced,
+     * a deposit is copied when it is modified for the first time (copy-on-write).
+     */
+    public void shareDepositList(List<Deposit> sourceList) {
+        this.depositList = new SharedPrefixList<>(sourceList);
+        this.ownedDeposits = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * 共享另一条链的代理对象，方式与委托相同
+     * Share the agents of another chain, the same way as the deposits.
+     */
+    public void shareAgentList(List<Agent> sourceList) {
+        this.agentList = new SharedPrefixList<>(sourceList);
+        this.ownedAgents = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * 在委托列表末尾添加一个属于本链的委托
+     * Append a deposit owned by this chain to the deposit list.
+     */
+    public void addDeposit(Deposit deposit) {
+        depositList.add(deposit);
+        if (ownedDeposits != null) {
+            ownedDeposits.add(deposit);
+            ownedDeposits = releaseIfAllOwned(ownedDeposits, depositList);
+        }
+        index.depositAdded(deposit);
+    }
+
+    /**
+     * 从委托列表中删除指定位置的委托
+     * Remove the deposit at the position from the deposit list.
+     */
+    public void removeDeposit(int i) {
+        Deposit deposit = depositList.remove(i);
+        if (ownedDeposits != null) {
+            ownedDeposits.remove(deposit);
+            ownedDeposits = releaseIfAllOwned(ownedDeposits, depositList);
+        }
+        index.depositRemoved(deposit);
+    }
+
+    /**
+     * 在代理列表末尾添加一个属于本链的代理
+     * Append an agent owned by this chain to the agent list.
+     */
+    public void addAgent(Agent agent) {
+        agentList.add(agent);
+        if (ownedAgents != null) {
+            ownedAgents.add(agent);
+            ownedAgents = releaseIfAllOwned(ownedAgents, agentList);
+        }
+    }
+
+    /**
+     * 从代理列表中删除指定位置的代理
+     * Remove the agent at the position from the agent list.
+     */
+    public void removeAgent(int i) {
+        Agent agent = agentList.remove(i);
+        if (ownedAgents != null) {
+            ownedAgents.remove(agent);
+            ownedAgents = releaseIfAllOwned(ownedAgents, agentList);
+        }
+    }
+
+    /**
+     * 本链成为唯一使用者后（例如切换为主链），复制所有共享的列表，列表中的代理和委托都属于本链，不再需要写时复制
+     * Once this chain is the only user of its state (e.g. promoted to the master chain), the shared lists are copied
+     * and all the agents and deposits in them belong to this chain, copy-on-write is no longer needed.
+     * The lists of the replaced chain are no longer referenced after this.
+     */
+    public void ownAll() {
+        this.ownedDeposits = null;
+        this.ownedAgents = null;
+        own(blockHeaderList);
+        own(blockList);
+        own(agentList);
+        own(depositList);
+        own(yellowPunishList);
+        own(redPunishList);
+    }
+
+    private static void own(List<?> list) {
+        if (list instanceof SharedPrefixList) {
+            ((SharedPrefixList<?>) list).own();
+        }
+    }
+
+    /**
+     * 获取可以修改的委托，共享的委托会先复制一份替换到本链的列表中
+     * Get the deposit at the position for modification, a shared deposit is copied into the list of this chain first.
+     */
+    public Deposit getWritableDeposit(int i) {
+        Deposit deposit = depositList.get(i);
+        if (ownedDeposits == null || ownedDeposits.contains(deposit)) {
+            return deposit;
+        }
+        Deposit copy;
+        try {
+            copy = deposit.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new NulsRuntimeException(e);
+        }
+        depositList.set(i, copy);
+        ownedDeposits.add(copy);
+        ownedDeposits = releaseIfAllOwned(ownedDeposits, depositList);
+        index.depositReplaced(deposit, copy);
+        return copy;
+    }
+
+    /**
+     * 获取可以修改的代理，共享的代理会先复制一份替换到本链的列表中
+     * Get the agent at the position for modification, a shared agent is copied into the list of this chain first.
+     */
+    public Agent getWritableAgent(int i) {
+        Agent agent = agentList.get(i);
+        if (ownedAgents == null || ownedAgents.contains(agent)) {
+            return agent;
+        }
+        Agent copy;
+        try {
+            copy = agent.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new NulsRuntimeException(e);
+        }
+        agentList.set(i, copy);
+        ownedAgents.add(copy);
+        ownedAgents = releaseIfAllOwned(ownedAgents, agentList);
+        return copy;
+    }
+
+    private static <T> Set<T> releaseIfAllOwned(Set<T> ownedSet, List<T> list) {
+        if (ownedSet.size() == list.size()) {
+            return null;
+        }
+        return ownedSet;
+    }
+
     public Agent getAgentByAddress(byte[] address) {
         for (Agent agent : agentList) {
             if (agent.getDelHeight() > 0) {
@@ -153,9 +310,15 @@ public class Chain implements Cloneable {
         return null;
     }
 
+    public ChainIndex getIndex() {
+        return index;
+    }
+
     @Override
     protected Object clone() throws CloneNotSupportedException {
-        return super.clone();
+        Chain chain = (Chain) super.clone();
+        chain.index = new ChainIndex(chain);
+        return chain;
     }
 
     public Block getBestBlock() {
@@ -0,0 +1,292 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import io.nuls.consensus.poc.protocol.entity.Deposit;
+import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+
+import java.util.*;
+
+/**
+ * 链上共识状态的索引，供轮次计算使用：按节点分组的委托、每个打包地址每轮的出块数、每个地址每轮的黄牌数
+ * 索引由ChainContainer的addBlock/rollback增量维护，其它地方直接修改了列表（列表对象或数量不一致）时，在下次查询时重建
+ * Indices over the consensus state of a chain for the round calculation: the deposits grouped by agent,
+ * the block count of each packing address per round and the yellow punish count of each address per round.
+ * They are maintained incrementally by addBlock/rollback of the ChainContainer. When a list is changed elsewhere
+ * (the list instance or its size no longer matches), the index is rebuilt on the next query.
+ */
+public class ChainIndex {
+
+    private final Chain chain;
+
+    private List<BlockHeader> indexedHeaderList;
+    private int indexedHeaderCount;
+    private final Map<String, NavigableMap<Long, Long>> blockCountMap = new HashMap<>();
+
+    private List<Deposit> indexedDepositList;
+    private int indexedDepositCount;
+    private final Map<NulsDigestData, List<Deposit>> depositMap = new HashMap<>();
+
+    private List<PunishLogPo> indexedYellowList;
+    private int indexedYellowCount;
+    private final Map<String, NavigableMap<Long, Long>> yellowCountMap = new HashMap<>();
+
+    public ChainIndex(Chain chain) {
+        this.chain = chain;
+    }
+
+    /**
+     * 区块头已经追加到链的区块头列表末尾
+     * The header has been appended to the header list of the chain.
+     */
+    public void blockHeaderAdded(BlockHeader header) {
+        List<BlockHeader> list = chain.getBlockHeaderList();
+        if (list != indexedHeaderList || list.size() != indexedHeaderCount + 1) {
+            indexedHeaderList = null;
+            return;
+        }
+        changeCount(blockCountMap, header.getPackingAddress(), new BlockExtendsData(header.getExtend()).getRoundIndex(), 1);
+        indexedHeaderCount++;
+    }
+
+    /**
+     * 区块头已经从链的区块头列表中移除
+     * The header has been removed from the header list of the chain.
+     */
+    public void blockHeaderRemoved(BlockHeader header) {
+        List<BlockHeader> list = chain.getBlockHeaderList();
+        if (list != indexedHeaderList || list.size() != indexedHeaderCount - 1) {
+            indexedHeaderList = null;
+            return;
+        }
+        changeCount(blockCountMap, header.getPackingAddress(), new BlockExtendsData(header.getExtend()).getRoundIndex(), -1);
+        indexedHeaderCount--;
+    }
+
+    /**
+     * 委托已经追加到链的委托列表末尾
+     * The deposit has been appended to the deposit list of the chain.
+     */
+    public void depositAdded(Deposit deposit) {
+        List<Deposit> list = chain.getDepositList();
+        if (list != indexedDepositList || list.size() != indexedDepositCount + 1) {
+            indexedDepositList = null;
+            return;
+        }
+        depositMap.computeIfAbsent(deposit.getAgentHash(), key -> new ArrayList<>()).add(deposit);
+        indexedDepositCount++;
+    }
+
+    /**
+     * 委托已经从链的委托列表中移除
+     * The deposit has been removed from the deposit list of the chain.
+     */
+    public void depositRemoved(Deposit deposit) {
+        List<Deposit> list = chain.getDepositList();
+        List<Deposit> agentDepositList = depositMap.get(deposit.getAgentHash());
+        if (list != indexedDepositList || list.size() != indexedDepositCount - 1 || agentDepositList == null) {
+            indexedDepositList = null;
+            return;
+        }
+        for (int i = agentDepositList.size() - 1; i >= 0; i--) {
+            if (agentDepositList.get(i) == deposit) {
+                agentDepositList.remove(i);
+                break;
+            }
+        }
+        if (agentDepositList.isEmpty()) {
+            depositMap.remove(deposit.getAgentHash());
+        }
+        indexedDepositCount--;
+    }
+
+    /**
+     * 链的委托列表中的委托被替换成了它的副本（写时复制）
+     * A deposit in the deposit list of the chain has been replaced by its copy (copy-on-write).
+     */
+    public void depositReplaced(Deposit oldDeposit, Deposit newDeposit) {
+        if (indexedDepositList == null) {
+            return;
+        }
+        List<Deposit> agentDepositList = depositMap.get(oldDeposit.getAgentHash());
+        if (agentDepositList != null) {
+            for (int i = agentDepositList.size() - 1; i >= 0; i--) {
+                if (agentDepositList.get(i) == oldDeposit) {
+                    agentDepositList.set(i, newDeposit);
+                    return;
+                }
+            }
+        }
+        indexedDepositList = null;
+    }
+
+    /**
+     * 黄牌记录已经追加到链的黄牌列表末尾
+     * The yellow punish log has been appended to the yellow punish list of the chain.
+     */
+    public void yellowPunishAdded(PunishLogPo punishLog) {
+        List<PunishLogPo> list = chain.getYellowPunishList();
+        if (list != indexedYellowList || list.size() != indexedYellowCount + 1) {
+            indexedYellowList = null;
+            return;
+        }
+        changeCount(yellowCountMap, punishLog.getAddress(), punishLog.getRoundIndex(), 1);
+        indexedYellowCount++;
+    }
+
+    /**
+     * 黄牌记录已经从链的黄牌列表中移除
+     * The yellow punish log has been removed from the yellow punish list of the chain.
+     */
+    public void yellowPunishRemoved(PunishLogPo punishLog) {
+        List<PunishLogPo> list = chain.getYellowPunishList();
+        if (list != indexedYellowList || list.size() != indexedYellowCount - 1) {
+            indexedYellowList = null;
+            return;
+        }
+        changeCount(yellowCountMap, punishLog.getAddress(), punishLog.getRoundIndex(), -1);
+        indexedYellowCount--;
+    }
+
+    /**
+     * 丢弃全部索引，下次查询时重建
+     * Drop all the indices, they are rebuilt on the next query.
+     */
+    public void invalidate() {
+        indexedHeaderList = null;
+        indexedDepositList = null;
+        indexedYellowList = null;
+    }
+
+    /**
+     * 打包地址在[roundStart, roundEnd]轮次中的出块数
+     * The number of blocks packed by the address in the rounds [roundStart, roundEnd].
+     */
+    public long getBlockCount(byte[] packingAddress, long roundStart, long roundEnd) {
+        List<BlockHeader> list = chain.getBlockHeaderList();
+        if (list != indexedHeaderList || list.size() != indexedHeaderCount) {
+            blockCountMap.clear();
+            for (BlockHeader header : list) {
+                changeCount(blockCountMap, header.getPackingAddress(), new BlockExtendsData(header.getExtend()).getRoundIndex(), 1);
+            }
+            indexedHeaderList = list;
+            indexedHeaderCount = list.size();
+        }
+        return sumCount(blockCountMap, packingAddress, roundStart, roundEnd);
+    }
+
+    /**
+     * 地址在[roundStart, roundEnd]轮次中的黄牌数
+     * The number of yellow punishes of the address in the rounds [roundStart, roundEnd].
+     */
+    public long getYellowPunishCount(byte[] address, long roundStart, long roundEnd) {
+        List<PunishLogPo> list = chain.getYellowPunishList();
+        if (list == null) {
+            return 0;
+        }
+        if (list != indexedYellowList || list.size() != indexedYellowCount) {
+            yellowCountMap.clear();
+            for (PunishLogPo punishLog : list) {
+                changeCount(yellowCountMap, punishLog.getAddress(), punishLog.getRoundIndex(), 1);
+            }
+            indexedYellowList = list;
+            indexedYellowCount = list.size();
+        }
+        return sumCount(yellowCountMap, address, roundStart, roundEnd);
+    }
+
+    /**
+     * 在startBlockHeight高度有效的节点委托，顺序和链的委托列表相反（与逐个扫描委托列表的结果一致）
+     * The deposits of the agent that are valid at startBlockHeight, in the reverse order of the deposit list of the chain
+     * (the same as scanning the deposit list from its end).
+     */
+    public List<Deposit> getDepositList(NulsDigestData agentHash, long startBlockHeight) {
+        List<Deposit> list = chain.getDepositList();
+        List<Deposit> resultList = new ArrayList<>();
+        if (list == null) {
+            return resultList;
+        }
+        if (list != indexedDepositList || list.size() != indexedDepositCount) {
+            depositMap.clear();
+            for (Deposit deposit : list) {
+                depositMap.computeIfAbsent(deposit.getAgentHash(), key -> new ArrayList<>()).add(deposit);
+            }
+            indexedDepositList = list;
+            indexedDepositCount = list.size();
+        }
+        List<Deposit> agentDepositList = depositMap.get(agentHash);
+        if (agentDepositList == null) {
+            return resultList;
+        }
+        for (int i = agentDepositList.size() - 1; i >= 0; i--) {
+            Deposit deposit = agentDepositList.get(i);
+            if (deposit.getDelHeight() != -1L && deposit.getDelHeight() <= startBlockHeight) {
+                continue;
+            }
+            if (deposit.getBlockHeight() > startBlockHeight || deposit.getBlockHeight() < 0L) {
+                continue;
+            }
+            resultList.add(deposit);
+        }
+        return resultList;
+    }
+
+    private static void changeCount(Map<String, NavigableMap<Long, Long>> countMap, byte[] address, long roundIndex, long change) {
+        if (address == null) {
+            return;
+        }
+        String key = Hex.encode(address);
+        NavigableMap<Long, Long> roundMap = countMap.computeIfAbsent(key, k -> new TreeMap<>());
+        long count = roundMap.getOrDefault(roundIndex, 0L) + change;
+        if (count > 0) {
+            roundMap.put(roundIndex, count);
+        } else {
+            roundMap.remove(roundIndex);
+            if (roundMap.isEmpty()) {
+                countMap.remove(key);
+            }
+        }
+    }
+
+    private static long sumCount(Map<String, NavigableMap<Long, Long>> countMap, byte[] address, long roundStart, long roundEnd) {
+        if (address == null || roundStart > roundEnd) {
+            return 0;
+        }
+        NavigableMap<Long, Long> roundMap = countMap.get(Hex.encode(address));
+        if (roundMap == null) {
+            return 0;
+        }
+        long count = 0;
+        for (Long roundCount : roundMap.subMap(roundStart, true, roundEnd, true).values()) {
+            count += roundCount;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import java.util.*;
+
+/**
+ * 共享另一个列表前缀的列表：前缀只保存引用，本列表追加的元素保存在自己的尾部，
+ * 前缀中被替换的元素单独记录，在前缀中间插入或删除时才复制整个前缀
+ * A list that shares a prefix of another list. The prefix is only referenced, the elements appended to
+ * this list are kept in its own tail and the replaced prefix elements are recorded separately.
+ * The whole prefix is copied only when an element is inserted into or removed from the middle of it.
+ * <p>
+ * 被共享的列表在本列表使用期间不能修改
+ * The shared list must not be modified while this list is in use.
+ */
+public class SharedPrefixList<E> extends AbstractList<E> implements RandomAccess {
+
+    private List<E> sharedList;
+    private int prefixSize;
+    private Map<Integer, E> replacedMap;
+    private ArrayList<E> tail = new ArrayList<>();
+
+    public SharedPrefixList(List<E> sharedList) {
+        this.sharedList = sharedList;
+        this.prefixSize = sharedList.size();
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        if (index >= prefixSize) {
+            return tail.get(index - prefixSize);
+        }
+        if (replacedMap != null && replacedMap.containsKey(index)) {
+            return replacedMap.get(index);
+        }
+        return sharedList.get(index);
+    }
+
+    @Override
+    public int size() {
+        return prefixSize + tail.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        if (index >= prefixSize) {
+            return tail.set(index - prefixSize, element);
+        }
+        E old = get(index);
+        if (replacedMap == null) {
+            replacedMap = new HashMap<>();
+        }
+        replacedMap.put(index, element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (index < prefixSize) {
+            own();
+        }
+        tail.add(index - prefixSize, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        if (index >= prefixSize) {
+            modCount++;
+            return tail.remove(index - prefixSize);
+        }
+        if (index == prefixSize - 1 && tail.isEmpty()) {
+            // 回滚时从末尾删除，只缩短前缀
+            // Rollbacks remove from the end, only shorten the prefix.
+            E old = get(index);
+            if (replacedMap != null) {
+                replacedMap.remove(index);
+            }
+            prefixSize--;
+            modCount++;
+            return old;
+        }
+        own();
+        modCount++;
+        return tail.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        sharedList = null;
+        prefixSize = 0;
+        replacedMap = null;
+        tail.clear();
+        modCount++;
+    }
+
+    /**
+     * 是否还在共享另一个列表的前缀
+     * Whether this list still shares a prefix of another list.
+     */
+    public boolean isShared() {
+        return prefixSize > 0;
+    }
+
+    /**
+     * 复制共享的前缀，之后本列表不再引用被共享的列表
+     * Copy the shared prefix, this list no longer references the shared list afterwards.
+     */
+    public void own() {
+        if (sharedList == null) {
+            return;
+        }
+        ArrayList<E> list = new ArrayList<>(size());
+        for (int i = 0; i < prefixSize; i++) {
+            list.add(get(i));
+        }
+        list.addAll(tail);
+        tail = list;
+        sharedList = null;
+        prefixSize = 0;
+        replacedMap = null;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
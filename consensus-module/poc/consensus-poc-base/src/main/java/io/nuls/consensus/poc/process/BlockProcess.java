@@ -142,7 +142,11 @@ public class BlockProcess {
         // whether the attribute of the block header is legal, the Merkel tree root is correct, the signature is correct,
         // and whether the expanded round of information is valid
         // 验证区块，需要验证的内容有：区块大小是否超过限制、区块头属性是否合法、梅克尔树根是否正确、签名是否正确、扩展的轮次信息是否合法
-        block.verifyWithException();
+        // 下载的区块已经由下载线程并行验证过，这里不再重复验证
+        // The downloaded blocks have been verified by the download threads in parallel, they are not verified again here.
+        if (!blockContainer.isVerified()) {
+            block.verifyWithException();
+        }
         bifurcationUtil.validate(block.getHeader());
 
         ValidateResult<List<Transaction>> validateResult = ledgerService.verifyDoubleSpend(block);
@@ -184,7 +188,7 @@ public class BlockProcess {
 
         // Verify that the block round information is correct, if correct, join the main chain
         // 验证区块轮次信息是否正确、如果正确，则加入主链
-        Result verifyAndAddBlockResult = chainManager.getMasterChain().verifyAndAddBlock(block, isDownload, false);
+        Result verifyAndAddBlockResult = chainManager.getMasterChain().verifyAndAddBlock(block, isDownload, false, true);
         if (verifyAndAddBlockResult.isSuccess()) {
             boolean success = true;
             try {
@@ -366,15 +366,22 @@ public class ConsensusProcess {
 
         List<ContractResult> contractResultList = new ArrayList<>();
         Set<String> redPunishAddress = new HashSet<>();
+        // 本区块放不下的合约交易，打包结束后放回交易池
+        List<Transaction> delayedTxList = new ArrayList<>();
         while (true) {
 
             if ((self.getPackEndTime() - TimeService.currentTimeMillis()) <= 500L) {
                 break;
             }
             start = System.nanoTime();
-            Transaction tx = txMemoryPool.get();
+            // 按手续费率取出区块剩余空间内的最优交易
+            Transaction tx = txMemoryPool.get(ProtocolConstant.MAX_BLOCK_SIZE - totalSize);
             getTxUse += (System.nanoTime() - start);
             if (tx == null) {
+                // 交易池中还有交易但都放不下，区块已满
+                if (txMemoryPool.size() > 0) {
+                    break;
+                }
                 try {
                     sleepTIme += 100;
                     Thread.sleep(100L);
@@ -387,13 +394,9 @@ public class ConsensusProcess {
             start = System.nanoTime();
             long txSize = tx.size();
             sizeTime += (System.nanoTime() - start);
-            if ((totalSize + txSize) > ProtocolConstant.MAX_BLOCK_SIZE) {
-                txMemoryPool.addInFirst(tx, false);
-                break;
-            }
             // 区块中可以消耗的最大Gas总量，超过这个值，则本区块中不再继续组装消耗GAS智能合约交易
             if (totalGasUsed > ContractConstant.MAX_PACKAGE_GAS && ContractUtil.isGasCostContractTransaction(tx)) {
-                txMemoryPool.addInFirst(tx, false);
+                delayedTxList.add(tx);
                 continue;
             }
             count++;
@@ -452,6 +455,9 @@ public class ConsensusProcess {
 
             totalSize += txSize;
         }
+        for (Transaction delayedTx : delayedTxList) {
+            txMemoryPool.add(delayedTx, false);
+        }
         // 打包结束后移除临时余额区
         contractService.removeContractTempBalance();
         stateRoot = contractService.commitBatchExecute().getData();
@@ -478,6 +478,9 @@ public class ForkChainProcess {
         ChainLog.debug("add new blocks complete, result {}, success count is {} , now service best block : {} - {}", changeSuccess, successList.size(), blockService.getBestBlock().getData().getHeader().getHeight(), blockService.getBestBlock().getData().getHeader().getHash());
 
         if (changeSuccess) {
+            // 旧主链已被替换，新主链不再与其共享列表、代理和委托
+            // The old master chain is replaced, the new master chain no longer shares lists, agents or deposits with it.
+            newMasterChain.getChain().ownAll();
             chainManager.setMasterChain(newMasterChain);
             newMasterChain.initRound();
             NulsContext.getInstance().setBestBlock(newMasterChain.getBestBlock());
@@ -818,6 +821,7 @@ public class ForkChainProcess {
                 yit.remove();
             }
         }
+        masterChain.getIndex().invalidate();
     }
 
     private void clearMasterChainRound() {
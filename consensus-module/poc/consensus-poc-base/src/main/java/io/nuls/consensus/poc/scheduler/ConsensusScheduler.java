@@ -27,6 +27,7 @@
 package io.nuls.consensus.poc.scheduler;
 
 import io.nuls.consensus.poc.constant.ConsensusStatus;
+import io.nuls.consensus.poc.constant.PocConsensusConstant;
 import io.nuls.consensus.poc.context.ConsensusStatusContext;
 import io.nuls.consensus.poc.context.PocConsensusContext;
 import io.nuls.consensus.poc.manager.CacheManager;
@@ -105,6 +106,8 @@ public class ConsensusScheduler {
         threadPool.scheduleAtFixedRate(new RewardCalculatorTask(NulsContext.getServiceBean(RewardStatisticsProcess.class)), ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, TimeUnit.SECONDS);
 
         threadPool.scheduleAtFixedRate(new TxProcessTask(), 5, 1, TimeUnit.SECONDS);
+
+        threadPool.scheduleAtFixedRate(new ConsensusSnapshotTask(cacheManager), PocConsensusConstant.SNAPSHOT_INTERVAL_SECONDS, PocConsensusConstant.SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
         return true;
     }
 
@@ -117,6 +120,15 @@ public class ConsensusScheduler {
 
     public boolean stop() {
 
+        // 关闭前写入快照，下次启动时直接恢复
+        // Write the snapshot before shutting down, the next startup restores it directly.
+        if (ConsensusStatusContext.getConsensusStatus().ordinal() > ConsensusStatus.LOADING_CACHE.ordinal()) {
+            try {
+                cacheManager.saveSnapshot();
+            } catch (Exception e) {
+                Log.error(e);
+            }
+        }
         clear();
 
         orphanBlockProcess.stop();
@@ -37,6 +37,7 @@ import io.nuls.consensus.poc.provider.BlockQueueProvider;
 import io.nuls.consensus.poc.scheduler.ConsensusScheduler;
 import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
 import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
+import io.nuls.consensus.poc.util.HeaderChainValidator;
 import io.nuls.consensus.service.ConsensusService;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.context.NulsContext;
@@ -105,11 +106,22 @@ public class ConsensusPocServiceImpl implements ConsensusService {
 
     @Override
     public Result addBlock(Block block) {
+        return addBlock(block, false);
+    }
+
+    @Override
+    public Result addBlock(Block block, boolean verified) {
         BlockContainer blockContainer = new BlockContainer(block, BlockContainerStatus.DOWNLOADING);
+        blockContainer.setVerified(verified);
         boolean success = blockQueueProvider.put(blockContainer);
         return new Result(success, null);
     }
 
+    @Override
+    public Result verifyHeaderChain(BlockHeader startHeader, List<BlockHeader> headerList) {
+        return HeaderChainValidator.verify(startHeader, headerList);
+    }
+
     @Override
     public Result rollbackBlock(Block block) throws NulsException {
 
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.task;
+
+import io.nuls.consensus.poc.constant.ConsensusStatus;
+import io.nuls.consensus.poc.context.ConsensusStatusContext;
+import io.nuls.consensus.poc.manager.CacheManager;
+import io.nuls.core.tools.log.Log;
+
+/**
+ * 定时把主链的共识状态写入快照，缓存加载完成之前不写
+ * Write the consensus state of the master chain to the snapshot periodically, nothing is written before the cache is loaded.
+ */
+public class ConsensusSnapshotTask implements Runnable {
+
+    private final CacheManager cacheManager;
+
+    public ConsensusSnapshotTask(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (ConsensusStatusContext.getConsensusStatus().ordinal() <= ConsensusStatus.LOADING_CACHE.ordinal()) {
+                return;
+            }
+            cacheManager.saveSnapshot();
+        } catch (Exception e) {
+            Log.error(e);
+        }
+    }
+}
@@ -25,31 +25,69 @@
 
 package io.nuls.consensus.poc.task;
 
+import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.consensus.poc.cache.TxMemoryPool;
+import io.nuls.consensus.poc.cache.TxOrphanPool;
 import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
 import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.TransactionErrorCode;
 import io.nuls.kernel.context.NulsContext;
-import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.ledger.util.LedgerUtil;
 import io.nuls.protocol.service.TransactionService;
-import io.nuls.protocol.utils.TransactionTimeComparator;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
+ * 交易接收流水线，每批交易依次经过以下阶段：
+ * 1、并行验证：签名、格式等与账本状态无关的验证，以及是否已确认，在线程池中并行执行
+ * 2、账本验证：依赖utxo临时状态的验证，在本线程中按顺序执行，缺少输入的交易进入孤儿池，父交易被接受时唤醒
+ * 3、批量保存：验证通过的交易一次写入交易缓存
+ * 4、转发
+ * Transaction admission pipeline, every batch goes through the following stages:
+ * 1. parallel verification: signatures, format and whether it is confirmed, which do not depend on the ledger state, run in parallel on the worker pool
+ * 2. ledger verification: checks depending on the temporary utxo state run in order on this thread,
+ * the transactions missing inputs enter the orphan pool and are woken when their parents are accepted
+ * 3. batch storage: the accepted transactions are written into the transaction cache at once
+ * 4. forwarding
+ *
  * @author: Niels Wang
  * @date: 2018/7/5
  */
 public class TxProcessTask implements Runnable {
 
+    private static final int BATCH_SIZE = 2000;
+
+    private static final long METRICS_LOG_INTERVAL = 60000L;
+
+    private static final int ORPHAN_MAX_COUNT = 200000;
+
+    private static final long ORPHAN_MAX_SIZE = 64 * 1024 * 1024L;
+
+    private static final long ORPHAN_EXPIRE_TIME = 3600000L;
+
+    /**
+     * 检查父交易是否已被区块确认的间隔
+     * Interval of checking whether the parents have been confirmed by blocks.
+     */
+    private static final long ORPHAN_RESOLVE_INTERVAL = 30000L;
+
+    /**
+     * 每次检查的孤儿交易缺少的输出数量上限
+     * Max count of the missing outputs of the orphans checked each time.
+     */
+    private static final int ORPHAN_RESOLVE_CHECK_COUNT = 10000;
+
     private TxMemoryPool pool = TxMemoryPool.getInstance();
 
     private LedgerService ledgerService = NulsContext.getServiceBean(LedgerService.class);
@@ -58,17 +96,20 @@ public class TxProcessTask implements Runnable {
 
     private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
 
-    private TransactionTimeComparator txComparator = TransactionTimeComparator.getInstance();
+    private ExecutorService verifyExecutor = TaskManager.createThreadPool(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, new NulsThreadFactory(ConsensusConstant.MODULE_ID_CONSENSUS, "tx-verify"));
 
     private Map<String, Coin> temporaryToMap = new HashMap<>();
     private Set<String> temporaryFromSet = new HashSet<>();
 
-    private List<Transaction> orphanTxList = new ArrayList<>();
+    private TxOrphanPool orphanPool = new TxOrphanPool(ORPHAN_MAX_COUNT, ORPHAN_MAX_SIZE);
 
-    private static int maxOrphanSize = 200000;
+    private long lastOrphanResolveTime = System.currentTimeMillis();
 
-//    int count = 0;
-//    int size = 0;
+    private final StageMetrics verifyMetrics = new StageMetrics("verify");
+    private final StageMetrics ledgerMetrics = new StageMetrics("ledger");
+    private final StageMetrics storeMetrics = new StageMetrics("store");
+    private final StageMetrics forwardMetrics = new StageMetrics("forward");
+    private long lastMetricsLogTime = System.currentTimeMillis();
 
     @Override
     public void run() {
@@ -82,7 +123,7 @@ public class TxProcessTask implements Runnable {
         } catch (Exception e) {
             Log.error(e);
         }
-//        System.out.println("count: " + count + " , size : " + size + " , orphan size : " + orphanTxList.size());
+        logMetrics();
     }
 
     private void doTask() {
@@ -91,40 +132,127 @@ public class TxProcessTask implements Runnable {
             return;
         }
 
+        List<Transaction> txList = new ArrayList<>(BATCH_SIZE);
         Transaction tx = null;
-        while ((tx = transactionQueueStorageService.pollTx()) != null && orphanTxList.size() < maxOrphanSize) {
-//            size++;
-            processTx(tx, false);
+        while (pool.getPoolSize() < 1000000L) {
+            while (txList.size() < BATCH_SIZE && (tx = transactionQueueStorageService.pollTx()) != null) {
+                txList.add(tx);
+            }
+            if (txList.isEmpty()) {
+                return;
+            }
+            processTxList(txList);
+            txList.clear();
         }
     }
 
-
-    private void doOrphanTxTask() {
-        orphanTxList.sort(txComparator);
-
-        Iterator<Transaction> it = orphanTxList.iterator();
-        while (it.hasNext()) {
-            Transaction tx = it.next();
-            boolean success = processTx(tx, true);
-            if (success) {
-                it.remove();
+    private void processTxList(List<Transaction> txList) {
+        // 并行验证
+        long start = System.nanoTime();
+        List<Future<Boolean>> futures = new ArrayList<>(txList.size());
+        for (Transaction tx : txList) {
+            futures.add(verifyExecutor.submit(() -> verifyTx(tx)));
+        }
+        List<Transaction> verifiedList = new ArrayList<>(txList.size());
+        for (int i = 0; i < txList.size(); i++) {
+            try {
+                if (futures.get(i).get()) {
+                    verifiedList.add(txList.get(i));
+                }
+            } catch (Exception e) {
+                Log.error(e);
             }
         }
+        verifyMetrics.add(txList.size(), System.nanoTime() - start);
+
+        // 账本验证，按接收顺序串行执行
+        start = System.nanoTime();
+        List<Transaction> acceptedList = new ArrayList<>(verifiedList.size());
+        int count = processTxList(verifiedList, acceptedList);
+        ledgerMetrics.add(count, System.nanoTime() - start);
+
+        saveAndForward(acceptedList);
     }
 
+    /**
+     * 与账本状态无关的验证，可以并行执行
+     * Verification independent of the ledger state, it can run in parallel.
+     */
+    private boolean verifyTx(Transaction tx) {
+        Result result = tx.verify();
+        if (result.isFailed()) {
+            return false;
+        }
+        Transaction tempTx = ledgerService.getTx(tx.getHash());
+        return tempTx == null;
+    }
 
-    private boolean processTx(Transaction tx, boolean isOrphanTx) {
-        try {
-            Result result = tx.verify();
-            if (result.isFailed()) {
-                return false;
-            }
+    private void saveAndForward(List<Transaction> acceptedList) {
+        if (acceptedList.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (!transactionCacheStorageService.putTxList(acceptedList)) {
+            Log.warn("save the transaction cache failed, count: " + acceptedList.size());
+        }
+        storeMetrics.add(acceptedList.size(), System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (Transaction tx : acceptedList) {
+            transactionService.forwardTx(tx, null);
+        }
+        forwardMetrics.add(acceptedList.size(), System.nanoTime() - start);
+    }
 
-            Transaction tempTx = ledgerService.getTx(tx.getHash());
-            if (tempTx != null) {
-                return isOrphanTx;
+    /**
+     * 按顺序验证账本，交易被接受后唤醒等待它的孤儿交易继续验证
+     * Verify the ledger in order, the orphans waiting for an accepted transaction are woken and verified next.
+     *
+     * @return 验证的交易数，包括被唤醒的孤儿交易/the count of verified transactions, including the woken orphans
+     */
+    private int processTxList(List<Transaction> txList, List<Transaction> acceptedList) {
+        int count = 0;
+        Deque<Transaction> queue = new ArrayDeque<>(txList);
+        while (!queue.isEmpty()) {
+            Transaction tx = queue.poll();
+            count++;
+            if (processTx(tx)) {
+                acceptedList.add(tx);
+                queue.addAll(orphanPool.takeWaiting(tx));
             }
+        }
+        return count;
+    }
 
+    private void doOrphanTxTask() {
+        long now = System.currentTimeMillis();
+        orphanPool.removeExpired(TimeService.currentTimeMillis() - ORPHAN_EXPIRE_TIME);
+        if (now - lastOrphanResolveTime < ORPHAN_RESOLVE_INTERVAL || orphanPool.size() == 0) {
+            return;
+        }
+        lastOrphanResolveTime = now;
+        // 父交易可能直接被区块确认，没有经过交易池
+        // The parents may be confirmed by blocks directly without going through the memory pool.
+        List<Transaction> resolvedList = orphanPool.takeResolved(output -> ledgerService.getUtxo(output) != null, ORPHAN_RESOLVE_CHECK_COUNT);
+        if (resolvedList.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Transaction> acceptedList = new ArrayList<>();
+        int count = processTxList(resolvedList, acceptedList);
+        ledgerMetrics.add(count, System.nanoTime() - start);
+        saveAndForward(acceptedList);
+    }
+
+    /**
+     * 依赖utxo临时状态的验证，验证通过的交易放入交易池，缺少输入的交易放入孤儿池
+     * Verification depending on the temporary utxo state, the accepted transaction is put into the memory pool,
+     * the transaction missing inputs is put into the orphan pool.
+     *
+     * @return 交易是否被接受/whether the transaction is accepted
+     */
+    private boolean processTx(Transaction tx) {
+        try {
             ValidateResult validateResult = ledgerService.verifyCoinData(tx, temporaryToMap, temporaryFromSet);
             if (validateResult.isSuccess()) {
                 pool.add(tx, false);
@@ -135,16 +263,9 @@ public class TxProcessTask implements Runnable {
                     temporaryFromSet.remove(key);
                     temporaryToMap.remove(key);
                 }
-//                count++;
-
-                transactionCacheStorageService.putTx(tx);
-                transactionService.forwardTx(tx, null);
-
                 return true;
-            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX) && !isOrphanTx) {
-                processOrphanTx(tx);
-            } else if (isOrphanTx) {
-                return tx.getTime() < (TimeService.currentTimeMillis() - 3600000L);
+            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX)) {
+                orphanPool.add(tx, getMissingOutputs(tx));
             }
         } catch (Exception e) {
             Log.error(e);
@@ -152,7 +273,53 @@ public class TxProcessTask implements Runnable {
         return false;
     }
 
-    private void processOrphanTx(Transaction tx) throws NulsException {
-        orphanTxList.add(tx);
+    private List<byte[]> getMissingOutputs(Transaction tx) {
+        List<byte[]> missingOutputs = new ArrayList<>();
+        for (Coin from : tx.getCoinData().getFrom()) {
+            if (temporaryToMap.containsKey(LedgerUtil.asString(from.getOwner()))) {
+                continue;
+            }
+            if (ledgerService.getUtxo(from.getOwner()) == null) {
+                missingOutputs.add(from.getOwner());
+            }
+        }
+        return missingOutputs;
+    }
+
+    private void logMetrics() {
+        long now = System.currentTimeMillis();
+        if (now - lastMetricsLogTime < METRICS_LOG_INTERVAL) {
+            return;
+        }
+        lastMetricsLogTime = now;
+        Log.info("tx process: " + verifyMetrics.getAndReset() + ", " + ledgerMetrics.getAndReset() + ", "
+                + storeMetrics.getAndReset() + ", " + forwardMetrics.getAndReset() + ", orphan: " + orphanPool.size());
+    }
+
+    /**
+     * 单个阶段处理的交易数和耗时
+     * Transaction count and time used of one stage.
+     */
+    private static class StageMetrics {
+        private final String name;
+        private long count;
+        private long nanos;
+
+        StageMetrics(String name) {
+            this.name = name;
+        }
+
+        void add(int count, long nanos) {
+            this.count += count;
+            this.nanos += nanos;
+        }
+
+        String getAndReset() {
+            long tps = nanos == 0 ? 0 : count * 1000000000L / nanos;
+            String str = name + " " + count + " txs in " + nanos / 1000000 + "ms (" + tps + " tx/s)";
+            count = 0;
+            nanos = 0;
+            return str;
+        }
     }
 }
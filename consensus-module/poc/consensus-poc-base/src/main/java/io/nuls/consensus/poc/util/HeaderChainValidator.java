@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.util;
+
+import io.nuls.consensus.poc.model.BlockExtendsData;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.utils.AddressTool;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.constant.ProtocolErroeCode;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 下载前对区块头链做的无状态验证：高度和preHash的连接、区块头签名、轮次和打包顺序、出块时间
+ * 打包人是否属于该轮共识成员依赖当时的共识状态，仍由顺序执行的ChainContainer验证
+ * Stateless verification of the header chain before downloading the block bodies: the height and preHash linkage,
+ * the header signature, the round and packing order and the packing time.
+ * Whether the packer is a member of the round depends on the consensus state of that time,
+ * so it is still verified by the sequential ChainContainer.
+ */
+public class HeaderChainValidator {
+
+    /**
+     * 验证headerList是否是startHeader之后连续且合法的区块头
+     * Verify that headerList is a continuous and valid header chain following startHeader.
+     *
+     * @param startHeader 已经验证过的区块头/the header verified already
+     * @param headerList  按高度排序的区块头/headers in height order
+     */
+    public static Result verify(BlockHeader startHeader, List<BlockHeader> headerList) {
+        if (null == startHeader || null == headerList || headerList.isEmpty()) {
+            return Result.getFailed(ProtocolErroeCode.BLOCK_HEADER_FIELD_CHECK_FAILED);
+        }
+        BlockHeader preHeader = startHeader;
+        BlockExtendsData preExtendsData = new BlockExtendsData(startHeader.getExtend());
+        Set<String> roundPackers = new HashSet<>();
+        if (null != startHeader.getPackingAddress()) {
+            roundPackers.add(AddressTool.getStringAddressByBytes(startHeader.getPackingAddress()));
+        }
+        for (BlockHeader header : headerList) {
+            if (null == header || header.getHeight() != preHeader.getHeight() + 1 || !preHeader.getHash().equals(header.getPreHash())) {
+                Log.warn("header chain is not continuous after height " + preHeader.getHeight());
+                return Result.getFailed(ProtocolErroeCode.BLOCK_HEADER_FIELD_CHECK_FAILED);
+            }
+            if (null == header.getBlockSignature() || header.getBlockSignature().verifySignature(header.getHash()).isFailed()) {
+                Log.warn("header signature error, height " + header.getHeight());
+                return Result.getFailed(ProtocolErroeCode.BLOCK_HEADER_SIGN_CHECK_FAILED);
+            }
+            BlockExtendsData extendsData = new BlockExtendsData(header.getExtend());
+            if (!verifyRound(preHeader, preExtendsData, header, extendsData)) {
+                Log.warn("header round data error, height " + header.getHeight() + ", hash " + header.getHash());
+                return Result.getFailed(ProtocolErroeCode.BLOCK_HEADER_FIELD_CHECK_FAILED);
+            }
+            if (extendsData.getRoundIndex() != preExtendsData.getRoundIndex()) {
+                roundPackers.clear();
+            }
+            // 同一轮次中一个打包地址只能出一个块
+            // A packing address packs only one block in a round.
+            if (!roundPackers.add(AddressTool.getStringAddressByBytes(header.getPackingAddress()))) {
+                Log.warn("packer packed twice in round " + extendsData.getRoundIndex() + ", height " + header.getHeight());
+                return Result.getFailed(ProtocolErroeCode.BLOCK_HEADER_FIELD_CHECK_FAILED);
+            }
+            preHeader = header;
+            preExtendsData = extendsData;
+        }
+        return Result.getSuccess();
+    }
+
+    private static boolean verifyRound(BlockHeader preHeader, BlockExtendsData preExtendsData, BlockHeader header, BlockExtendsData extendsData) {
+        long roundIndex = extendsData.getRoundIndex();
+        int packingIndex = extendsData.getPackingIndexOfRound();
+        if (roundIndex < preExtendsData.getRoundIndex() ||
+                (roundIndex == preExtendsData.getRoundIndex() && packingIndex <= preExtendsData.getPackingIndexOfRound())) {
+            return false;
+        }
+        if (packingIndex < 1 || packingIndex > extendsData.getConsensusMemberCount()) {
+            return false;
+        }
+        if (header.getTime() != extendsData.getRoundStartTime() + packingIndex * ProtocolConstant.BLOCK_TIME_INTERVAL_MILLIS) {
+            return false;
+        }
+        // 创世块的轮次信息不参与比较
+        // The round data of the genesis block is not compared.
+        if (preHeader.getHeight() == 0) {
+            return true;
+        }
+        if (roundIndex == preExtendsData.getRoundIndex()) {
+            return extendsData.getRoundStartTime() == preExtendsData.getRoundStartTime() &&
+                    extendsData.getConsensusMemberCount() == preExtendsData.getConsensusMemberCount();
+        }
+        return extendsData.getRoundStartTime() >= preExtendsData.getRoundStartTime() +
+                preExtendsData.getConsensusMemberCount() * ProtocolConstant.BLOCK_TIME_INTERVAL_MILLIS;
+    }
+}
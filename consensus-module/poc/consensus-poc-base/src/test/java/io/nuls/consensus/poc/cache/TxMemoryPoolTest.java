@@ -27,8 +27,14 @@
 package io.nuls.consensus.poc.cache;
 
 import io.nuls.consensus.poc.TestTransaction;
+import io.nuls.consensus.poc.constant.PocConsensusConstant;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
 import org.junit.Test;
+import org.spongycastle.util.Arrays;
 
 import java.util.List;
 
@@ -103,4 +109,111 @@ public class TxMemoryPoolTest {
         success = txMemoryPool.exist(tx2.getHash());
         assertFalse(success);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFeeRateOrder() throws Exception {
+        txMemoryPool.clear();
+        Transaction low = createTx(1, 1000, 100, randomOwner());
+        Transaction high = createTx(2, 100000, 100, randomOwner());
+        Transaction middle = createTx(3, 10000, 100, randomOwner());
+        assertTrue(txMemoryPool.add(low, false));
+        assertTrue(txMemoryPool.add(high, false));
+        assertTrue(txMemoryPool.add(middle, false));
+        // 重复的交易和双花的交易不会进入交易池
+        assertFalse(txMemoryPool.add(low, false));
+        assertFalse(txMemoryPool.add(createTx(4, 1000000, 100, low.getCoinData().getFrom().get(0).getOwner()), false));
+        assertEquals(3, txMemoryPool.size());
+
+        assertEquals(high, txMemoryPool.get());
+        assertEquals(middle, txMemoryPool.get());
+        assertEquals(low, txMemoryPool.get());
+        assertNull(txMemoryPool.get());
+    }
+
+    @Test
+    public void testAncestorPackage() throws Exception {
+        txMemoryPool.clear();
+        Transaction parent = createTx(1, 1000, 100, randomOwner());
+        Transaction child = createTx(2, 1000000, 100, Arrays.concatenate(parent.getHash().serialize(), new VarInt(0).encode()));
+        Transaction other = createTx(3, 10000, 100, randomOwner());
+        txMemoryPool.add(parent, false);
+        txMemoryPool.add(other, false);
+        txMemoryPool.add(child, false);
+
+        // 子交易的高手续费带动父交易优先打包，父交易先于子交易返回
+        assertEquals(parent, txMemoryPool.get());
+        assertEquals(child, txMemoryPool.get());
+        assertEquals(other, txMemoryPool.get());
+    }
+
+    @Test
+    public void testGetBySize() throws Exception {
+        txMemoryPool.clear();
+        Transaction big = createTx(1, 1000000, 1000, randomOwner());
+        Transaction small = createTx(2, 1000, 10, randomOwner());
+        txMemoryPool.add(big, false);
+        txMemoryPool.add(small, false);
+
+        assertEquals(small, txMemoryPool.get(small.size()));
+        assertNull(txMemoryPool.get(small.size()));
+        List<Transaction> list = txMemoryPool.getBest(big.size());
+        assertEquals(1, list.size());
+        assertEquals(big, list.get(0));
+    }
+
+    @Test
+    public void testChainLimits() throws Exception {
+        txMemoryPool.clear();
+        Transaction last = null;
+        for (int i = 0; i < PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_COUNT; i++) {
+            byte[] spent = last == null ? randomOwner() : Arrays.concatenate(last.getHash().serialize(), new VarInt(0).encode());
+            last = createTx(i + 1, 1000, 10, spent);
+            assertTrue(txMemoryPool.add(last, false));
+        }
+        // 超过祖先交易数量上限的交易被拒绝
+        Transaction tooLong = createTx(100, 1000, 10, Arrays.concatenate(last.getHash().serialize(), new VarInt(0).encode()));
+        assertFalse(txMemoryPool.add(tooLong, false));
+        assertEquals(PocConsensusConstant.TX_MEMORY_POOL_MAX_ANCESTOR_COUNT, txMemoryPool.size());
+
+        // 超过祖先交易大小上限的交易被拒绝
+        txMemoryPool.clear();
+        Transaction parent = createTx(1, 1000, 60000, randomOwner());
+        assertTrue(txMemoryPool.add(parent, false));
+        Transaction child = createTx(2, 1000, 60000, Arrays.concatenate(parent.getHash().serialize(), new VarInt(0).encode()));
+        assertFalse(txMemoryPool.add(child, false));
+        assertEquals(1, txMemoryPool.size());
+    }
+
+    @Test
+    public void testGetStopsAfterMisses() throws Exception {
+        txMemoryPool.clear();
+        for (int i = 0; i < PocConsensusConstant.TX_MEMORY_POOL_MAX_PACK_MISSES; i++) {
+            txMemoryPool.add(createTx(i + 1, 1000000, 100, randomOwner()), false);
+        }
+        Transaction small = createTx(0, 1, 1, randomOwner());
+        txMemoryPool.add(small, false);
+        // 区块快满时连续跳过足够多的交易后停止查找
+        assertNull(txMemoryPool.get(small.size()));
+        assertEquals(PocConsensusConstant.TX_MEMORY_POOL_MAX_PACK_MISSES + 1, txMemoryPool.size());
+    }
+
+    private byte[] randomOwner() {
+        byte[] owner = new byte[35];
+        new java.util.Random().nextBytes(owner);
+        owner[0] = 0;
+        owner[1] = 32;
+        owner[34] = 0;
+        return owner;
+    }
+
+    private Transaction createTx(long time, long fee, int remarkLength, byte[] spent) {
+        TestTransaction tx = new TestTransaction();
+        tx.setTime(time);
+        tx.setRemark(new byte[remarkLength]);
+        CoinData coinData = new CoinData();
+        coinData.addFrom(new Coin(spent, Na.valueOf(100000000L + fee)));
+        coinData.addTo(new Coin(new byte[23], Na.valueOf(100000000L)));
+        tx.setCoinData(coinData);
+        return tx;
+    }
+}
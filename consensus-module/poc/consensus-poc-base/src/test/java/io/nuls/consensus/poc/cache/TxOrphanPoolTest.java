@@ -0,0 +1,133 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.cache;
+
+import io.nuls.consensus.poc.TestTransaction;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+import org.junit.Test;
+import org.spongycastle.util.Arrays;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TxOrphanPoolTest {
+
+    @Test
+    public void testTakeWaiting() throws Exception {
+        TxOrphanPool orphanPool = new TxOrphanPool(100, 1024 * 1024L);
+        Transaction parent = createTx(1, new byte[35]);
+        byte[] output0 = Arrays.concatenate(parent.getHash().serialize(), new VarInt(0).encode());
+        byte[] output1 = Arrays.concatenate(parent.getHash().serialize(), new VarInt(1).encode());
+        Transaction child0 = createTx(2, output0);
+        Transaction child1 = createTx(3, output1);
+        Transaction other = createTx(4, new byte[34]);
+        assertTrue(orphanPool.add(child0, Collections.singletonList(output0)));
+        assertTrue(orphanPool.add(child1, null));
+        assertTrue(orphanPool.add(other, null));
+        assertFalse(orphanPool.add(child0, null));
+        assertEquals(3, orphanPool.size());
+
+        List<Transaction> list = orphanPool.takeWaiting(parent);
+        assertEquals(2, list.size());
+        assertEquals(child0, list.get(0));
+        assertEquals(child1, list.get(1));
+        assertEquals(1, orphanPool.size());
+        assertTrue(orphanPool.takeWaiting(parent).isEmpty());
+
+        list = orphanPool.takeResolved(output -> output.length == 34, 10);
+        assertEquals(1, list.size());
+        assertEquals(other, list.get(0));
+        assertEquals(0, orphanPool.size());
+        assertEquals(0L, orphanPool.getTotalSize());
+    }
+
+    @Test
+    public void testTakeResolvedInTurn() {
+        Transaction tx1 = createTx(1, new byte[34]);
+        Transaction tx2 = createTx(2, new byte[35]);
+        Transaction tx3 = createTx(3, new byte[36]);
+        TxOrphanPool orphanPool = new TxOrphanPool(100, 1024 * 1024L);
+        orphanPool.add(tx1, null);
+        orphanPool.add(tx2, null);
+        orphanPool.add(tx3, null);
+
+        // 每次只检查一个输出，不存在的移到末尾
+        assertTrue(orphanPool.takeResolved(output -> output.length == 36, 1).isEmpty());
+        assertTrue(orphanPool.takeResolved(output -> output.length == 36, 1).isEmpty());
+        List<Transaction> list = orphanPool.takeResolved(output -> output.length == 36, 1);
+        assertEquals(1, list.size());
+        assertEquals(tx3, list.get(0));
+
+        // 唤醒的孤儿交易按进入顺序排列
+        list = orphanPool.takeResolved(output -> true, 10);
+        assertEquals(2, list.size());
+        assertEquals(tx1, list.get(0));
+        assertEquals(tx2, list.get(1));
+    }
+
+    @Test
+    public void testEvict() {
+        Transaction tx1 = createTx(1, new byte[35]);
+        Transaction tx2 = createTx(2, new byte[35]);
+        Transaction tx3 = createTx(3, new byte[35]);
+        TxOrphanPool orphanPool = new TxOrphanPool(2, 1024 * 1024L);
+        orphanPool.add(tx1, null);
+        orphanPool.add(tx2, null);
+        orphanPool.add(tx3, null);
+        // 超过数量上限，最早的被淘汰
+        assertEquals(2, orphanPool.size());
+        assertEquals(tx2.size() + tx3.size(), orphanPool.getTotalSize());
+
+        orphanPool = new TxOrphanPool(100, tx1.size() + tx2.size());
+        orphanPool.add(tx1, null);
+        orphanPool.add(tx2, null);
+        orphanPool.add(tx3, null);
+        // 超过内存上限，最早的被淘汰
+        assertEquals(2, orphanPool.size());
+
+        assertEquals(0, orphanPool.removeExpired(0L));
+        assertEquals(2, orphanPool.removeExpired(Long.MAX_VALUE));
+        assertEquals(0, orphanPool.size());
+    }
+
+    private Transaction createTx(long time, byte[] spent) {
+        TestTransaction tx = new TestTransaction();
+        tx.setTime(time);
+        CoinData coinData = new CoinData();
+        coinData.addFrom(new Coin(spent, Na.valueOf(100001000L)));
+        coinData.addTo(new Coin(new byte[23], Na.valueOf(100000000L)));
+        coinData.addTo(new Coin(new byte[23], Na.valueOf(100000000L)));
+        tx.setCoinData(coinData);
+        return tx;
+    }
+}
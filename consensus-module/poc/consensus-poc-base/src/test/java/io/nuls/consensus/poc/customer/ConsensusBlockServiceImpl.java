@@ -36,6 +36,8 @@ import io.nuls.protocol.model.SmallBlock;
 import io.nuls.protocol.service.BlockService;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Created by ln on 2018/5/8.
@@ -96,6 +98,21 @@ public class ConsensusBlockServiceImpl implements BlockService {
         return null;
     }
 
+    @Override
+    public Result<List<BlockHeader>> getBlockHeaders(long fromHeight, long toHeight) {
+        return null;
+    }
+
+    @Override
+    public int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeader> visitor) {
+        return 0;
+    }
+
+    @Override
+    public int scanBlocks(long fromHeight, long toHeight, boolean descending, Predicate<Block> visitor) {
+        return 0;
+    }
+
     @Override
     public Result saveBlock(Block block) throws NulsException {
         return new Result(true, null);
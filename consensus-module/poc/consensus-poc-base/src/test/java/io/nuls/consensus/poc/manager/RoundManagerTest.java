@@ -29,12 +29,18 @@ package io.nuls.consensus.poc.manager;
 import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.consensus.poc.BaseChainTest;
 import io.nuls.consensus.poc.model.Chain;
+import io.nuls.consensus.poc.model.MeetingMember;
 import io.nuls.consensus.poc.model.MeetingRound;
+import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.protocol.constant.ProtocolConstant;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -94,6 +100,42 @@ public class RoundManagerTest extends BaseChainTest {
 
     }
 
+    @Test
+    public void testAgentReplaced() throws Exception {
+        Agent agent = new Agent();
+        Agent otherAgent = new Agent();
+        MeetingMember member = new MeetingMember();
+        member.setAgent(agent);
+        MeetingMember otherMember = new MeetingMember();
+        otherMember.setAgent(otherAgent);
+        MeetingMember preMember = new MeetingMember();
+        preMember.setAgent(agent);
+
+        MeetingRound preRound = new MeetingRound();
+        setMemberList(preRound, preMember);
+        MeetingRound round = new MeetingRound();
+        setMemberList(round, member, otherMember);
+        round.setPreRound(preRound);
+        roundManager.addRound(round);
+
+        Agent copy = agent.clone();
+        roundManager.agentReplaced(agent, copy);
+
+        assertSame(copy, member.getAgent());
+        assertSame(copy, preMember.getAgent());
+        assertSame(otherAgent, otherMember.getAgent());
+    }
+
+    private void setMemberList(MeetingRound round, MeetingMember... members) throws Exception {
+        List<MeetingMember> memberList = new ArrayList<>();
+        for (MeetingMember member : members) {
+            memberList.add(member);
+        }
+        Field field = MeetingRound.class.getDeclaredField("memberList");
+        field.setAccessible(true);
+        field.set(round, memberList);
+    }
+
     @Test
     public void testClearRound() {
         MeetingRound round = new MeetingRound();
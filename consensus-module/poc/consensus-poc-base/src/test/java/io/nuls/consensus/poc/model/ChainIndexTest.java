@@ -0,0 +1,156 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import io.nuls.consensus.poc.protocol.entity.Deposit;
+import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChainIndexTest {
+
+    private byte[] address1 = new byte[23];
+    private byte[] address2 = new byte[23];
+
+    private Chain chain;
+
+    @Before
+    public void init() {
+        address2[22] = 1;
+        chain = new Chain();
+        chain.setDepositList(new ArrayList<>());
+        chain.setYellowPunishList(new ArrayList<>());
+    }
+
+    @Test
+    public void testBlockCount() throws Exception {
+        for (int i = 1; i <= 10; i++) {
+            addHeader(i, i <= 5 ? 1 : 2, i % 2 == 0 ? address1 : address2);
+        }
+        assertEquals(2, chain.getIndex().getBlockCount(address1, 1, 1));
+        assertEquals(3, chain.getIndex().getBlockCount(address2, 1, 1));
+        assertEquals(5, chain.getIndex().getBlockCount(address1, 0, 2));
+        assertEquals(0, chain.getIndex().getBlockCount(address1, 3, 5));
+
+        addHeader(11, 3, address1);
+        assertEquals(1, chain.getIndex().getBlockCount(address1, 3, 3));
+
+        BlockHeader header = chain.getBlockHeaderList().remove(chain.getBlockHeaderList().size() - 1);
+        chain.getIndex().blockHeaderRemoved(header);
+        assertEquals(0, chain.getIndex().getBlockCount(address1, 3, 3));
+
+        // 直接修改列表后重建索引
+        // The index is rebuilt after the list is changed directly.
+        chain.setBlockHeaderList(new ArrayList<>(chain.getBlockHeaderList().subList(5, 10)));
+        assertEquals(0, chain.getIndex().getBlockCount(address1, 1, 1));
+        assertEquals(3, chain.getIndex().getBlockCount(address1, 2, 2));
+    }
+
+    @Test
+    public void testDeposit() {
+        NulsDigestData agentHash = NulsDigestData.calcDigestData("agent".getBytes());
+        NulsDigestData otherHash = NulsDigestData.calcDigestData("other".getBytes());
+        Deposit deposit1 = addDeposit(agentHash, 10L);
+        Deposit deposit2 = addDeposit(otherHash, 11L);
+        Deposit deposit3 = addDeposit(agentHash, 12L);
+
+        List<Deposit> list = chain.getIndex().getDepositList(agentHash, 12L);
+        assertEquals(2, list.size());
+        assertSame(deposit3, list.get(0));
+        assertSame(deposit1, list.get(1));
+        assertEquals(1, chain.getIndex().getDepositList(agentHash, 11L).size());
+
+        deposit1.setDelHeight(13L);
+        assertEquals(2, chain.getIndex().getDepositList(agentHash, 12L).size());
+        assertEquals(1, chain.getIndex().getDepositList(agentHash, 13L).size());
+
+        chain.getDepositList().remove(deposit3);
+        chain.getIndex().depositRemoved(deposit3);
+        assertEquals(1, chain.getIndex().getDepositList(agentHash, 12L).size());
+        assertSame(deposit2, chain.getIndex().getDepositList(otherHash, 12L).get(0));
+
+        chain.getDepositList().remove(deposit2);
+        assertTrue(chain.getIndex().getDepositList(otherHash, 12L).isEmpty());
+    }
+
+    @Test
+    public void testYellowPunishCount() {
+        for (int i = 1; i <= 6; i++) {
+            addYellowPunish(i <= 3 ? address1 : address2, i);
+        }
+        addYellowPunish(address1, 3);
+        assertEquals(4, chain.getIndex().getYellowPunishCount(address1, 1, 6));
+        assertEquals(2, chain.getIndex().getYellowPunishCount(address1, 3, 3));
+        assertEquals(2, chain.getIndex().getYellowPunishCount(address2, 5, 10));
+
+        List<PunishLogPo> yellowList = chain.getYellowPunishList();
+        PunishLogPo po = yellowList.remove(yellowList.size() - 1);
+        chain.getIndex().yellowPunishRemoved(po);
+        assertEquals(1, chain.getIndex().getYellowPunishCount(address1, 3, 3));
+    }
+
+    private void addHeader(long height, long roundIndex, byte[] packingAddress) throws Exception {
+        BlockExtendsData extendsData = new BlockExtendsData();
+        extendsData.setRoundIndex(roundIndex);
+        extendsData.setConsensusMemberCount(5);
+        extendsData.setPackingIndexOfRound(1);
+        extendsData.setRoundStartTime(1000L);
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setExtend(extendsData.serialize());
+        header.setPackingAddress(packingAddress);
+        chain.getBlockHeaderList().add(header);
+        chain.getIndex().blockHeaderAdded(header);
+    }
+
+    private Deposit addDeposit(NulsDigestData agentHash, long height) {
+        Deposit deposit = new Deposit();
+        deposit.setAgentHash(agentHash);
+        deposit.setDeposit(Na.valueOf(2000L));
+        deposit.setBlockHeight(height);
+        deposit.setDelHeight(-1L);
+        chain.getDepositList().add(deposit);
+        chain.getIndex().depositAdded(deposit);
+        return deposit;
+    }
+
+    private void addYellowPunish(byte[] address, long roundIndex) {
+        PunishLogPo po = new PunishLogPo();
+        po.setAddress(address);
+        po.setRoundIndex(roundIndex);
+        chain.getYellowPunishList().add(po);
+        chain.getIndex().yellowPunishAdded(po);
+    }
+}
@@ -26,10 +26,16 @@
 
 package io.nuls.consensus.poc.model;
 
+import io.nuls.consensus.poc.protocol.entity.Agent;
+import io.nuls.consensus.poc.protocol.entity.Deposit;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -55,4 +61,114 @@ public class ChainTest {
         assertNotNull(bestBlock);
         assertEquals(bestBlock.getHeader().getHeight(), 100l);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testShareDepositList() {
+        NulsDigestData agentHash = NulsDigestData.calcDigestData("agent".getBytes());
+        List<Deposit> masterList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Deposit deposit = new Deposit();
+            deposit.setAgentHash(agentHash);
+            deposit.setBlockHeight(i);
+            deposit.setDelHeight(-1L);
+            masterList.add(deposit);
+        }
+
+        Chain forkChain = new Chain();
+        forkChain.shareDepositList(masterList);
+        assertNotSame(masterList, forkChain.getDepositList());
+        assertSame(masterList.get(1), forkChain.getDepositList().get(1));
+        assertEquals(3, forkChain.getIndex().getDepositList(agentHash, 10L).size());
+
+        Deposit writable = forkChain.getWritableDeposit(1);
+        assertNotSame(masterList.get(1), writable);
+        writable.setDelHeight(5L);
+        assertEquals(-1L, masterList.get(1).getDelHeight());
+        assertSame(writable, forkChain.getDepositList().get(1));
+        assertSame(writable, forkChain.getWritableDeposit(1));
+        assertEquals(2, forkChain.getIndex().getDepositList(agentHash, 10L).size());
+
+        Deposit deposit = new Deposit();
+        deposit.setAgentHash(agentHash);
+        deposit.setBlockHeight(4L);
+        deposit.setDelHeight(-1L);
+        forkChain.addDeposit(deposit);
+        assertSame(deposit, forkChain.getWritableDeposit(3));
+        assertEquals(3, masterList.size());
+
+        Chain masterChain = new Chain();
+        masterChain.setDepositList(masterList);
+        assertSame(masterList.get(0), masterChain.getWritableDeposit(0));
+    }
+
+    @Test
+    public void testReleaseSharedDeposits() {
+        NulsDigestData agentHash = NulsDigestData.calcDigestData("agent".getBytes());
+        List<Deposit> masterList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Deposit deposit = new Deposit();
+            deposit.setAgentHash(agentHash);
+            deposit.setBlockHeight(i);
+            deposit.setDelHeight(-1L);
+            masterList.add(deposit);
+        }
+
+        Chain forkChain = new Chain();
+        forkChain.shareDepositList(masterList);
+        forkChain.removeDeposit(2);
+        assertEquals(2, forkChain.getIndex().getDepositList(agentHash, 10L).size());
+        Deposit first = forkChain.getWritableDeposit(0);
+        assertNotSame(masterList.get(0), first);
+        Deposit second = forkChain.getWritableDeposit(1);
+        assertNotSame(masterList.get(1), second);
+
+        // 所有委托都已复制，之后的修改直接作用在列表中的对象上
+        // All the deposits are copied, later changes go to the objects in the list directly.
+        Deposit deposit = new Deposit();
+        deposit.setAgentHash(agentHash);
+        deposit.setBlockHeight(4L);
+        deposit.setDelHeight(-1L);
+        forkChain.addDeposit(deposit);
+        assertSame(first, forkChain.getWritableDeposit(0));
+        assertSame(deposit, forkChain.getWritableDeposit(2));
+
+        Chain promotedChain = new Chain();
+        promotedChain.shareDepositList(masterList);
+        promotedChain.ownAll();
+        assertSame(masterList.get(1), promotedChain.getWritableDeposit(1));
+    }
+
+    @Test
+    public void testShareAgentList() {
+        List<Agent> masterList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Agent agent = new Agent();
+            agent.setBlockHeight(i);
+            agent.setDelHeight(-1L);
+            masterList.add(agent);
+        }
+
+        Chain forkChain = new Chain();
+        forkChain.shareAgentList(masterList);
+        assertSame(masterList.get(1), forkChain.getAgentList().get(1));
+
+        Agent writable = forkChain.getWritableAgent(1);
+        assertNotSame(masterList.get(1), writable);
+        writable.setDelHeight(5L);
+        assertEquals(-1L, masterList.get(1).getDelHeight());
+        assertSame(writable, forkChain.getAgentList().get(1));
+        assertSame(writable, forkChain.getWritableAgent(1));
+
+        Agent agent = new Agent();
+        agent.setBlockHeight(4L);
+        forkChain.addAgent(agent);
+        assertSame(agent, forkChain.getWritableAgent(3));
+        forkChain.removeAgent(3);
+        assertEquals(3, forkChain.getAgentList().size());
+        assertEquals(3, masterList.size());
+
+        forkChain.ownAll();
+        assertSame(masterList.get(0), forkChain.getWritableAgent(0));
+        assertFalse(((SharedPrefixList<Agent>) forkChain.getAgentList()).isShared());
+    }
+}
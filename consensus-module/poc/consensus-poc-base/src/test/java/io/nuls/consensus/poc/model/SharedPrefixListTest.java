@@ -0,0 +1,87 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SharedPrefixListTest {
+
+    @Test
+    public void testAppendAndRollback() {
+        List<String> sharedList = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        SharedPrefixList<String> list = new SharedPrefixList<>(sharedList);
+        assertEquals(sharedList, list);
+
+        assertEquals("c", list.remove(2));
+        assertEquals("b", list.remove(1));
+        list.add("x");
+        list.add("y");
+        assertEquals(Arrays.asList("a", "x", "y"), list);
+        assertEquals("y", list.remove(2));
+        assertTrue(list.isShared());
+        assertEquals(Arrays.asList("a", "b", "c"), sharedList);
+    }
+
+    @Test
+    public void testSetInPrefix() {
+        List<String> sharedList = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        SharedPrefixList<String> list = new SharedPrefixList<>(sharedList);
+
+        assertEquals("b", list.set(1, "x"));
+        assertEquals(Arrays.asList("a", "x", "c"), list);
+        assertTrue(list.isShared());
+
+        list.remove(2);
+        list.remove(1);
+        list.add("y");
+        assertEquals(Arrays.asList("a", "y"), list);
+        assertEquals(Arrays.asList("a", "b", "c"), sharedList);
+    }
+
+    @Test
+    public void testOwn() {
+        List<String> sharedList = new ArrayList<>(Arrays.asList("a", "b", "c"));
+        SharedPrefixList<String> list = new SharedPrefixList<>(sharedList);
+        list.set(0, "x");
+        list.add("d");
+
+        list.remove(1);
+        assertFalse(list.isShared());
+        assertEquals(Arrays.asList("x", "c", "d"), list);
+
+        list.add(0, "y");
+        list.set(1, "z");
+        assertEquals(Arrays.asList("y", "z", "c", "d"), list);
+        assertEquals(Arrays.asList("a", "b", "c"), sharedList);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.util;
+
+import io.nuls.consensus.poc.model.BlockExtendsData;
+import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.NulsSignData;
+import io.nuls.kernel.script.BlockSignature;
+import io.nuls.protocol.constant.ProtocolConstant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HeaderChainValidatorTest {
+
+    private static final long ROUND_START = 1000000L;
+
+    private ECKey[] members = new ECKey[]{new ECKey(), new ECKey(), new ECKey()};
+
+    private BlockHeader createHeader(BlockHeader preHeader, long roundIndex, int packingIndex, ECKey ecKey) throws Exception {
+        BlockExtendsData extendsData = new BlockExtendsData();
+        extendsData.setRoundIndex(roundIndex);
+        extendsData.setConsensusMemberCount(members.length);
+        long roundStart = ROUND_START + (roundIndex - 1) * members.length * ProtocolConstant.BLOCK_TIME_INTERVAL_MILLIS;
+        extendsData.setRoundStartTime(roundStart);
+        extendsData.setPackingIndexOfRound(packingIndex);
+
+        BlockHeader header = new BlockHeader();
+        header.setHeight(preHeader.getHeight() + 1);
+        header.setPreHash(preHeader.getHash());
+        header.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{(byte) packingIndex}));
+        header.setTime(roundStart + packingIndex * ProtocolConstant.BLOCK_TIME_INTERVAL_MILLIS);
+        header.setTxCount(1);
+        header.setExtend(extendsData.serialize());
+
+        NulsSignData signData = new NulsSignData();
+        signData.setSignAlgType(NulsSignData.SIGN_ALG_ECC);
+        signData.setSignBytes(ecKey.sign(header.getHash().getDigestBytes()));
+        BlockSignature signature = new BlockSignature();
+        signature.setSignData(signData);
+        signature.setPublicKey(ecKey.getPubKey());
+        header.setBlockSignature(signature);
+        return header;
+    }
+
+    private BlockHeader startHeader() throws Exception {
+        BlockHeader genesis = new BlockHeader();
+        genesis.setHeight(0);
+        genesis.setPreHash(NulsDigestData.calcDigestData(new byte[32]));
+        genesis.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{0}));
+        BlockHeader first = createHeader(genesis, 1, 1, members[0]);
+        return first;
+    }
+
+    /**
+     * 两轮、每轮三个成员依次出块
+     * Two rounds, three members pack in turn in each round.
+     */
+    private List<BlockHeader> createChain(BlockHeader start) throws Exception {
+        List<BlockHeader> list = new ArrayList<>();
+        BlockHeader pre = start;
+        int[][] order = new int[][]{{1, 2}, {1, 3}, {2, 1}, {2, 2}, {2, 3}};
+        for (int[] item : order) {
+            BlockHeader header = createHeader(pre, item[0], item[1], members[item[1] - 1]);
+            list.add(header);
+            pre = header;
+        }
+        return list;
+    }
+
+    @Test
+    public void testValidChain() throws Exception {
+        BlockHeader start = startHeader();
+        assertTrue(HeaderChainValidator.verify(start, createChain(start)).isSuccess());
+    }
+
+    @Test
+    public void testBrokenLinkage() throws Exception {
+        BlockHeader start = startHeader();
+        List<BlockHeader> list = createChain(start);
+        list.remove(2);
+        assertTrue(HeaderChainValidator.verify(start, list).isFailed());
+    }
+
+    @Test
+    public void testWrongSignature() throws Exception {
+        BlockHeader start = startHeader();
+        List<BlockHeader> list = createChain(start);
+        BlockHeader last = list.get(list.size() - 1);
+        last.getBlockSignature().getSignData().setSignBytes(new ECKey().sign(last.getHash().getDigestBytes()));
+        assertTrue(HeaderChainValidator.verify(start, list).isFailed());
+    }
+
+    @Test
+    public void testWrongRoundOrder() throws Exception {
+        BlockHeader start = startHeader();
+        List<BlockHeader> list = new ArrayList<>();
+        list.add(createHeader(start, 1, 1, members[0]));
+        assertTrue(HeaderChainValidator.verify(start, list).isFailed());
+
+        list.clear();
+        BlockHeader header = createHeader(start, 1, 3, members[2]);
+        header.setTime(header.getTime() + 1);
+        list.add(header);
+        assertTrue(HeaderChainValidator.verify(start, list).isFailed());
+    }
+
+    @Test
+    public void testPackerTwiceInRound() throws Exception {
+        BlockHeader start = startHeader();
+        List<BlockHeader> list = new ArrayList<>();
+        list.add(createHeader(start, 1, 2, members[0]));
+        assertTrue(HeaderChainValidator.verify(start, list).isFailed());
+    }
+}
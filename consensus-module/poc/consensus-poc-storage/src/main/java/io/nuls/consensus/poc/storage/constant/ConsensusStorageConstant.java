@@ -32,5 +32,7 @@ public interface ConsensusStorageConstant {
     String DB_NAME_CONSENSUS_PUNISH_LOG = "consensus_punish_log";
     String DB_NAME_CONSENSUS_BIFURCATION_EVIDENCE = "consensus_bifurcation_evidence";
     String DB_BIFURCATION_EVIDENCE_KEY = "bifurcation_evidence_key";
+    String DB_NAME_CONSENSUS_SNAPSHOT = "consensus_snapshot";
+    String DB_CONSENSUS_SNAPSHOT_KEY = "master_chain_snapshot";
 
 }
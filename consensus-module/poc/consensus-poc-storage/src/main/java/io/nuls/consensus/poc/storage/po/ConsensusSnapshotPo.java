@@ -0,0 +1,273 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.po;
+
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 主链内存中共识状态的快照：区块头窗口、最近的区块、节点、委托、红黄牌记录和当前轮次
+ * 只在bestHash仍是存储中的最新区块时有效，启动时用它代替从区块数据重建缓存
+ * The snapshot of the in-memory consensus state of the master chain: the header window, the latest blocks,
+ * the agents, the deposits, the punish logs and the current round.
+ * It is only valid while bestHash is still the best block in storage, at startup it replaces rebuilding the cache
+ * from the block data.
+ */
+public class ConsensusSnapshotPo extends BaseNulsData {
+
+    /**
+     * 快照格式版本，格式变化时递增，旧版本的快照直接丢弃
+     * The snapshot format version, increased when the format changes, snapshots of other versions are dropped.
+     */
+    public static final byte SNAPSHOT_VERSION = 1;
+
+    private NulsDigestData bestHash;
+    private long bestHeight;
+    private long roundIndex;
+    private long roundStartTime;
+    private int roundMemberCount;
+    private List<BlockHeader> blockHeaderList = new ArrayList<>();
+    private List<Block> blockList = new ArrayList<>();
+    private List<AgentPo> agentList = new ArrayList<>();
+    private List<DepositPo> depositList = new ArrayList<>();
+    private List<PunishLogPo> yellowPunishList = new ArrayList<>();
+    private List<PunishLogPo> redPunishList = new ArrayList<>();
+
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.write(SNAPSHOT_VERSION);
+        stream.writeNulsData(bestHash);
+        stream.writeVarInt(bestHeight);
+        stream.writeVarInt(roundIndex);
+        stream.writeUint48(roundStartTime);
+        stream.writeVarInt(roundMemberCount);
+        stream.writeVarInt(blockHeaderList.size());
+        for (BlockHeader header : blockHeaderList) {
+            stream.writeNulsData(header);
+        }
+        stream.writeVarInt(blockList.size());
+        for (Block block : blockList) {
+            stream.writeNulsData(block);
+        }
+        stream.writeVarInt(agentList.size());
+        for (AgentPo agentPo : agentList) {
+            stream.writeNulsData(agentPo);
+        }
+        stream.writeVarInt(depositList.size());
+        for (DepositPo depositPo : depositList) {
+            stream.writeNulsData(depositPo);
+        }
+        writePunishList(stream, yellowPunishList);
+        writePunishList(stream, redPunishList);
+    }
+
+    private void writePunishList(NulsOutputStreamBuffer stream, List<PunishLogPo> punishList) throws IOException {
+        stream.writeVarInt(punishList.size());
+        for (PunishLogPo po : punishList) {
+            stream.writeNulsData(po);
+        }
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        if (byteBuffer.readByte() != SNAPSHOT_VERSION) {
+            throw new NulsException(KernelErrorCode.DATA_ERROR);
+        }
+        this.bestHash = byteBuffer.readHash();
+        this.bestHeight = byteBuffer.readVarInt();
+        this.roundIndex = byteBuffer.readVarInt();
+        this.roundStartTime = byteBuffer.readUint48();
+        this.roundMemberCount = (int) byteBuffer.readVarInt();
+        long count = byteBuffer.readVarInt();
+        this.blockHeaderList = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            blockHeaderList.add(byteBuffer.readNulsData(new BlockHeader()));
+        }
+        count = byteBuffer.readVarInt();
+        this.blockList = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            blockList.add(byteBuffer.readNulsData(new Block()));
+        }
+        count = byteBuffer.readVarInt();
+        this.agentList = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            agentList.add(byteBuffer.readNulsData(new AgentPo()));
+        }
+        count = byteBuffer.readVarInt();
+        this.depositList = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            depositList.add(byteBuffer.readNulsData(new DepositPo()));
+        }
+        this.yellowPunishList = parsePunishList(byteBuffer);
+        this.redPunishList = parsePunishList(byteBuffer);
+    }
+
+    private List<PunishLogPo> parsePunishList(NulsByteBuffer byteBuffer) throws NulsException {
+        long count = byteBuffer.readVarInt();
+        List<PunishLogPo> punishList = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            punishList.add(byteBuffer.readNulsData(new PunishLogPo()));
+        }
+        return punishList;
+    }
+
+    @Override
+    public int size() {
+        int size = 1;
+        size += SerializeUtils.sizeOfNulsData(bestHash);
+        size += SerializeUtils.sizeOfVarInt(bestHeight);
+        size += SerializeUtils.sizeOfVarInt(roundIndex);
+        size += SerializeUtils.sizeOfUint48();
+        size += SerializeUtils.sizeOfVarInt(roundMemberCount);
+        size += SerializeUtils.sizeOfVarInt(blockHeaderList.size());
+        for (BlockHeader header : blockHeaderList) {
+            size += SerializeUtils.sizeOfNulsData(header);
+        }
+        size += SerializeUtils.sizeOfVarInt(blockList.size());
+        for (Block block : blockList) {
+            size += SerializeUtils.sizeOfNulsData(block);
+        }
+        size += SerializeUtils.sizeOfVarInt(agentList.size());
+        for (AgentPo agentPo : agentList) {
+            size += SerializeUtils.sizeOfNulsData(agentPo);
+        }
+        size += SerializeUtils.sizeOfVarInt(depositList.size());
+        for (DepositPo depositPo : depositList) {
+            size += SerializeUtils.sizeOfNulsData(depositPo);
+        }
+        size += sizeOfPunishList(yellowPunishList);
+        size += sizeOfPunishList(redPunishList);
+        return size;
+    }
+
+    private int sizeOfPunishList(List<PunishLogPo> punishList) {
+        int size = SerializeUtils.sizeOfVarInt(punishList.size());
+        for (PunishLogPo po : punishList) {
+            size += SerializeUtils.sizeOfNulsData(po);
+        }
+        return size;
+    }
+
+    public NulsDigestData getBestHash() {
+        return bestHash;
+    }
+
+    public void setBestHash(NulsDigestData bestHash) {
+        this.bestHash = bestHash;
+    }
+
+    public long getBestHeight() {
+        return bestHeight;
+    }
+
+    public void setBestHeight(long bestHeight) {
+        this.bestHeight = bestHeight;
+    }
+
+    public long getRoundIndex() {
+        return roundIndex;
+    }
+
+    public void setRoundIndex(long roundIndex) {
+        this.roundIndex = roundIndex;
+    }
+
+    public long getRoundStartTime() {
+        return roundStartTime;
+    }
+
+    public void setRoundStartTime(long roundStartTime) {
+        this.roundStartTime = roundStartTime;
+    }
+
+    public int getRoundMemberCount() {
+        return roundMemberCount;
+    }
+
+    public void setRoundMemberCount(int roundMemberCount) {
+        this.roundMemberCount = roundMemberCount;
+    }
+
+    public List<BlockHeader> getBlockHeaderList() {
+        return blockHeaderList;
+    }
+
+    public void setBlockHeaderList(List<BlockHeader> blockHeaderList) {
+        this.blockHeaderList = blockHeaderList;
+    }
+
+    public List<Block> getBlockList() {
+        return blockList;
+    }
+
+    public void setBlockList(List<Block> blockList) {
+        this.blockList = blockList;
+    }
+
+    public List<AgentPo> getAgentList() {
+        return agentList;
+    }
+
+    public void setAgentList(List<AgentPo> agentList) {
+        this.agentList = agentList;
+    }
+
+    public List<DepositPo> getDepositList() {
+        return depositList;
+    }
+
+    public void setDepositList(List<DepositPo> depositList) {
+        this.depositList = depositList;
+    }
+
+    public List<PunishLogPo> getYellowPunishList() {
+        return yellowPunishList;
+    }
+
+    public void setYellowPunishList(List<PunishLogPo> yellowPunishList) {
+        this.yellowPunishList = yellowPunishList;
+    }
+
+    public List<PunishLogPo> getRedPunishList() {
+        return redPunishList;
+    }
+
+    public void setRedPunishList(List<PunishLogPo> redPunishList) {
+        this.redPunishList = redPunishList;
+    }
+}
@@ -27,10 +27,18 @@ package io.nuls.consensus.poc.storage.service;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
 
+import java.util.List;
+
 public interface TransactionCacheStorageService {
 
     boolean putTx(Transaction tx);
 
+    /**
+     * 批量保存交易，一次写入
+     * Save the transactions in one batch write.
+     */
+    boolean putTxList(List<Transaction> txList);
+
     Transaction getTx(NulsDigestData hash);
 
     boolean removeTx(NulsDigestData hash);
@@ -31,6 +31,7 @@ import io.nuls.consensus.poc.storage.po.AgentPo;
 import io.nuls.consensus.poc.storage.service.AgentStorageService;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -43,7 +44,6 @@ import io.nuls.kernel.model.Result;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Created by ln on 2018/5/10.
@@ -117,38 +117,48 @@ public class AgentStorageServiceImpl implements AgentStorageService, Initializin
 
     @Override
     public List<AgentPo> getList() {
-        List<Entry<byte[], byte[]>> list = dbService.entryList(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT);
         List<AgentPo> resultList = new ArrayList<>();
-        if (list == null) {
+        DBCursor cursor = dbService.openCursor(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT);
+        if (cursor == null) {
             return resultList;
         }
-        for (Entry<byte[], byte[]> entry : list) {
-            AgentPo agentPo = new AgentPo();
-            try {
-                agentPo.parse(entry.getValue(),0);
-            } catch (NulsException e) {
-                Log.error(e);
-                throw  new NulsRuntimeException(e);
-            }
-            NulsDigestData hash = new NulsDigestData();
-            try {
-                hash.parse(entry.getKey(),0);
-            } catch (NulsException e) {
-                Log.error(e);
+        try {
+            Entry<byte[], byte[]> entry;
+            while (cursor.hasNext()) {
+                entry = cursor.next();
+                AgentPo agentPo = new AgentPo();
+                try {
+                    agentPo.parse(entry.getValue(),0);
+                } catch (NulsException e) {
+                    Log.error(e);
+                    throw new NulsRuntimeException(e);
+                }
+                NulsDigestData hash = new NulsDigestData();
+                try {
+                    hash.parse(entry.getKey(), 0);
+                } catch (NulsException e) {
+                    Log.error(e);
+                }
+                agentPo.setHash(hash);
+                resultList.add(agentPo);
             }
-            agentPo.setHash(hash);
-            resultList.add(agentPo);
+        } finally {
+            cursor.close();
         }
         return resultList;
     }
 
     @Override
     public int size() {
-        Set<byte[]> list = dbService.keySet(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT);
-        if (list == null) {
+        DBCursor cursor = dbService.openCursor(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT);
+        if (cursor == null) {
             return 0;
         }
-        return list.size();
+        try {
+            return cursor.skip(Integer.MAX_VALUE);
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
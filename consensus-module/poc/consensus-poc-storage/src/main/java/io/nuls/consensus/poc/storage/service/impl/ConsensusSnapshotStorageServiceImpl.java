@@ -0,0 +1,92 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.service.impl;
+
+import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
+import io.nuls.consensus.poc.storage.po.ConsensusSnapshotPo;
+import io.nuls.consensus.poc.storage.service.ConsensusSnapshotStorageService;
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.DBService;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
+import io.nuls.kernel.model.Result;
+
+import java.io.IOException;
+
+@Component
+public class ConsensusSnapshotStorageServiceImpl implements ConsensusSnapshotStorageService, InitializingBean {
+
+    private static final byte[] SNAPSHOT_KEY = ConsensusStorageConstant.DB_CONSENSUS_SNAPSHOT_KEY.getBytes();
+
+    @Autowired
+    private DBService dbService;
+
+    @Override
+    public boolean save(ConsensusSnapshotPo snapshotPo) {
+        if (snapshotPo == null) {
+            return false;
+        }
+        Result result;
+        try {
+            result = dbService.put(ConsensusStorageConstant.DB_NAME_CONSENSUS_SNAPSHOT, SNAPSHOT_KEY, snapshotPo.serialize());
+        } catch (IOException e) {
+            Log.error(e);
+            return false;
+        }
+        return result.isSuccess();
+    }
+
+    @Override
+    public ConsensusSnapshotPo get() {
+        byte[] body = dbService.get(ConsensusStorageConstant.DB_NAME_CONSENSUS_SNAPSHOT, SNAPSHOT_KEY);
+        if (body == null) {
+            return null;
+        }
+        ConsensusSnapshotPo snapshotPo = new ConsensusSnapshotPo();
+        try {
+            snapshotPo.parse(body, 0);
+        } catch (Exception e) {
+            // 快照格式不兼容或数据损坏时放弃快照，从区块数据重新加载
+            // Drop an incompatible or damaged snapshot, the state is reloaded from the block data.
+            Log.warn("parse consensus snapshot failed: " + e.getMessage());
+            return null;
+        }
+        return snapshotPo;
+    }
+
+    @Override
+    public boolean delete() {
+        return dbService.delete(ConsensusStorageConstant.DB_NAME_CONSENSUS_SNAPSHOT, SNAPSHOT_KEY).isSuccess();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws NulsException {
+        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_SNAPSHOT);
+    }
+}
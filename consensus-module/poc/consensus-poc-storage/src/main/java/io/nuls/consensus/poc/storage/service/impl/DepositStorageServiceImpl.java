@@ -30,6 +30,7 @@ import io.nuls.consensus.poc.storage.po.DepositPo;
 import io.nuls.consensus.poc.storage.service.DepositStorageService;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -42,7 +43,6 @@ import io.nuls.kernel.model.Result;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author: Niels Wang
@@ -116,38 +116,48 @@ public class DepositStorageServiceImpl implements DepositStorageService, Initial
 
     @Override
     public List<DepositPo> getList() {
-        List<Entry<byte[], byte[]>> list = dbService.entryList(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT);
         List<DepositPo> resultList = new ArrayList<>();
-        if (list == null) {
+        DBCursor cursor = dbService.openCursor(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT);
+        if (cursor == null) {
             return resultList;
         }
-        for (Entry<byte[], byte[]> entry : list) {
-            DepositPo depositPo = new DepositPo();
-            try {
-                depositPo.parse(entry.getValue(), 0);
-            } catch (NulsException e) {
-                Log.error(e);
-                throw new NulsRuntimeException(e);
-            }
-            NulsDigestData hash = new NulsDigestData();
-            try {
-                hash.parse(entry.getKey(), 0);
-            } catch (NulsException e) {
-                Log.error(e);
+        try {
+            Entry<byte[], byte[]> entry;
+            while (cursor.hasNext()) {
+                entry = cursor.next();
+                DepositPo depositPo = new DepositPo();
+                try {
+                    depositPo.parse(entry.getValue(), 0);
+                } catch (NulsException e) {
+                    Log.error(e);
+                    throw new NulsRuntimeException(e);
+                }
+                NulsDigestData hash = new NulsDigestData();
+                try {
+                    hash.parse(entry.getKey(), 0);
+                } catch (NulsException e) {
+                    Log.error(e);
+                }
+                depositPo.setTxHash(hash);
+                resultList.add(depositPo);
             }
-            depositPo.setTxHash(hash);
-            resultList.add(depositPo);
+        } finally {
+            cursor.close();
         }
         return resultList;
     }
 
     @Override
     public int size() {
-        Set<byte[]> list = dbService.keySet(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT);
-        if (list == null) {
+        DBCursor cursor = dbService.openCursor(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT);
+        if (cursor == null) {
             return 0;
         }
-        return list.size();
+        try {
+            return cursor.skip(Integer.MAX_VALUE);
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
@@ -29,7 +29,7 @@ import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
 import io.nuls.consensus.poc.storage.po.PunishLogPo;
 import io.nuls.consensus.poc.storage.service.PunishLogStorageService;
 import io.nuls.core.tools.log.Log;
-import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -77,16 +77,23 @@ public class PunishLogStorageServiceImpl implements PunishLogStorageService, Ini
 
     @Override
     public List<PunishLogPo> getPunishList() {
-        List<Entry<byte[], byte[]>> list = dbService.entryList(ConsensusStorageConstant.DB_NAME_CONSENSUS_PUNISH_LOG);
         List<PunishLogPo> polist = new ArrayList<>();
-        for (Entry<byte[], byte[]> entry : list) {
-            PunishLogPo po = new PunishLogPo();
-            try {
-                po.parse(entry.getValue(), 0);
-            } catch (NulsException e) {
-                throw new NulsRuntimeException(e);
+        DBCursor cursor = dbService.openCursor(ConsensusStorageConstant.DB_NAME_CONSENSUS_PUNISH_LOG);
+        if (cursor == null) {
+            return polist;
+        }
+        try {
+            while (cursor.hasNext()) {
+                PunishLogPo po = new PunishLogPo();
+                try {
+                    po.parse(cursor.next().getValue(), 0);
+                } catch (NulsException e) {
+                    throw new NulsRuntimeException(e);
+                }
+                polist.add(po);
             }
-            polist.add(po);
+        } finally {
+            cursor.close();
         }
         return polist;
     }
@@ -28,6 +28,7 @@ import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
 import io.nuls.core.tools.crypto.Util;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -41,6 +42,7 @@ import io.nuls.kernel.utils.NulsByteBuffer;
 import io.nuls.kernel.utils.TransactionManager;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
@@ -105,6 +107,26 @@ public class TransactionCacheStorageServiceImpl implements TransactionCacheStora
         return result.isSuccess();
     }
 
+    @Override
+    public boolean putTxList(List<Transaction> txList) {
+        if (txList == null || txList.isEmpty()) {
+            return true;
+        }
+        BatchOperation batch = dbService.createWriteBatch(TRANSACTION_CACHE_KEY_NAME);
+        if (batch == null) {
+            return false;
+        }
+        try {
+            for (Transaction tx : txList) {
+                batch.put(tx.getHash().serialize(), tx.serialize());
+            }
+        } catch (IOException e) {
+            Log.error(e);
+            return false;
+        }
+        return batch.executeBatch().isSuccess();
+    }
+
     @Override
     public int getStartIndex() {
         byte[] lastIndexBytes = dbService.get(TRANSACTION_CACHE_KEY_NAME, START_KEY);
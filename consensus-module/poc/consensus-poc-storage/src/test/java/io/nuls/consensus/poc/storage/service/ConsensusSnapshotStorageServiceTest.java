@@ -0,0 +1,139 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.service;
+
+import io.nuls.consensus.poc.storage.BaseTest;
+import io.nuls.consensus.poc.storage.po.AgentPo;
+import io.nuls.consensus.poc.storage.po.ConsensusSnapshotPo;
+import io.nuls.consensus.poc.storage.po.DepositPo;
+import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.kernel.lite.core.SpringLiteContext;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.NulsSignData;
+import io.nuls.kernel.script.BlockSignature;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ConsensusSnapshotStorageServiceTest extends BaseTest {
+
+    private ConsensusSnapshotStorageService snapshotStorageService;
+
+    @Before
+    public void init() {
+        snapshotStorageService = SpringLiteContext.getBean(ConsensusSnapshotStorageService.class);
+        snapshotStorageService.delete();
+    }
+
+    @Test
+    public void testSaveAndGet() {
+        assertNull(snapshotStorageService.get());
+
+        BlockHeader header = createHeader(100L);
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(new ArrayList<>());
+
+        AgentPo agentPo = new AgentPo();
+        agentPo.setHash(NulsDigestData.calcDigestData("agent".getBytes()));
+        agentPo.setAgentAddress(new byte[23]);
+        agentPo.setRewardAddress(new byte[23]);
+        agentPo.setPackingAddress(new byte[23]);
+        agentPo.setDeposit(Na.valueOf(20000L));
+        agentPo.setBlockHeight(10L);
+
+        DepositPo depositPo = new DepositPo();
+        depositPo.setTxHash(NulsDigestData.calcDigestData("deposit".getBytes()));
+        depositPo.setAgentHash(agentPo.getHash());
+        depositPo.setAddress(new byte[23]);
+        depositPo.setDeposit(Na.valueOf(2000L));
+
+        PunishLogPo punishLogPo = new PunishLogPo();
+        punishLogPo.setAddress(new byte[23]);
+        punishLogPo.setHeight(99L);
+        punishLogPo.setRoundIndex(9L);
+        punishLogPo.setEvidence(new byte[0]);
+
+        ConsensusSnapshotPo snapshot = new ConsensusSnapshotPo();
+        snapshot.setBestHash(header.getHash());
+        snapshot.setBestHeight(header.getHeight());
+        snapshot.setRoundIndex(10L);
+        snapshot.setRoundStartTime(1530000000000L);
+        snapshot.setRoundMemberCount(5);
+        snapshot.getBlockHeaderList().add(createHeader(99L));
+        snapshot.getBlockHeaderList().add(header);
+        snapshot.getBlockList().add(block);
+        snapshot.getAgentList().add(agentPo);
+        snapshot.getDepositList().add(depositPo);
+        snapshot.getYellowPunishList().add(punishLogPo);
+
+        assertTrue(snapshotStorageService.save(snapshot));
+
+        ConsensusSnapshotPo result = snapshotStorageService.get();
+        assertNotNull(result);
+        assertEquals(header.getHash(), result.getBestHash());
+        assertEquals(100L, result.getBestHeight());
+        assertEquals(10L, result.getRoundIndex());
+        assertEquals(1530000000000L, result.getRoundStartTime());
+        assertEquals(5, result.getRoundMemberCount());
+        assertEquals(2, result.getBlockHeaderList().size());
+        assertEquals(header.getHash(), result.getBlockHeaderList().get(1).getHash());
+        assertEquals(header.getHash(), result.getBlockList().get(0).getHeader().getHash());
+        assertEquals(agentPo.getHash(), result.getAgentList().get(0).getHash());
+        assertEquals(20000L, result.getAgentList().get(0).getDeposit().getValue());
+        assertEquals(depositPo.getTxHash(), result.getDepositList().get(0).getTxHash());
+        assertEquals(99L, result.getYellowPunishList().get(0).getHeight());
+        assertTrue(result.getRedPunishList().isEmpty());
+
+        assertTrue(snapshotStorageService.delete());
+        assertNull(snapshotStorageService.get());
+    }
+
+    private BlockHeader createHeader(long height) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setPreHash(NulsDigestData.calcDigestData(("pre" + height).getBytes()));
+        header.setMerkleHash(NulsDigestData.calcDigestData(("merkle" + height).getBytes()));
+        header.setTime(1530000000000L + height);
+        header.setTxCount(0);
+        header.setExtend(new byte[10]);
+        BlockSignature signature = new BlockSignature();
+        signature.setPublicKey(new byte[33]);
+        NulsSignData signData = new NulsSignData();
+        signData.setSignBytes(new byte[64]);
+        signature.setSignData(signData);
+        header.setBlockSignature(signature);
+        return header;
+    }
+}
@@ -25,10 +25,13 @@
 package io.nuls.kernel.lite.core;
 
 import io.nuls.kernel.lite.core.interceptor.BeanMethodInterceptorManager;
+import io.nuls.kernel.lite.core.interceptor.MultipleBeanMethodInterceptorChain;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 系统默认的方法拦截器，用于aop底层实现
@@ -37,6 +40,13 @@ import java.lang.reflect.Method;
  * @author: Niels Wang
  */
 class DefaultMethodInterceptor implements MethodInterceptor {
+
+    /**
+     * 每个方法的拦截器链只解析一次
+     * The interceptor chain of each method is resolved only once.
+     */
+    private final Map<Method, MultipleBeanMethodInterceptorChain> chainMap = new ConcurrentHashMap<>();
+
     /**
      * 拦截方法
      * Intercept method
@@ -50,9 +60,19 @@ class DefaultMethodInterceptor implements MethodInterceptor {
      */
     @Override
     public Object intercept(Object obj, Method method, Object[] params, MethodProxy methodProxy) throws Throwable {
-        if (null == method.getDeclaredAnnotations() || method.getDeclaredAnnotations().length == 0) {
-            return methodProxy.invokeSuper(obj, params);
+        MultipleBeanMethodInterceptorChain chain = chainMap.get(method);
+        if (null == chain || BeanMethodInterceptorManager.isExpired(chain)) {
+            chain = BeanMethodInterceptorManager.resolveInterceptorChain(method.getDeclaredAnnotations());
+            chainMap.put(method, chain);
         }
-        return BeanMethodInterceptorManager.doInterceptor(method.getDeclaredAnnotations(), obj, method, params, methodProxy);
+        return BeanMethodInterceptorManager.doInterceptor(chain, obj, method, params, methodProxy);
+    }
+
+    /**
+     * 方法上是否有需要拦截的注解，没有时该类型不需要动态代理
+     * Whether the method has an annotation to intercept, a type without such methods needs no dynamic proxy.
+     */
+    static boolean needIntercept(Method method) {
+        return BeanMethodInterceptorManager.hasInterceptor(method.getDeclaredAnnotations());
     }
 }
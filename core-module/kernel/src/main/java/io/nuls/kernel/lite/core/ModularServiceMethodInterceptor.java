@@ -29,6 +29,7 @@ import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.constant.ModuleStatusEnum;
 import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.lite.core.interceptor.BeanMethodInterceptorManager;
+import io.nuls.kernel.lite.core.interceptor.MultipleBeanMethodInterceptorChain;
 import io.nuls.kernel.lite.exception.BeanStatusException;
 import io.nuls.kernel.module.BaseModuleBootstrap;
 import io.nuls.kernel.module.manager.ServiceManager;
@@ -37,10 +38,8 @@ import net.sf.cglib.proxy.MethodProxy;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 系统默认的服务拦截器
@@ -50,10 +49,10 @@ import java.util.Set;
  */
 public class ModularServiceMethodInterceptor implements MethodInterceptor {
     /**
-     * 线程安全的拦截器执行进度标识
-     * Thread-safe interceptors perform progress identification.
+     * 按被代理的类型缓存每个方法解析好的拦截器链，方法和类上的注解都参与解析
+     * The resolved interceptor chain of each method, cached per proxied type, both method and class annotations are resolved.
      */
-    private ThreadLocal<Integer> threadLocal = new ThreadLocal<>();
+    private final Map<Class, Map<Method, MultipleBeanMethodInterceptorChain>> chainMap = new ConcurrentHashMap<>();
 
     /**
      * 拦截方法
@@ -69,13 +68,13 @@ public class ModularServiceMethodInterceptor implements MethodInterceptor {
     @Override
     public Object intercept(Object obj, Method method, Object[] params, MethodProxy methodProxy) throws Throwable {
 //        Log.debug(method.toString());
-        threadLocal.set(0);
+        int retryCount = 0;
         Throwable throwable = null;
-        while (threadLocal.get() < 100) {
+        while (retryCount < 100) {
             try {
                 return this.doIntercept(obj, method, params, methodProxy);
             } catch (BeanStatusException e) {
-                threadLocal.set(threadLocal.get() + 1);
+                retryCount++;
                 throwable = e;
                 Thread.sleep(200L);
             }
@@ -95,31 +94,52 @@ public class ModularServiceMethodInterceptor implements MethodInterceptor {
      * @throws Throwable 该方法可能抛出异常，请谨慎处理/This method may throw an exception, handle with care.
      */
     private Object doIntercept(Object obj, Method method, Object[] params, MethodProxy methodProxy) throws Throwable {
-        List<Annotation> annotationList = new ArrayList<>();
-        if (!method.getDeclaringClass().equals(Object.class)) {
-            String className = obj.getClass().getCanonicalName();
-            className = className.substring(0, className.indexOf("$$"));
-            Class clazz = Class.forName(className);
-            fillAnnotationList(annotationList, clazz, method);
-            BaseModuleBootstrap module = ServiceManager.getInstance().getModule(clazz);
-            if (module == null) {
-                throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
-            }
-            if (module.getModuleId() != NulsConstant.MODULE_ID_MICROKERNEL &&
-                    module.getStatus() != ModuleStatusEnum.STARTING &&
-                    module.getStatus() != ModuleStatusEnum.RUNNING) {
-                throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
-            }
-            boolean isOk = SpringLiteContext.checkBeanOk(obj);
-            if (!isOk) {
-                throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
-            }
-        }
-        if (annotationList.isEmpty()) {
+        if (method.getDeclaringClass().equals(Object.class)) {
             return methodProxy.invokeSuper(obj, params);
         }
-        return BeanMethodInterceptorManager.doInterceptor(annotationList.toArray(new Annotation[annotationList.size()]), obj, method, params, methodProxy);
+        // 动态代理类的父类就是被代理的类型
+        // The superclass of the proxy class is the proxied type.
+        Class clazz = obj.getClass().getSuperclass();
+        BaseModuleBootstrap module = ServiceManager.getInstance().getModule(clazz);
+        if (module == null) {
+            throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
+        }
+        if (module.getModuleId() != NulsConstant.MODULE_ID_MICROKERNEL &&
+                module.getStatus() != ModuleStatusEnum.STARTING &&
+                module.getStatus() != ModuleStatusEnum.RUNNING) {
+            throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
+        }
+        boolean isOk = SpringLiteContext.checkBeanOk(obj);
+        if (!isOk) {
+            throw new BeanStatusException(KernelErrorCode.DATA_ERROR);
+        }
+        return BeanMethodInterceptorManager.doInterceptor(getInterceptorChain(clazz, method), obj, method, params, methodProxy);
+    }
 
+    /**
+     * 获取方法的拦截器链，每个类型的每个方法只解析一次
+     * Get the interceptor chain of the method, resolved only once per method of each type.
+     *
+     * @param clazz  方法所属对象的类型/The type of the object that the method belongs to.
+     * @param method 方法定义/Method definition
+     */
+    private MultipleBeanMethodInterceptorChain getInterceptorChain(Class clazz, Method method) {
+        Map<Method, MultipleBeanMethodInterceptorChain> methodChainMap = chainMap.get(clazz);
+        if (null == methodChainMap) {
+            methodChainMap = new ConcurrentHashMap<>();
+            Map<Method, MultipleBeanMethodInterceptorChain> existing = chainMap.putIfAbsent(clazz, methodChainMap);
+            if (null != existing) {
+                methodChainMap = existing;
+            }
+        }
+        MultipleBeanMethodInterceptorChain chain = methodChainMap.get(method);
+        if (null == chain || BeanMethodInterceptorManager.isExpired(chain)) {
+            List<Annotation> annotationList = new ArrayList<>();
+            fillAnnotationList(annotationList, clazz, method);
+            chain = BeanMethodInterceptorManager.resolveInterceptorChain(annotationList.toArray(new Annotation[annotationList.size()]));
+            methodChainMap.put(method, chain);
+        }
+        return chain;
     }
 
     /**
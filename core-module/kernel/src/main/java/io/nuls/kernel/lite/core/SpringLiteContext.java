@@ -42,6 +42,7 @@ import net.sf.cglib.proxy.MethodInterceptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -84,6 +85,9 @@ public class SpringLiteContext {
     public static void init(final String packName, MethodInterceptor interceptor) {
         SpringLiteContext.interceptor = interceptor;
         List<Class> list = ScanUtil.scan(packName);
+        // 先注册全部拦截器，再加载bean，加载时才能确定bean是否需要代理
+        // Register all the interceptors before loading the beans, so whether a bean needs a proxy is known when it is loaded.
+        list.forEach((Class clazz) -> checkInterceptorClass(clazz));
         list.forEach((Class clazz) -> checkBeanClass(clazz));
         autowireFields();
         success = true;
@@ -208,8 +212,33 @@ public class SpringLiteContext {
     }
 
     /**
-     * 检查一个类型，如果这个类型上被注释了我们关心的注解，如：Service/Component/Interceptor,就对这个对象进行加载，并放入bean管理器中
-     * Check a type, if this is commented on the type annotation, we care about, such as: (Service/Component/Interceptor), is to load the object, and in the bean manager
+     * 检查一个类型，如果这个类型上被注释了Interceptor注解，就实例化该拦截器并注册到拦截器管理器中
+     * Check a type, if it is annotated with Interceptor, instantiate the interceptor and register it to the interceptor manager.
+     *
+     * @param clazz class type
+     */
+    private static void checkInterceptorClass(Class clazz) {
+        Annotation[] anns = clazz.getDeclaredAnnotations();
+        if (anns == null || anns.length == 0) {
+            return;
+        }
+        Annotation interceptorAnn = getFromArray(anns, Interceptor.class);
+        if (null != interceptorAnn) {
+            BeanMethodInterceptor interceptor = null;
+            try {
+                Constructor constructor = clazz.getDeclaredConstructor();
+                interceptor = (BeanMethodInterceptor) constructor.newInstance();
+            } catch (Exception e) {
+                Log.error(e);
+                return;
+            }
+            BeanMethodInterceptorManager.addBeanMethodInterceptor(((Interceptor) interceptorAnn).value(), interceptor);
+        }
+    }
+
+    /**
+     * 检查一个类型，如果这个类型上被注释了我们关心的注解，如：Service/Component,就对这个对象进行加载，并放入bean管理器中
+     * Check a type, if this is commented on the type annotation, we care about, such as: (Service/Component), is to load the object, and in the bean manager
      *
      * @param clazz class type
      */
@@ -237,21 +266,8 @@ public class SpringLiteContext {
                 loadBean(beanName, clazz, aopProxy);
             } catch (NulsException e) {
                 Log.error(e);
-                return;
             }
         }
-        Annotation interceptorAnn = getFromArray(anns, Interceptor.class);
-        if (null != interceptorAnn) {
-            BeanMethodInterceptor interceptor = null;
-            try {
-                Constructor constructor = clazz.getDeclaredConstructor();
-                interceptor = (BeanMethodInterceptor) constructor.newInstance();
-            } catch (Exception e) {
-                Log.error(e);
-                return;
-            }
-            BeanMethodInterceptorManager.addBeanMethodInterceptor(((Interceptor) interceptorAnn).value(), interceptor);
-        }
     }
 
     //
@@ -305,7 +321,7 @@ public class SpringLiteContext {
             return BEAN_TEMP_MAP.get(beanName);
         }
         Object bean = null;
-        if (proxy) {
+        if (proxy && needProxy(clazz)) {
             bean = createProxy(clazz, interceptor);
         } else {
             try {
@@ -324,6 +340,29 @@ public class SpringLiteContext {
         return bean;
     }
 
+    /**
+     * 默认拦截器只处理标注了已注册拦截器的注解的方法，类型中没有这样的方法时直接实例化，调用不经过代理
+     * 其他拦截器（如模块服务拦截器）需要检查每一次调用，总是使用代理
+     * The default interceptor only handles the methods annotated with a registered interceptor's annotation,
+     * a type without such methods is instantiated directly so its calls skip the proxy.
+     * Other interceptors(e.g. the modular service interceptor) check every call, so they always get a proxy.
+     *
+     * @param clazz 对象类型
+     */
+    private static boolean needProxy(Class clazz) {
+        if (!(interceptor instanceof DefaultMethodInterceptor)) {
+            return true;
+        }
+        for (Class type = clazz; null != type && !type.equals(Object.class); type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (DefaultMethodInterceptor.needIntercept(method)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     //    /**
 //     * 使用动态代理的方式创建对象的实例
 //     * Create an instance of the object using a dynamic proxy.
@@ -44,19 +44,35 @@ public class BeanMethodInterceptorChain {
 //     * 链中的拦截器列表
 //     * List of interceptors in the interceptors chain.
 //     */
-    protected List<BeanMethodInterceptor> interceptorList = new ArrayList<>();
+    protected List<BeanMethodInterceptor> interceptorList;
     //
 //    /**
 //     * 线程安全的执行缓存，用于标记当前执行进度
 //     * Thread-safe execution cache to mark the current execution progress.
 //     */
-    private ThreadLocal<Integer> index = new ThreadLocal<>();
+    private ThreadLocal<Integer> index;
 
     //    /**
 //     * 方法代理器缓存，线程安全
 //     * Method agent cache, thread safe.
 //     */
-    private ThreadLocal<MethodProxy> methodProxyThreadLocal = new ThreadLocal<>();
+    private ThreadLocal<MethodProxy> methodProxyThreadLocal;
+
+    public BeanMethodInterceptorChain() {
+        this.interceptorList = new ArrayList<>();
+        this.index = new ThreadLocal<>();
+        this.methodProxyThreadLocal = new ThreadLocal<>();
+    }
+
+    /**
+     * 供自行记录执行进度的子类使用，不创建线程变量
+     * Used by subclasses that track the progress themselves, no thread locals are created.
+     *
+     * @param interceptorList 链中的拦截器列表/List of interceptors in the chain.
+     */
+    protected BeanMethodInterceptorChain(List<BeanMethodInterceptor> interceptorList) {
+        this.interceptorList = interceptorList;
+    }
 
     //    /**
 //     * 像链中添加一个方法拦截器
@@ -47,6 +47,12 @@ public class BeanMethodInterceptorManager {
      */
     private static final Map<Class, BeanMethodInterceptorChain> INTERCEPTOR_MAP = new HashMap<>();
 
+    /**
+     * 拦截器注册的版本，注册新的拦截器后，之前解析并缓存的拦截器链失效
+     * Version of the registered interceptors, the chains resolved and cached before expire when a new interceptor is registered.
+     */
+    private static volatile int version;
+
     /**
      * 添加方法拦截器到管理器中
      * Add a method interceptor to the manager.
@@ -61,6 +67,61 @@ public class BeanMethodInterceptorManager {
         }
         interceptorChain.add(interceptor);
         INTERCEPTOR_MAP.put(annotationType, interceptorChain);
+        version++;
+    }
+
+    /**
+     * 注解列表中是否有注册了拦截器的注解
+     * Whether any of the annotations has a registered interceptor.
+     *
+     * @param annotations 方法上标注的注解列表/Method annotated list of annotations.
+     */
+    public static boolean hasInterceptor(Annotation[] annotations) {
+        if (null == annotations) {
+            return false;
+        }
+        for (Annotation ann : annotations) {
+            if (INTERCEPTOR_MAP.containsKey(ann.annotationType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据方法的注解解析出拦截器链，结果可以由调用方按方法缓存，没有拦截器时返回空链
+     * Resolve the interceptor chain from the method's annotations, the caller can cache the result per method,
+     * an empty chain is returned when no interceptor applies.
+     *
+     * @param annotations 方法上标注的注解列表/Method annotated list of annotations.
+     * @return 解析好的拦截器链，调用时复制/the resolved chain, copied for each invocation
+     */
+    public static MultipleBeanMethodInterceptorChain resolveInterceptorChain(Annotation[] annotations) {
+        // 先读取版本，解析期间注册的拦截器会让结果立即失效
+        // Read the version first, an interceptor registered while resolving expires the result at once.
+        int resolvedVersion = version;
+        List<Annotation> annotationList = new ArrayList<>();
+        List<BeanMethodInterceptorChain> chainList = new ArrayList<>();
+        if (null != annotations) {
+            for (Annotation ann : annotations) {
+                BeanMethodInterceptorChain chain = INTERCEPTOR_MAP.get(ann.annotationType());
+                if (null != chain) {
+                    chainList.add(chain);
+                    annotationList.add(ann);
+                }
+            }
+        }
+        MultipleBeanMethodInterceptorChain chain = new MultipleBeanMethodInterceptorChain(annotationList, chainList);
+        chain.version = resolvedVersion;
+        return chain;
+    }
+
+    /**
+     * 缓存的拦截器链是否因注册了新的拦截器而失效
+     * Whether a cached chain expired because a new interceptor was registered.
+     */
+    public static boolean isExpired(MultipleBeanMethodInterceptorChain chain) {
+        return chain.version != version;
     }
 
     /**
@@ -76,19 +137,26 @@ public class BeanMethodInterceptorManager {
      * @throws Throwable 该方法可能抛出异常，请谨慎处理/This method may throw an exception, handle with care.
      */
     public static Object doInterceptor(Annotation[] annotations, Object object, Method method, Object[] params, MethodProxy methodProxy) throws Throwable {
-        List<Annotation> annotationList = new ArrayList<>();
-        List<BeanMethodInterceptorChain> chainList = new ArrayList<>();
-        for (Annotation ann : annotations) {
-            BeanMethodInterceptorChain chain = INTERCEPTOR_MAP.get(ann.annotationType());
-            if (null != chain) {
-                chainList.add(chain);
-                annotationList.add(ann);
-            }
-        }
-        if (annotationList.isEmpty()) {
+        return doInterceptor(resolveInterceptorChain(annotations), object, method, params, methodProxy);
+    }
+
+    /**
+     * 使用已解析的拦截器链执行一个方法，没有拦截器时直接调用原方法，不产生额外的对象
+     * Execute a method with a resolved interceptor chain, the original method is called directly without any allocation when no interceptor applies.
+     *
+     * @param resolvedChain 已解析的拦截器链/the resolved interceptor chain
+     * @param object        方法所属对象/Method owner
+     * @param method        方法定义/Method definition
+     * @param params        方法参数列表/Method parameter list
+     * @param methodProxy   方法代理器
+     * @return 返回拦截的方法的返回值，可以对该值进行处理和替换/Returns the return value of the intercepting method, which can be processed and replaced.
+     * @throws Throwable 该方法可能抛出异常，请谨慎处理/This method may throw an exception, handle with care.
+     */
+    public static Object doInterceptor(MultipleBeanMethodInterceptorChain resolvedChain, Object object, Method method, Object[] params, MethodProxy methodProxy) throws Throwable {
+        if (resolvedChain.isEmpty()) {
             return methodProxy.invokeSuper(object, params);
         }
-        MultipleBeanMethodInterceptorChain chain = new MultipleBeanMethodInterceptorChain(annotationList, chainList);
+        MultipleBeanMethodInterceptorChain chain = new MultipleBeanMethodInterceptorChain(resolvedChain);
         return chain.startInterceptor(null, object, method, params, methodProxy);
     }
 }
@@ -44,7 +44,7 @@ public class MultipleBeanMethodInterceptorChain extends BeanMethodInterceptorCha
     /**
      * 注解列表
      */
-    protected List<Annotation> annotationList = new ArrayList<>();
+    protected List<Annotation> annotationList;
 
     /**
      * 执行进度标记
@@ -58,6 +58,12 @@ public class MultipleBeanMethodInterceptorChain extends BeanMethodInterceptorCha
      */
     protected MethodProxy methodProxy;
 
+    /**
+     * 解析该链时拦截器注册的版本
+     * Version of the registered interceptors when the chain was resolved.
+     */
+    int version;
+
 
     //    /**
 //     * 初始化多重拦截器链
@@ -67,6 +73,8 @@ public class MultipleBeanMethodInterceptorChain extends BeanMethodInterceptorCha
 //     * @param chainList   拦截器链列表
 //     */
     public MultipleBeanMethodInterceptorChain(List<Annotation> annotations, List<BeanMethodInterceptorChain> chainList) {
+        super(new ArrayList<>());
+        this.annotationList = new ArrayList<>();
         if (null == annotations || annotations.isEmpty()) {
             return;
         }
@@ -75,6 +83,26 @@ public class MultipleBeanMethodInterceptorChain extends BeanMethodInterceptorCha
         }
     }
 
+    /**
+     * 复制一条已解析的拦截器链，共享其中只读的注解和拦截器列表，只有执行进度是独立的
+     * Copy a resolved chain, sharing its read-only annotation and interceptor lists, only the progress is separate.
+     *
+     * @param resolvedChain 已解析的拦截器链/the resolved interceptor chain
+     */
+    public MultipleBeanMethodInterceptorChain(MultipleBeanMethodInterceptorChain resolvedChain) {
+        super(resolvedChain.interceptorList);
+        this.annotationList = resolvedChain.annotationList;
+        this.version = resolvedChain.version;
+    }
+
+    /**
+     * 链中是否没有任何拦截器
+     * Whether the chain has no interceptor at all.
+     */
+    public boolean isEmpty() {
+        return interceptorList.isEmpty();
+    }
+
     //    /**
 //     * 将一条拦截器链加入到多重拦截器链中
 //     * Add an interceptor chain to the multiple interceptor chain,
@@ -35,6 +35,7 @@ import io.nuls.kernel.utils.NulsByteBuffer;
 import io.nuls.kernel.utils.NulsOutputStreamBuffer;
 import io.nuls.kernel.utils.SerializeUtils;
 import io.nuls.kernel.validate.ValidateResult;
+import org.spongycastle.util.Arrays;
 
 import java.io.IOException;
 
@@ -68,8 +69,14 @@ public class BlockSignature extends BaseNulsData {
     }
 
     public ValidateResult verifySignature(NulsDigestData digestData) {
-        boolean b = ECKey.verify(digestData.getDigestBytes(), signData.getSignBytes(), publicKey);
+        byte[] digest = digestData.getDigestBytes();
+        byte[] signature = Arrays.concatenate(publicKey, signData.getSignBytes());
+        if (SignatureVerifyCache.isVerified(digest, signature)) {
+            return ValidateResult.getSuccessResult();
+        }
+        boolean b = ECKey.verify(digest, signData.getSignBytes(), publicKey);
         if (b) {
+            SignatureVerifyCache.putVerified(digest, signature);
             return ValidateResult.getSuccessResult();
         } else {
             return ValidateResult.getFailedResult(this.getClass().getName(), KernelErrorCode.SIGNATURE_ERROR);
@@ -27,6 +27,7 @@ package io.nuls.kernel.script;
 
 import com.google.common.primitives.UnsignedBytes;
 import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.core.tools.crypto.Secp256k1Verifier;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
@@ -39,7 +40,9 @@ import io.nuls.kernel.utils.SerializeUtils;
 import io.nuls.kernel.validate.ValidateResult;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 public class P2PHKSignature extends BaseNulsData {
 
@@ -145,6 +148,19 @@ public class P2PHKSignature extends BaseNulsData {
         }
     }
 
+    /**
+     * 批量验证对同一hash的多个签名，全部通过时返回true
+     * Verify several signatures of the same hash in one batch, true is returned only when all of them pass.
+     */
+    public static boolean verifySignatures(NulsDigestData digestData, List<P2PHKSignature> signatures) {
+        byte[] digest = digestData.getDigestBytes();
+        List<Secp256k1Verifier.VerifyItem> items = new ArrayList<>(signatures.size());
+        for (P2PHKSignature signature : signatures) {
+            items.add(new Secp256k1Verifier.VerifyItem(digest, signature.getSignData().getSignBytes(), signature.getPublicKey()));
+        }
+        return Secp256k1Verifier.verifyBatch(items);
+    }
+
     public static final Comparator<P2PHKSignature> PUBKEY_COMPARATOR = new Comparator<P2PHKSignature>() {
         private Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
 
@@ -57,6 +57,10 @@ public class SignatureUtil {
             if (tx.getTransactionSignature() == null && tx.getTransactionSignature().length == 0) {
                 throw new NulsException(KernelErrorCode.SIGNATURE_ERROR);
             }
+            byte[] digest = tx.getHash().getDigestBytes();
+            if (SignatureVerifyCache.isVerified(digest, tx.getTransactionSignature())) {
+                return true;
+            }
             TransactionSignature transactionSignature = new TransactionSignature();
             transactionSignature.parse(tx.getTransactionSignature(), 0);
             if ((transactionSignature.getP2PHKSignatures() == null || transactionSignature.getP2PHKSignatures().size() == 0)
@@ -64,19 +68,18 @@ public class SignatureUtil {
                 throw new NulsException(KernelErrorCode.SIGNATURE_ERROR);
             }
             if (transactionSignature.getP2PHKSignatures() != null && transactionSignature.getP2PHKSignatures().size() > 0) {
-                for (P2PHKSignature signature : transactionSignature.getP2PHKSignatures()) {
-                    if (!ECKey.verify(tx.getHash().getDigestBytes(), signature.getSignData().getSignBytes(), signature.getPublicKey())) {
-                        throw new NulsException(KernelErrorCode.SIGNATURE_ERROR);
-                    }
+                if (!P2PHKSignature.verifySignatures(tx.getHash(), transactionSignature.getP2PHKSignatures())) {
+                    throw new NulsException(KernelErrorCode.SIGNATURE_ERROR);
                 }
             }
             if (transactionSignature.getScripts() != null && transactionSignature.getScripts().size() > 0) {
                 for (Script script : transactionSignature.getScripts()) {
-                    if (!validScriptSign(tx.getHash().getDigestBytes(), script.getChunks())) {
+                    if (!validScriptSign(digest, script.getChunks())) {
                         throw new NulsException(KernelErrorCode.SIGNATURE_ERROR);
                     }
                 }
             }
+            SignatureVerifyCache.putVerified(digest, tx.getTransactionSignature());
         } catch (NulsException e) {
             log.error("TransactionSignature parse error!");
             throw e;
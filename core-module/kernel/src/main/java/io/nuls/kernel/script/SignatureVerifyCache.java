@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.kernel.script;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.nuls.core.tools.crypto.Sha256Hash;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+
+/**
+ * 签名验证结果缓存，以(被签名的hash, 签名数据摘要)为key记录已验证通过的签名；
+ * 交易进入内存池时写入，区块验证、分叉链切换时直接复用，只缓存验证通过的结果；
+ * 主网协议版本变化时自动清空
+ * Cache of signature verification results, keyed by (signed hash, digest of the signature data), only successful
+ * verifications are recorded. It is filled when transactions enter the memory pool and reused by block validation
+ * and fork switching. It is cleared automatically when the main net protocol version changes.
+ */
+public final class SignatureVerifyCache {
+
+    /**
+     * 缓存的最大条目数
+     * The maximum number of cached entries
+     */
+    private static final long MAX_SIZE = 500000L;
+
+    private static final Cache<ByteArrayWrapper, Boolean> CACHE = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+
+    private static volatile Integer version = NulsContext.MAIN_NET_VERSION;
+
+    private SignatureVerifyCache() {
+    }
+
+    /**
+     * 判断该签名是否已验证通过
+     * Whether the signature has already been verified successfully.
+     *
+     * @param digest    被签名的hash/the signed hash
+     * @param signature 签名数据/the signature data
+     */
+    public static boolean isVerified(byte[] digest, byte[] signature) {
+        if (digest == null || signature == null) {
+            return false;
+        }
+        checkVersion();
+        return CACHE.getIfPresent(buildKey(digest, signature)) != null;
+    }
+
+    /**
+     * 记录验证通过的签名
+     * Record a successfully verified signature.
+     *
+     * @param digest    被签名的hash/the signed hash
+     * @param signature 签名数据/the signature data
+     */
+    public static void putVerified(byte[] digest, byte[] signature) {
+        if (digest == null || signature == null) {
+            return;
+        }
+        checkVersion();
+        CACHE.put(buildKey(digest, signature), Boolean.TRUE);
+    }
+
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+
+    public static long size() {
+        return CACHE.size();
+    }
+
+    private static void checkVersion() {
+        Integer mainVersion = NulsContext.MAIN_NET_VERSION;
+        if (!mainVersion.equals(version)) {
+            version = mainVersion;
+            clear();
+        }
+    }
+
+    private static ByteArrayWrapper buildKey(byte[] digest, byte[] signature) {
+        byte[] signatureDigest = Sha256Hash.hash(signature);
+        byte[] key = new byte[digest.length + signatureDigest.length];
+        System.arraycopy(digest, 0, key, 0, digest.length);
+        System.arraycopy(signatureDigest, 0, key, digest.length, signatureDigest.length);
+        return new ByteArrayWrapper(key);
+    }
+}
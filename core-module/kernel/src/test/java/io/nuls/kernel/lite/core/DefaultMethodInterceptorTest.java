@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.lite.core;
+
+import io.nuls.kernel.lite.core.interceptor.BeanMethodInterceptor;
+import io.nuls.kernel.lite.core.interceptor.BeanMethodInterceptorManager;
+import net.sf.cglib.proxy.Enhancer;
+import org.junit.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DefaultMethodInterceptorTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface Doubled {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface LateRegistered {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface Marked {
+    }
+
+    public static class Calculator {
+
+        @Doubled
+        public int doubled(int value) {
+            return value;
+        }
+
+        @LateRegistered
+        public int late(int value) {
+            return value;
+        }
+
+        @Marked
+        public int marked(int value) {
+            return value;
+        }
+
+        public int plain(int value) {
+            return value;
+        }
+    }
+
+    private static Calculator createProxy() {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(Calculator.class);
+        enhancer.setCallback(new DefaultMethodInterceptor());
+        return (Calculator) enhancer.create();
+    }
+
+    private static BeanMethodInterceptor doubleInterceptor(AtomicInteger counter) {
+        return (annotation, object, method, params, interceptorChain) -> {
+            counter.incrementAndGet();
+            return 2 * (Integer) interceptorChain.execute(annotation, object, method, params);
+        };
+    }
+
+    @Test
+    public void testInterceptedAndPlainMethods() {
+        AtomicInteger counter = new AtomicInteger();
+        BeanMethodInterceptorManager.addBeanMethodInterceptor(Doubled.class, doubleInterceptor(counter));
+        Calculator calculator = createProxy();
+
+        assertEquals(6, calculator.doubled(3));
+        assertEquals(10, calculator.doubled(5));
+        assertEquals(2, counter.get());
+        assertEquals(7, calculator.plain(7));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void testInterceptorRegisteredAfterFirstCall() {
+        Calculator calculator = createProxy();
+        assertEquals(4, calculator.late(4));
+
+        AtomicInteger counter = new AtomicInteger();
+        BeanMethodInterceptorManager.addBeanMethodInterceptor(LateRegistered.class, doubleInterceptor(counter));
+        assertEquals(8, calculator.late(4));
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testNeedIntercept() throws NoSuchMethodException {
+        assertFalse(DefaultMethodInterceptor.needIntercept(Calculator.class.getMethod("marked", int.class)));
+        BeanMethodInterceptorManager.addBeanMethodInterceptor(Marked.class, doubleInterceptor(new AtomicInteger()));
+        assertTrue(DefaultMethodInterceptor.needIntercept(Calculator.class.getMethod("marked", int.class)));
+        assertFalse(DefaultMethodInterceptor.needIntercept(Calculator.class.getMethod("plain", int.class)));
+    }
+}
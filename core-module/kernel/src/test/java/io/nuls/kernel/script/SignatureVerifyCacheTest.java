@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.script;
+
+import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.NulsDigestData;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SignatureVerifyCacheTest {
+
+    @Before
+    public void init() {
+        SignatureVerifyCache.clear();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        byte[] digest = NulsDigestData.calcDigestData(new byte[]{1, 2, 3}).getDigestBytes();
+        byte[] signature = new byte[]{4, 5, 6};
+        assertFalse(SignatureVerifyCache.isVerified(digest, signature));
+        SignatureVerifyCache.putVerified(digest, signature);
+        assertTrue(SignatureVerifyCache.isVerified(digest, signature));
+        assertFalse(SignatureVerifyCache.isVerified(digest, new byte[]{4, 5, 7}));
+    }
+
+    @Test
+    public void testVersionChange() {
+        byte[] digest = NulsDigestData.calcDigestData(new byte[]{1, 2, 3}).getDigestBytes();
+        byte[] signature = new byte[]{4, 5, 6};
+        Integer version = NulsContext.MAIN_NET_VERSION;
+        try {
+            SignatureVerifyCache.putVerified(digest, signature);
+            NulsContext.MAIN_NET_VERSION = version + 1;
+            assertFalse(SignatureVerifyCache.isVerified(digest, signature));
+        } finally {
+            NulsContext.MAIN_NET_VERSION = version;
+        }
+    }
+
+    @Test
+    public void testBlockSignature() {
+        ECKey ecKey = new ECKey();
+        NulsDigestData hash = NulsDigestData.calcDigestData(new byte[]{1, 2, 3});
+        BlockSignature signature = new BlockSignature();
+        signature.setPublicKey(ecKey.getPubKey());
+        signature.setSignData(SignatureUtil.signDigest(hash.getDigestBytes(), ecKey));
+
+        assertTrue(signature.verifySignature(hash).isSuccess());
+        assertEquals(1, SignatureVerifyCache.size());
+        assertTrue(signature.verifySignature(hash).isSuccess());
+
+        signature.setPublicKey(new ECKey().getPubKey());
+        assertTrue(signature.verifySignature(hash).isFailed());
+        assertEquals(1, SignatureVerifyCache.size());
+    }
+}
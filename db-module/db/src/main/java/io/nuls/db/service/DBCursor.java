@@ -0,0 +1,85 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import io.nuls.db.model.Entry;
+
+import java.io.Closeable;
+
+/**
+ * 数据区域的有序游标，按key的字节序遍历，不会把数据区域复制到内存中
+ * 游标的位置在两条数据之间，next返回位置之后的数据，prev返回位置之前的数据
+ * 游标持有数据库快照，使用完毕后必须调用close释放
+ * An ordered cursor over a data area, it walks the keys in bytewise order without copying the area into memory.
+ * The position of the cursor is between two entries, next returns the entry after the position, prev returns the entry before it.
+ * The cursor holds a snapshot of the database, it must be closed after use.
+ */
+public interface DBCursor extends Closeable {
+
+    /**
+     * 定位到第一条数据之前
+     * Position the cursor before the first entry.
+     */
+    void seekToFirst();
+
+    /**
+     * 定位到最后一条数据之后
+     * Position the cursor after the last entry.
+     */
+    void seekToLast();
+
+    /**
+     * 定位到第一个大于或等于key的数据之前
+     * Position the cursor before the first entry whose key is greater than or equal to the key.
+     *
+     * @param key
+     */
+    void seek(byte[] key);
+
+    boolean hasNext();
+
+    Entry<byte[], byte[]> next();
+
+    Entry<byte[], byte[]> peekNext();
+
+    boolean hasPrev();
+
+    Entry<byte[], byte[]> prev();
+
+    /**
+     * 向后跳过最多count条数据，返回实际跳过的数量
+     * Skip at most count entries forward, return the number of entries actually skipped.
+     *
+     * @param count
+     * @return
+     */
+    int skip(int count);
+
+    /**
+     * 释放迭代器和快照，可重复调用
+     * Release the iterator and the snapshot, it can be called more than once.
+     */
+    @Override
+    void close();
+}
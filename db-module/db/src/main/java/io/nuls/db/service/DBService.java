@@ -223,6 +223,49 @@ public interface DBService {
      */
     <T> List<T> values(String area, Class<T> clazz);
 
+    /**
+     * 按key范围分页获取数据区域的key-value的有序集合（按字节序），不会加载整个数据区域
+     * Gets a page of the key-values whose keys are in [fromKey, toKey), in bytewise order, without loading the whole data area.
+     *
+     * @param area
+     * @param fromKey 起始key(包含)，为null时从第一条开始/start key(inclusive), from the first entry when null
+     * @param toKey   结束key(不包含)，为null时不限制/end key(exclusive), unbounded when null
+     * @param start   跳过的数量/number of entries to skip
+     * @param limit   最多返回的数量，小于等于0表示不限制/maximum number of entries to return, no limit when less than or equal to 0
+     * @return
+     */
+    List<Entry<byte[], byte[]>> entryList(String area, byte[] fromKey, byte[] toKey, int start, int limit);
+
+    /**
+     * 打开整个数据区域的游标，使用完毕后必须关闭
+     * Open a cursor over the whole data area, it must be closed after use.
+     *
+     * @param area
+     * @return
+     */
+    DBCursor openCursor(String area);
+
+    /**
+     * 打开以prefix开头的key的游标，使用完毕后必须关闭
+     * Open a cursor over the keys that start with the prefix, it must be closed after use.
+     *
+     * @param area
+     * @param prefix key前缀/key prefix
+     * @return
+     */
+    DBCursor openCursor(String area, byte[] prefix);
+
+    /**
+     * 打开[fromKey, toKey)范围的游标，使用完毕后必须关闭
+     * Open a cursor over the keys in [fromKey, toKey), it must be closed after use.
+     *
+     * @param area
+     * @param fromKey 起始key(包含)，为null时不限制/start key(inclusive), unbounded when null
+     * @param toKey   结束key(不包含)，为null时不限制/end key(exclusive), unbounded when null
+     * @return
+     */
+    DBCursor openCursor(String area, byte[] fromKey, byte[] toKey);
+
     /**
      * 指定数据区域的批量增删改操作
      * Specifies the batch add, delete, update operations in the data area.
@@ -232,6 +275,14 @@ public interface DBService {
      */
     BatchOperation createWriteBatch(String area);
 
+    /**
+     * 跨数据区域的批量增删改操作，一次提交原子生效
+     * The batch add, delete, update operations across data areas, committed atomically at once.
+     *
+     * @return
+     */
+    MultiAreaBatchOperation createMultiAreaWriteBatch();
+
     /**
      * 清除Area
      *
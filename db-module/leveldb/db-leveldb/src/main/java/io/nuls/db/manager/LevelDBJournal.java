@@ -0,0 +1,321 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.kernel.model.Result;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 跨数据区域批量操作的预写日志
+ * 每个Area是独立的LevelDB实例，跨Area的批量操作先完整写入日志并fsync一次，写入完成的日志记录即为提交点，
+ * 之后以非同步方式分别写入各个Area（与其它单条写入相同），再清空日志，清空时不再fsync
+ * 启动时如果日志中有完整的记录，说明上次提交在写入各个Area时中断，重新执行一遍（put/delete可重复执行）；不完整的记录说明没有任何Area被写入，直接丢弃
+ * 写入Area失败且无法补齐时保留日志并拒绝后续提交，由下次启动恢复，避免旧的操作覆盖之后的写入
+ * Write-ahead journal of the batch operations across data areas.
+ * Every area is an independent LevelDB instance, so a cross-area batch is first written completely into the journal with a single fsync,
+ * the complete journal record is the commit point. The areas are then written without sync, the same as the other single writes,
+ * and the journal is cleared without fsync.
+ * On startup a complete record in the journal means the last commit was interrupted while writing the areas, it is applied again (puts and deletes are idempotent);
+ * an incomplete record means no area was written, it is discarded.
+ * When the areas can not be written, the record is kept and later commits are rejected until it is recovered on the next start,
+ * so stale operations are never applied over newer writes.
+ */
+public class LevelDBJournal {
+
+    public static final byte OP_PUT = 1;
+    public static final byte OP_DELETE = 2;
+
+    private static final int MAGIC = 0x4E4A524E;
+
+    private static final String JOURNAL_FILE_NAME = "batch_journal";
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static final WriteOptions AREA_WRITE = new WriteOptions().sync(false);
+
+    private static File journalFile;
+
+    /**
+     * 日志中保留着未能写入Area的记录，重启恢复之前不再接受新的提交
+     * The journal keeps a record that could not be written into the areas, no new commit is accepted until it is recovered on restart.
+     */
+    private static volatile boolean failed;
+
+    /**
+     * 一条写入操作
+     * One write operation.
+     */
+    public static class Operation {
+        private final byte type;
+        private final String area;
+        private final byte[] key;
+        private final byte[] value;
+
+        public Operation(byte type, String area, byte[] key, byte[] value) {
+            this.type = type;
+            this.area = area;
+            this.key = key;
+            this.value = value;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public String getArea() {
+            return area;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+
+    private LevelDBJournal() {
+    }
+
+    /**
+     * 初始化日志文件，并恢复上次中断的提交，需要在所有Area装载之后调用
+     * Initialize the journal file and recover the interrupted commit, it must be called after all the areas are loaded.
+     */
+    static void init(String dataPath) {
+        journalFile = new File(dataPath + File.separator + JOURNAL_FILE_NAME);
+        failed = false;
+        List<Operation> operations = read();
+        if (operations == null) {
+            clear();
+            return;
+        }
+        Log.info("recover the interrupted batch from the journal, operations: " + operations.size());
+        Result result = apply(operations);
+        if (result.isSuccess()) {
+            clear();
+        } else {
+            // 保留日志，下次启动再恢复
+            // Keep the journal, it is recovered on the next start.
+            Log.error("recover the batch journal failed: " + result.getMsg());
+            failed = true;
+        }
+    }
+
+    /**
+     * 原子提交跨Area的批量操作
+     * Commit the operations across areas atomically.
+     */
+    public static Result commit(List<Operation> operations) {
+        if (journalFile == null) {
+            return Result.getFailed(DBErrorCode.DB_SESSION_MISS_INIT);
+        }
+        for (Operation operation : operations) {
+            if (LevelDBManager.getArea(operation.getArea()) == null) {
+                return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+            }
+        }
+        LOCK.lock();
+        try {
+            if (failed) {
+                return Result.getFailed(DBErrorCode.DB_BATCH_JOURNAL_ERROR);
+            }
+            try {
+                write(encode(operations));
+            } catch (IOException e) {
+                Log.error(e);
+                clear();
+                return Result.getFailed(DBErrorCode.DB_BATCH_JOURNAL_ERROR);
+            }
+            Result result = apply(operations);
+            if (result.isFailed()) {
+                // 在持有锁时立即重试一次，此时还没有其它写入，重复执行是安全的
+                // Retry once at once while holding the lock, no other write has happened yet so applying again is safe.
+                result = apply(operations);
+            }
+            if (result.isFailed()) {
+                // 保留日志由下次启动恢复，之前拒绝所有提交
+                // Keep the journal for the recovery on the next start, reject all the commits until then.
+                Log.error("apply the batch failed, it will be recovered from the journal on the next start");
+                failed = true;
+                return result;
+            }
+            clear();
+            return result;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static Result apply(List<Operation> operations) {
+        Map<String, WriteBatch> batchMap = new LinkedHashMap<>();
+        try {
+            for (Operation operation : operations) {
+                WriteBatch batch = batchMap.get(operation.getArea());
+                if (batch == null) {
+                    DB db = LevelDBManager.getArea(operation.getArea());
+                    if (db == null) {
+                        Log.error("the area of the batch does not exist: " + operation.getArea());
+                        return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+                    }
+                    batch = db.createWriteBatch();
+                    batchMap.put(operation.getArea(), batch);
+                }
+                if (operation.getType() == OP_PUT) {
+                    batch.put(operation.getKey(), operation.getValue());
+                } else {
+                    batch.delete(operation.getKey());
+                }
+            }
+            for (Map.Entry<String, WriteBatch> entry : batchMap.entrySet()) {
+                LevelDBManager.getArea(entry.getKey()).write(entry.getValue(), AREA_WRITE);
+            }
+            return Result.getSuccess();
+        } catch (Exception e) {
+            Log.error(e);
+            return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+        } finally {
+            for (WriteBatch batch : batchMap.values()) {
+                try {
+                    batch.close();
+                } catch (IOException e) {
+                    // skip it
+                }
+            }
+        }
+    }
+
+    private static byte[] encode(List<Operation> operations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(operations.size());
+        for (Operation operation : operations) {
+            out.writeByte(operation.getType());
+            out.writeUTF(operation.getArea());
+            out.writeInt(operation.getKey().length);
+            out.write(operation.getKey());
+            if (operation.getType() == OP_PUT) {
+                out.writeInt(operation.getValue().length);
+                out.write(operation.getValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Operation> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int size = in.readInt();
+        List<Operation> operations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte type = in.readByte();
+            String area = in.readUTF();
+            byte[] key = new byte[in.readInt()];
+            in.readFully(key);
+            byte[] value = null;
+            if (type == OP_PUT) {
+                value = new byte[in.readInt()];
+                in.readFully(value);
+            }
+            operations.add(new Operation(type, area, key, value));
+        }
+        return operations;
+    }
+
+    /**
+     * 记录格式：magic(4) + 长度(4) + 内容 + crc32(8)，写完后fsync
+     * Record layout: magic(4) + length(4) + payload + crc32(8), fsync after writing.
+     */
+    private static void write(byte[] payload) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 16);
+        buffer.putInt(MAGIC);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        buffer.putLong(crc32.getValue());
+        buffer.flip();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 读取完整的日志记录，没有记录或记录不完整时返回null
+     * Read the complete journal record, return null when there is no record or the record is incomplete.
+     */
+    private static List<Operation> read() {
+        if (!journalFile.exists() || journalFile.length() < 16) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > journalFile.length() - 16) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            if (in.readLong() != crc32.getValue()) {
+                return null;
+            }
+            return decode(payload);
+        } catch (IOException e) {
+            Log.warn("read the batch journal failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * 清空日志，不做fsync，只能在各个Area写入之后调用；清空未落盘时启动恢复会重复执行该记录，结果相同
+     * Clear the journal without fsync, it must be called only after the areas are written. If the clearing is lost,
+     * the startup recovery applies the record again with the same result.
+     */
+    private static void clear() {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(0);
+        } catch (IOException e) {
+            Log.warn("clear the batch journal failed", e);
+        }
+    }
+}
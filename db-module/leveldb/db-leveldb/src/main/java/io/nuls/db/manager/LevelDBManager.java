@@ -105,6 +105,7 @@ public class LevelDBManager {
                     }
 
                 }
+                LevelDBJournal.init(dataPath);
             }
         }
 
@@ -0,0 +1,302 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
+import io.nuls.kernel.model.Result;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * LevelDB的游标实现，[lowerBound, upperBound)范围内按字节序遍历
+ * iq80的LevelDB不支持反向迭代，向前遍历时保留最近经过的一段数据，并每隔PREV_WINDOW_SIZE条记录一个检查点key，
+ * 保留的数据用完后从当前位置之前最近的检查点扫描到当前位置补充，反向遍历整个范围的总开销是线性的
+ * The LevelDB cursor, walks the keys in [lowerBound, upperBound) in bytewise order.
+ * The iq80 LevelDB does not support reverse iteration, so the cursor keeps the entries it recently passed,
+ * and records a checkpoint key every PREV_WINDOW_SIZE entries it scans. When the kept entries run out they are refilled
+ * by scanning from the closest checkpoint before the current position, so walking the whole range backwards costs linear time.
+ */
+public class LevelDBCursor implements DBCursor {
+
+    private static final int PREV_WINDOW_SIZE = 256;
+
+    private final byte[] lowerBound;
+    private final byte[] upperBound;
+    private DB db;
+    private Snapshot snapshot;
+    private ReadOptions readOptions;
+    private DBIterator iterator;
+    /**
+     * 当前位置之前紧邻的数据，最后一个元素离当前位置最近
+     * The entries right before the current position, the last element is the closest one.
+     */
+    private final ArrayDeque<Map.Entry<byte[], byte[]>> prevWindow = new ArrayDeque<>();
+    /**
+     * 扫描经过的key，连续扫描时每隔PREV_WINDOW_SIZE条记录一个，快照内的key不会失效
+     * Keys passed by the scans, one every PREV_WINDOW_SIZE entries of a continuous scan, they stay valid within the snapshot.
+     */
+    private final TreeSet<byte[]> checkpoints = new TreeSet<>(LevelDBCursor::compare);
+    private int sinceCheckpoint;
+    private boolean atEnd;
+    private volatile boolean isClose = false;
+
+    LevelDBCursor(String area, byte[] lowerBound, byte[] upperBound) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        db = LevelDBManager.getArea(area);
+        if (db != null) {
+            snapshot = db.getSnapshot();
+            readOptions = new ReadOptions().snapshot(snapshot);
+            iterator = db.iterator(readOptions);
+            seekToFirst();
+        }
+    }
+
+    public Result checkCursor() {
+        if (db == null) {
+            return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+        }
+        if (iterator == null) {
+            return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+        }
+        return Result.getSuccess();
+    }
+
+    /**
+     * 前缀对应的上界：最后一个不为0xFF的字节加一并截断，全部为0xFF时没有上界
+     * The upper bound of a prefix: increment the last byte that is not 0xFF and truncate, there is no upper bound when all bytes are 0xFF.
+     */
+    public static byte[] prefixUpperBound(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] upper = new byte[i + 1];
+                System.arraycopy(prefix, 0, upper, 0, i + 1);
+                upper[i]++;
+                return upper;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 与LevelDB默认比较器一致的无符号字节序比较
+     * Unsigned bytewise comparison, the same as the default comparator of LevelDB.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int result = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private boolean inUpperBound(byte[] key) {
+        return upperBound == null || compare(key, upperBound) < 0;
+    }
+
+    private void checkOpen() {
+        if (isClose) {
+            throw new IllegalStateException("the cursor is closed");
+        }
+    }
+
+    @Override
+    public void seekToFirst() {
+        checkOpen();
+        if (lowerBound == null) {
+            iterator.seekToFirst();
+        } else {
+            iterator.seek(lowerBound);
+        }
+        prevWindow.clear();
+        sinceCheckpoint = 0;
+        atEnd = false;
+    }
+
+    @Override
+    public void seekToLast() {
+        checkOpen();
+        prevWindow.clear();
+        atEnd = true;
+    }
+
+    @Override
+    public void seek(byte[] key) {
+        checkOpen();
+        if (lowerBound != null && compare(key, lowerBound) < 0) {
+            key = lowerBound;
+        }
+        iterator.seek(key);
+        prevWindow.clear();
+        sinceCheckpoint = 0;
+        atEnd = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        checkOpen();
+        return !atEnd && iterator.hasNext() && inUpperBound(iterator.peekNext().getKey());
+    }
+
+    @Override
+    public Entry<byte[], byte[]> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], byte[]> entry = iterator.next();
+        passed(entry);
+        return new Entry<>(entry.getKey(), entry.getValue());
+    }
+
+    @Override
+    public Entry<byte[], byte[]> peekNext() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+        return new Entry<>(entry.getKey(), entry.getValue());
+    }
+
+    @Override
+    public boolean hasPrev() {
+        checkOpen();
+        if (prevWindow.isEmpty()) {
+            fillPrevWindow();
+        }
+        return !prevWindow.isEmpty();
+    }
+
+    @Override
+    public Entry<byte[], byte[]> prev() {
+        if (!hasPrev()) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], byte[]> entry = prevWindow.removeLast();
+        // 把正向迭代器移回这条数据之前，之后的next会再次返回它
+        // Move the forward iterator back before this entry, the following next returns it again.
+        iterator.seek(entry.getKey());
+        sinceCheckpoint = 0;
+        atEnd = false;
+        return new Entry<>(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * 记录经过的数据，保留最近的PREV_WINDOW_SIZE条，并每隔PREV_WINDOW_SIZE条记录一个检查点
+     * Record a passed entry, keep the closest PREV_WINDOW_SIZE ones and add a checkpoint every PREV_WINDOW_SIZE entries.
+     */
+    private void passed(Map.Entry<byte[], byte[]> entry) {
+        prevWindow.addLast(entry);
+        if (prevWindow.size() > PREV_WINDOW_SIZE) {
+            prevWindow.removeFirst();
+        }
+        if (++sinceCheckpoint >= PREV_WINDOW_SIZE) {
+            checkpoints.add(entry.getKey());
+            sinceCheckpoint = 0;
+        }
+    }
+
+    /**
+     * 从当前位置之前最近的检查点(没有时从lowerBound)扫描到当前位置，保留当前位置之前最近的PREV_WINDOW_SIZE条数据
+     * Scan from the closest checkpoint before the current position(from lowerBound when there is none) up to the current position,
+     * keep the PREV_WINDOW_SIZE entries closest to it.
+     */
+    private void fillPrevWindow() {
+        byte[] currentKey = null;
+        if (!atEnd && iterator.hasNext()) {
+            currentKey = iterator.peekNext().getKey();
+        }
+        byte[] startKey = currentKey == null ? (checkpoints.isEmpty() ? null : checkpoints.last()) : checkpoints.lower(currentKey);
+        if (startKey == null) {
+            startKey = lowerBound;
+        }
+        DBIterator scanner = db.iterator(readOptions);
+        try {
+            if (startKey == null) {
+                scanner.seekToFirst();
+            } else {
+                scanner.seek(startKey);
+            }
+            sinceCheckpoint = 0;
+            Map.Entry<byte[], byte[]> entry;
+            while (scanner.hasNext()) {
+                entry = scanner.next();
+                if (!inUpperBound(entry.getKey())) {
+                    break;
+                }
+                if (currentKey != null && compare(entry.getKey(), currentKey) >= 0) {
+                    break;
+                }
+                passed(entry);
+            }
+            sinceCheckpoint = 0;
+        } finally {
+            closeQuietly(scanner);
+        }
+    }
+
+    @Override
+    public int skip(int count) {
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            next();
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        if (isClose) {
+            return;
+        }
+        this.isClose = true;
+        prevWindow.clear();
+        checkpoints.clear();
+        // Make sure you close the iterator and the snapshot to avoid resource leaks.
+        closeQuietly(iterator);
+        closeQuietly(snapshot);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            //skip it
+        }
+    }
+}
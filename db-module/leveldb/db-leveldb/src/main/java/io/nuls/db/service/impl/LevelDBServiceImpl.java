@@ -24,10 +24,13 @@ import io.nuls.core.tools.str.StringUtils;
 import io.nuls.db.manager.LevelDBManager;
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.model.Result;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
@@ -133,6 +136,55 @@ public class LevelDBServiceImpl implements DBService {
         return LevelDBManager.values(area, clazz);
     }
 
+    @Override
+    public List<Entry<byte[], byte[]>> entryList(String area, byte[] fromKey, byte[] toKey, int start, int limit) {
+        DBCursor cursor = openCursor(area, fromKey, toKey);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            List<Entry<byte[], byte[]>> entryList = new ArrayList<>();
+            cursor.skip(start);
+            while (cursor.hasNext()) {
+                entryList.add(cursor.next());
+                if (limit > 0 && entryList.size() >= limit) {
+                    break;
+                }
+            }
+            return entryList;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public DBCursor openCursor(String area) {
+        return openCursor(area, null, null);
+    }
+
+    @Override
+    public DBCursor openCursor(String area, byte[] prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        return openCursor(area, prefix, LevelDBCursor.prefixUpperBound(prefix));
+    }
+
+    @Override
+    public DBCursor openCursor(String area, byte[] fromKey, byte[] toKey) {
+        if (StringUtils.isBlank(area)) {
+            return null;
+        }
+        LevelDBCursor cursor = new LevelDBCursor(area, fromKey, toKey);
+        Result result = cursor.checkCursor();
+        if (result.isFailed()) {
+            Log.error("DB cursor create error: " + result.getMsg());
+            cursor.close();
+            return null;
+        }
+        return cursor;
+    }
+
     @Override
     public BatchOperation createWriteBatch(String area) {
         if(StringUtils.isBlank(area)) {
@@ -147,6 +199,11 @@ public class LevelDBServiceImpl implements DBService {
         return batchOperation;
     }
 
+    @Override
+    public MultiAreaBatchOperation createMultiAreaWriteBatch() {
+        return new MultiAreaBatchOperationImpl();
+    }
+
     @Override
     public Result destroyArea(String area) {
         return LevelDBManager.destroyArea(area);
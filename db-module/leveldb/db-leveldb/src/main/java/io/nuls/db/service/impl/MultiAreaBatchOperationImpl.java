@@ -0,0 +1,89 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.core.tools.str.StringUtils;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.manager.LevelDBJournal;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.service.MultiAreaBatchOperation;
+import io.nuls.kernel.model.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MultiAreaBatchOperationImpl implements MultiAreaBatchOperation {
+
+    private static final Result FAILED_NULL = Result.getFailed(DBErrorCode.NULL_PARAMETER);
+    private static final Result SUCCESS = Result.getSuccess();
+    private static final Result FAILED_BATCH_CLOSE = Result.getFailed(DBErrorCode.DB_BATCH_CLOSE);
+    private static final Result FAILED_AREA_NOT_EXIST = Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+    private final List<LevelDBJournal.Operation> operations = new ArrayList<>();
+    private volatile boolean isClose = false;
+
+    MultiAreaBatchOperationImpl() {
+    }
+
+    @Override
+    public Result put(String area, byte[] key, byte[] value) {
+        if (StringUtils.isBlank(area) || key == null || value == null) {
+            return FAILED_NULL;
+        }
+        if (LevelDBManager.getArea(area) == null) {
+            return FAILED_AREA_NOT_EXIST;
+        }
+        operations.add(new LevelDBJournal.Operation(LevelDBJournal.OP_PUT, area, key, value));
+        return SUCCESS;
+    }
+
+    @Override
+    public <T> Result putModel(String area, byte[] key, T value) {
+        if (key == null || value == null) {
+            return FAILED_NULL;
+        }
+        byte[] bytes = LevelDBManager.getModelSerialize(value);
+        return put(area, key, bytes);
+    }
+
+    @Override
+    public Result delete(String area, byte[] key) {
+        if (StringUtils.isBlank(area) || key == null) {
+            return FAILED_NULL;
+        }
+        if (LevelDBManager.getArea(area) == null) {
+            return FAILED_AREA_NOT_EXIST;
+        }
+        operations.add(new LevelDBJournal.Operation(LevelDBJournal.OP_DELETE, area, key, null));
+        return SUCCESS;
+    }
+
+    @Override
+    public Result executeBatch() {
+        // 检查逻辑关闭
+        if (isClose) {
+            return FAILED_BATCH_CLOSE;
+        }
+        isClose = true;
+        if (operations.isEmpty()) {
+            return SUCCESS;
+        }
+        return LevelDBJournal.commit(operations);
+    }
+}
@@ -185,6 +185,40 @@ public class LevelDBServiceTest {
         LevelDBManager.destroyArea(area);
     }
 
+    @Test
+    public void testMultiAreaBatch() {
+        String area1 = "testMultiAreaBatch1";
+        String area2 = "testMultiAreaBatch2";
+        dbService.createArea(area1);
+        dbService.createArea(area2);
+        dbService.put(area2, bytes("London"), bytes("red"));
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        batch.put(area1, bytes("Tampa"), bytes("green"));
+        batch.put(area2, bytes("Tampa"), bytes("blue"));
+        batch.delete(area2, bytes("London"));
+        batch.put(area1, bytes("Qweqwe"), bytes("blue"));
+        batch.delete(area1, bytes("Qweqwe"));
+        Result result = batch.executeBatch();
+        Assert.assertTrue(result.isSuccess());
+
+        Assert.assertEquals("green", asString(dbService.get(area1, bytes("Tampa"))));
+        Assert.assertEquals("blue", asString(dbService.get(area2, bytes("Tampa"))));
+        Assert.assertNull(dbService.get(area2, bytes("London")));
+        Assert.assertNull(dbService.get(area1, bytes("Qweqwe")));
+
+        // 校验重复执行，期望失败
+        result = batch.executeBatch();
+        Assert.assertTrue(result.isFailed());
+        Assert.assertEquals(DBErrorCode.DB_BATCH_CLOSE.getCode(), result.getErrorCode().getCode());
+
+        // 不存在的Area，期望失败且不影响其他操作
+        batch = dbService.createMultiAreaWriteBatch();
+        result = batch.put("testMultiAreaBatchNotExist", bytes("Tampa"), bytes("green"));
+        Assert.assertEquals(DBErrorCode.DB_AREA_NOT_EXIST.getCode(), result.getErrorCode().getCode());
+        LevelDBManager.destroyArea(area1);
+        LevelDBManager.destroyArea(area2);
+    }
+
     @Test
     public void testBatchModel() {
         String area = "testBatchModel";
@@ -294,6 +328,8 @@ public class LevelDBServiceTest {
         testDestroyArea();
         testKeySet();
         testKeyList();
+        testCursor();
+        testCursorPrevAcrossWindows();
         testComparator();
         testCacheSize();
         testEntrySet();
@@ -423,6 +459,71 @@ public class LevelDBServiceTest {
         destroyArea(area);
     }
 
+    public void testCursor() {
+        String area = "testCursor";
+        createArea(area);
+        for (int i = 1; i <= 5; i++) {
+            put(area, bytes("a0" + i), bytes("a0" + i + "value"));
+        }
+        put(area, bytes("b01"), bytes("b01value"));
+        put(area, bytes("c01"), bytes("c01value"));
+
+        try (DBCursor cursor = dbService.openCursor(area, bytes("a"))) {
+            int i = 0;
+            while (cursor.hasNext()) {
+                Assert.assertEquals("a0" + (++i), asString(cursor.next().getKey()));
+            }
+            Assert.assertEquals(5, i);
+            while (cursor.hasPrev()) {
+                Assert.assertEquals("a0" + (i--), asString(cursor.prev().getKey()));
+            }
+            Assert.assertEquals(0, i);
+            cursor.seekToLast();
+            Assert.assertEquals("a05", asString(cursor.prev().getKey()));
+            Assert.assertEquals("a05", asString(cursor.next().getKey()));
+            cursor.seek(bytes("a03"));
+            Assert.assertEquals("a02", asString(cursor.prev().getKey()));
+            Assert.assertEquals(3, cursor.skip(3));
+            Assert.assertEquals("a05", asString(cursor.peekNext().getKey()));
+        }
+
+        try (DBCursor cursor = dbService.openCursor(area, bytes("a03"), bytes("b02"))) {
+            Assert.assertEquals("a03", asString(cursor.next().getKey()));
+            Assert.assertEquals(3, cursor.skip(10));
+            Assert.assertFalse(cursor.hasNext());
+            Assert.assertEquals("b01", asString(cursor.prev().getKey()));
+        }
+
+        List<Entry<byte[], byte[]>> page = dbService.entryList(area, bytes("a"), null, 4, 2);
+        Assert.assertEquals(2, page.size());
+        Assert.assertEquals("a05", asString(page.get(0).getKey()));
+        Assert.assertEquals("b01value", asString(page.get(1).getValue()));
+        destroyArea(area);
+    }
+
+    public void testCursorPrevAcrossWindows() {
+        String area = "testCursorPrevAcrossWindows";
+        createArea(area);
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            put(area, bytes(String.format("k%04d", i)), bytes("v" + i));
+        }
+        try (DBCursor cursor = dbService.openCursor(area)) {
+            cursor.seekToLast();
+            int i = count;
+            while (cursor.hasPrev()) {
+                Assert.assertEquals(String.format("k%04d", --i), asString(cursor.prev().getKey()));
+            }
+            Assert.assertEquals(0, i);
+            Assert.assertEquals(700, cursor.skip(700));
+            while (cursor.hasPrev()) {
+                Assert.assertEquals(String.format("k%04d", --i + 700), asString(cursor.prev().getKey()));
+            }
+            Assert.assertEquals(-700, i);
+        }
+        destroyArea(area);
+    }
+
     public void testComparator() {
         String area = "testComparator";
         destroyArea(area);
@@ -33,4 +33,14 @@ public interface LedgerConstant extends NulsConstant {
 
     short MODULE_ID_LEDGER = 8;
 
+    String CFG_LEDGER_SECTION = "ledger";
+
+    /**
+     * 是否定期全量扫描utxo校验增量维护的统计，默认关闭
+     * Whether to verify the incrementally maintained statistics with a periodic full utxo scan, off by default.
+     */
+    String CFG_UTXO_STATS_VERIFY = "utxo.stats.verify";
+
+    long UTXO_STATS_VERIFY_INTERVAL_MINUTES = 60;
+
 }
@@ -23,6 +23,7 @@
  */
 package io.nuls.ledger.service;
 
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.model.*;
 import io.nuls.kernel.validate.ValidateResult;
@@ -163,4 +164,30 @@ public interface LedgerService {
      * @return Coin
      */
     List<Coin> getAllUtxo(byte[] address);
+
+    /**
+     * Start collecting the ledger writes of one block on the current thread. Until commitBlockBatch or endBlockBatch,
+     * saveTx, rollbackTx and the unlock methods called on this thread only append to the returned batch, and the reads of this ledger see the pending writes.
+     * The caller may append other writes of the block to the returned batch so that they are committed together.
+     *
+     * 开始在当前线程上收集一个区块的账本写入，在commitBlockBatch或endBlockBatch之前，本线程调用的saveTx、rollbackTx和解锁方法只追加到返回的批量操作中，账本的读取能看到尚未提交的写入
+     * 调用者可以把区块的其它写入追加到返回的批量操作中，一起提交
+     * @return MultiAreaBatchOperation
+     */
+    MultiAreaBatchOperation beginBlockBatch();
+
+    /**
+     * Commit the block batch of the current thread atomically with a single journal write, the batch is ended on success.
+     *
+     * 用一次日志写入原子提交当前线程的区块批量操作，成功后结束该批量操作
+     * @return Result
+     */
+    Result commitBlockBatch();
+
+    /**
+     * End the block batch of the current thread, the writes that are not committed are discarded.
+     *
+     * 结束当前线程的区块批量操作，未提交的写入全部丢弃
+     */
+    void endBlockBatch();
 }
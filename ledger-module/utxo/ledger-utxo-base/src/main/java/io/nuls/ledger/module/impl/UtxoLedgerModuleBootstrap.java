@@ -24,8 +24,16 @@
 package io.nuls.ledger.module.impl;
 
 
+import io.nuls.kernel.cfg.NulsConfig;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.ledger.constant.LedgerConstant;
 import io.nuls.ledger.module.AbstractLedgerModule;
+import io.nuls.ledger.task.UtxoStatsVerifyTask;
 
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -41,7 +49,11 @@ public class UtxoLedgerModuleBootstrap extends AbstractLedgerModule {
 
     @Override
     public void start() {
-
+        if (NulsConfig.MODULES_CONFIG.getCfgValue(LedgerConstant.CFG_LEDGER_SECTION, LedgerConstant.CFG_UTXO_STATS_VERIFY, false)) {
+            ScheduledThreadPoolExecutor executor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(LedgerConstant.MODULE_ID_LEDGER, "utxoStatsVerifyThread"));
+            executor.scheduleAtFixedRate(NulsContext.getServiceBean(UtxoStatsVerifyTask.class), LedgerConstant.UTXO_STATS_VERIFY_INTERVAL_MINUTES,
+                    LedgerConstant.UTXO_STATS_VERIFY_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
     }
 
     @Override
@@ -28,17 +28,17 @@ import io.nuls.contract.constant.ContractErrorCode;
 import io.nuls.contract.service.ContractService;
 import io.nuls.contract.util.ContractUtil;
 import io.nuls.core.tools.array.ArraysTool;
-import io.nuls.core.tools.calc.LongUtils;
 import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.map.MapUtil;
 import io.nuls.core.tools.param.AssertUtil;
 import io.nuls.db.model.Entry;
-import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.constant.TransactionErrorCode;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.model.*;
@@ -54,6 +54,7 @@ import io.nuls.ledger.constant.LedgerErrorCode;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.ledger.storage.service.UtxoLedgerTransactionStorageService;
 import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
+import io.nuls.ledger.storage.util.UtxoStatsDelta;
 import io.nuls.ledger.util.LedgerUtil;
 import org.spongycastle.util.Arrays;
 
@@ -75,50 +76,125 @@ public class UtxoLedgerServiceImpl implements LedgerService {
     @Autowired
     private ContractService contractService;
 
+    /**
+     * 当前线程正在收集的区块批量操作
+     * The block batch being collected on the current thread.
+     */
+    private final ThreadLocal<LedgerBatch> blockBatch = new ThreadLocal<>();
+
+    /**
+     * 一次账本写入的批量操作，记录尚未提交的utxo和交易，使同一批量操作中后面的读取能看到前面的写入
+     * The batch of one ledger write, it records the utxos and transactions that are not committed
+     * so that the later reads in the same batch see the earlier writes.
+     */
+    private static class LedgerBatch {
+        private final MultiAreaBatchOperation batch;
+        private final UtxoStatsDelta statsDelta = new UtxoStatsDelta();
+        /**
+         * 未提交的utxo序列化数据，null表示已删除
+         * The serialized utxos not committed, null means deleted.
+         */
+        private final Map<String, byte[]> utxoMap = new HashMap<>();
+        /**
+         * 未提交的交易，null表示已删除
+         * The transactions not committed, null means deleted.
+         */
+        private final Map<String, Transaction> txMap = new HashMap<>();
+
+        private LedgerBatch(MultiAreaBatchOperation batch) {
+            this.batch = batch;
+        }
+    }
+
+    @Override
+    public MultiAreaBatchOperation beginBlockBatch() {
+        if (blockBatch.get() != null) {
+            Log.error("the block batch of the current thread is not ended");
+            throw new NulsRuntimeException(KernelErrorCode.FAILED);
+        }
+        LedgerBatch ledgerBatch = new LedgerBatch(utxoLedgerUtxoStorageService.createMultiAreaWriteBatch());
+        blockBatch.set(ledgerBatch);
+        return ledgerBatch.batch;
+    }
+
+    @Override
+    public Result commitBlockBatch() {
+        LedgerBatch ledgerBatch = blockBatch.get();
+        if (ledgerBatch == null) {
+            return Result.getFailed(KernelErrorCode.FAILED);
+        }
+        Result result = utxoLedgerUtxoStorageService.executeBatch(ledgerBatch.batch, ledgerBatch.statsDelta);
+        if (result.isSuccess()) {
+            blockBatch.remove();
+        }
+        return result;
+    }
+
+    @Override
+    public void endBlockBatch() {
+        blockBatch.remove();
+    }
+
+    /**
+     * 有区块批量操作时加入其中，否则单独提交
+     * Join the block batch when there is one, otherwise commit alone.
+     */
+    private Result executeLedgerBatch(LedgerBatch ledgerBatch) {
+        if (ledgerBatch == blockBatch.get()) {
+            return Result.getSuccess();
+        }
+        return utxoLedgerUtxoStorageService.executeBatch(ledgerBatch.batch, ledgerBatch.statsDelta);
+    }
+
+    private LedgerBatch currentLedgerBatch() {
+        LedgerBatch ledgerBatch = blockBatch.get();
+        if (ledgerBatch == null) {
+            ledgerBatch = new LedgerBatch(utxoLedgerUtxoStorageService.createMultiAreaWriteBatch());
+        }
+        return ledgerBatch;
+    }
+
     @Override
     public Result saveTx(Transaction tx) throws NulsException {
         if (tx == null) {
             return Result.getFailed(LedgerErrorCode.NULL_PARAMETER);
         }
         try {
+            // utxo、地址索引和交易在一次批量操作中原子提交，失败时不需要补偿回滚
+            // The utxo, the address index and the transaction are committed atomically in one batch, no compensation is needed on failure.
+            LedgerBatch ledgerBatch = currentLedgerBatch();
             // 保存CoinData
-            Result result = saveCoinData(tx);
+            Result result = saveCoinData(ledgerBatch, tx);
             if (result.isFailed()) {
-                Result rollbackResult = rollbackCoinData(tx);
-                if (rollbackResult.isFailed()) {
-                    throw new NulsException(rollbackResult.getErrorCode());
-                }
                 return result;
             }
             // 保存交易
-            result = utxoLedgerTransactionStorageService.saveTx(tx);
+            result = utxoLedgerTransactionStorageService.saveTx(ledgerBatch.batch, tx);
             if (result.isFailed()) {
-                Result rollbackResult = rollbackTx(tx);
-                if (rollbackResult.isFailed()) {
-                    throw new NulsException(rollbackResult.getErrorCode());
-                }
+                return result;
             }
-            return result;
+            ledgerBatch.txMap.put(asString(tx.getHash().serialize()), tx);
+            return executeLedgerBatch(ledgerBatch);
         } catch (IOException e) {
             Log.error(e);
-            Result rollbackResult = rollbackTx(tx);
-            if (rollbackResult.isFailed()) {
-                throw new NulsException(rollbackResult.getErrorCode());
-            }
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
     }
 
-    private Result saveCoinData(Transaction tx) throws IOException {
+    private Result saveCoinData(LedgerBatch ledgerBatch, Transaction tx) throws IOException {
         CoinData coinData = tx.getCoinData();
         //TestLog+
 //        Log.info("=============="+tx.getClass().getSimpleName()+"交易：hash-"+tx.getHash().getDigestHex());
         //TestLog-
         if (coinData != null) {
-            BatchOperation batch = utxoLedgerUtxoStorageService.createWriteBatch();
+            Result result;
             // 删除utxo已花费 - from
             List<Coin> froms = coinData.getFrom();
             for (Coin from : froms) {
+                Coin spent = from.getFrom();
+                if (spent == null) {
+                    spent = readUtxo(ledgerBatch, from.getOwner());
+                }
                 //TestLog+
 //                Coin preFrom = utxoLedgerUtxoStorageService.getUtxo(from.());
 //                if (preFrom != null) {
@@ -126,26 +202,22 @@ public class UtxoLedgerServiceImpl implements LedgerService {
 //                }
 //                Log.info("delete utxo:" + Hex.encode(from.()));
                 //TestLog-
-                batch.delete(from.getOwner());
+                result = deleteUtxo(ledgerBatch, from.getOwner(), spent);
+                if (result.isFailed()) {
+                    return result;
+                }
             }
             // 保存utxo - to
             byte[] txHashBytes = tx.getHash().serialize();
             List<Coin> tos = coinData.getTo();
             for (int i = 0, length = tos.size(); i < length; i++) {
-                try {
-                    byte[] owner = Arrays.concatenate(txHashBytes, new VarInt(i).encode());
-//                    Log.info("129 save utxo:::" + Hex.encode(owner));
-                    batch.put(owner, tos.get(i).serialize());
-                } catch (IOException e) {
-                    Log.error(e);
-                    return Result.getFailed(KernelErrorCode.IO_ERROR);
+                byte[] owner = Arrays.concatenate(txHashBytes, new VarInt(i).encode());
+//                Log.info("129 save utxo:::" + Hex.encode(owner));
+                result = saveUtxo(ledgerBatch, owner, tos.get(i));
+                if (result.isFailed()) {
+                    return result;
                 }
             }
-            // 执行批量
-            Result batchResult = batch.executeBatch();
-            if (batchResult.isFailed()) {
-                return batchResult;
-            }
         }
         return Result.getSuccess();
     }
@@ -156,58 +228,47 @@ public class UtxoLedgerServiceImpl implements LedgerService {
             return Result.getFailed(LedgerErrorCode.NULL_PARAMETER);
         }
         try {
+            LedgerBatch ledgerBatch = currentLedgerBatch();
             // 回滚CoinData
-            Result result = rollbackCoinData(tx);
+            Result result = rollbackCoinData(ledgerBatch, tx);
             if (result.isFailed()) {
-                Result recoveryResult = saveCoinData(tx);
-                if (recoveryResult.isFailed()) {
-                    throw new NulsException(recoveryResult.getErrorCode());
-                }
                 return result;
             }
             // 回滚交易
-            result = utxoLedgerTransactionStorageService.deleteTx(tx);
+            result = utxoLedgerTransactionStorageService.deleteTx(ledgerBatch.batch, tx);
             if (result.isFailed()) {
-                Result recoveryResult = saveTx(tx);
-                if (recoveryResult.isFailed()) {
-                    throw new NulsException(recoveryResult.getErrorCode());
-                }
+                return result;
             }
-            return result;
+            ledgerBatch.txMap.put(asString(tx.getHash().serialize()), null);
+            return executeLedgerBatch(ledgerBatch);
         } catch (IOException e) {
             Log.error(e);
-            Result rollbackResult = saveTx(tx);
-            if (rollbackResult.isFailed()) {
-                throw new NulsException(rollbackResult.getErrorCode());
-            }
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
     }
 
-    private Result rollbackCoinData(Transaction tx) throws IOException, NulsException {
+    private Result rollbackCoinData(LedgerBatch ledgerBatch, Transaction tx) throws IOException, NulsException {
         byte[] txHashBytes = tx.getHash().serialize();
-        BatchOperation batch = utxoLedgerUtxoStorageService.createWriteBatch();
         CoinData coinData = tx.getCoinData();
         if (coinData != null) {
+            Result result;
             // 保存utxo已花费 - from
             List<Coin> froms = coinData.getFrom();
             Coin recovery;
             for (Coin from : froms) {
-                try {
-                    NulsByteBuffer byteBuffer = new NulsByteBuffer(from.getOwner());
+                NulsByteBuffer byteBuffer = new NulsByteBuffer(from.getOwner());
 
-                    NulsDigestData fromTxHash = byteBuffer.readHash();
+                NulsDigestData fromTxHash = byteBuffer.readHash();
 
-                    int fromIndex = (int) byteBuffer.readVarInt();
+                int fromIndex = (int) byteBuffer.readVarInt();
 
-                    Transaction fromTx = utxoLedgerTransactionStorageService.getTx(fromTxHash);
-                    recovery = fromTx.getCoinData().getTo().get(fromIndex);
-                    recovery.setFrom(from.getFrom());
-//                    Log.info("rollback save utxo:::" + Hex.encode(from.()));
-                    batch.put(from.getOwner(), recovery.serialize());
-                } catch (IOException e) {
-                    Log.error(e);
-                    return Result.getFailed(KernelErrorCode.IO_ERROR);
+                Transaction fromTx = readTx(ledgerBatch, fromTxHash);
+                recovery = fromTx.getCoinData().getTo().get(fromIndex);
+                recovery.setFrom(from.getFrom());
+//                Log.info("rollback save utxo:::" + Hex.encode(from.()));
+                result = saveUtxo(ledgerBatch, from.getOwner(), recovery);
+                if (result.isFailed()) {
+                    return result;
                 }
             }
             // 删除utxo - to
@@ -215,23 +276,82 @@ public class UtxoLedgerServiceImpl implements LedgerService {
             for (int i = 0, length = tos.size(); i < length; i++) {
                 byte[] owner = Arrays.concatenate(txHashBytes, new VarInt(i).encode());
 //                Log.info("批量删除：" + Hex.encode(owner));
-                batch.delete(owner);
-            }
-            // 执行批量
-            Result batchResult = batch.executeBatch();
-            if (batchResult.isFailed()) {
-                return batchResult;
+                result = deleteUtxo(ledgerBatch, owner, tos.get(i));
+                if (result.isFailed()) {
+                    return result;
+                }
             }
         }
         return Result.getSuccess();
     }
 
+    private Result saveUtxo(LedgerBatch ledgerBatch, byte[] owner, Coin coin) throws IOException {
+        Result result = utxoLedgerUtxoStorageService.saveUtxo(ledgerBatch.batch, owner, coin);
+        if (result.isFailed()) {
+            return result;
+        }
+        ledgerBatch.utxoMap.put(asString(owner), coin.serialize());
+        ledgerBatch.statsDelta.addCoin(coin);
+        return result;
+    }
+
+    private Result deleteUtxo(LedgerBatch ledgerBatch, byte[] owner, Coin coin) {
+        Result result = utxoLedgerUtxoStorageService.deleteUtxo(ledgerBatch.batch, owner, coin);
+        if (result.isFailed()) {
+            return result;
+        }
+        ledgerBatch.utxoMap.put(asString(owner), null);
+        ledgerBatch.statsDelta.removeCoin(coin);
+        return result;
+    }
+
+    /**
+     * 优先读取批量操作中尚未提交的utxo
+     * Read the utxo not committed in the batch first.
+     */
+    private Coin readUtxo(LedgerBatch ledgerBatch, byte[] owner) {
+        String key = asString(owner);
+        if (ledgerBatch == null || !ledgerBatch.utxoMap.containsKey(key)) {
+            return utxoLedgerUtxoStorageService.getUtxo(owner);
+        }
+        byte[] utxoBytes = ledgerBatch.utxoMap.get(key);
+        if (utxoBytes == null) {
+            return null;
+        }
+        Coin coin = new Coin();
+        try {
+            coin.parse(utxoBytes, 0);
+        } catch (NulsException e) {
+            Log.error(e);
+            return null;
+        }
+        return coin;
+    }
+
+    /**
+     * 优先读取批量操作中尚未提交的交易
+     * Read the transaction not committed in the batch first.
+     */
+    private Transaction readTx(LedgerBatch ledgerBatch, NulsDigestData hash) {
+        if (ledgerBatch != null) {
+            try {
+                String key = asString(hash.serialize());
+                if (ledgerBatch.txMap.containsKey(key)) {
+                    return ledgerBatch.txMap.get(key);
+                }
+            } catch (IOException e) {
+                Log.error(e);
+            }
+        }
+        return utxoLedgerTransactionStorageService.getTx(hash);
+    }
+
     @Override
     public Transaction getTx(NulsDigestData hash) {
         if (hash == null) {
             return null;
         }
-        return utxoLedgerTransactionStorageService.getTx(hash);
+        return readTx(blockBatch.get(), hash);
     }
 
     @Override
@@ -309,7 +429,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
                 Coin from = froms.get(i);
                 fromBytes = from.getOwner();
                 // 验证是否可花费, 校验的coinData的fromUTXO，检查数据库中是否存在此UTXO
-                fromOfFromCoin = utxoLedgerUtxoStorageService.getUtxo(fromBytes);
+                fromOfFromCoin = readUtxo(blockBatch.get(), fromBytes);
 
                 // 检查txList中是否存在此UTXO
                 if (temporaryToMap != null && fromOfFromCoin == null) {
@@ -529,7 +649,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
             byte[] txHashBytes = txHashBytes = tx.getHash().serialize();
             Coin needUnLockUtxoNew = new Coin(needUnLockUtxo.getOwner(), needUnLockUtxo.getNa(), newockTime);
             needUnLockUtxoNew.setFrom(needUnLockUtxo.getFrom());
-            Result result = utxoLedgerUtxoStorageService.saveUtxo(Arrays.concatenate(txHashBytes, new VarInt(needUnLockUtxoIndex).encode()), needUnLockUtxoNew);
+            Result result = changeUtxoLockTime(Arrays.concatenate(txHashBytes, new VarInt(needUnLockUtxoIndex).encode()), needUnLockUtxoNew);
             if (result.isFailed()) {
                 Result rollbackResult = rollbackUnlockTxCoinData(tx);
                 if (rollbackResult.isFailed()) {
@@ -570,7 +690,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
                 return ValidateResult.getFailedResult(CLASS_NAME, LedgerErrorCode.UTXO_STATUS_CHANGE);
             }
             byte[] txHashBytes = tx.getHash().serialize();
-            Result result = utxoLedgerUtxoStorageService.saveUtxo(Arrays.concatenate(txHashBytes, new VarInt(needUnLockUtxoIndex).encode()), needUnLockUtxo);
+            Result result = changeUtxoLockTime(Arrays.concatenate(txHashBytes, new VarInt(needUnLockUtxoIndex).encode()), needUnLockUtxo);
             if (result.isFailed()) {
                 throw new NulsException(result.getErrorCode());
             }
@@ -581,27 +701,24 @@ public class UtxoLedgerServiceImpl implements LedgerService {
         }
     }
 
-    @Override
-    public long getWholeUTXO() {
-        long result = 0L;
-        List<byte[]> list = utxoLedgerUtxoStorageService.getAllUtxoBytes();
-        if (list == null || list.size() == 0) {
-            return result;
-        }
-        Coin coin = null;
-        try {
-            for (byte[] utxoBytes : list) {
-                if (utxoBytes != null) {
-                    coin = new Coin();
-                    coin.parse(utxoBytes, 0);
-                    result = LongUtils.add(result, coin.getNa().getValue());
-                }
-            }
+    /**
+     * 修改utxo的锁定时间，统计中先减去原utxo再加上新utxo
+     * Change the lock time of a utxo, the statistics drop the old utxo and add the new one.
+     */
+    private Result changeUtxoLockTime(byte[] owner, Coin coin) throws IOException {
+        LedgerBatch ledgerBatch = currentLedgerBatch();
+        Coin old = readUtxo(ledgerBatch, owner);
+        Result result = saveUtxo(ledgerBatch, owner, coin);
+        if (result.isFailed()) {
             return result;
-        } catch (NulsException e) {
-            Log.error(e);
-            return 0L;
         }
+        ledgerBatch.statsDelta.removeCoin(old);
+        return executeLedgerBatch(ledgerBatch);
+    }
+
+    @Override
+    public long getWholeUTXO() {
+        return utxoLedgerUtxoStorageService.getUtxoStats().getTotalAmount();
     }
 
     @Override
@@ -609,7 +726,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
         if (owner == null) {
             return null;
         }
-        return utxoLedgerUtxoStorageService.getUtxo(owner);
+        return readUtxo(blockBatch.get(), owner);
     }
 
 
@@ -623,7 +740,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
     @Override
     public  List<Coin> getAllUtxo(byte[] address){
         List<Coin> coinList = new ArrayList<>();
-        Collection<Entry<byte[], byte[]>> rawList =utxoLedgerUtxoStorageService.getAllUtxoEntryBytes();
+        Collection<Entry<byte[], byte[]>> rawList = utxoLedgerUtxoStorageService.getUtxoEntryBytesByAddress(address);
         for (Entry<byte[], byte[]> coinEntry : rawList) {
             Coin coin = new Coin();
             try {
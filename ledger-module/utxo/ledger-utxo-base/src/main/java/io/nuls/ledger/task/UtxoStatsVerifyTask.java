@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.ledger.task;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.ledger.constant.LedgerConstant;
+import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 后台全量扫描utxo，校验增量维护的utxo统计，不一致时由存储层修复
+ * Verifies the incrementally maintained utxo statistics with a background full utxo scan, the storage repairs them on a mismatch.
+ */
+@Component
+public class UtxoStatsVerifyTask implements Runnable {
+
+    @Autowired
+    private UtxoLedgerUtxoStorageService utxoLedgerUtxoStorageService;
+
+    private ExecutorService scanExecutor;
+
+    @Override
+    public void run() {
+        try {
+            if (scanExecutor == null) {
+                scanExecutor = TaskManager.createThreadPool(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE,
+                        new NulsThreadFactory(LedgerConstant.MODULE_ID_LEDGER, "utxo-stats-verify"));
+            }
+            long start = System.currentTimeMillis();
+            boolean consistent = utxoLedgerUtxoStorageService.verifyUtxoStats(scanExecutor);
+            Log.info("utxo stats verified, consistent: " + consistent + ", cost: " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            Log.error(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2018 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.ledger.rpc.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * 增量维护的utxo统计，查询不扫描utxo
+ * The incrementally maintained utxo statistics, queried without scanning the utxo.
+ */
+@ApiModel(value = "UtxoStatsDtoJSON")
+public class UtxoStatsDto {
+
+    @ApiModelProperty(name = "totalAmount", value = "流通总量")
+    private Long totalAmount;
+
+    @ApiModelProperty(name = "utxoCount", value = "utxo数量")
+    private Long utxoCount;
+
+    @ApiModelProperty(name = "lockedAmount", value = "锁定总量")
+    private Long lockedAmount;
+
+    @ApiModelProperty(name = "unlockedAmount", value = "可用总量")
+    private Long unlockedAmount;
+
+    @ApiModelProperty(name = "permanentLockedAmount", value = "永久锁定(保证金)数量")
+    private Long permanentLockedAmount;
+
+    @ApiModelProperty(name = "timeLockedAmount", value = "按时间锁定的数量")
+    private Long timeLockedAmount;
+
+    @ApiModelProperty(name = "heightLockedAmount", value = "按高度锁定的数量")
+    private Long heightLockedAmount;
+
+    public Long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(Long totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getUtxoCount() {
+        return utxoCount;
+    }
+
+    public void setUtxoCount(Long utxoCount) {
+        this.utxoCount = utxoCount;
+    }
+
+    public Long getLockedAmount() {
+        return lockedAmount;
+    }
+
+    public void setLockedAmount(Long lockedAmount) {
+        this.lockedAmount = lockedAmount;
+    }
+
+    public Long getUnlockedAmount() {
+        return unlockedAmount;
+    }
+
+    public void setUnlockedAmount(Long unlockedAmount) {
+        this.unlockedAmount = unlockedAmount;
+    }
+
+    public Long getPermanentLockedAmount() {
+        return permanentLockedAmount;
+    }
+
+    public void setPermanentLockedAmount(Long permanentLockedAmount) {
+        this.permanentLockedAmount = permanentLockedAmount;
+    }
+
+    public Long getTimeLockedAmount() {
+        return timeLockedAmount;
+    }
+
+    public void setTimeLockedAmount(Long timeLockedAmount) {
+        this.timeLockedAmount = timeLockedAmount;
+    }
+
+    public Long getHeightLockedAmount() {
+        return heightLockedAmount;
+    }
+
+    public void setHeightLockedAmount(Long heightLockedAmount) {
+        this.heightLockedAmount = heightLockedAmount;
+    }
+}
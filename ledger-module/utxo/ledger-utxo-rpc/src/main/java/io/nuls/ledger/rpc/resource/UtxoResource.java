@@ -29,6 +29,7 @@ import io.nuls.core.tools.str.StringUtils;
 import io.nuls.db.model.Entry;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.Coin;
@@ -38,6 +39,7 @@ import io.nuls.kernel.model.RpcClientResult;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.ledger.constant.LedgerErrorCode;
 import io.nuls.ledger.rpc.model.*;
+import io.nuls.ledger.storage.po.UtxoStatsPo;
 import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
 import io.nuls.ledger.storage.util.CoinComparator;
 import io.swagger.annotations.*;
@@ -161,7 +163,7 @@ public class UtxoResource {
     private List<Coin> getAllUtxoByAddress(String address) {
         List<Coin> coinList = new ArrayList<>();
         byte[] addressBytes = AddressTool.getAddress(address);
-        List<Entry<byte[], byte[]>> coinBytesList = utxoLedgerUtxoStorageService.getAllUtxoEntryBytes();
+        List<Entry<byte[], byte[]>> coinBytesList = utxoLedgerUtxoStorageService.getUtxoEntryBytesByAddress(addressBytes);
         Coin coin;
         for (Entry<byte[], byte[]> coinEntryBytes : coinBytesList) {
             coin = new Coin();
@@ -230,4 +232,27 @@ public class UtxoResource {
         result.setData(info);
         return result.toRpcClientResult();
     }
+
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "查询utxo统计(流通总量、锁定量)，不扫描utxo")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = UtxoStatsDto.class)
+    })
+    public RpcClientResult getStats() {
+        UtxoStatsPo stats = utxoLedgerUtxoStorageService.getUtxoStats();
+        long timeLockedAmount = utxoLedgerUtxoStorageService.getTimeLockedAmount(TimeService.currentTimeMillis());
+        long heightLockedAmount = utxoLedgerUtxoStorageService.getHeightLockedAmount(NulsContext.getInstance().getBestHeight());
+        long lockedAmount = stats.getPermanentLockedAmount() + timeLockedAmount + heightLockedAmount;
+        UtxoStatsDto dto = new UtxoStatsDto();
+        dto.setTotalAmount(stats.getTotalAmount());
+        dto.setUtxoCount(stats.getUtxoCount());
+        dto.setLockedAmount(lockedAmount);
+        dto.setUnlockedAmount(stats.getTotalAmount() - lockedAmount);
+        dto.setPermanentLockedAmount(stats.getPermanentLockedAmount());
+        dto.setTimeLockedAmount(timeLockedAmount);
+        dto.setHeightLockedAmount(heightLockedAmount);
+        return Result.getSuccess().setData(dto).toRpcClientResult();
+    }
 }
@@ -34,5 +34,7 @@ public interface LedgerStorageConstant {
 
     String DB_NAME_LEDGER_TX = "ledger_tx";
     String DB_NAME_LEDGER_UTXO = "ledger_utxo";
+    String DB_NAME_LEDGER_UTXO_ADDRESS_INDEX = "ledger_utxo_address_index";
+    String DB_NAME_LEDGER_UTXO_STATS = "ledger_utxo_stats";
 
 }
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.ledger.storage.po;
+
+import java.io.Serializable;
+
+/**
+ * 全部utxo的汇总统计，和utxo在同一批量操作中更新
+ * The summary statistics of all the utxo, updated in the same batch as the utxo.
+ */
+public class UtxoStatsPo implements Serializable {
+
+    /**
+     * 全部utxo的金额之和，即流通总量
+     * Sum of all the utxo amounts, i.e. the circulating supply.
+     */
+    private long totalAmount;
+
+    private long utxoCount;
+
+    /**
+     * 锁定时间为负数（永久锁定，如委托和共识保证金）的金额之和
+     * Sum of the amounts whose lock time is negative (locked until unlocked explicitly, e.g. deposits).
+     */
+    private long permanentLockedAmount;
+
+    public UtxoStatsPo() {
+    }
+
+    public UtxoStatsPo(long totalAmount, long utxoCount, long permanentLockedAmount) {
+        this.totalAmount = totalAmount;
+        this.utxoCount = utxoCount;
+        this.permanentLockedAmount = permanentLockedAmount;
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(long totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public long getUtxoCount() {
+        return utxoCount;
+    }
+
+    public void setUtxoCount(long utxoCount) {
+        this.utxoCount = utxoCount;
+    }
+
+    public long getPermanentLockedAmount() {
+        return permanentLockedAmount;
+    }
+
+    public void setPermanentLockedAmount(long permanentLockedAmount) {
+        this.permanentLockedAmount = permanentLockedAmount;
+    }
+}
@@ -23,6 +23,7 @@
  */
 package io.nuls.ledger.storage.service;
 
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
@@ -40,4 +41,16 @@ public interface UtxoLedgerTransactionStorageService {
     Result deleteTx(Transaction tx);
 
     byte[] getTxBytes(byte[] txBytes);
+
+    /**
+     * 在跨数据区域的批量操作中保存交易
+     * Save the transaction in the batch across data areas.
+     */
+    Result saveTx(MultiAreaBatchOperation batch, Transaction tx);
+
+    /**
+     * 在跨数据区域的批量操作中删除交易
+     * Delete the transaction in the batch across data areas.
+     */
+    Result deleteTx(MultiAreaBatchOperation batch, Transaction tx);
 }
@@ -25,10 +25,15 @@ package io.nuls.ledger.storage.service;
 
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
+import io.nuls.ledger.storage.po.UtxoStatsPo;
+import io.nuls.ledger.storage.util.UtxoStatsDelta;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 /**
  * @desription:
@@ -38,15 +43,85 @@ public interface UtxoLedgerUtxoStorageService {
 
     BatchOperation createWriteBatch();
 
-    Result saveUtxo(byte[] owner, Coin coin);
-
     Coin getUtxo(byte[] owner);
 
-    Result deleteUtxo(byte[] owner);
-
     byte[] getUtxoBytes(byte[] owner);
 
     List<byte[]> getAllUtxoBytes();
 
     List<Entry<byte[], byte[]>> getAllUtxoEntryBytes();
+
+    /**
+     * 地址索引的批量操作，需要和utxo的批量操作在同一个写入流程中执行
+     * Batch operation of the address index, it must be executed in the same write path as the utxo batch.
+     */
+    BatchOperation createAddressIndexWriteBatch();
+
+    /**
+     * 按地址分页获取utxo的key(txHash + index)，limit小于等于0时不限制
+     * Get a page of the utxo keys(txHash + index) owned by the address, no limit when limit is less than or equal to 0.
+     */
+    List<byte[]> getUtxoKeysByAddress(byte[] address, int start, int limit);
+
+    /**
+     * 按地址获取所有utxo，key为txHash + index，value为coin的字节
+     * Get all the utxo owned by the address, key is txHash + index, value is the bytes of the coin.
+     */
+    List<Entry<byte[], byte[]>> getUtxoEntryBytesByAddress(byte[] address);
+
+    /**
+     * 跨数据区域的批量操作，utxo、地址索引和交易在一次提交中原子生效
+     * Batch operation across data areas, the utxo, the address index and the transactions take effect atomically in one commit.
+     */
+    MultiAreaBatchOperation createMultiAreaWriteBatch();
+
+    /**
+     * 在批量操作中保存utxo及其地址索引
+     * Save the utxo and its address index in the batch.
+     */
+    Result saveUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin);
+
+    /**
+     * 在批量操作中删除utxo及其地址索引，coin为null时只删除utxo
+     * Delete the utxo and its address index in the batch, only the utxo is deleted when the coin is null.
+     */
+    Result deleteUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin);
+
+    /**
+     * 执行批量操作，并在同一次提交中更新utxo统计，提交成功后统计增量才在内存中生效
+     * Execute the batch and update the utxo statistics in the same commit, the delta is applied in memory only after the commit succeeds.
+     */
+    Result executeBatch(MultiAreaBatchOperation batch, UtxoStatsDelta delta);
+
+    /**
+     * 在提交锁内执行写入，不会和账本批量操作的提交交错，用于先读后写的数据转换
+     * Run the writer under the commit lock so it never interleaves with the commit of a ledger batch, used by the read-then-write data conversions.
+     */
+    Result executeInCommitLock(Supplier<Result> writer);
+
+    /**
+     * 获取utxo汇总统计的副本，不扫描utxo
+     * Get a copy of the utxo summary statistics, without scanning the utxo.
+     */
+    UtxoStatsPo getUtxoStats();
+
+    /**
+     * 在currentTime时仍处于时间锁定的金额
+     * The amount still time locked at currentTime.
+     */
+    long getTimeLockedAmount(long currentTime);
+
+    /**
+     * 在bestHeight时仍处于高度锁定的金额
+     * The amount still height locked at bestHeight.
+     */
+    long getHeightLockedAmount(long bestHeight);
+
+    /**
+     * 并行全量扫描utxo校验统计，不一致时记录日志并修复
+     * Verify the statistics with a parallel full utxo scan, log and repair them on a mismatch.
+     *
+     * @return 统计是否一致/whether the statistics were consistent
+     */
+    boolean verifyUtxoStats(ExecutorService executor);
 }
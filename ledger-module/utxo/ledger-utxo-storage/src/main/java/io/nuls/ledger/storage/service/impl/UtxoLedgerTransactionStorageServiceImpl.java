@@ -26,6 +26,7 @@ package io.nuls.ledger.storage.service.impl;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -35,8 +36,11 @@ import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.*;
 import io.nuls.ledger.storage.constant.LedgerStorageConstant;
 import io.nuls.ledger.storage.service.UtxoLedgerTransactionStorageService;
+import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
+import io.nuls.ledger.storage.util.TransactionStorageCodec;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * @desription:
@@ -52,6 +56,9 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
     @Autowired
     private DBService dbService;
 
+    @Autowired
+    private UtxoLedgerUtxoStorageService utxoLedgerUtxoStorageService;
+
     /**
      * 该方法在所有属性被设置之后调用，用于辅助对象初始化
      * This method is invoked after all properties are set, and is used to assist object initialization.
@@ -64,6 +71,32 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
         }
     }
 
+    /**
+     * 旧数据由Protostuff(ModelWrapper)编码，启动时不做全量转换，读到旧数据时才解码，并在提交锁内转换为原生编码
+     * 转换前确认数据没有被改动，避免把已被区块回滚删除的交易重新写回
+     * Old data is encoded by Protostuff(ModelWrapper). It is not converted on start, an old record is decoded only when it is read,
+     * and is then converted to the native codec under the commit lock. The record is checked to be unchanged first,
+     * so a transaction deleted by a block rollback is never written back.
+     */
+    private void convertToNativeCodec(byte[] hashBytes, byte[] oldBytes, Transaction tx) {
+        byte[] nativeBytes;
+        try {
+            nativeBytes = TransactionStorageCodec.encode(tx);
+        } catch (IOException e) {
+            Log.error(e);
+            return;
+        }
+        Result result = utxoLedgerUtxoStorageService.executeInCommitLock(() -> {
+            if (!Arrays.equals(oldBytes, dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes))) {
+                return Result.getSuccess();
+            }
+            return dbService.put(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes, nativeBytes);
+        });
+        if (result.isFailed()) {
+            Log.warn("convert ledger transaction to the native codec failed: " + result.getErrorCode().getMsg());
+        }
+    }
+
     @Override
     public Result saveTx(Transaction tx) {
         if (tx == null) {
@@ -76,9 +109,16 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
             Log.error(e);
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
+        byte[] txBytes;
+        try {
+            txBytes = TransactionStorageCodec.encode(tx);
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
         // 保存交易
-        Result result = dbService.putModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, txHashBytes, tx);
-        return result;
+        byte[] key = txHashBytes;
+        return utxoLedgerUtxoStorageService.executeInCommitLock(() -> dbService.put(LedgerStorageConstant.DB_NAME_LEDGER_TX, key, txBytes));
     }
 
     @Override
@@ -93,9 +133,19 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
             Log.error(e);
             throw new NulsRuntimeException(e);
         }
+        byte[] bytes = dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes);
+        if (bytes == null) {
+            return null;
+        }
+        if (TransactionStorageCodec.isNative(bytes)) {
+            return TransactionStorageCodec.decode(bytes, hash);
+        }
+        // 兼容未转换的旧数据
+        // Compatible with the old data that is not converted.
         Transaction tx = dbService.getModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes, Transaction.class);
         if (tx != null) {
             tx.setHash(hash);
+            convertToNativeCodec(hashBytes, bytes, tx);
         }
         return tx;
     }
@@ -113,8 +163,8 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
         // 删除交易
-        Result result = dbService.delete(LedgerStorageConstant.DB_NAME_LEDGER_TX, txHashBytes);
-        return result;
+        byte[] key = txHashBytes;
+        return utxoLedgerUtxoStorageService.executeInCommitLock(() -> dbService.delete(LedgerStorageConstant.DB_NAME_LEDGER_TX, key));
     }
 
     @Override
@@ -124,4 +174,30 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
         }
         return dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_TX, txBytes);
     }
+
+    @Override
+    public Result saveTx(MultiAreaBatchOperation batch, Transaction tx) {
+        if (batch == null || tx == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
+        }
+        try {
+            return batch.put(LedgerStorageConstant.DB_NAME_LEDGER_TX, tx.getHash().serialize(), TransactionStorageCodec.encode(tx));
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+    }
+
+    @Override
+    public Result deleteTx(MultiAreaBatchOperation batch, Transaction tx) {
+        if (batch == null || tx == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
+        }
+        try {
+            return batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_TX, tx.getHash().serialize());
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+    }
 }
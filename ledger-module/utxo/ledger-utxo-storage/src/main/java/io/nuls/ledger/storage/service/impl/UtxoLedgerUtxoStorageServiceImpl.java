@@ -23,12 +23,13 @@
  */
 package io.nuls.ledger.storage.service.impl;
 
-import io.nuls.core.tools.crypto.Hex;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -38,10 +39,26 @@ import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
 import io.nuls.ledger.storage.constant.LedgerStorageConstant;
+import io.nuls.ledger.storage.po.UtxoStatsPo;
 import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
+import io.nuls.ledger.storage.util.LockedAmountBuckets;
+import io.nuls.ledger.storage.util.UtxoAddressIndexUtil;
+import io.nuls.ledger.storage.util.UtxoStatsDelta;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static io.nuls.core.tools.str.StringUtils.bytes;
 
 /**
  * @desription:
@@ -50,6 +67,50 @@ import java.util.List;
 @Service
 public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageService, InitializingBean {
 
+    /**
+     * 地址索引已建立的标记，长度小于地址长度，不会被地址前缀匹配到
+     * The flag of the built address index, it is shorter than an address so it never matches an address prefix.
+     */
+    private static final byte[] ADDRESS_INDEX_BUILT_KEY = bytes("address_index_built");
+
+    private static final byte[] ADDRESS_INDEX_VALUE = new byte[0];
+
+    private static final int ADDRESS_INDEX_BATCH_SIZE = 10000;
+
+    private static final byte[] UTXO_STATS_KEY = bytes("utxo_stats");
+
+    /**
+     * 锁定金额分桶的key前缀，key = 前缀(1字节) + 解锁时间或高度(8字节)
+     * Key prefixes of the locked amount buckets, key = prefix(1 byte) + unlock time or height(8 bytes).
+     */
+    private static final byte TIME_LOCK_BUCKET_PREFIX = 'T';
+
+    private static final byte HEIGHT_LOCK_BUCKET_PREFIX = 'H';
+
+    /**
+     * 校验统计时并行扫描的分段数，按txHash的第一个字节切分
+     * Number of ranges scanned in parallel when verifying the statistics, split on the first byte of the txHash.
+     */
+    private static final int VERIFY_RANGE_COUNT = 16;
+
+    /**
+     * 统计的修改和utxo批量操作的提交都在该锁内进行，保证两者一致
+     * The statistics change and the utxo batch commit both happen under this lock so they stay consistent.
+     */
+    private final Lock statsLock = new ReentrantLock();
+
+    private UtxoStatsPo utxoStats;
+
+    private final LockedAmountBuckets timeLockBuckets = new LockedAmountBuckets();
+
+    private final LockedAmountBuckets heightLockBuckets = new LockedAmountBuckets();
+
+    /**
+     * 每次提交后递增，用于判断校验期间是否有新的写入
+     * Increased after every commit, used to tell whether anything was written during a verification.
+     */
+    private long statsVersion;
+
     /**
      * 通用数据存储服务
      * Universal data storage services.
@@ -67,24 +128,200 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
+        result = dbService.createArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+        if (dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX, ADDRESS_INDEX_BUILT_KEY) == null) {
+            buildAddressIndex();
+        }
+        result = dbService.createArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+        loadUtxoStats();
     }
 
-    @Override
-    public BatchOperation createWriteBatch() {
-        return dbService.createWriteBatch(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+    /**
+     * 加载utxo统计，旧数据没有统计时扫描一次全部utxo建立
+     * Load the utxo statistics, data created before the statistics existed is counted by a single full utxo scan.
+     */
+    private void loadUtxoStats() {
+        UtxoStatsPo stats = dbService.getModel(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS, UTXO_STATS_KEY, UtxoStatsPo.class);
+        if (stats == null) {
+            DBCursor cursor = dbService.openCursor(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+            if (cursor == null) {
+                throw new NulsRuntimeException(KernelErrorCode.DATA_ERROR);
+            }
+            Result result = replaceUtxoStats(scanUtxo(cursor));
+            if (result.isFailed()) {
+                throw new NulsRuntimeException(result.getErrorCode());
+            }
+            return;
+        }
+        utxoStats = stats;
+        loadBuckets(TIME_LOCK_BUCKET_PREFIX, timeLockBuckets);
+        loadBuckets(HEIGHT_LOCK_BUCKET_PREFIX, heightLockBuckets);
     }
 
-    @Override
-    public Result saveUtxo(byte[] owner, Coin coin) {
+    private void loadBuckets(byte prefix, LockedAmountBuckets buckets) {
+        DBCursor cursor = dbService.openCursor(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS, new byte[]{prefix});
+        if (cursor == null) {
+            throw new NulsRuntimeException(KernelErrorCode.DATA_ERROR);
+        }
         try {
-            Log.info("save utxo::" + Hex.encode(owner));
-            return dbService.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner, coin.serialize());
-        } catch (IOException e) {
-            Log.error(e);
-            return Result.getFailed(KernelErrorCode.IO_ERROR);
+            Entry<byte[], byte[]> entry;
+            while (cursor.hasNext()) {
+                entry = cursor.next();
+                buckets.add(ByteBuffer.wrap(entry.getKey(), 1, 8).getLong(), ByteBuffer.wrap(entry.getValue()).getLong());
+            }
+        } finally {
+            cursor.close();
         }
     }
 
+    /**
+     * 扫描游标范围内的utxo并累加统计，扫描结束后关闭游标
+     * Scan the utxo in the cursor range and accumulate the statistics, the cursor is closed afterwards.
+     */
+    private UtxoStatsDelta scanUtxo(DBCursor cursor) {
+        UtxoStatsDelta stats = new UtxoStatsDelta();
+        try {
+            Coin coin;
+            while (cursor.hasNext()) {
+                coin = new Coin();
+                try {
+                    coin.parse(cursor.next().getValue(), 0);
+                } catch (NulsException e) {
+                    Log.info("parse coin form db error");
+                    continue;
+                }
+                stats.addCoin(coin);
+            }
+        } finally {
+            cursor.close();
+        }
+        return stats;
+    }
+
+    /**
+     * 用扫描结果整体替换已存储的统计，调用方持有statsLock或处于初始化阶段
+     * Replace the stored statistics with a scan result, the caller holds statsLock or is initializing.
+     */
+    private Result replaceUtxoStats(UtxoStatsDelta scanned) {
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        String area = LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS;
+        for (Long point : timeLockBuckets.getBuckets().keySet()) {
+            batch.delete(area, getBucketKey(TIME_LOCK_BUCKET_PREFIX, point));
+        }
+        for (Long point : heightLockBuckets.getBuckets().keySet()) {
+            batch.delete(area, getBucketKey(HEIGHT_LOCK_BUCKET_PREFIX, point));
+        }
+        for (Map.Entry<Long, Long> entry : scanned.getTimeLockMap().entrySet()) {
+            batch.put(area, getBucketKey(TIME_LOCK_BUCKET_PREFIX, entry.getKey()), getAmountBytes(entry.getValue()));
+        }
+        for (Map.Entry<Long, Long> entry : scanned.getHeightLockMap().entrySet()) {
+            batch.put(area, getBucketKey(HEIGHT_LOCK_BUCKET_PREFIX, entry.getKey()), getAmountBytes(entry.getValue()));
+        }
+        UtxoStatsPo stats = new UtxoStatsPo(scanned.getTotalAmount(), scanned.getUtxoCount(), scanned.getPermanentLockedAmount());
+        batch.putModel(area, UTXO_STATS_KEY, stats);
+        Result result = batch.executeBatch();
+        if (result.isFailed()) {
+            return result;
+        }
+        utxoStats = stats;
+        timeLockBuckets.clear();
+        applyBuckets(timeLockBuckets, scanned.getTimeLockMap());
+        heightLockBuckets.clear();
+        applyBuckets(heightLockBuckets, scanned.getHeightLockMap());
+        statsVersion++;
+        return result;
+    }
+
+    private static byte[] getBucketKey(byte prefix, long point) {
+        return ByteBuffer.allocate(9).put(prefix).putLong(point).array();
+    }
+
+    private static byte[] getAmountBytes(long amount) {
+        return ByteBuffer.allocate(8).putLong(amount).array();
+    }
+
+    private static void applyBuckets(LockedAmountBuckets buckets, Map<Long, Long> changes) {
+        for (Map.Entry<Long, Long> entry : changes.entrySet()) {
+            buckets.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Result putBuckets(MultiAreaBatchOperation batch, byte prefix, LockedAmountBuckets buckets, Map<Long, Long> changes) {
+        Result result;
+        long amount;
+        for (Map.Entry<Long, Long> entry : changes.entrySet()) {
+            amount = buckets.get(entry.getKey()) + entry.getValue();
+            if (amount == 0) {
+                result = batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS, getBucketKey(prefix, entry.getKey()));
+            } else {
+                result = batch.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS, getBucketKey(prefix, entry.getKey()), getAmountBytes(amount));
+            }
+            if (result.isFailed()) {
+                return result;
+            }
+        }
+        return Result.getSuccess();
+    }
+
+    /**
+     * 旧数据没有地址索引，首次启动时用游标扫描一次全部utxo建立索引，分批提交
+     * Data created before the address index existed is indexed by a single cursor scan of all the utxo on the first start, committed in batches.
+     */
+    private void buildAddressIndex() {
+        DBCursor cursor = dbService.openCursor(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+        if (cursor == null) {
+            throw new NulsRuntimeException(KernelErrorCode.DATA_ERROR);
+        }
+        BatchOperation batch = createAddressIndexWriteBatch();
+        try {
+            int count = 0;
+            Entry<byte[], byte[]> entry;
+            Coin coin;
+            byte[] indexKey;
+            while (cursor.hasNext()) {
+                entry = cursor.next();
+                coin = new Coin();
+                try {
+                    coin.parse(entry.getValue(), 0);
+                } catch (NulsException e) {
+                    Log.info("parse coin form db error");
+                    continue;
+                }
+                indexKey = UtxoAddressIndexUtil.getIndexKey(coin, entry.getKey());
+                if (indexKey == null) {
+                    continue;
+                }
+                batch.put(indexKey, ADDRESS_INDEX_VALUE);
+                if (++count % ADDRESS_INDEX_BATCH_SIZE == 0) {
+                    executeAddressIndexBatch(batch);
+                    batch = createAddressIndexWriteBatch();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        batch.put(ADDRESS_INDEX_BUILT_KEY, ADDRESS_INDEX_VALUE);
+        executeAddressIndexBatch(batch);
+    }
+
+    private void executeAddressIndexBatch(BatchOperation batch) {
+        Result result = batch.executeBatch();
+        if (result.isFailed()) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+    }
+
+    @Override
+    public BatchOperation createWriteBatch() {
+        return dbService.createWriteBatch(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+    }
+
     @Override
     public Coin getUtxo(byte[] owner) {
         byte[] utxoBytes = getUtxoBytes(owner);
@@ -101,11 +338,6 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         return coin;
     }
 
-    @Override
-    public Result deleteUtxo(byte[] owner) {
-        return dbService.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner);
-    }
-
     @Override
     public byte[] getUtxoBytes(byte[] owner) {
         if (owner == null) {
@@ -124,4 +356,240 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         return dbService.entryList(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
     }
 
+    @Override
+    public MultiAreaBatchOperation createMultiAreaWriteBatch() {
+        return dbService.createMultiAreaWriteBatch();
+    }
+
+    @Override
+    public Result saveUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin) {
+        try {
+            Result result = batch.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner, coin.serialize());
+            if (result.isFailed()) {
+                return result;
+            }
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        byte[] indexKey = UtxoAddressIndexUtil.getIndexKey(coin, owner);
+        if (indexKey == null) {
+            return Result.getSuccess();
+        }
+        return batch.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX, indexKey, new byte[0]);
+    }
+
+    @Override
+    public Result deleteUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin) {
+        Result result = batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner);
+        if (result.isFailed()) {
+            return result;
+        }
+        byte[] indexKey = UtxoAddressIndexUtil.getIndexKey(coin, owner);
+        if (indexKey == null) {
+            return Result.getSuccess();
+        }
+        return batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX, indexKey);
+    }
+
+    @Override
+    public BatchOperation createAddressIndexWriteBatch() {
+        return dbService.createWriteBatch(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX);
+    }
+
+    @Override
+    public List<byte[]> getUtxoKeysByAddress(byte[] address, int start, int limit) {
+        List<byte[]> utxoKeyList = new ArrayList<>();
+        if (address == null) {
+            return utxoKeyList;
+        }
+        DBCursor cursor = dbService.openCursor(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS_INDEX, address);
+        if (cursor == null) {
+            return utxoKeyList;
+        }
+        try {
+            cursor.skip(start);
+            while (cursor.hasNext()) {
+                utxoKeyList.add(UtxoAddressIndexUtil.getUtxoKey(cursor.next().getKey()));
+                if (limit > 0 && utxoKeyList.size() >= limit) {
+                    break;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return utxoKeyList;
+    }
+
+    @Override
+    public List<Entry<byte[], byte[]>> getUtxoEntryBytesByAddress(byte[] address) {
+        List<byte[]> utxoKeyList = getUtxoKeysByAddress(address, 0, 0);
+        List<Entry<byte[], byte[]>> entryList = new ArrayList<>(utxoKeyList.size());
+        byte[] utxoBytes;
+        for (byte[] utxoKey : utxoKeyList) {
+            // 索引可能短暂领先于utxo数据，不存在的utxo直接跳过
+            // The index may briefly lead the utxo data, skip the utxo that does not exist.
+            utxoBytes = getUtxoBytes(utxoKey);
+            if (utxoBytes != null) {
+                entryList.add(new Entry<>(utxoKey, utxoBytes));
+            }
+        }
+        return entryList;
+    }
+
+    @Override
+    public Result executeBatch(MultiAreaBatchOperation batch, UtxoStatsDelta delta) {
+        statsLock.lock();
+        try {
+            UtxoStatsPo stats = utxoStats;
+            boolean changed = delta != null && !delta.isEmpty();
+            if (changed) {
+                stats = new UtxoStatsPo(utxoStats.getTotalAmount() + delta.getTotalAmount(),
+                        utxoStats.getUtxoCount() + delta.getUtxoCount(),
+                        utxoStats.getPermanentLockedAmount() + delta.getPermanentLockedAmount());
+                Result result = batch.putModel(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_STATS, UTXO_STATS_KEY, stats);
+                if (result.isFailed()) {
+                    return result;
+                }
+                result = putBuckets(batch, TIME_LOCK_BUCKET_PREFIX, timeLockBuckets, delta.getTimeLockMap());
+                if (result.isFailed()) {
+                    return result;
+                }
+                result = putBuckets(batch, HEIGHT_LOCK_BUCKET_PREFIX, heightLockBuckets, delta.getHeightLockMap());
+                if (result.isFailed()) {
+                    return result;
+                }
+            }
+            Result result = batch.executeBatch();
+            if (result.isFailed()) {
+                return result;
+            }
+            if (changed) {
+                utxoStats = stats;
+                applyBuckets(timeLockBuckets, delta.getTimeLockMap());
+                applyBuckets(heightLockBuckets, delta.getHeightLockMap());
+            }
+            statsVersion++;
+            return result;
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    @Override
+    public Result executeInCommitLock(Supplier<Result> writer) {
+        statsLock.lock();
+        try {
+            return writer.get();
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    @Override
+    public UtxoStatsPo getUtxoStats() {
+        statsLock.lock();
+        try {
+            return new UtxoStatsPo(utxoStats.getTotalAmount(), utxoStats.getUtxoCount(), utxoStats.getPermanentLockedAmount());
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    @Override
+    public long getTimeLockedAmount(long currentTime) {
+        statsLock.lock();
+        try {
+            return timeLockBuckets.getLockedAmount(currentTime);
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    @Override
+    public long getHeightLockedAmount(long bestHeight) {
+        statsLock.lock();
+        try {
+            return heightLockBuckets.getLockedAmount(bestHeight);
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean verifyUtxoStats(ExecutorService executor) {
+        List<DBCursor> cursorList = new ArrayList<>(VERIFY_RANGE_COUNT);
+        UtxoStatsPo expected;
+        Map<Long, Long> expectedTimeLockMap;
+        Map<Long, Long> expectedHeightLockMap;
+        long version;
+        // 在锁内打开游标，游标的快照和统计对应同一时刻
+        // The cursors are opened under the lock, so their snapshots and the statistics belong to the same moment.
+        statsLock.lock();
+        try {
+            byte[] fromKey = null;
+            byte[] toKey;
+            DBCursor cursor;
+            for (int i = 1; i <= VERIFY_RANGE_COUNT; i++) {
+                toKey = i == VERIFY_RANGE_COUNT ? null : getRangeBoundary(i);
+                cursor = dbService.openCursor(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, fromKey, toKey);
+                if (cursor == null) {
+                    for (DBCursor opened : cursorList) {
+                        opened.close();
+                    }
+                    return false;
+                }
+                cursorList.add(cursor);
+                fromKey = toKey;
+            }
+            expected = utxoStats;
+            expectedTimeLockMap = new TreeMap<>(timeLockBuckets.getBuckets());
+            expectedHeightLockMap = new TreeMap<>(heightLockBuckets.getBuckets());
+            version = statsVersion;
+        } finally {
+            statsLock.unlock();
+        }
+        List<Future<UtxoStatsDelta>> futureList = new ArrayList<>(cursorList.size());
+        for (DBCursor cursor : cursorList) {
+            futureList.add(executor.submit(() -> scanUtxo(cursor)));
+        }
+        UtxoStatsDelta scanned = new UtxoStatsDelta();
+        try {
+            for (Future<UtxoStatsDelta> future : futureList) {
+                scanned.merge(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Log.error(e);
+            return false;
+        }
+        if (scanned.getTotalAmount() == expected.getTotalAmount() && scanned.getUtxoCount() == expected.getUtxoCount() &&
+                scanned.getPermanentLockedAmount() == expected.getPermanentLockedAmount() &&
+                scanned.getTimeLockMap().equals(expectedTimeLockMap) && scanned.getHeightLockMap().equals(expectedHeightLockMap)) {
+            return true;
+        }
+        Log.error("utxo stats mismatch, stored total: " + expected.getTotalAmount() + ", count: " + expected.getUtxoCount() +
+                ", scanned total: " + scanned.getTotalAmount() + ", count: " + scanned.getUtxoCount());
+        statsLock.lock();
+        try {
+            if (version != statsVersion) {
+                Log.warn("utxo changed during the stats verification, skip repairing");
+                return false;
+            }
+            Result result = replaceUtxoStats(scanned);
+            if (result.isFailed()) {
+                Log.error("utxo stats repair failed: " + result.getMsg());
+            }
+        } finally {
+            statsLock.unlock();
+        }
+        return false;
+    }
+
+    /**
+     * utxo的key以txHash的序列化开头，前两个字节固定为摘要算法(0x00)和长度(0x20)
+     * A utxo key starts with the serialized txHash, whose first two bytes are the digest type(0x00) and the length(0x20).
+     */
+    private static byte[] getRangeBoundary(int index) {
+        return new byte[]{0x00, 0x20, (byte) (index * 256 / VERIFY_RANGE_COUNT)};
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.ledger.storage.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按解锁点（时间或高度）分桶的锁定金额，维护解锁点大于当前游标的金额之和
+ * The locked amounts bucketed by their unlock point(time or height), keeping the sum of the buckets after the cursor.
+ * 游标随当前时间或高度单调前进，查询的均摊复杂度为O(1)，游标后退（如区块回滚）时同样正确
+ * The cursor follows the current time or height forward so a query is amortized O(1), it stays correct when moving back(e.g. rollback).
+ * 非线程安全，由调用方加锁
+ * Not thread safe, the caller holds the lock.
+ */
+public class LockedAmountBuckets {
+
+    private final TreeMap<Long, Long> buckets = new TreeMap<>();
+
+    private long cursor = Long.MIN_VALUE;
+
+    /**
+     * 解锁点大于cursor的金额之和
+     * Sum of the buckets whose unlock point is greater than the cursor.
+     */
+    private long lockedAmount;
+
+    public long get(long point) {
+        Long amount = buckets.get(point);
+        return amount == null ? 0L : amount;
+    }
+
+    public void add(long point, long amount) {
+        long value = get(point) + amount;
+        if (value == 0) {
+            buckets.remove(point);
+        } else {
+            buckets.put(point, value);
+        }
+        if (point > cursor) {
+            lockedAmount += amount;
+        }
+    }
+
+    /**
+     * 解锁点大于current的金额之和，即在current时仍然锁定的金额
+     * Sum of the buckets whose unlock point is greater than current, i.e. the amount still locked at current.
+     */
+    public long getLockedAmount(long current) {
+        if (current > cursor) {
+            for (long amount : buckets.subMap(cursor, false, current, true).values()) {
+                lockedAmount -= amount;
+            }
+        } else if (current < cursor) {
+            for (long amount : buckets.subMap(current, false, cursor, true).values()) {
+                lockedAmount += amount;
+            }
+        }
+        cursor = current;
+        return lockedAmount;
+    }
+
+    public void clear() {
+        buckets.clear();
+        cursor = Long.MIN_VALUE;
+        lockedAmount = 0L;
+    }
+
+    public Map<Long, Long> getBuckets() {
+        return buckets;
+    }
+}
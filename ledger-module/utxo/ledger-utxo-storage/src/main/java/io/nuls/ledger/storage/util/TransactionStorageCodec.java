@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package io.nuls.ledger.storage.util;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+import io.nuls.kernel.utils.TransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * 交易存储编码，value = 编码标记(1字节) + 区块高度(int64) + 交易的NULS原生序列化字节
+ * 原生字节以交易类型开头，解码时由TransactionManager按类型创建交易
+ * 编码标记为0，Protostuff(ModelWrapper)的数据第一个字节是字段标签，不可能为0，以此区分旧数据
+ * Storage codec of the transactions, value = codec tag(1 byte) + block height(int64) + native NULS bytes of the transaction.
+ * The native bytes start with the transaction type, TransactionManager creates the transaction by the type when decoding.
+ * The codec tag is 0, the first byte of the Protostuff(ModelWrapper) data is a field tag which is never 0, that is how the old data is recognized.
+ */
+public class TransactionStorageCodec {
+
+    public static final byte NATIVE_CODEC = 0;
+
+    private static final int HEADER_LENGTH = 1 + SerializeUtils.sizeOfInt64();
+
+    public static byte[] encode(Transaction tx) throws IOException {
+        byte[] txBytes = tx.serialize();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(HEADER_LENGTH + txBytes.length);
+        NulsOutputStreamBuffer buffer = new NulsOutputStreamBuffer(bos);
+        buffer.write(NATIVE_CODEC);
+        buffer.writeInt64(tx.getBlockHeight());
+        buffer.write(txBytes);
+        return bos.toByteArray();
+    }
+
+    public static boolean isNative(byte[] bytes) {
+        return bytes != null && bytes.length > HEADER_LENGTH && bytes[0] == NATIVE_CODEC;
+    }
+
+    /**
+     * 解码原生编码的交易，不是原生编码时返回null
+     * Decode the natively encoded transaction, return null when the data is not natively encoded.
+     */
+    public static Transaction decode(byte[] bytes, NulsDigestData hash) {
+        if (!isNative(bytes)) {
+            return null;
+        }
+        try {
+            NulsByteBuffer byteBuffer = new NulsByteBuffer(bytes, 1);
+            long blockHeight = byteBuffer.readInt64();
+            Transaction tx = TransactionManager.getInstance(byteBuffer);
+            tx.setBlockHeight(blockHeight);
+            tx.setHash(hash);
+            return tx;
+        } catch (Exception e) {
+            Log.error(e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package io.nuls.ledger.storage.util;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.model.Address;
+import io.nuls.kernel.model.Coin;
+
+/**
+ * 地址索引key的组装与解析，key = 地址(23字节) + utxo的key(txHash + index)
+ * Builds and parses the keys of the address index, key = address(23 bytes) + utxo key(txHash + index)
+ */
+public class UtxoAddressIndexUtil {
+
+    private static final int ADDRESS_LENGTH = Address.ADDRESS_LENGTH;
+
+    public static byte[] getIndexKey(byte[] address, byte[] utxoKey) {
+        if (address == null || address.length != ADDRESS_LENGTH || utxoKey == null) {
+            return null;
+        }
+        byte[] indexKey = new byte[ADDRESS_LENGTH + utxoKey.length];
+        System.arraycopy(address, 0, indexKey, 0, ADDRESS_LENGTH);
+        System.arraycopy(utxoKey, 0, indexKey, ADDRESS_LENGTH, utxoKey.length);
+        return indexKey;
+    }
+
+    public static byte[] getIndexKey(Coin coin, byte[] utxoKey) {
+        return getIndexKey(getAddress(coin), utxoKey);
+    }
+
+    public static byte[] getUtxoKey(byte[] indexKey) {
+        if (indexKey == null || indexKey.length <= ADDRESS_LENGTH) {
+            return null;
+        }
+        byte[] utxoKey = new byte[indexKey.length - ADDRESS_LENGTH];
+        System.arraycopy(indexKey, ADDRESS_LENGTH, utxoKey, 0, utxoKey.length);
+        return utxoKey;
+    }
+
+    /**
+     * 获取coin所属地址，无法解析的脚本返回null
+     * Get the address of the coin, return null when the script can not be resolved.
+     */
+    public static byte[] getAddress(Coin coin) {
+        if (coin == null) {
+            return null;
+        }
+        try {
+            return coin.getAddress();
+        } catch (Exception e) {
+            Log.warn("can not resolve the address of the utxo", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.ledger.storage.util;
+
+import io.nuls.kernel.constant.NulsConstant;
+import io.nuls.kernel.model.Coin;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一次批量操作对utxo统计的增量，也用于全量扫描时累加统计
+ * The change a batch makes to the utxo statistics, also used to accumulate the statistics of a full scan.
+ * 按时间锁定和按高度锁定的金额按解锁点分桶，分别对应Coin.usable中的两种锁定方式
+ * The time locked and height locked amounts are bucketed by their unlock point, matching the two lock kinds of Coin.usable.
+ */
+public class UtxoStatsDelta {
+
+    private long totalAmount;
+
+    private long utxoCount;
+
+    private long permanentLockedAmount;
+
+    private final TreeMap<Long, Long> timeLockMap = new TreeMap<>();
+
+    private final TreeMap<Long, Long> heightLockMap = new TreeMap<>();
+
+    /**
+     * 新增了一个utxo
+     * A utxo is added.
+     */
+    public void addCoin(Coin coin) {
+        change(coin, 1);
+    }
+
+    /**
+     * 删除了一个utxo，coin为null（数据库中已不存在）时忽略
+     * A utxo is removed, ignored when the coin is null(it does not exist in the database).
+     */
+    public void removeCoin(Coin coin) {
+        change(coin, -1);
+    }
+
+    private void change(Coin coin, int sign) {
+        if (coin == null || coin.getNa() == null) {
+            return;
+        }
+        long amount = coin.getNa().getValue() * sign;
+        totalAmount += amount;
+        utxoCount += sign;
+        long lockTime = coin.getLockTime();
+        if (lockTime < 0) {
+            permanentLockedAmount += amount;
+        } else if (amount == 0) {
+            return;
+        } else if (lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE) {
+            timeLockMap.merge(lockTime, amount, UtxoStatsDelta::sum);
+        } else if (lockTime > 0) {
+            heightLockMap.merge(lockTime, amount, UtxoStatsDelta::sum);
+        }
+    }
+
+    /**
+     * 合并另一个增量，用于并行扫描的结果汇总
+     * Merge another delta, used to combine the results of a parallel scan.
+     */
+    public void merge(UtxoStatsDelta other) {
+        totalAmount += other.totalAmount;
+        utxoCount += other.utxoCount;
+        permanentLockedAmount += other.permanentLockedAmount;
+        for (Map.Entry<Long, Long> entry : other.timeLockMap.entrySet()) {
+            timeLockMap.merge(entry.getKey(), entry.getValue(), UtxoStatsDelta::sum);
+        }
+        for (Map.Entry<Long, Long> entry : other.heightLockMap.entrySet()) {
+            heightLockMap.merge(entry.getKey(), entry.getValue(), UtxoStatsDelta::sum);
+        }
+    }
+
+    /**
+     * 相互抵消的桶直接删除，使抵消后的增量为空
+     * Buckets that cancel out are removed, so a delta that cancels out is empty.
+     */
+    private static Long sum(Long a, Long b) {
+        long value = a + b;
+        return value == 0 ? null : value;
+    }
+
+    public boolean isEmpty() {
+        return utxoCount == 0 && totalAmount == 0 && permanentLockedAmount == 0 && timeLockMap.isEmpty() && heightLockMap.isEmpty();
+    }
+
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public long getUtxoCount() {
+        return utxoCount;
+    }
+
+    public long getPermanentLockedAmount() {
+        return permanentLockedAmount;
+    }
+
+    public TreeMap<Long, Long> getTimeLockMap() {
+        return timeLockMap;
+    }
+
+    public TreeMap<Long, Long> getHeightLockMap() {
+        return heightLockMap;
+    }
+}
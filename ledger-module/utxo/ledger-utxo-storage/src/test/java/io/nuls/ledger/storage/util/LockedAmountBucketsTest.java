@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.ledger.storage.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LockedAmountBucketsTest {
+
+    /**
+     * 游标前进时减去已解锁的桶，后退（如区块回滚）时加回
+     * Moving the cursor forward subtracts the unlocked buckets, moving it back(e.g. rollback) adds them again.
+     */
+    @Test
+    public void testCursorForwardAndBack() {
+        LockedAmountBuckets buckets = new LockedAmountBuckets();
+        buckets.add(10L, 100L);
+        buckets.add(20L, 200L);
+        buckets.add(30L, 300L);
+
+        assertEquals(600L, buckets.getLockedAmount(0L));
+        assertEquals(600L, buckets.getLockedAmount(9L));
+        // 解锁点等于当前值时已解锁
+        // A bucket is unlocked once the current value reaches its point.
+        assertEquals(500L, buckets.getLockedAmount(10L));
+        assertEquals(300L, buckets.getLockedAmount(25L));
+        assertEquals(0L, buckets.getLockedAmount(30L));
+        assertEquals(0L, buckets.getLockedAmount(100L));
+
+        assertEquals(300L, buckets.getLockedAmount(20L));
+        assertEquals(600L, buckets.getLockedAmount(5L));
+        assertEquals(300L, buckets.getLockedAmount(29L));
+    }
+
+    /**
+     * 游标之前的解锁点已经解锁，加到这些点的金额不计入锁定金额，游标后退后才计入
+     * The points before the cursor are already unlocked, amounts added there are not locked until the cursor moves back.
+     */
+    @Test
+    public void testAddBeforeCursor() {
+        LockedAmountBuckets buckets = new LockedAmountBuckets();
+        buckets.add(10L, 100L);
+        buckets.add(30L, 300L);
+        assertEquals(300L, buckets.getLockedAmount(20L));
+
+        buckets.add(15L, 50L);
+        buckets.add(20L, 70L);
+        buckets.add(25L, 40L);
+        assertEquals(340L, buckets.getLockedAmount(20L));
+
+        assertEquals(560L, buckets.getLockedAmount(0L));
+        assertEquals(340L, buckets.getLockedAmount(20L));
+    }
+
+    /**
+     * 桶的金额减为0时删除该桶，锁定金额同步减少
+     * A bucket is removed when its amount drops to 0, the locked amount drops with it.
+     */
+    @Test
+    public void testRemoveBucket() {
+        LockedAmountBuckets buckets = new LockedAmountBuckets();
+        buckets.add(10L, 100L);
+        buckets.add(20L, 200L);
+        assertEquals(300L, buckets.getLockedAmount(5L));
+
+        buckets.add(20L, -200L);
+        assertEquals(0L, buckets.get(20L));
+        assertEquals(1, buckets.getBuckets().size());
+        assertEquals(100L, buckets.getLockedAmount(5L));
+
+        buckets.add(10L, -100L);
+        assertEquals(0L, buckets.getLockedAmount(15L));
+        assertEquals(0L, buckets.getLockedAmount(0L));
+    }
+}
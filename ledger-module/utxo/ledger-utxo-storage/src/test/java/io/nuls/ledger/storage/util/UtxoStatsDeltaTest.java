@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.ledger.storage.util;
+
+import io.nuls.kernel.constant.NulsConstant;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UtxoStatsDeltaTest {
+
+    private static final long UNLOCK_TIME = NulsConstant.BlOCKHEIGHT_TIME_DIVIDE + 1000L;
+
+    /**
+     * 锁定方式与Coin.usable一致：-1永久锁定，大于BlOCKHEIGHT_TIME_DIVIDE按时间，其余正数按高度，0不锁定
+     * The lock kinds match Coin.usable: -1 is locked permanently, above BlOCKHEIGHT_TIME_DIVIDE by time,
+     * other positive values by height, 0 is not locked.
+     */
+    @Test
+    public void testLockClassification() {
+        UtxoStatsDelta delta = new UtxoStatsDelta();
+        delta.addCoin(coin(100L, 0L));
+        delta.addCoin(coin(200L, -1L));
+        delta.addCoin(coin(300L, UNLOCK_TIME));
+        delta.addCoin(coin(400L, 1286L));
+        delta.addCoin(coin(500L, NulsConstant.BlOCKHEIGHT_TIME_DIVIDE));
+
+        assertEquals(1500L, delta.getTotalAmount());
+        assertEquals(5L, delta.getUtxoCount());
+        assertEquals(200L, delta.getPermanentLockedAmount());
+        assertEquals(1, delta.getTimeLockMap().size());
+        assertEquals(Long.valueOf(300L), delta.getTimeLockMap().get(UNLOCK_TIME));
+        assertEquals(2, delta.getHeightLockMap().size());
+        assertEquals(Long.valueOf(400L), delta.getHeightLockMap().get(1286L));
+        assertEquals(Long.valueOf(500L), delta.getHeightLockMap().get(NulsConstant.BlOCKHEIGHT_TIME_DIVIDE));
+    }
+
+    /**
+     * 删除utxo抵消之前的新增，抵消后的增量为空，null被忽略
+     * Removing a utxo cancels the earlier add and the cancelled delta is empty, null is ignored.
+     */
+    @Test
+    public void testRemoveAndMerge() {
+        UtxoStatsDelta delta = new UtxoStatsDelta();
+        delta.addCoin(coin(300L, UNLOCK_TIME));
+        delta.addCoin(coin(200L, -1L));
+        delta.removeCoin(null);
+
+        UtxoStatsDelta other = new UtxoStatsDelta();
+        other.removeCoin(coin(300L, UNLOCK_TIME));
+        other.removeCoin(coin(200L, -1L));
+        delta.merge(other);
+
+        assertEquals(0L, delta.getTotalAmount());
+        assertEquals(0L, delta.getUtxoCount());
+        assertEquals(0L, delta.getPermanentLockedAmount());
+        assertTrue(delta.getTimeLockMap().isEmpty());
+        assertTrue(delta.isEmpty());
+    }
+
+    private Coin coin(long amount, long lockTime) {
+        return new Coin(new byte[23], Na.valueOf(amount), lockTime);
+    }
+}
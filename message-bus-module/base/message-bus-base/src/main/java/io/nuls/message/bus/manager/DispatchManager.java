@@ -30,11 +30,15 @@ import io.nuls.core.tools.disruptor.DisruptorUtil;
 import io.nuls.kernel.module.service.ModuleService;
 import io.nuls.kernel.thread.manager.NulsThreadFactory;
 import io.nuls.message.bus.constant.MessageBusConstant;
+import io.nuls.message.bus.model.DispatchStats;
 import io.nuls.message.bus.module.MessageBusModuleBootstrap;
 import io.nuls.message.bus.processor.MessageClassificationProcessor;
 import io.nuls.message.bus.model.ProcessData;
 import io.nuls.protocol.message.base.BaseMessage;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 消息处理的管理器
  * Message processing manager.
@@ -74,4 +78,25 @@ public class DispatchManager<M extends BaseMessage> {
     public void offer(ProcessData<M> data) {
         disruptorService.offer(disruptorName, data);
     }
+
+    /**
+     * 节点断开连接，清除它的流控状态
+     * The node is disconnected, clear its flow control state.
+     */
+    public void removeNode(String nodeId) {
+        if (messageProcesser != null) {
+            messageProcesser.removeNode(nodeId);
+        }
+    }
+
+    /**
+     * 获取各类消息处理队列的长度和等待时间统计
+     * Get the queue depth and wait time statistics of each message type.
+     */
+    public List<DispatchStats> getQueueStats() {
+        if (messageProcesser == null) {
+            return new ArrayList<>();
+        }
+        return messageProcesser.getStats();
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.message.bus.model;
+
+/**
+ * 某一种消息的处理队列统计信息
+ * The statistics of the dispatch queue of one message type.
+ */
+public class DispatchStats {
+
+    private String messageClass;
+
+    private int priority;
+
+    private int parallelism;
+
+    /**
+     * 当前等待处理的消息数量
+     * The number of messages currently waiting
+     */
+    private int queueSize;
+
+    /**
+     * 统计周期内的最大队列长度
+     * The max queue size in the statistics period
+     */
+    private int maxQueueSize;
+
+    /**
+     * 当前有消息等待的节点数量
+     * The number of nodes that currently have messages waiting
+     */
+    private int peerCount;
+
+    private long processedCount;
+
+    /**
+     * 因消息队列已满而暂停读取节点的次数
+     * The number of times a node was paused because the message queue was full
+     */
+    private long pausedCount;
+
+    /**
+     * 统计周期内消息从入队到开始处理的平均等待时间(毫秒)
+     * The average time (ms) from enqueue to the start of processing in the statistics period
+     */
+    private long avgWaitMillis;
+
+    /**
+     * 统计周期内的最长等待时间(毫秒)
+     * The longest wait time (ms) in the statistics period
+     */
+    private long maxWaitMillis;
+
+    public String getMessageClass() {
+        return messageClass;
+    }
+
+    public void setMessageClass(String messageClass) {
+        this.messageClass = messageClass;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public int getPeerCount() {
+        return peerCount;
+    }
+
+    public void setPeerCount(int peerCount) {
+        this.peerCount = peerCount;
+    }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    public void setProcessedCount(long processedCount) {
+        this.processedCount = processedCount;
+    }
+
+    public long getPausedCount() {
+        return pausedCount;
+    }
+
+    public void setPausedCount(long pausedCount) {
+        this.pausedCount = pausedCount;
+    }
+
+    public long getAvgWaitMillis() {
+        return avgWaitMillis;
+    }
+
+    public void setAvgWaitMillis(long avgWaitMillis) {
+        this.avgWaitMillis = avgWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return messageClass + "{priority=" + priority + ", parallelism=" + parallelism + ", queue=" + queueSize +
+                ", maxQueue=" + maxQueueSize + ", peers=" + peerCount + ", processed=" + processedCount +
+                ", paused=" + pausedCount + ", avgWait=" + avgWaitMillis + "ms, maxWait=" + maxWaitMillis + "ms}";
+    }
+}
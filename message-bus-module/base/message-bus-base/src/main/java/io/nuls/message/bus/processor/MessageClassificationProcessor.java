@@ -27,28 +27,53 @@ package io.nuls.message.bus.processor;
 import com.lmax.disruptor.EventHandler;
 import io.nuls.core.tools.disruptor.DisruptorData;
 import io.nuls.core.tools.log.Log;
-import io.nuls.kernel.thread.manager.NulsThreadFactory;
-import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.message.bus.constant.MessageBusConstant;
 import io.nuls.message.bus.handler.intf.NulsMessageHandler;
 import io.nuls.message.bus.manager.HandlerManager;
+import io.nuls.message.bus.model.DispatchStats;
 import io.nuls.message.bus.model.ProcessData;
-import io.nuls.message.bus.processor.thread.NulsMessageCall;
+import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.message.base.BaseMessage;
+import io.nuls.protocol.message.base.MessageHeader;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author ln
  */
 public class MessageClassificationProcessor<E extends BaseMessage> implements EventHandler<DisruptorData<ProcessData<E>>> {
 
+    /**
+     * 协议模块消息的处理优先级，未列出的为普通优先级
+     * The dispatch priority of the protocol module messages, the others are normal priority.
+     */
+    private static final Map<Short, Integer> PROTOCOL_PRIORITY = new HashMap<>();
+
+    static {
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_BLOCK, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_NEW_BLOCK, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_COMPACT_BLOCK, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_FORWARD_NEW_BLOCK, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_GET_SMALL_BLOCK, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_GET_TX_GROUP, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_TX_GROUP, MessageBusConstant.PRIORITY_HIGH);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_NEW_TX, MessageBusConstant.PRIORITY_LOW);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_FORWARD_NEW_TX, MessageBusConstant.PRIORITY_LOW);
+        PROTOCOL_PRIORITY.put(ProtocolConstant.PROTOCOL_GET_TRANSACTION, MessageBusConstant.PRIORITY_LOW);
+    }
+
     private HandlerManager handlerManager = HandlerManager.getInstance();
-    private Map<Class<? extends BaseMessage>, ExecutorService> handlerService = new HashMap<>();
+    private Map<Class<? extends BaseMessage>, MessageDispatcher> dispatcherMap = new ConcurrentHashMap<>();
+    private final PeerFlowController flowController = new PeerFlowController(
+            getConfig(MessageBusConstant.CFG_DISPATCH_PEER_HIGH_WATER, MessageBusConstant.DEFAULT_DISPATCH_PEER_HIGH_WATER),
+            getConfig(MessageBusConstant.CFG_DISPATCH_PEER_LOW_WATER, MessageBusConstant.DEFAULT_DISPATCH_PEER_LOW_WATER));
+    private long lastStatsLogTime = System.currentTimeMillis();
 
     @Override
     public void onEvent(DisruptorData<ProcessData<E>> disruptorData, long l, boolean b) throws Exception {
@@ -65,26 +90,84 @@ public class MessageClassificationProcessor<E extends BaseMessage> implements Ev
         ProcessData processData = disruptorData.getData();
         Class<? extends BaseMessage> serviceId = processData.getData().getClass();
         Set<NulsMessageHandler> handlers = handlerManager.getHandlerList(serviceId);
-        ThreadPoolExecutor handlerExecutor = (ThreadPoolExecutor) handlerService.get(serviceId);
-        if (handlerExecutor == null) {
-            handlerExecutor = TaskManager.createThreadPool(1, 1000000, new NulsThreadFactory(MessageBusConstant.MODULE_ID_MESSAGE_BUS, "disruptor-processor"));
-            handlerService.put(serviceId, handlerExecutor);
-        }
-        for (NulsMessageHandler handler : handlers) {
-            handlerExecutor.execute(new NulsMessageCall(processData, handler));
-            int size = handlerExecutor.getQueue().size();
-            if (size > 1000 && (size % 1000 == 0)) {
-                Log.info(serviceId + " queue size::::::::::::::::::::" + size);
+        if (!handlers.isEmpty()) {
+            MessageDispatcher dispatcher = dispatcherMap.get(serviceId);
+            if (dispatcher == null) {
+                dispatcher = createDispatcher(serviceId, processData.getData());
+                dispatcherMap.put(serviceId, dispatcher);
             }
+            dispatcher.offer(processData, handlers);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastStatsLogTime >= MessageBusConstant.DISPATCH_STATS_LOG_INTERVAL) {
+            lastStatsLogTime = now;
+            logStats();
+        }
+    }
+
+    private MessageDispatcher createDispatcher(Class<? extends BaseMessage> serviceId, BaseMessage message) {
+        int parallelism = getConfig(MessageBusConstant.CFG_DISPATCH_PARALLELISM + "." + serviceId.getSimpleName(),
+                getConfig(MessageBusConstant.CFG_DISPATCH_PARALLELISM, MessageBusConstant.DEFAULT_DISPATCH_PARALLELISM));
+        int capacity = getConfig(MessageBusConstant.CFG_DISPATCH_QUEUE_CAPACITY, MessageBusConstant.DEFAULT_DISPATCH_QUEUE_CAPACITY);
+        MessageDispatcher dispatcher = new MessageDispatcher(serviceId.getSimpleName(), getPriority(message), parallelism, capacity, flowController);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private int getPriority(BaseMessage message) {
+        MessageHeader header = message.getHeader();
+        if (header == null || header.getModuleId() != ProtocolConstant.MODULE_ID_PROTOCOL) {
+            return MessageBusConstant.PRIORITY_NORMAL;
+        }
+        Integer priority = PROTOCOL_PRIORITY.get(header.getMsgType());
+        return priority == null ? MessageBusConstant.PRIORITY_NORMAL : priority;
+    }
+
+    private int getConfig(String key, int defaultValue) {
+        if (NulsConfig.MODULES_CONFIG == null) {
+            return defaultValue;
+        }
+        return NulsConfig.MODULES_CONFIG.getCfgValue(MessageBusConstant.CFG_MESSAGE_BUS_SECTION, key, defaultValue);
+    }
+
+    /**
+     * 获取所有消息处理队列的统计信息
+     * Get the statistics of all message dispatch queues.
+     */
+    public List<DispatchStats> getStats() {
+        List<DispatchStats> list = new ArrayList<>();
+        for (MessageDispatcher dispatcher : dispatcherMap.values()) {
+            list.add(dispatcher.getStats(false));
+        }
+        return list;
+    }
+
+    /**
+     * 节点断开连接，清除它在各个消息队列中的流控状态
+     * The node is disconnected, clear its flow control state in all the message queues.
+     */
+    public void removeNode(String nodeId) {
+        for (MessageDispatcher dispatcher : dispatcherMap.values()) {
+            dispatcher.removePeer(nodeId);
+        }
+        flowController.removeNode(nodeId);
+    }
+
+    private void logStats() {
+        StringBuilder builder = new StringBuilder("message dispatch stats, paused nodes: ").append(flowController.getPausedCount());
+        for (MessageDispatcher dispatcher : dispatcherMap.values()) {
+            builder.append("\n    ").append(dispatcher.getStats(true));
         }
+        Log.info(builder.toString());
     }
 
     public void shutdown() {
-        if (handlerService == null) {
+        if (dispatcherMap == null) {
             return;
         }
-        for (Map.Entry<Class<? extends BaseMessage>, ExecutorService> entry : handlerService.entrySet()) {
-            entry.getValue().shutdown();
+        for (MessageDispatcher dispatcher : dispatcherMap.values()) {
+            dispatcher.shutdown();
         }
     }
 }
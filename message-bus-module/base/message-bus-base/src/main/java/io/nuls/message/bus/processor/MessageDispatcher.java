@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.message.bus.processor;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.message.bus.constant.MessageBusConstant;
+import io.nuls.message.bus.handler.intf.NulsMessageHandler;
+import io.nuls.message.bus.model.DispatchStats;
+import io.nuls.message.bus.model.ProcessData;
+import io.nuls.message.bus.processor.thread.NulsMessageCall;
+import io.nuls.network.model.Node;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 一种消息的处理队列，按来源节点分别排队并轮流取出，保证单个节点不能独占处理线程；
+ * 队列达到容量上限时暂停读取继续发送消息的节点，队列降到一半以下时恢复；低优先级的队列只在高优先级队列为空时取消息
+ * The dispatch queue of one message type. Messages are queued per source node and taken in turn,
+ * so a single node cannot monopolize the handler threads. When the queue reaches its capacity, reading from
+ * the nodes that keep sending is paused until the queue drops below half of it. A low priority queue takes
+ * messages only while the high priority queues are empty.
+ */
+class MessageDispatcher {
+
+    private static final String LOCAL_PEER = "";
+
+    private final String name;
+    private final int priority;
+    private final int parallelism;
+    private final int capacity;
+    private final PeerFlowController flowController;
+
+    private final Map<String, ArrayDeque<QueuedMessage>> peerQueues = new HashMap<>();
+    private final ArrayDeque<String> readyPeers = new ArrayDeque<>();
+    /**
+     * 因队列已满被本队列暂停读取的节点
+     * The nodes paused by this queue because it was full.
+     */
+    private final Set<String> pausedPeers = new HashSet<>();
+    private int size;
+    private volatile boolean running = true;
+
+    private ThreadPoolExecutor executor;
+
+    private long processedCount;
+    private long pausedCount;
+    private int maxQueueSize;
+    private long waitMillis;
+    private long waitCount;
+    private long maxWaitMillis;
+
+    MessageDispatcher(String name, int priority, int parallelism, int capacity, PeerFlowController flowController) {
+        this.name = name;
+        this.priority = priority;
+        this.parallelism = Math.max(1, parallelism);
+        this.capacity = capacity;
+        this.flowController = flowController;
+    }
+
+    void start() {
+        executor = TaskManager.createThreadPool(parallelism, parallelism, new NulsThreadFactory(MessageBusConstant.MODULE_ID_MESSAGE_BUS, "disruptor-processor-" + name));
+        for (int i = 0; i < parallelism; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * 消息入队，队列已满时不丢弃消息，而是暂停读取发送消息的网络节点，已读入的消息仍然入队
+     * Enqueue a message. When the queue is full the message is not dropped, reading from the sending node is paused instead,
+     * the messages already read are still queued.
+     */
+    void offer(ProcessData processData, Set<NulsMessageHandler> handlers) {
+        Node node = processData.getNode();
+        String peer = (node == null || node.getId() == null) ? LOCAL_PEER : node.getId();
+        synchronized (this) {
+            if (size >= capacity && !LOCAL_PEER.equals(peer) && pausedPeers.add(peer)) {
+                flowController.pause(node, this);
+                pausedCount++;
+                if (pausedCount % 1000 == 1) {
+                    Log.warn(name + " dispatch queue is full, pause reading from node " + peer + ", paused " + pausedCount + " times");
+                }
+            }
+            ArrayDeque<QueuedMessage> queue = peerQueues.get(peer);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                peerQueues.put(peer, queue);
+                readyPeers.add(peer);
+            }
+            queue.add(new QueuedMessage(processData, handlers));
+            size++;
+            if (size > maxQueueSize) {
+                maxQueueSize = size;
+            }
+            this.notify();
+        }
+        flowController.increase(node, priority);
+    }
+
+    private void work() {
+        while (running) {
+            QueuedMessage message;
+            try {
+                if (priority == MessageBusConstant.PRIORITY_LOW) {
+                    flowController.awaitHighPriorityIdle();
+                }
+                message = take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (message == null) {
+                continue;
+            }
+            long wait = System.currentTimeMillis() - message.time;
+            try {
+                for (NulsMessageHandler handler : message.handlers) {
+                    new NulsMessageCall(message.data, handler).run();
+                }
+            } finally {
+                flowController.decrease(message.data.getNode());
+                synchronized (this) {
+                    processedCount++;
+                    waitCount++;
+                    waitMillis += wait;
+                    if (wait > maxWaitMillis) {
+                        maxWaitMillis = wait;
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized QueuedMessage take() throws InterruptedException {
+        while (size == 0 && running) {
+            this.wait();
+        }
+        String peer = readyPeers.poll();
+        if (peer == null) {
+            return null;
+        }
+        ArrayDeque<QueuedMessage> queue = peerQueues.get(peer);
+        QueuedMessage message = queue.poll();
+        if (queue.isEmpty()) {
+            peerQueues.remove(peer);
+        } else {
+            readyPeers.add(peer);
+        }
+        size--;
+        flowController.taken(priority);
+        if (!pausedPeers.isEmpty() && size <= capacity / 2) {
+            for (String pausedPeer : pausedPeers) {
+                flowController.resume(pausedPeer, this);
+            }
+            pausedPeers.clear();
+        }
+        return message;
+    }
+
+    /**
+     * 节点断开连接，不再记录它的暂停状态
+     * The node is disconnected, its pause state is no longer tracked.
+     */
+    synchronized void removePeer(String peer) {
+        pausedPeers.remove(peer);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 获取统计信息，reset为true时开始新的统计周期
+     * Get the statistics, a new statistics period is started when reset is true.
+     */
+    synchronized DispatchStats getStats(boolean reset) {
+        DispatchStats stats = new DispatchStats();
+        stats.setMessageClass(name);
+        stats.setPriority(priority);
+        stats.setParallelism(parallelism);
+        stats.setQueueSize(size);
+        stats.setMaxQueueSize(Math.max(maxQueueSize, size));
+        stats.setPeerCount(peerQueues.size());
+        stats.setProcessedCount(processedCount);
+        stats.setPausedCount(pausedCount);
+        stats.setAvgWaitMillis(waitCount == 0 ? 0 : waitMillis / waitCount);
+        stats.setMaxWaitMillis(maxWaitMillis);
+        if (reset) {
+            maxQueueSize = size;
+            waitMillis = 0;
+            waitCount = 0;
+            maxWaitMillis = 0;
+        }
+        return stats;
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            running = false;
+            this.notifyAll();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class QueuedMessage {
+        private final ProcessData data;
+        private final Set<NulsMessageHandler> handlers;
+        private final long time = System.currentTimeMillis();
+
+        QueuedMessage(ProcessData data, Set<NulsMessageHandler> handlers) {
+            this.data = data;
+            this.handlers = handlers;
+        }
+    }
+}
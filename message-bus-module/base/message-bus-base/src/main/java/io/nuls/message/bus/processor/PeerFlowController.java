@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.message.bus.processor;
+
+import io.netty.channel.Channel;
+import io.nuls.core.tools.log.Log;
+import io.nuls.message.bus.constant.MessageBusConstant;
+import io.nuls.network.model.Node;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按节点统计待处理消息数量，超过高水位时关闭该节点通道的autoRead，降到低水位后恢复，把积压反压到网络层；
+ * 消息队列已满时也暂停读取发送消息的节点，所有暂停原因都解除后才恢复读取；
+ * 同时记录等待处理的高优先级消息数量，低优先级消息只在高优先级队列为空时处理
+ * Count the pending messages of each node, turn off autoRead of the node's channel above the high water mark and
+ * turn it back on below the low water mark, so the backlog pushes back to the network layer.
+ * A full message queue also pauses reading from the sending node, reading is resumed only when all the reasons of the pause are cleared.
+ * It also tracks the queued high priority messages, the low priority messages are handled only while the high priority queues are empty.
+ */
+class PeerFlowController {
+
+    private final int highWater;
+    private final int lowWater;
+
+    private final ConcurrentHashMap<String, Integer> pendingMap = new ConcurrentHashMap<>();
+
+    /**
+     * 暂停读取的节点，以及暂停它的原因(水位控制或者已满的消息队列)
+     * The paused nodes, and the holders pausing them(the water mark control or the full message queues).
+     */
+    private final Map<String, PausedNode> pausedMap = new HashMap<>();
+
+    private final AtomicInteger highQueued = new AtomicInteger();
+    private final Object highLock = new Object();
+
+    PeerFlowController(int highWater, int lowWater) {
+        this.highWater = highWater;
+        this.lowWater = Math.min(lowWater, highWater);
+    }
+
+    /**
+     * 消息入队
+     * A message is queued.
+     */
+    void increase(Node node, int priority) {
+        if (priority == MessageBusConstant.PRIORITY_HIGH) {
+            highQueued.incrementAndGet();
+        }
+        if (node == null || node.getId() == null) {
+            return;
+        }
+        Integer count = pendingMap.merge(node.getId(), 1, Integer::sum);
+        if (count >= highWater && pause(node, this)) {
+            Log.info("message backlog of node " + node.getId() + " reached " + count + ", pause reading");
+        }
+    }
+
+    /**
+     * 消息被取出处理
+     * A message is taken to be handled.
+     */
+    void taken(int priority) {
+        if (priority == MessageBusConstant.PRIORITY_HIGH && highQueued.decrementAndGet() <= 0) {
+            synchronized (highLock) {
+                highLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 消息处理完成
+     * A message is handled.
+     */
+    void decrease(Node node) {
+        if (node == null || node.getId() == null) {
+            return;
+        }
+        Integer count = pendingMap.computeIfPresent(node.getId(), (id, value) -> value <= 1 ? null : value - 1);
+        if (count == null || count <= lowWater) {
+            resume(node.getId(), this);
+        }
+    }
+
+    /**
+     * 有高优先级消息等待处理时阻塞，直到高优先级队列全部被取空
+     * Block while high priority messages are queued, until all the high priority queues are taken empty.
+     */
+    void awaitHighPriorityIdle() throws InterruptedException {
+        if (highQueued.get() <= 0) {
+            return;
+        }
+        synchronized (highLock) {
+            while (highQueued.get() > 0) {
+                highLock.wait();
+            }
+        }
+    }
+
+    /**
+     * 以holder的名义暂停读取节点，节点此前没有被暂停时返回true
+     * Pause reading from the node on behalf of the holder, return true when the node was not paused before.
+     */
+    boolean pause(Node node, Object holder) {
+        synchronized (pausedMap) {
+            PausedNode paused = pausedMap.get(node.getId());
+            if (paused == null) {
+                paused = new PausedNode(node);
+                pausedMap.put(node.getId(), paused);
+                paused.holders.add(holder);
+                setAutoRead(node, false);
+                return true;
+            }
+            paused.holders.add(holder);
+            return false;
+        }
+    }
+
+    /**
+     * 解除holder对节点的暂停，没有其它暂停原因时恢复读取
+     * Release the pause of the node held by the holder, reading is resumed when no other holder pauses it.
+     */
+    void resume(String nodeId, Object holder) {
+        synchronized (pausedMap) {
+            PausedNode paused = pausedMap.get(nodeId);
+            if (paused == null || !paused.holders.remove(holder) || !paused.holders.isEmpty()) {
+                return;
+            }
+            pausedMap.remove(nodeId);
+            setAutoRead(paused.node, true);
+        }
+    }
+
+    /**
+     * 节点断开连接，清除它的所有流控状态
+     * The node is disconnected, clear all its flow control state.
+     */
+    void removeNode(String nodeId) {
+        pendingMap.remove(nodeId);
+        synchronized (pausedMap) {
+            pausedMap.remove(nodeId);
+        }
+    }
+
+    int getPending(String nodeId) {
+        Integer count = pendingMap.get(nodeId);
+        return count == null ? 0 : count;
+    }
+
+    int getPausedCount() {
+        synchronized (pausedMap) {
+            return pausedMap.size();
+        }
+    }
+
+    private void setAutoRead(Node node, boolean autoRead) {
+        Channel channel = node.getChannel();
+        if (channel != null) {
+            channel.config().setAutoRead(autoRead);
+        }
+    }
+
+    private static class PausedNode {
+        private final Node node;
+        private final Set<Object> holders = new HashSet<>();
+
+        PausedNode(Node node) {
+            this.node = node;
+        }
+    }
+}
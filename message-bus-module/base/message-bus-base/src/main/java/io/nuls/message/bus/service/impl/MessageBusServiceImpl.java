@@ -75,6 +75,14 @@ public class MessageBusServiceImpl implements MessageBusService {
         }
     }
 
+    @Override
+    public void nodeDisconnected(Node node) {
+        if (node == null || node.getId() == null) {
+            return;
+        }
+        this.processorManager.removeNode(node.getId());
+    }
+
     public void shutdown() {
         this.processorManager.shutdown();
     }
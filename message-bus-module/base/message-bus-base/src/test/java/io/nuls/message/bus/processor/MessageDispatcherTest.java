@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.message.bus.processor;
+
+import io.nuls.message.bus.constant.MessageBusConstant;
+import io.nuls.message.bus.filter.NulsMessageFilter;
+import io.nuls.message.bus.filter.NulsMessageFilterChain;
+import io.nuls.message.bus.handler.intf.NulsMessageHandler;
+import io.nuls.message.bus.model.DispatchStats;
+import io.nuls.message.bus.model.ProcessData;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.message.base.CommonStringMessage;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MessageDispatcherTest {
+
+    /**
+     * 同一节点的大量消息不能阻塞其他节点的消息，各节点轮流处理
+     * A flood from one node must not hold back the messages of other nodes, the nodes are served in turn.
+     */
+    @Test
+    public void testPeerFairness() throws InterruptedException {
+        Node nodeA = new Node("a", "1.1.1.1", 8003, 8003, Node.OUT);
+        Node nodeB = new Node("b", "2.2.2.2", 8003, 8003, Node.OUT);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(4);
+        Set<NulsMessageHandler> handlers = handlers(order, latch);
+
+        MessageDispatcher dispatcher = new MessageDispatcher("test", MessageBusConstant.PRIORITY_NORMAL, 1, 100, new PeerFlowController(100, 10));
+        dispatcher.offer(new ProcessData<>(message("a1"), nodeA), handlers);
+        dispatcher.offer(new ProcessData<>(message("a2"), nodeA), handlers);
+        dispatcher.offer(new ProcessData<>(message("a3"), nodeA), handlers);
+        dispatcher.offer(new ProcessData<>(message("b1"), nodeB), handlers);
+        dispatcher.start();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a1", "b1", "a2", "a3"), order);
+        DispatchStats stats = dispatcher.getStats(false);
+        for (int i = 0; i < 100 && stats.getProcessedCount() < 4; i++) {
+            Thread.sleep(10L);
+            stats = dispatcher.getStats(false);
+        }
+        assertEquals(4, stats.getProcessedCount());
+        assertEquals(0, stats.getQueueSize());
+        assertEquals(4, stats.getMaxQueueSize());
+        dispatcher.shutdown();
+    }
+
+    /**
+     * 队列已满时消息仍然入队，但暂停读取发送消息的节点，节点断开后清除暂停状态
+     * A full queue still queues the messages but pauses reading from the sending node, the pause is cleared when the node disconnects.
+     */
+    @Test
+    public void testCapacity() {
+        Node node = new Node("a", "1.1.1.1", 8003, 8003, Node.OUT);
+        Set<NulsMessageHandler> handlers = handlers(new ArrayList<>(), new CountDownLatch(0));
+        PeerFlowController flowController = new PeerFlowController(100, 10);
+        MessageDispatcher dispatcher = new MessageDispatcher("test", MessageBusConstant.PRIORITY_NORMAL, 1, 2, flowController);
+
+        dispatcher.offer(new ProcessData<>(message("1"), node), handlers);
+        dispatcher.offer(new ProcessData<>(message("2"), node), handlers);
+        dispatcher.offer(new ProcessData<>(message("3"), node), handlers);
+        dispatcher.offer(new ProcessData<>(message("local")), handlers);
+
+        assertEquals(4, dispatcher.size());
+        assertEquals(3, flowController.getPending(node.getId()));
+        assertEquals(1, flowController.getPausedCount());
+        assertEquals(1, dispatcher.getStats(false).getPausedCount());
+
+        dispatcher.removePeer(node.getId());
+        flowController.removeNode(node.getId());
+        assertEquals(0, flowController.getPending(node.getId()));
+        assertEquals(0, flowController.getPausedCount());
+    }
+
+    /**
+     * 同一节点被水位控制和已满队列同时暂停时，两者都解除后才恢复
+     * A node paused by both the water mark and a full queue is resumed only when both are released.
+     */
+    @Test
+    public void testPauseHolders() {
+        Node node = new Node("a", "1.1.1.1", 8003, 8003, Node.OUT);
+        PeerFlowController flowController = new PeerFlowController(1, 0);
+        Object queue = new Object();
+
+        flowController.increase(node, MessageBusConstant.PRIORITY_NORMAL);
+        assertFalse(flowController.pause(node, queue));
+        assertEquals(1, flowController.getPausedCount());
+
+        flowController.decrease(node);
+        assertEquals(1, flowController.getPausedCount());
+        flowController.resume(node.getId(), queue);
+        assertEquals(0, flowController.getPausedCount());
+    }
+
+    private CommonStringMessage message(String text) {
+        CommonStringMessage message = new CommonStringMessage();
+        message.setMessage(text);
+        return message;
+    }
+
+    private Set<NulsMessageHandler> handlers(List<String> order, CountDownLatch latch) {
+        Set<NulsMessageHandler> handlers = new HashSet<>();
+        handlers.add(new NulsMessageHandler<CommonStringMessage>() {
+            @Override
+            public void addFilter(NulsMessageFilter<CommonStringMessage> filter) {
+            }
+
+            @Override
+            public NulsMessageFilterChain getFilterChian() {
+                return null;
+            }
+
+            @Override
+            public void onMessage(CommonStringMessage message, Node fromNode) {
+                order.add(message.getMessage());
+                latch.countDown();
+            }
+        });
+        return handlers;
+    }
+}
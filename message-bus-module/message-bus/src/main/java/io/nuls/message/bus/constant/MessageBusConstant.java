@@ -72,4 +72,66 @@ public interface MessageBusConstant extends NulsConstant {
      * The message type is the message to get the message body
      */
     short MSG_TYPE_GET_MSG_BODY_MSG = 2;
+
+    /**
+     * 消息处理优先级：区块、小区块等共识相关消息
+     * Message dispatch priority: block, small block and other consensus traffic.
+     */
+    int PRIORITY_HIGH = 0;
+
+    /**
+     * 消息处理优先级：普通消息
+     * Message dispatch priority: ordinary messages.
+     */
+    int PRIORITY_NORMAL = 1;
+
+    /**
+     * 消息处理优先级：交易转发消息，只在高优先级消息队列为空时处理
+     * Message dispatch priority: transaction relay, handled only while the high priority queues are empty.
+     */
+    int PRIORITY_LOW = 2;
+
+    /**
+     * 消息总线配置项section名称
+     * The configuration section name of the message-bus module.
+     */
+    String CFG_MESSAGE_BUS_SECTION = "msg-bus";
+
+    /**
+     * 每种消息的处理线程数，可在后面加上消息类名单独配置，如dispatch.parallelism.NewTxMessage
+     * The number of handler threads of each message type, it can be set per message class by appending the class name, e.g. dispatch.parallelism.NewTxMessage
+     */
+    String CFG_DISPATCH_PARALLELISM = "dispatch.parallelism";
+
+    /**
+     * 每种消息等待处理的最大数量
+     * The maximum number of pending messages of each message type.
+     */
+    String CFG_DISPATCH_QUEUE_CAPACITY = "dispatch.queue.capacity";
+
+    /**
+     * 单个节点待处理消息达到此数量时暂停读取该节点
+     * Reading from a node is paused when its pending messages reach this count.
+     */
+    String CFG_DISPATCH_PEER_HIGH_WATER = "dispatch.peer.high.water";
+
+    /**
+     * 单个节点待处理消息降到此数量时恢复读取该节点
+     * Reading from a node is resumed when its pending messages drop to this count.
+     */
+    String CFG_DISPATCH_PEER_LOW_WATER = "dispatch.peer.low.water";
+
+    int DEFAULT_DISPATCH_PARALLELISM = 1;
+
+    int DEFAULT_DISPATCH_QUEUE_CAPACITY = 200000;
+
+    int DEFAULT_DISPATCH_PEER_HIGH_WATER = 5000;
+
+    int DEFAULT_DISPATCH_PEER_LOW_WATER = 1000;
+
+    /**
+     * 消息队列统计信息的日志输出间隔(毫秒)
+     * The interval (ms) of logging the message queue statistics.
+     */
+    long DISPATCH_STATS_LOG_INTERVAL = 60000L;
 }
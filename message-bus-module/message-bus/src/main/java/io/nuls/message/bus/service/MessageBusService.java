@@ -73,6 +73,14 @@ public interface MessageBusService {
      */
     void receiveMessage(BaseMessage message, Node node);
 
+    /**
+     * 节点断开连接时调用，清除该节点在消息处理中的流控状态
+     * Called when a node is disconnected, it clears the flow control state of the node in message dispatching.
+     *
+     * @param node 断开连接的节点/the disconnected node
+     */
+    void nodeDisconnected(Node node);
+
     /**
      * 广播消息
      * broadcast to nodes except "excludeNode"
@@ -25,11 +25,13 @@
 
 package io.nuls.network.manager;
 
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
-import io.nuls.kernel.model.BaseNulsData;
 import io.nuls.network.constant.NetworkErrorCode;
 import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.model.BroadcastResult;
@@ -38,6 +40,7 @@ import io.nuls.network.model.NodeGroup;
 import io.nuls.protocol.message.base.BaseMessage;
 import io.nuls.protocol.message.base.MessageHeader;
 
+import java.io.IOException;
 import java.util.*;
 
 public class BroadcastHandler {
@@ -141,18 +144,66 @@ public class BroadcastHandler {
                 }
                 nodeList = nodeBroadcastList;
             }
+            List<Node> targetList = new ArrayList<>();
             for (Node node : nodeList) {
                 if (excludeNode != null && node.getId().equals(excludeNode.getId())) {
                     continue;
                 }
-                BroadcastResult br = broadcastToNode(message, node, asyn);
-                if (br.isSuccess()) {
-                    successCount++;
-                    result.getBroadcastNodes().add(node);
-                } else if (br.getErrorCode().equals(NetworkErrorCode.NET_MESSAGE_ERROR)) {
-                    return br;
+                if (checkNode(node).isSuccess()) {
+                    targetList.add(node);
                 }
             }
+            if (targetList.isEmpty()) {
+                return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_FAIL);
+            }
+
+            //消息只序列化一次，各节点共享同一块缓冲区
+            //the message is serialized only once, all nodes share the same buffer
+            ByteBuf buffer;
+            try {
+                buffer = encode(message);
+            } catch (Exception e) {
+                Log.error(e);
+                return new BroadcastResult(false, NetworkErrorCode.NET_MESSAGE_ERROR);
+            }
+            List<ChannelFuture> futureList = new ArrayList<>(targetList.size());
+            Map<EventLoop, List<Channel>> flushMap = new HashMap<>();
+            try {
+                for (Node node : targetList) {
+                    Channel channel = node.getChannel();
+                    futureList.add(channel.write(buffer.retainedDuplicate()));
+                    List<Channel> channelList = flushMap.get(channel.eventLoop());
+                    if (channelList == null) {
+                        channelList = new ArrayList<>();
+                        flushMap.put(channel.eventLoop(), channelList);
+                    }
+                    channelList.add(channel);
+                }
+            } finally {
+                buffer.release();
+            }
+            //同一个EventLoop上的通道在一次任务中统一flush
+            //channels on the same event loop are flushed together in one task
+            for (Map.Entry<EventLoop, List<Channel>> entry : flushMap.entrySet()) {
+                final List<Channel> channelList = entry.getValue();
+                entry.getKey().execute(() -> {
+                    for (Channel channel : channelList) {
+                        channel.flush();
+                    }
+                });
+            }
+
+            for (int i = 0; i < targetList.size(); i++) {
+                if (!asyn) {
+                    ChannelFuture future = futureList.get(i);
+                    future.await();
+                    if (!future.isSuccess()) {
+                        continue;
+                    }
+                }
+                successCount++;
+                result.getBroadcastNodes().add(targetList.get(i));
+            }
 
             if (successCount == 0) {
                 return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_FAIL);
@@ -166,21 +217,12 @@ public class BroadcastHandler {
     }
 
     public BroadcastResult broadcastToANode(BaseMessage message, Node node, boolean asyn) {
-        if (!node.isAlive()) {
-            return new BroadcastResult(false, NetworkErrorCode.NET_NODE_DEAD);
-        }
-        if (node.getChannel() == null || !node.getChannel().isActive()) {
-            return new BroadcastResult(false, NetworkErrorCode.NET_NODE_MISS_CHANNEL);
+        BroadcastResult checkResult = checkNode(node);
+        if (!checkResult.isSuccess()) {
+            return checkResult;
         }
         try {
-            MessageHeader header = message.getHeader();
-            byte[] serialize = header.serialize();
-            header.setMagicNumber(networkParam.getPacketMagic());
-
-            BaseNulsData body = message.getMsgBody();
-            header.setLength(body.size());
-
-            ChannelFuture future = node.getChannel().writeAndFlush(Unpooled.wrappedBuffer(message.serialize()));
+            ChannelFuture future = node.getChannel().writeAndFlush(encode(message));
             if (!asyn) {
                 future.await();
                 boolean success = future.isSuccess();
@@ -194,4 +236,31 @@ public class BroadcastHandler {
         }
         return new BroadcastResult(true, KernelErrorCode.SUCCESS);
     }
+
+    private BroadcastResult checkNode(Node node) {
+        if (!node.isAlive()) {
+            return new BroadcastResult(false, NetworkErrorCode.NET_NODE_DEAD);
+        }
+        if (node.getChannel() == null || !node.getChannel().isActive()) {
+            return new BroadcastResult(false, NetworkErrorCode.NET_NODE_MISS_CHANNEL);
+        }
+        return new BroadcastResult(true, KernelErrorCode.SUCCESS);
+    }
+
+    /**
+     * 填充消息头并把消息序列化到池化的直接内存缓冲区中，调用方负责释放
+     * Fill in the message header and serialize the message into a pooled direct buffer, the caller is responsible for releasing it.
+     */
+    private ByteBuf encode(BaseMessage message) throws IOException {
+        MessageHeader header = message.getHeader();
+        header.setMagicNumber(networkParam.getPacketMagic());
+        byte[] body = message.getBodyBytes();
+        header.setLength(body.length);
+
+        byte[] headerBytes = header.serialize();
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(headerBytes.length + body.length);
+        buffer.writeBytes(headerBytes);
+        buffer.writeBytes(body);
+        return buffer;
+    }
 }
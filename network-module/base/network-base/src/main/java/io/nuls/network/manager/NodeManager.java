@@ -34,6 +34,7 @@ import io.nuls.core.tools.str.StringUtils;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.constant.NetworkConstant;
 import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.model.Node;
@@ -71,6 +72,8 @@ public class NodeManager implements Runnable {
 
     private NetworkStorageService networkStorageService;
 
+    private MessageBusService messageBusService;
+
     private BroadcastHandler broadcastHandler;
 
     boolean running;
@@ -293,6 +296,11 @@ public class NodeManager implements Runnable {
             node.destroy();
             removeNodeFromGroup(node);
             removeNodeHandler(node);
+            // 清除消息处理中该节点的流控状态
+            // Clear the flow control state of the node in message dispatching.
+            if (getMessageBusService() != null) {
+                getMessageBusService().nodeDisconnected(node);
+            }
         } finally {
             lock.unlock();
         }
@@ -389,6 +397,13 @@ public class NodeManager implements Runnable {
         return this.networkStorageService;
     }
 
+    private MessageBusService getMessageBusService() {
+        if (null == this.messageBusService) {
+            this.messageBusService = NulsContext.getServiceBean(MessageBusService.class);
+        }
+        return this.messageBusService;
+    }
+
     public void tryToConnectMySelf() {
         String externalIp = getNetworkStorageService().getExternalIp();
         if (StringUtils.isBlank(externalIp)) {
@@ -76,6 +76,12 @@ public class Node extends BaseNulsData {
 
     private Channel channel;
 
+    /**
+     * 握手时对方声明的程序版本
+     * The program version the peer declared in the handshake.
+     */
+    private String version;
+
     @Override
     public int size() {
         int s = 0;
@@ -323,6 +329,14 @@ public class Node extends BaseNulsData {
         this.bestBlockHash = bestBlockHash;
     }
 
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
     public long getTimeOffset() {
         return timeOffset;
     }
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.cache;
+
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.Result;
+import io.nuls.message.bus.service.MessageBusService;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.message.SendCompactMessage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录对等节点的紧凑区块状态：哪些节点支持紧凑区块、哪些节点要求本节点主动推送，以及本节点选择的高带宽节点
+ * 本节点选择最近最先送达新区块的几个节点，请求它们主动推送紧凑区块，省去转发hash、请求小区块的往返
+ * Keeps the compact block state of the peers: which peers support compact blocks, which peers asked this node
+ * to push them, and the high-bandwidth peers selected by this node.
+ * This node selects the few peers that most recently delivered a new block first, and asks them to push
+ * compact blocks unsolicited, saving the round trips of forwarding the hash and requesting the small block.
+ */
+public class CompactBlockPeerManager {
+
+    private static final CompactBlockPeerManager INSTANCE = new CompactBlockPeerManager();
+
+    /**
+     * 已声明支持紧凑区块的节点id
+     * Ids of the peers that announced compact block support.
+     */
+    private final Set<String> compactPeers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 要求本节点主动推送紧凑区块的节点
+     * The peers that asked this node to push compact blocks.
+     */
+    private final Map<String, Node> pushPeers = new ConcurrentHashMap<>();
+
+    /**
+     * 已向其声明支持紧凑区块的节点id
+     * Ids of the peers this node has announced compact block support to.
+     */
+    private final Set<String> announcedPeers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本节点选择的高带宽节点，最近送达新区块的排在前面
+     * The high-bandwidth peers selected by this node, the most recent deliverer first.
+     */
+    private final LinkedList<Node> highBandwidthPeers = new LinkedList<>();
+
+    private MessageBusService messageBusService;
+
+    private CompactBlockPeerManager() {
+    }
+
+    public static CompactBlockPeerManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 向节点声明本节点支持紧凑区块(低带宽模式)，每个节点只声明一次
+     * Announce compact block support(low-bandwidth mode) to the peer, only once for each peer.
+     */
+    public void announce(Node node) {
+        if (null == node || !announcedPeers.add(node.getId())) {
+            return;
+        }
+        Result result = getMessageBusService().sendToNode(new SendCompactMessage(false), node, true);
+        if (result.isFailed()) {
+            announcedPeers.remove(node.getId());
+        }
+    }
+
+    /**
+     * 处理对等节点的声明
+     * Handle the announcement of a peer.
+     *
+     * @param node          对等节点/the peer
+     * @param highBandwidth 是否要求本节点主动推送/whether the peer asks this node to push compact blocks
+     */
+    public void onAnnounced(Node node, boolean highBandwidth) {
+        compactPeers.add(node.getId());
+        if (highBandwidth) {
+            pushPeers.put(node.getId(), node);
+        } else {
+            pushPeers.remove(node.getId());
+        }
+        announce(node);
+    }
+
+    /**
+     * 节点最先送达了一个新区块，将它放到高带宽节点的最前面，超出数量时取消最久未送达新区块的节点
+     * The peer delivered a new block first, move it to the front of the high-bandwidth peers,
+     * and release the one which has not delivered a block for the longest time when there are too many.
+     */
+    public void onBlockFirstReceived(Node node) {
+        if (null == node || !compactPeers.contains(node.getId())) {
+            return;
+        }
+        Node evicted = null;
+        synchronized (highBandwidthPeers) {
+            boolean existed = highBandwidthPeers.removeIf(peer -> peer.getId().equals(node.getId()));
+            highBandwidthPeers.addFirst(node);
+            if (existed) {
+                return;
+            }
+            if (highBandwidthPeers.size() > ProtocolConstant.COMPACT_BLOCK_HIGH_BANDWIDTH_PEERS) {
+                evicted = highBandwidthPeers.removeLast();
+            }
+        }
+        getMessageBusService().sendToNode(new SendCompactMessage(true), node, true);
+        if (null != evicted) {
+            getMessageBusService().sendToNode(new SendCompactMessage(false), evicted, true);
+        }
+    }
+
+    public boolean isCompactPeer(Node node) {
+        return null != node && compactPeers.contains(node.getId());
+    }
+
+    /**
+     * 获取要求本节点主动推送紧凑区块的节点
+     * Get the peers that asked this node to push compact blocks.
+     */
+    public Collection<Node> getPushPeers() {
+        return new ArrayList<>(pushPeers.values());
+    }
+
+    /**
+     * 节点不可用时清除它的状态
+     * Clear the state of a peer which is not available any more.
+     */
+    public void removeNode(Node node) {
+        compactPeers.remove(node.getId());
+        pushPeers.remove(node.getId());
+        announcedPeers.remove(node.getId());
+        synchronized (highBandwidthPeers) {
+            highBandwidthPeers.removeIf(peer -> peer.getId().equals(node.getId()));
+        }
+    }
+
+    private MessageBusService getMessageBusService() {
+        if (null == messageBusService) {
+            messageBusService = NulsContext.getServiceBean(MessageBusService.class);
+        }
+        return messageBusService;
+    }
+}
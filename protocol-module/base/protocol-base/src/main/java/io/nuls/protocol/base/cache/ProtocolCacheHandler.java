@@ -30,6 +30,7 @@ import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.utils.SerializeUtils;
 import io.nuls.protocol.constant.MessageDataType;
 import io.nuls.protocol.model.BlockHashResponse;
+import io.nuls.protocol.model.BlockHeadersResponse;
 import io.nuls.protocol.model.CompleteParam;
 import io.nuls.protocol.model.NotFound;
 
@@ -46,6 +47,7 @@ public class ProtocolCacheHandler {
     private static DataCacher<Block> blockByHeightCacher = new DataCacher<>(MessageDataType.BLOCK);
 //    private static DataCacher<TxGroup> txGroupCacher = new DataCacher<>(MessageDataType.TRANSACTIONS);
     private static DataCacher<BlockHashResponse> blockHashesCacher = new DataCacher<>(MessageDataType.HASHES);
+    private static DataCacher<BlockHeadersResponse> blockHeadersCacher = new DataCacher<>(MessageDataType.HEADERS);
     private static DataCacher<CompleteParam> taskCacher = new DataCacher<>(MessageDataType.BLOCKS);
     private static DataCacher<NulsDigestData> reactCacher = new DataCacher<>(MessageDataType.REQUEST);
 //    private static DataCacher<Transaction> txCacher = new DataCacher<>(MessageDataType.TRANSACTION);
@@ -79,6 +81,14 @@ public class ProtocolCacheHandler {
         blockHashesCacher.callback(hashes.getRequestMessageHash(), hashes);
     }
 
+    public static CompletableFuture<BlockHeadersResponse> addGetBlockHeadersRequest(NulsDigestData requestHash) {
+        return blockHeadersCacher.addFuture(requestHash);
+    }
+
+    public static void receiveHeaders(BlockHeadersResponse headers) {
+        blockHeadersCacher.callback(headers.getRequestMessageHash(), headers);
+    }
+
     public static Future<CompleteParam> addTaskRequest(NulsDigestData hash) {
         return taskCacher.addFuture(hash);
     }
@@ -91,6 +101,8 @@ public class ProtocolCacheHandler {
             taskCacher.notFound(data.getHash());
         } else if (data.getType() == MessageDataType.HASHES) {
             blockHashesCacher.notFound(data.getHash());
+        } else if (data.getType() == MessageDataType.HEADERS) {
+            blockHeadersCacher.notFound(data.getHash());
         }
 //        else if (data.getType() == MessageDataType.TRANSACTIONS) {
 //            txGroupCacher.notFound(data.getHash());
@@ -126,6 +138,10 @@ public class ProtocolCacheHandler {
         blockHashesCacher.removeFuture(hash);
     }
 
+    public static void removeHeadersFuture(NulsDigestData hash) {
+        blockHeadersCacher.removeFuture(hash);
+    }
+
     public static void removeTaskFuture(NulsDigestData hash) {
         taskCacher.removeFuture(hash);
     }
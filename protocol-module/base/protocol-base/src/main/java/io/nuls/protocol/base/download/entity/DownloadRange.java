@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.entity;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 同步时分配给节点下载的一段连续高度
+ * A range of consecutive heights assigned to a peer during synchronization.
+ */
+public class DownloadRange implements Comparable<DownloadRange> {
+
+    private final long startHeight;
+
+    private final int size;
+
+    /**
+     * 下载失败的次数
+     * Count of the failed attempts.
+     */
+    private int failedCount;
+
+    /**
+     * 下载失败过的节点，重新分配时优先交给其他节点
+     * The peers that failed on this range, it is preferably reassigned to the others.
+     */
+    private final Set<String> failedNodeIds = new HashSet<>();
+
+    public DownloadRange(long startHeight, int size) {
+        this.startHeight = startHeight;
+        this.size = size;
+    }
+
+    public long getStartHeight() {
+        return startHeight;
+    }
+
+    public long getEndHeight() {
+        return startHeight + size - 1;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public void failed(String nodeId) {
+        failedCount++;
+        failedNodeIds.add(nodeId);
+    }
+
+    public boolean isFailedBy(String nodeId) {
+        return failedNodeIds.contains(nodeId);
+    }
+
+    public int getFailedNodeCount() {
+        return failedNodeIds.size();
+    }
+
+    @Override
+    public int compareTo(DownloadRange o) {
+        return Long.compare(startHeight, o.startHeight);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.entity;
+
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 先同步区块头模式下已验证的区块头链，只保存还没被交付的高度对应的hash
+ * The verified header chain of the headers-first synchronization, only the hashes of the heights not delivered yet are kept.
+ */
+public class HeaderChain {
+
+    private final Map<Long, NulsDigestData> hashMap = new ConcurrentHashMap<>();
+
+    private volatile BlockHeader endHeader;
+
+    /**
+     * 已经移除的最高高度
+     * The highest height removed.
+     */
+    private long removedHeight;
+
+    /**
+     * 区块头链已被放弃，之后不再比较hash，退回到直接下载整个区块
+     * The header chain is abandoned, the hashes are not compared any more and the whole blocks are downloaded directly.
+     */
+    private volatile boolean abandoned;
+
+    public HeaderChain(BlockHeader startHeader) {
+        this.endHeader = startHeader;
+        this.removedHeight = startHeader.getHeight();
+    }
+
+    /**
+     * 追加已经验证过的、与当前末端相连的区块头
+     * Append the verified headers that follow the current end.
+     */
+    public synchronized void add(List<BlockHeader> headerList) {
+        if (abandoned) {
+            return;
+        }
+        for (BlockHeader header : headerList) {
+            hashMap.put(header.getHeight(), header.getHash());
+        }
+        endHeader = headerList.get(headerList.size() - 1);
+    }
+
+    /**
+     * 移除height及以下的hash
+     * Remove the hashes at height and below.
+     */
+    public synchronized void removeTo(long height) {
+        height = Math.min(height, endHeader.getHeight());
+        for (long i = removedHeight + 1; i <= height; i++) {
+            hashMap.remove(i);
+        }
+        removedHeight = Math.max(removedHeight, height);
+    }
+
+    /**
+     * @return 该高度已验证区块头的hash，没有时返回null/the hash of the verified header at the height, null if there is none
+     */
+    public NulsDigestData getHash(long height) {
+        return hashMap.get(height);
+    }
+
+    /**
+     * 放弃区块头链，清空所有hash
+     * Abandon the header chain and clear all the hashes.
+     */
+    public synchronized void abandon() {
+        abandoned = true;
+        hashMap.clear();
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public BlockHeader getEndHeader() {
+        return endHeader;
+    }
+
+    public long getEndHeight() {
+        return endHeader.getHeight();
+    }
+}
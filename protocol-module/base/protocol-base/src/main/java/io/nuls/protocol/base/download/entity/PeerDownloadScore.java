@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.entity;
+
+/**
+ * 节点的下载评分：吞吐量和请求耗时的指数移动平均，据此决定每次请求的区块数和超时时间
+ * Download score of a peer: exponential moving averages of the throughput and the request time,
+ * used to decide the batch size and the timeout of each request.
+ */
+public class PeerDownloadScore {
+
+    /**
+     * 没有样本时每次请求的区块数
+     * Batch size before there is any sample.
+     */
+    public static final int INITIAL_BATCH_SIZE = 10;
+
+    public static final int MIN_BATCH_SIZE = 2;
+
+    /**
+     * 不超过GetBlocksByHeightHandler允许的数量
+     * Must not exceed the limit of GetBlocksByHeightHandler.
+     */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * 每次请求期望的耗时，吞吐量越高的节点每次请求的区块越多
+     * The expected time of each request, the faster the peer is, the more blocks it gets per request.
+     */
+    private static final long TARGET_REQUEST_MILLIS = 2000L;
+
+    private static final long MIN_TIMEOUT_MILLIS = 5000L;
+
+    private static final long MAX_TIMEOUT_MILLIS = 60000L;
+
+    /**
+     * 连续失败多少次后本次同步不再使用该节点
+     * The peer is not used in this synchronization any more after so many consecutive failures.
+     */
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private static final double ALPHA = 0.3;
+
+    private final String nodeId;
+
+    /**
+     * 吞吐量，区块/毫秒
+     * Throughput, blocks per millisecond.
+     */
+    private double throughput;
+
+    /**
+     * 单次请求耗时，毫秒
+     * Time of a request, in milliseconds.
+     */
+    private double latency;
+
+    private boolean sampled;
+
+    private int consecutiveFailures;
+
+    private long downloadedCount;
+
+    public PeerDownloadScore(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public synchronized void onSuccess(int blockCount, long elapsedMillis) {
+        long elapsed = Math.max(1L, elapsedMillis);
+        double sample = (double) blockCount / elapsed;
+        if (sampled) {
+            throughput = ALPHA * sample + (1 - ALPHA) * throughput;
+            latency = ALPHA * elapsed + (1 - ALPHA) * latency;
+        } else {
+            throughput = sample;
+            latency = elapsed;
+            sampled = true;
+        }
+        consecutiveFailures = 0;
+        downloadedCount += blockCount;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        throughput = throughput / 2;
+    }
+
+    public synchronized int getBatchSize() {
+        if (!sampled) {
+            return INITIAL_BATCH_SIZE;
+        }
+        long size = Math.round(throughput * TARGET_REQUEST_MILLIS);
+        return (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, size));
+    }
+
+    /**
+     * 按吞吐量估算下载size个区块的耗时，超过三倍即视为停滞
+     * Estimate the time of downloading size blocks by the throughput, the request is stalled after three times of it.
+     */
+    public synchronized long getTimeoutMillis(int size) {
+        if (!sampled || throughput <= 0) {
+            return MAX_TIMEOUT_MILLIS;
+        }
+        long expected = (long) (size / throughput);
+        return Math.max(MIN_TIMEOUT_MILLIS, Math.min(MAX_TIMEOUT_MILLIS, expected * 3));
+    }
+
+    public synchronized boolean isBanned() {
+        return consecutiveFailures >= MAX_CONSECUTIVE_FAILURES;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public synchronized double getThroughput() {
+        return throughput;
+    }
+
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    public synchronized long getDownloadedCount() {
+        return downloadedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return nodeId + "{blocks/s:" + Math.round(throughput * 1000) + ", latency:" + Math.round(latency) + "ms, downloaded:" + downloadedCount + "}";
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.thread;
+
+import io.nuls.kernel.model.Block;
+import io.nuls.protocol.base.download.entity.DownloadRange;
+import io.nuls.protocol.base.download.entity.PeerDownloadScore;
+
+import java.util.*;
+
+/**
+ * 流水线式的区块下载调度器
+ * 空闲的节点随时领取下一段高度，不再按轮等待最慢的节点；失败或停滞的高度段放回重试队列，由其他空闲节点接手；
+ * 下载完成的区块按高度顺序放入blockQueue，已分配未消费的区块数受内存预算限制(滑动窗口)
+ * Pipelined block download scheduler.
+ * An idle peer takes the next range at any time instead of waiting for the slowest peer round by round,
+ * the failed or stalled ranges go back to the retry queue and are taken over by the other idle peers.
+ * The downloaded blocks are put into blockQueue in height order, the number of blocks assigned but not consumed yet
+ * is limited by the memory budget(sliding window).
+ */
+public class DownloadScheduler {
+
+    /**
+     * 已分配、下载中、待排序和队列中区块的内存预算
+     * Memory budget of the blocks assigned, downloading, waiting for ordering and queued.
+     */
+    private static final long MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    private static final int MIN_WINDOW = 100;
+
+    private static final int MAX_WINDOW = 20000;
+
+    /**
+     * 同一段高度最多失败的次数，超过则放弃本次同步
+     * Max failures of a range, the synchronization is given up beyond it.
+     */
+    private static final int MAX_RANGE_FAILURES = 10;
+
+    private static final long WAIT_MILLIS = 100L;
+
+    private final long endHeight;
+
+    private final Queue<Block> blockQueue;
+
+    /**
+     * 下一个未分配的高度
+     * The next height not assigned yet.
+     */
+    private long nextHeight;
+
+    /**
+     * 已按顺序放入blockQueue的最高高度
+     * The highest height put into blockQueue in order.
+     */
+    private long deliveredHeight;
+
+    /**
+     * 可以分配的最高高度，先同步区块头时为已验证区块头的末端
+     * The highest height that can be assigned, the end of the verified headers in the headers-first synchronization.
+     */
+    private long headerHeight;
+
+    private final TreeMap<Long, Block> pendingBlocks = new TreeMap<>();
+
+    private final PriorityQueue<DownloadRange> retryQueue = new PriorityQueue<>();
+
+    private final Map<String, PeerDownloadScore> scores = new HashMap<>();
+
+    private int activePeers;
+
+    /**
+     * 区块平均大小的移动平均，用于把内存预算换算成窗口大小
+     * Moving average of the block size, used to convert the memory budget into the window size.
+     */
+    private double averageBlockSize = 16 * 1024;
+
+    private boolean aborted;
+
+    public DownloadScheduler(long startHeight, long endHeight, Queue<Block> blockQueue) {
+        this.nextHeight = startHeight;
+        this.deliveredHeight = startHeight - 1;
+        this.endHeight = endHeight;
+        this.headerHeight = endHeight;
+        this.blockQueue = blockQueue;
+    }
+
+    /**
+     * 设置可以分配的最高高度
+     * Set the highest height that can be assigned.
+     */
+    public synchronized void setHeaderHeight(long headerHeight) {
+        this.headerHeight = Math.min(endHeight, headerHeight);
+        notifyAll();
+    }
+
+    /**
+     * 放弃本次同步
+     * Give up the synchronization.
+     */
+    public synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    public synchronized void addPeer(String nodeId) {
+        if (null == scores.put(nodeId, new PeerDownloadScore(nodeId))) {
+            activePeers++;
+        }
+    }
+
+    /**
+     * 节点不再下载(断开或连续失败)
+     * The peer stops downloading(disconnected or failed too many times).
+     */
+    public synchronized void removePeer(String nodeId) {
+        if (null != scores.remove(nodeId)) {
+            activePeers--;
+        }
+        if (activePeers <= 0 && !isFinished()) {
+            aborted = true;
+        }
+        notifyAll();
+    }
+
+    /**
+     * 为节点领取下一段高度，优先领取失败的高度段，窗口已满或区块头还没验证到时等待
+     * Take the next range for the peer, the failed ranges first, wait when the window is full or the headers are not verified yet.
+     *
+     * @return 高度段，同步结束或放弃时返回null/the range, null when the synchronization is finished or given up
+     */
+    public synchronized DownloadRange take(String nodeId) throws InterruptedException {
+        PeerDownloadScore score = scores.get(nodeId);
+        while (null != score && !aborted && !isFinished() && !score.isBanned()) {
+            DownloadRange range = pollRetry(nodeId);
+            if (null != range) {
+                return range;
+            }
+            if (nextHeight <= headerHeight) {
+                long room = getWindowSize() - getOutstandingCount();
+                if (room > 0) {
+                    int size = (int) Math.min(Math.min(score.getBatchSize(), room), headerHeight - nextHeight + 1);
+                    range = new DownloadRange(nextHeight, size);
+                    nextHeight += size;
+                    return range;
+                }
+            }
+            wait(WAIT_MILLIS);
+        }
+        return null;
+    }
+
+    /**
+     * 找到第一个不是该节点下载失败的高度段；如果所有节点都失败过，谁都可以再试
+     * Find the first range this peer has not failed on; if all the peers failed on it, anyone may retry.
+     */
+    private DownloadRange pollRetry(String nodeId) {
+        if (retryQueue.isEmpty()) {
+            return null;
+        }
+        List<DownloadRange> skipped = new ArrayList<>();
+        DownloadRange found = null;
+        while (!retryQueue.isEmpty()) {
+            DownloadRange range = retryQueue.poll();
+            if (!range.isFailedBy(nodeId) || range.getFailedNodeCount() >= activePeers) {
+                found = range;
+                break;
+            }
+            skipped.add(range);
+        }
+        retryQueue.addAll(skipped);
+        return found;
+    }
+
+    /**
+     * 节点完成下载，区块数量或高度不对时按失败处理
+     * The peer finished downloading, it is handled as a failure when the count or the heights are wrong.
+     */
+    public synchronized void complete(String nodeId, DownloadRange range, List<Block> blockList, long elapsedMillis) {
+        if (!isValid(range, blockList)) {
+            fail(nodeId, range);
+            return;
+        }
+        PeerDownloadScore score = scores.get(nodeId);
+        if (null != score) {
+            score.onSuccess(range.getSize(), elapsedMillis);
+        }
+        for (Block block : blockList) {
+            averageBlockSize = 0.1 * block.size() + 0.9 * averageBlockSize;
+            pendingBlocks.put(block.getHeader().getHeight(), block);
+        }
+        Map.Entry<Long, Block> entry;
+        while (null != (entry = pendingBlocks.firstEntry()) && entry.getKey() == deliveredHeight + 1) {
+            pendingBlocks.pollFirstEntry();
+            blockQueue.offer(entry.getValue());
+            deliveredHeight++;
+        }
+        notifyAll();
+    }
+
+    public synchronized void fail(String nodeId, DownloadRange range) {
+        range.failed(nodeId);
+        PeerDownloadScore score = scores.get(nodeId);
+        if (null != score) {
+            score.onFailure();
+        }
+        if (range.getFailedCount() >= MAX_RANGE_FAILURES) {
+            aborted = true;
+        } else {
+            retryQueue.offer(range);
+        }
+        notifyAll();
+    }
+
+    private boolean isValid(DownloadRange range, List<Block> blockList) {
+        if (null == blockList || blockList.size() != range.getSize()) {
+            return false;
+        }
+        for (int i = 0; i < blockList.size(); i++) {
+            Block block = blockList.get(i);
+            if (null == block || null == block.getHeader() || block.getHeader().getHeight() != range.getStartHeight() + i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待同步结束或放弃
+     * Wait until the synchronization is finished or given up.
+     *
+     * @return 是否全部下载完成/whether all the blocks are downloaded
+     */
+    public synchronized boolean await() throws InterruptedException {
+        while (!aborted && !isFinished()) {
+            wait(WAIT_MILLIS);
+        }
+        return isFinished();
+    }
+
+    public synchronized long getTimeoutMillis(String nodeId, DownloadRange range) {
+        PeerDownloadScore score = scores.get(nodeId);
+        return null == score ? 0L : score.getTimeoutMillis(range.getSize());
+    }
+
+    private long getWindowSize() {
+        long window = (long) (MEMORY_BUDGET / averageBlockSize);
+        return Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, window));
+    }
+
+    /**
+     * 已分配但还没被消费的区块数
+     * Number of the blocks assigned but not consumed yet.
+     */
+    private long getOutstandingCount() {
+        return (nextHeight - 1 - deliveredHeight) + blockQueue.size();
+    }
+
+    public synchronized boolean isFinished() {
+        return deliveredHeight >= endHeight;
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    public synchronized long getDeliveredHeight() {
+        return deliveredHeight;
+    }
+
+    public synchronized Collection<PeerDownloadScore> getScores() {
+        return new ArrayList<>(scores.values());
+    }
+}
@@ -34,13 +34,15 @@ import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
-import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
 import io.nuls.kernel.thread.manager.NulsThreadFactory;
 import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.network.model.Node;
 import io.nuls.network.service.NetworkService;
+import io.nuls.protocol.base.download.entity.DownloadRange;
+import io.nuls.protocol.base.download.entity.HeaderChain;
 import io.nuls.protocol.base.download.entity.NetworkNewestBlockInfos;
-import io.nuls.protocol.base.download.entity.ResultMessage;
+import io.nuls.protocol.base.download.utils.BlockPreVerifier;
 import io.nuls.protocol.base.download.utils.DownloadUtils;
 import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.service.BlockService;
@@ -49,8 +51,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -58,17 +59,22 @@ import java.util.concurrent.ThreadPoolExecutor;
  */
 public class DownloadThreadManager implements Callable<Boolean> {
 
+    /**
+     * 已验证的区块头最多领先已交付的区块多少个
+     * How many verified headers at most lead the delivered blocks.
+     */
+    private static final int MAX_HEADER_LEAD = 50000;
+
     private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
     private NetworkService networkService = NulsContext.getServiceBean(NetworkService.class);
     private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
     private NulsThreadFactory factory = new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download");
+    private NulsThreadFactory verifyFactory = new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download-verify");
 
     private NetworkNewestBlockInfos newestInfos;
     private Queue<Block> blockQueue;
     private String queueName;
 
-    private int maxDowncount = 10;
-
     public DownloadThreadManager(NetworkNewestBlockInfos newestInfos, Queue<Block> blockQueue) {
         this.newestInfos = newestInfos;
         this.blockQueue = blockQueue;
@@ -87,127 +93,203 @@ public class DownloadThreadManager implements Callable<Boolean> {
             return false;
         }
 
-        List<Node> nodes = newestInfos.getNodes();
-        NulsDigestData netBestHash = newestInfos.getNetBestHash();
+        List<Node> nodes = new ArrayList<>();
+        for (Node node : newestInfos.getNodes()) {
+            if (node.isHandShake()) {
+                nodes.add(node);
+            }
+        }
+        if (nodes.isEmpty()) {
+            resetNetwork("no available node to download blocks from");
+        }
         long netBestHeight = newestInfos.getNetBestHeight();
-        Block localBestBlock = blockService.getBestBlock().getData();
-        NulsDigestData localBestHash = localBestBlock.getHeader().getHash();
-        long localBestHeight = localBestBlock.getHeader().getHeight();
-
-        ThreadPoolExecutor executor = TaskManager.createThreadPool(nodes.size(), 0,
-                new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download-thread"));
-
-        List<FutureTask<ResultMessage>> futures = new ArrayList<>();
-
-        long totalCount = netBestHeight - localBestHeight;
-
-        long laveCount = totalCount;
-
-        long downCount = (long) Math.ceil((double) totalCount / (maxDowncount * nodes.size()));
-
-        for (long i = 0; i < downCount; i++) {
+        BlockHeader localBestHeader = blockService.getBestBlock().getData().getHeader();
+        long localBestHeight = localBestHeader.getHeight();
+        if (netBestHeight <= localBestHeight) {
+            return true;
+        }
 
-            long startHeight = (localBestHeight + 1) + i * maxDowncount * nodes.size();
+        // 先同步区块头：区块只分配到已验证的区块头高度，区块体由所有节点并行下载并在verifyExecutor中预验证
+        // Headers first: the blocks are assigned only up to the verified headers, the bodies are downloaded by all the peers
+        // in parallel and pre-verified in verifyExecutor.
+        DownloadScheduler scheduler = new DownloadScheduler(localBestHeight + 1, netBestHeight, blockQueue);
+        scheduler.setHeaderHeight(localBestHeight);
+        HeaderChain headerChain = new HeaderChain(localBestHeader);
+        for (Node node : nodes) {
+            scheduler.addPeer(node.getId());
+        }
+        ThreadPoolExecutor executor = TaskManager.createThreadPool(nodes.size() + 1, 0, factory);
+        ThreadPoolExecutor verifyExecutor = TaskManager.createThreadPool(Runtime.getRuntime().availableProcessors(), 0, verifyFactory);
+        executor.execute(() -> downloadHeaders(nodes, netBestHeight, headerChain, scheduler));
+        for (Node node : nodes) {
+            executor.execute(() -> download(node, scheduler, headerChain, verifyExecutor));
+        }
+        boolean finished;
+        try {
+            finished = scheduler.await();
+        } finally {
+            executor.shutdownNow();
+            verifyExecutor.shutdownNow();
+        }
+        Log.info("download blocks " + (localBestHeight + 1) + "->" + netBestHeight + " finished:" + finished + ", peers:" + scheduler.getScores());
+        if (!finished) {
+            resetNetwork("attempts to download blocks from all available nodes failed");
+        }
+        return true;
+    }
 
-            for (int j = nodes.size() - 1; j >= 0; j--) {
-                Node node = nodes.get(j);
-                if (!node.isHandShake()) {
-                    nodes.remove(j);
-                }
+    /**
+     * 下载并验证区块头链，区块头最多领先已交付的区块MAX_HEADER_LEAD个；
+     * 每段区块头的末端hash还要由另一个节点确认，整条链必须结束于网络最新区块的hash，区块头的签名者是否属于共识成员要到顺序处理时才能验证，
+     * 所以只有多个节点一致的区块头才被采用；支持区块头的节点少于两个、或者没有节点给出合法且经过确认的区块头时，放弃区块头链，
+     * 退回到直接下载整个区块，由顺序处理验证连接和轮次
+     * Download and verify the header chain, the headers lead the delivered blocks by MAX_HEADER_LEAD at most.
+     * The end hash of every range is confirmed by another peer and the chain must end at the network best hash: whether the
+     * signer of a header is a consensus member can only be checked by the sequential processing, so only headers agreed by
+     * several peers are used. When less than two peers support headers, or no peer gives valid and confirmed headers,
+     * the header chain is abandoned and the whole blocks are downloaded directly, the linkage and rounds are verified by
+     * the sequential processing.
+     */
+    private void downloadHeaders(List<Node> nodes, long netBestHeight, HeaderChain headerChain, DownloadScheduler scheduler) {
+        // 按握手时声明的版本筛选节点，不向不支持的节点请求区块头
+        // Select the peers by the version declared in the handshake, the peers not supporting headers are never asked.
+        List<Node> headerNodes = new ArrayList<>();
+        for (Node node : nodes) {
+            if (DownloadUtils.supportsHeaders(node)) {
+                headerNodes.add(node);
             }
-            for (int j = 0; j < nodes.size(); j++) {
-                long start = startHeight + j * maxDowncount;
-                int size = maxDowncount;
-
-                boolean isEnd = false;
-                if (start + size >= netBestHeight) {
-                    size = (int) (netBestHeight - start) + 1;
-                    isEnd = true;
-                }
-
-                DownloadThread downloadThread = new DownloadThread(localBestHash, netBestHash, start, size, nodes.get(j));
-
-                FutureTask<ResultMessage> downloadThreadFuture = new FutureTask<>(downloadThread);
-
-                executor.execute(factory.newThread(downloadThreadFuture));
-
-                futures.add(downloadThreadFuture);
-
-                if (isEnd) {
+        }
+        int nodeIndex = 0;
+        try {
+            while (headerChain.getEndHeight() < netBestHeight && !headerChain.isAbandoned() && !scheduler.isAborted() && !scheduler.isFinished()) {
+                if (headerNodes.size() < 2) {
+                    Log.warn("less than two peers support block headers, download the whole blocks");
+                    headerChain.abandon();
                     break;
                 }
-            }
-            for (FutureTask<ResultMessage> task : futures) {
-                ResultMessage result = null;
-                try {
-                    result = task.get();
-                } catch (Exception e) {
-                    Log.error(e);
+                headerChain.removeTo(scheduler.getDeliveredHeight());
+                if (headerChain.getEndHeight() - scheduler.getDeliveredHeight() >= MAX_HEADER_LEAD) {
+                    Thread.sleep(100L);
+                    continue;
                 }
-                List<Block> blockList = null;
-
-                if (result == null || (blockList = result.getBlockList()) == null || blockList.size() == 0) {
-                    blockList = retryDownload(executor, result);
-                }
-
-                if (blockList == null) {
-                    executor.shutdown();
-                    resetNetwork("attempts to download blocks from all available nodes failed");
-                    return true;
+                long startHeight = headerChain.getEndHeight() + 1;
+                long endHeight = Math.min(netBestHeight, startHeight + ProtocolConstant.MAX_HEADERS_PER_REQUEST - 1);
+                boolean success = false;
+                List<Node> candidates = new ArrayList<>(headerNodes);
+                for (int i = 0; i < candidates.size() && !success; i++) {
+                    Node node = candidates.get((nodeIndex + i) % candidates.size());
+                    if (!node.isHandShake() || !headerNodes.contains(node)) {
+                        continue;
+                    }
+                    List<BlockHeader> headerList = DownloadUtils.getBlockHeaders(node, startHeight, endHeight);
+                    if (headerList.isEmpty()) {
+                        // 没有应答的节点在本次同步中不再请求区块头，避免重复等待超时
+                        // A peer that did not answer is not asked for headers again in this synchronization, so the timeout is not waited again.
+                        headerNodes.remove(node);
+                        continue;
+                    }
+                    Result result = consensusService.verifyHeaderChain(headerChain.getEndHeader(), headerList);
+                    if (result.isFailed()) {
+                        Log.warn("invalid block headers " + startHeight + "->" + endHeight + " from " + node.getId());
+                        continue;
+                    }
+                    BlockHeader endHeader = headerList.get(headerList.size() - 1);
+                    if (endHeight == netBestHeight && !endHeader.getHash().equals(newestInfos.getNetBestHash())) {
+                        Log.warn("block headers from " + node.getId() + " do not end at the network best block");
+                        continue;
+                    }
+                    if (!confirmHeader(headerNodes, node, endHeader)) {
+                        Log.warn("block headers " + startHeight + "->" + endHeight + " from " + node.getId() + " are not confirmed by another peer");
+                        continue;
+                    }
+                    headerChain.add(headerList);
+                    scheduler.setHeaderHeight(headerChain.getEndHeight());
+                    success = true;
                 }
-
-                for (Block block : blockList) {
-                    blockQueue.offer(block);
+                nodeIndex++;
+                if (!success) {
+                    Log.warn("no valid block headers " + startHeight + "->" + endHeight + ", download the whole blocks");
+                    headerChain.abandon();
+                    break;
                 }
             }
-            futures.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scheduler.setHeaderHeight(netBestHeight);
         }
-
-        executor.shutdown();
-
-        return true;
     }
 
-    private List<Block> retryDownload(ThreadPoolExecutor executor, ResultMessage result) throws InterruptedException, ExecutionException {
-
-        //try download to other nodes
-        List<Node> otherNodes = new ArrayList<>();
-
-        Node defultNode = result.getNode();
-
-        for (Node node : newestInfos.getNodes()) {
-            if (!node.getId().equals(defultNode.getId())) {
-                otherNodes.add(node);
+    /**
+     * 由来源之外的另一个节点确认该高度的区块头hash
+     * Confirm the hash of the header at its height by a peer other than the source.
+     */
+    private boolean confirmHeader(List<Node> headerNodes, Node source, BlockHeader header) {
+        for (Node node : new ArrayList<>(headerNodes)) {
+            if (node == source || !node.isHandShake()) {
+                continue;
             }
-        }
-
-        for (Node node : otherNodes) {
-            result.setNode(node);
-            List<Block> blockList = downloadBlockFromNode(executor, result);
-            if (blockList != null && blockList.size() > 0) {
-                return blockList;
+            List<BlockHeader> headerList = DownloadUtils.getBlockHeaders(node, header.getHeight(), header.getHeight());
+            if (headerList.isEmpty()) {
+                headerNodes.remove(node);
+                continue;
+            }
+            if (header.getHash().equals(headerList.get(0).getHash())) {
+                return true;
             }
         }
-
-        //if fail , down again
-        result.setNode(defultNode);
-
-        return downloadBlockFromNode(executor, result);
+        return false;
     }
 
-    private List<Block> downloadBlockFromNode(ThreadPoolExecutor executor, ResultMessage result) throws ExecutionException, InterruptedException {
-        DownloadThread downloadThread = new DownloadThread(result.getStartHash(), result.getEndHash(), result.getStartHeight(), result.getSize(), result.getNode());
-
-        FutureTask<ResultMessage> downloadThreadFuture = new FutureTask<ResultMessage>(downloadThread);
-        executor.execute(new Thread(downloadThreadFuture));
-
-        List<Block> blockList = null;
+    /**
+     * 一个节点的下载循环：领取高度段、下载、交给verifyExecutor预验证后提交结果，直到同步结束或该节点不可用
+     * The download loop of a peer: take a range, download it, and submit the result after it is pre-verified in verifyExecutor,
+     * until the synchronization ends or the peer is unusable.
+     */
+    private void download(Node node, DownloadScheduler scheduler, HeaderChain headerChain, ThreadPoolExecutor verifyExecutor) {
+        String nodeId = node.getId();
         try {
-            blockList = downloadThreadFuture.get().getBlockList();
-        } catch (Exception e) {
-            Log.error(e);
+            DownloadRange range;
+            while (node.isHandShake() && null != (range = scheduler.take(nodeId))) {
+                long start = System.currentTimeMillis();
+                List<Block> blockList = null;
+                try {
+                    blockList = DownloadUtils.getBlocks(node, range.getStartHeight(), range.getEndHeight(), scheduler.getTimeoutMillis(nodeId, range));
+                } catch (Exception e) {
+                    Log.error(e.getMessage());
+                }
+                long elapsedMillis = System.currentTimeMillis() - start;
+                if (null == blockList || blockList.size() != range.getSize()) {
+                    scheduler.complete(nodeId, range, blockList, elapsedMillis);
+                    continue;
+                }
+                DownloadRange verifyRange = range;
+                List<Block> verifyList = blockList;
+                try {
+                    verifyExecutor.execute(() -> {
+                        if (!BlockPreVerifier.verify(verifyList, null)) {
+                            scheduler.fail(nodeId, verifyRange);
+                            return;
+                        }
+                        if (!BlockPreVerifier.matchesHeaders(verifyList, headerChain)) {
+                            // 区块本身合法却与区块头不一致，区块头链不可信：放弃它，退回到直接下载整个区块，不计入高度段的失败次数
+                            // The blocks are valid but do not match the headers, so the header chain is untrusted: abandon it
+                            // and download the whole blocks directly, it is not counted as a failure of the range.
+                            Log.warn("downloaded blocks from " + nodeId + " do not match the header chain, download the whole blocks");
+                            headerChain.abandon();
+                            scheduler.setHeaderHeight(newestInfos.getNetBestHeight());
+                        }
+                        scheduler.complete(nodeId, verifyRange, verifyList, elapsedMillis);
+                    });
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scheduler.removePeer(nodeId);
         }
-        return blockList;
     }
 
     private boolean checkFirstBlock() throws NulsException {
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.utils;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.script.SignatureUtil;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.protocol.base.download.entity.HeaderChain;
+
+import java.util.List;
+
+/**
+ * 区块进入顺序处理之前，在下载线程中做的与链状态无关的验证：
+ * 与已验证区块头是否一致、区块字段和大小、区块头签名、梅克尔根、交易签名。
+ * 交易签名的验证结果会进入SignatureVerifyCache，顺序处理时tx.verify()只需执行依赖链状态的验证器
+ * The state independent verification done by the download threads before the blocks reach the sequential processing:
+ * the match with the verified header, the block fields and size, the header signature, the merkle hash and the tx signatures.
+ * The verified tx signatures go into SignatureVerifyCache, so tx.verify() in the sequential processing only runs
+ * the validators that depend on the chain state.
+ */
+public class BlockPreVerifier {
+
+    /**
+     * @param headerChain 已验证的区块头链，为null或没有对应高度时不比较hash/the verified header chain, the hash is not compared when it is null or has no such height
+     */
+    public static boolean verify(List<Block> blockList, HeaderChain headerChain) {
+        if (null == blockList || blockList.isEmpty()) {
+            return false;
+        }
+        for (Block block : blockList) {
+            if (!verify(block, headerChain)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 区块是否与已验证的区块头一致，区块头链中没有对应高度时视为一致
+     * Whether the blocks match the verified headers, a height missing from the header chain counts as a match.
+     */
+    public static boolean matchesHeaders(List<Block> blockList, HeaderChain headerChain) {
+        for (Block block : blockList) {
+            if (!matchesHeader(block, headerChain)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesHeader(Block block, HeaderChain headerChain) {
+        if (null == headerChain) {
+            return true;
+        }
+        NulsDigestData hash = headerChain.getHash(block.getHeader().getHeight());
+        if (null != hash && !hash.equals(block.getHeader().getHash())) {
+            Log.warn("downloaded block does not match the verified header, height:" + block.getHeader().getHeight());
+            return false;
+        }
+        return true;
+    }
+
+    public static boolean verify(Block block, HeaderChain headerChain) {
+        if (null == block || null == block.getHeader() || null == block.getTxs()) {
+            return false;
+        }
+        if (!matchesHeader(block, headerChain)) {
+            return false;
+        }
+        ValidateResult result = block.verify();
+        if (result.isFailed()) {
+            Log.warn("downloaded block verify failed, height:" + block.getHeader().getHeight() + ", code:" + result.getErrorCode().getCode());
+            return false;
+        }
+        for (Transaction tx : block.getTxs()) {
+            try {
+                if (!SignatureUtil.validateTransactionSignture(tx)) {
+                    return false;
+                }
+            } catch (Exception e) {
+                Log.warn("downloaded tx signature error, height:" + block.getHeader().getHeight() + ", tx:" + tx.getHash());
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -57,7 +57,9 @@ public class DownloadDataStorage implements Callable<Boolean> {
                 if (block.getHeader() == null) {
                     break;
                 }
-                consensusService.addBlock(block);
+                // 进入队列的区块都已经由BlockPreVerifier验证过
+                // The blocks in the queue have all been verified by BlockPreVerifier.
+                consensusService.addBlock(block, true);
             }
             return true;
         } catch (InterruptedException e) {
@@ -26,16 +26,21 @@
 package io.nuls.protocol.base.download.utils;
 
 import io.nuls.core.tools.log.Log;
+import io.nuls.core.tools.str.StringUtils;
+import io.nuls.core.tools.str.VersionUtils;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.utils.SerializeUtils;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
 import io.nuls.protocol.base.cache.ProtocolCacheHandler;
+import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.message.*;
 import io.nuls.protocol.model.BlockHashResponse;
+import io.nuls.protocol.model.BlockHeadersResponse;
 import io.nuls.protocol.model.CompleteParam;
 import io.nuls.protocol.model.GetTxGroupParam;
 import io.nuls.protocol.model.TxGroup;
@@ -80,6 +85,14 @@ public class DownloadUtils {
     }
 
     public static List<Block> getBlocks(Node node, long startHeight, long endHeight) throws Exception {
+        return getBlocks(node, startHeight, endHeight, 60000L);
+    }
+
+    /**
+     * 从节点下载一段区块，超过timeoutMillis未完成视为失败
+     * Download a range of blocks from the node, it fails when not completed in timeoutMillis.
+     */
+    public static List<Block> getBlocks(Node node, long startHeight, long endHeight, long timeoutMillis) throws Exception {
 
         Log.info("getBlocks:" + startHeight + "->" + endHeight + " ,from:" + node.getId());
         List<Block> resultList = new ArrayList<>();
@@ -127,12 +140,13 @@ public class DownloadUtils {
         }
 
         try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
             reactFuture.get(1L, TimeUnit.SECONDS);
-            CompleteParam taskResult = taskFuture.get(60L, TimeUnit.SECONDS);
+            CompleteParam taskResult = taskFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
             if (taskResult.isSuccess()) {
                 for (Map<NulsDigestData, Future<Block>> blockFutureMap : blockFutures) {
                     for (Map.Entry<NulsDigestData, Future<Block>> entry : blockFutureMap.entrySet()) {
-                        Block block = entry.getValue().get(30L, TimeUnit.SECONDS);
+                        Block block = entry.getValue().get(Math.max(1000L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
                         resultList.add(block);
                     }
                 }
@@ -197,4 +211,64 @@ public class DownloadUtils {
         }
         return response.getHashList();
     }
+
+    /**
+     * 节点握手时声明的版本是否支持批量获取区块头
+     * Whether the version the node declared in the handshake supports getting a range of block headers.
+     */
+    public static boolean supportsHeaders(Node node) {
+        String version = node.getVersion();
+        try {
+            return StringUtils.isNotBlank(version) && VersionUtils.compare(version, ProtocolConstant.HEADERS_MIN_VERSION) >= 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 从节点下载一段按高度排序的区块头，失败时返回空列表
+     * Download a range of block headers in height order from the node, an empty list is returned when it fails.
+     */
+    public static List<BlockHeader> getBlockHeaders(Node node, long startHeight, long endHeight) {
+
+        if (node == null || startHeight < 0L || startHeight > endHeight) {
+            return new ArrayList<>();
+        }
+
+        if (endHeight - startHeight >= ProtocolConstant.MAX_HEADERS_PER_REQUEST) {
+            Log.warn("get block headers more the " + ProtocolConstant.MAX_HEADERS_PER_REQUEST);
+            return new ArrayList<>();
+        }
+
+        GetBlockHeadersMessage message = new GetBlockHeadersMessage(startHeight, endHeight);
+        NulsDigestData requestHash = null;
+        try {
+            requestHash = NulsDigestData.calcDigestData(message.getMsgBody().serialize());
+        } catch (IOException e) {
+            Log.error(e);
+            return new ArrayList<>();
+        }
+        Future<BlockHeadersResponse> future = ProtocolCacheHandler.addGetBlockHeadersRequest(requestHash);
+        Result result = messageBusService.sendToNode(message, node, false);
+        if (!result.isSuccess()) {
+            ProtocolCacheHandler.removeHeadersFuture(requestHash);
+            return new ArrayList<>();
+        }
+
+        BlockHeadersResponse response = null;
+        try {
+            response = future.get(20L, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.error(node.getId() + ",start:" + startHeight + " , end:" + endHeight);
+            Log.error(e.getMessage());
+        } finally {
+            ProtocolCacheHandler.removeHeadersFuture(requestHash);
+        }
+
+        if (null == response || response.getHeaderList() == null || response.getHeaderList().size() != endHeight - startHeight + 1) {
+            Log.warn("get block headers({}-{}) failed:" + node.getId(), startHeight, endHeight);
+            return new ArrayList<>();
+        }
+        return response.getHeaderList();
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.base.handler;
+
+import io.nuls.consensus.service.ConsensusService;
+import io.nuls.core.tools.log.BlockLog;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.func.TimeService;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.message.bus.handler.AbstractMessageHandler;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.base.cache.CompactBlockPeerManager;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.message.CompactBlockMessage;
+import io.nuls.protocol.message.GetSmallBlockMessage;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.service.BlockService;
+import io.nuls.protocol.utils.SmallBlockDuplicateRemoval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 接收紧凑区块，用交易池和临时交易缓存按短id还原区块，无法完整还原时向发送者请求小区块
+ * Receives compact blocks and restores them from the memory pool and the temporary tx cache by short ids,
+ * requests the small block from the sender when the block can not be restored completely.
+ */
+public class CompactBlockHandler extends AbstractMessageHandler<CompactBlockMessage> {
+
+    private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
+
+    private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
+    private CompactBlockPeerManager peerManager = CompactBlockPeerManager.getInstance();
+
+    @Override
+    public void onMessage(CompactBlockMessage message, Node fromNode) {
+        CompactBlock compactBlock = message.getMsgBody();
+        if (null == compactBlock || null == fromNode) {
+            Log.warn("recieved a null compactBlock!");
+            return;
+        }
+
+        BlockHeader header = compactBlock.getHeader();
+        //阻止恶意节点提前出块
+        if (header.getTime() > (TimeService.currentTimeMillis() + ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND * 1000)) {
+            return;
+        }
+
+        if (!SmallBlockDuplicateRemoval.needProcess(header.getHash())) {
+            return;
+        }
+
+        BlockHeader theBlockHeader = blockService.getBlockHeader(header.getHash()).getData();
+        if (null != theBlockHeader) {
+            return;
+        }
+
+        ValidateResult result = header.verify();
+        boolean isOrphan = result.getErrorCode() == TransactionErrorCode.ORPHAN_TX || result.getErrorCode() == TransactionErrorCode.ORPHAN_BLOCK;
+        if (result.isFailed() && !isOrphan) {
+            BlockLog.debug("discard a CompactBlock:" + header.getHash() + ", from:" + fromNode.getId() + " ,reason:" + result.getMsg());
+            return;
+        }
+        peerManager.onBlockFirstReceived(fromNode);
+
+        Transaction[] txs = CompactBlockUtil.fillTransactions(compactBlock, consensusService.getMemoryTxs(), temporaryCacheManager.getAllTx());
+        int missing = 0;
+        List<Transaction> txList = null;
+        if (null != txs) {
+            txList = new ArrayList<>(txs.length);
+            for (Transaction tx : txs) {
+                if (null == tx) {
+                    missing++;
+                } else {
+                    tx.setBlockHeight(header.getHeight());
+                    txList.add(tx);
+                }
+            }
+        }
+        BlockLog.debug("recieve compact block from(" + fromNode.getId() + "), height:" + header.getHeight() + ", hash:" + header.getHash() +
+                ", tx count:" + header.getTxCount() + ", prefilled:" + compactBlock.getPrefilledTxList().size() + ", missing:" + (null == txs ? "all" : String.valueOf(missing)));
+
+        if (null == txs || missing > 0 || !checkMerkleHash(header, txList)) {
+            requestSmallBlock(header.getHash(), fromNode);
+            return;
+        }
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(txList);
+        consensusService.newBlock(block, fromNode);
+    }
+
+    /**
+     * 短id冲突时还原出的交易可能不对，提交前先校验merkle hash
+     * The restored transactions may be wrong when short ids collide, so check the merkle hash before submitting.
+     */
+    private boolean checkMerkleHash(BlockHeader header, List<Transaction> txList) {
+        List<NulsDigestData> txHashList = new ArrayList<>(txList.size());
+        for (Transaction tx : txList) {
+            txHashList.add(tx.getHash());
+        }
+        return NulsDigestData.calcMerkleDigestData(txHashList).equals(header.getMerkleHash());
+    }
+
+    /**
+     * 退回到小区块流程：向发送者请求小区块，缺少的交易再通过GetTxGroupRequest获取
+     * Fall back to the small block flow: request the small block from the sender, the missing transactions are fetched by GetTxGroupRequest then.
+     */
+    private void requestSmallBlock(NulsDigestData blockHash, Node fromNode) {
+        SmallBlockDuplicateRemoval.removeSmallBlock(blockHash);
+        GetSmallBlockMessage getSmallBlockMessage = new GetSmallBlockMessage();
+        getSmallBlockMessage.setMsgBody(blockHash);
+        Result result = messageBusService.sendToNode(getSmallBlockMessage, fromNode, true);
+        if (result.isFailed()) {
+            Log.warn("get small block failed, hash:" + blockHash);
+        }
+    }
+}
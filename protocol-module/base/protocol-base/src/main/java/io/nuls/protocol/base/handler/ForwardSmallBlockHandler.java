@@ -30,6 +30,7 @@ import io.nuls.kernel.model.Result;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.base.cache.CompactBlockPeerManager;
 import io.nuls.protocol.utils.SmallBlockDuplicateRemoval;
 import io.nuls.protocol.message.ForwardSmallBlockMessage;
 import io.nuls.protocol.message.GetSmallBlockMessage;
@@ -47,6 +48,7 @@ public class ForwardSmallBlockHandler extends AbstractMessageHandler<ForwardSmal
             return;
         }
         NulsDigestData hash = message.getMsgBody();
+        CompactBlockPeerManager.getInstance().announce(fromNode);
         if (!SmallBlockDuplicateRemoval.needDownloadSmallBlock(hash)) {
             return;
         }
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.base.handler;
+
+import io.nuls.core.tools.log.BlockLog;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
+import io.nuls.message.bus.handler.AbstractMessageHandler;
+import io.nuls.message.bus.service.MessageBusService;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.constant.MessageDataType;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.message.BlockHeadersMessage;
+import io.nuls.protocol.message.GetBlockHeadersMessage;
+import io.nuls.protocol.message.NotFoundMessage;
+import io.nuls.protocol.model.BlockHeadersResponse;
+import io.nuls.protocol.model.GetBlocksHashParam;
+import io.nuls.protocol.model.NotFound;
+import io.nuls.protocol.service.BlockService;
+
+/**
+ * 按高度返回一段区块头，用blockService.scanBlockHeaders对主链高度索引做一次顺序扫描
+ * 扫描使用一个数据库游标，读取的是游标打开时的快照，而主链只在末端保存或回滚区块，所以快照中连续的一段高度一定属于同一条链；
+ * 区段内有缺失（例如结束高度已被回滚）时返回NotFound，请求方还会校验返回区块头的preHash链接
+ * Reply a range of block headers by height with one sequential scan of the main chain height index through blockService.scanBlockHeaders.
+ * The scan reads through a single database cursor, which sees the snapshot taken when it was opened, and the main chain only saves
+ * or rolls back blocks at its tip, so a continuous height range in the snapshot is always on the same chain.
+ * NotFound is replied when the range has a gap, e.g. the end height was rolled back, and the requester also checks the preHash links.
+ */
+public class GetBlockHeadersHandler extends AbstractMessageHandler<GetBlockHeadersMessage> {
+
+    private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+    private MessageBusService messageBusService = NulsContext.getServiceBean(MessageBusService.class);
+
+    @Override
+    public void onMessage(GetBlockHeadersMessage message, Node fromNode) {
+        GetBlocksHashParam param = message.getMsgBody();
+        if (param.getStartHeight() < 0 || param.getEndHeight() < param.getStartHeight() ||
+                param.getEndHeight() - param.getStartHeight() >= ProtocolConstant.MAX_HEADERS_PER_REQUEST) {
+            return;
+        }
+        NulsDigestData requestHash = message.getHash();
+
+        BlockHeadersResponse response = new BlockHeadersResponse();
+        response.setRequestMessageHash(requestHash);
+        // 主链区块头按高度连续存储，一次顺序扫描读出整段
+        // The main chain headers are stored continuously by height, the whole range is read with one sequential scan.
+        int count = blockService.scanBlockHeaders(param.getStartHeight(), param.getEndHeight(), false, header -> {
+            response.put(header);
+            return true;
+        });
+        if (count != param.getEndHeight() - param.getStartHeight() + 1) {
+            sendNotFound(fromNode, requestHash);
+            return;
+        }
+        sendResponse(response, fromNode);
+    }
+
+    private void sendNotFound(Node node, NulsDigestData hash) {
+        NotFoundMessage event = new NotFoundMessage();
+        NotFound data = new NotFound(MessageDataType.HEADERS, hash);
+        event.setMsgBody(data);
+        Result result = this.messageBusService.sendToNode(event, node, true);
+        if (result.isFailed()) {
+            Log.warn("send not found failed:" + node.getId() + ", hash:" + hash);
+        }
+    }
+
+    private void sendResponse(BlockHeadersResponse response, Node fromNode) {
+        BlockHeadersMessage event = new BlockHeadersMessage();
+        event.setMsgBody(response);
+        Result result = messageBusService.sendToNode(event, fromNode, true);
+        if (result.isFailed()) {
+            BlockLog.debug("send block headers to " + fromNode.getId() + " failed!");
+        }
+    }
+}
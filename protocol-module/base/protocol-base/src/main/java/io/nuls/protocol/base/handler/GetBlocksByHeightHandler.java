@@ -76,30 +76,22 @@ public class GetBlocksByHeightHandler extends AbstractMessageHandler<GetBlocksBy
         // react request
         messageBusService.sendToNode(new ReactMessage(requestHash), fromNode, true);
 
-        BlockHeader startBlockHeader = blockService.getBlockHeader(param.getStartHeight()).getData();
-        if(startBlockHeader == null) {
+        BlockHeader endBlockHeader = blockService.getBlockHeader(param.getEndHeight()).getData();
+        if(endBlockHeader == null) {
             sendNotFound(requestHash, fromNode);
             return;
         }
-        Block endBlock = blockService.getBlock(param.getEndHeight()).getData();
-        if(endBlock == null) {
+        // 从高到低按批顺序读取，逐个发送，不会把整段区块同时放在内存中
+        // Read from high to low batch by batch and send one by one, the whole range is never held in memory.
+        int count = blockService.scanBlocks(param.getStartHeight(), param.getEndHeight(), true, block -> {
+            sendBlock(block, fromNode);
+            return true;
+        });
+        if(count != param.getEndHeight() - param.getStartHeight() + 1) {
             sendNotFound(requestHash, fromNode);
             return;
         }
 
-        Block block = endBlock;
-        while(true) {
-            sendBlock(block, fromNode);
-            if(block.getHeader().getHash().equals(startBlockHeader.getHash())) {
-                break;
-            }
-            Result<Block> result = blockService.getBlock(block.getHeader().getPreHash());
-            if (result.isFailed() || (block = result.getData()) == null) {
-                sendNotFound(requestHash, fromNode);
-                return;
-            }
-        }
-
         CompleteMessage completeMessage = new CompleteMessage();
         completeMessage.setMsgBody(new CompleteParam(requestHash, true));
         messageBusService.sendToNode(completeMessage, fromNode, true);
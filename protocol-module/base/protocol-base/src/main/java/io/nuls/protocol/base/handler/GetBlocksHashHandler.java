@@ -68,14 +68,10 @@ public class GetBlocksHashHandler extends AbstractMessageHandler<GetBlocksHashMe
         BlockHashResponse response = new BlockHashResponse();
 
         response.setRequestMessageHash(requestHash);
-        BlockHeader header = endHeader;
-        while (header.getHeight() >= param.getStartHeight()) {
-            response.putFront(header.getHash());
-            header = blockService.getBlockHeader(header.getPreHash()).getData();
-            if(header == null) {
-                break;
-            }
-        }
+        blockService.scanBlockHeaders(param.getStartHeight(), param.getEndHeight(), false, header -> {
+            response.put(header.getHash());
+            return true;
+        });
         sendResponse(response, fromNode);
     }
 
@@ -36,6 +36,7 @@ import io.nuls.kernel.utils.AddressTool;
 import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.base.cache.CompactBlockPeerManager;
 import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.utils.SmallBlockDuplicateRemoval;
 import io.nuls.protocol.base.utils.AssemblyBlockUtil;
@@ -63,6 +64,7 @@ public class SmallBlockHandler extends AbstractMessageHandler<SmallBlockMessage>
     private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
     private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
     private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
+    private CompactBlockPeerManager peerManager = CompactBlockPeerManager.getInstance();
 
     @Override
     public void onMessage(SmallBlockMessage event, Node fromNode) {
@@ -73,6 +75,7 @@ public class SmallBlockHandler extends AbstractMessageHandler<SmallBlockMessage>
         }
 
         BlockHeader header = smallBlock.getHeader();
+        peerManager.announce(fromNode);
         //阻止恶意节点提前出块
         if (header.getTime() > (TimeService.currentTimeMillis() + ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND * 1000)) {
             return;
@@ -96,6 +99,7 @@ public class SmallBlockHandler extends AbstractMessageHandler<SmallBlockMessage>
             BlockLog.debug("discard a SmallBlock:" + smallBlock.getHeader().getHash() + ", from:" + fromNode.getId() + " ,reason:" + result.getMsg());
             return;
         }
+        peerManager.onBlockFirstReceived(fromNode);
         Map<NulsDigestData, Transaction> txMap = new HashMap<>();
         for (Transaction tx : smallBlock.getSubTxList()) {
             txMap.put(tx.getHash(), tx);
@@ -74,6 +74,7 @@ public class TxGroupHandler extends AbstractMessageHandler<TxGroupMessage> {
         }
         for(Transaction tx :txGroup.getTxList()) {
             txMap.put(tx.getHash(), tx);
+            temporaryCacheManager.cacheFetchedTx(tx);
         }
         for (NulsDigestData hash : smallBlock.getTxHashList()) {
             Transaction tx = txMap.get(hash);
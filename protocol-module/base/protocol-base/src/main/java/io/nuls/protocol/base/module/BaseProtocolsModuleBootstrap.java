@@ -116,6 +116,10 @@ public class BaseProtocolsModuleBootstrap extends AbstractProtocolModule {
 //        TaskManager.createAndRunThread(ProtocolConstant.MODULE_ID_PROTOCOL, "SmallBlock-Download", SmallBlockDownloadProcessor.getInstance());
         messageBusService.subscribeMessage(GetSmallBlockMessage.class, new GetSmallBlockHandler());
         messageBusService.subscribeMessage(ForwardSmallBlockMessage.class, new ForwardSmallBlockHandler());
+        messageBusService.subscribeMessage(CompactBlockMessage.class, new CompactBlockHandler());
+        messageBusService.subscribeMessage(SendCompactMessage.class, new SendCompactHandler());
+        messageBusService.subscribeMessage(GetBlockHeadersMessage.class, new GetBlockHeadersHandler());
+        messageBusService.subscribeMessage(BlockHeadersMessage.class, new BlockHeadersHandler());
         messageBusService.subscribeMessage(ForwardTxMessage.class, new ForwardTxMessageHandler());
     }
 
@@ -32,6 +32,7 @@ import io.nuls.contract.entity.tx.CallContractTransaction;
 import io.nuls.contract.entity.tx.ContractTransferTransaction;
 import io.nuls.contract.service.ContractService;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -40,10 +41,17 @@ import io.nuls.kernel.model.*;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.network.service.NetworkService;
+import io.nuls.protocol.base.cache.CompactBlockPeerManager;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
 import io.nuls.protocol.base.utils.PoConvertUtil;
+import io.nuls.protocol.cache.TemporaryCacheManager;
 import io.nuls.protocol.constant.ProtocolErroeCode;
+import io.nuls.protocol.message.CompactBlockMessage;
 import io.nuls.protocol.message.ForwardSmallBlockMessage;
 import io.nuls.protocol.message.SmallBlockMessage;
+import io.nuls.protocol.message.base.BaseMessage;
+import io.nuls.protocol.model.CompactBlock;
 import io.nuls.protocol.model.SmallBlock;
 import io.nuls.protocol.service.BlockService;
 import io.nuls.protocol.service.TransactionService;
@@ -51,7 +59,11 @@ import io.nuls.protocol.storage.po.BlockHeaderPo;
 import io.nuls.protocol.storage.service.BlockHeaderStorageService;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
 
 /**
  * 区块处理服务类
@@ -83,6 +95,13 @@ public class BlockServiceImpl implements BlockService {
     @Autowired
     private ContractService contractService;
 
+    @Autowired
+    private NetworkService networkService;
+
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
+
+    private CompactBlockPeerManager compactBlockPeerManager = CompactBlockPeerManager.getInstance();
+
     /**
      * 获取创世块（从存储中）
      * Get the creation block (from storage)
@@ -276,6 +295,43 @@ public class BlockServiceImpl implements BlockService {
         return Result.getSuccess().setData(block);
     }
 
+    /**
+     * 按高度升序获取[fromHeight, toHeight]范围内的区块头（从存储中顺序读取）
+     * Get the block headers in [fromHeight, toHeight] in ascending height order (read sequentially from storage)
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 区块头列表/block header list
+     */
+    @Override
+    public Result<List<BlockHeader>> getBlockHeaders(long fromHeight, long toHeight) {
+        List<BlockHeader> headerList = new ArrayList<>();
+        for (BlockHeaderPo po : blockHeaderStorageService.getBlockHeaders(fromHeight, toHeight)) {
+            headerList.add(PoConvertUtil.fromBlockHeaderPo(po));
+        }
+        return Result.getSuccess().setData(headerList);
+    }
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的区块头交给visitor，visitor返回false时停止
+     * Hand the block headers in [fromHeight, toHeight] to the visitor one by one, it stops when the visitor returns false.
+     */
+    @Override
+    public int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeader> visitor) {
+        return blockHeaderStorageService.scanBlockHeaders(fromHeight, toHeight, descending,
+                po -> visitor.test(PoConvertUtil.fromBlockHeaderPo(po)));
+    }
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的完整区块交给visitor，visitor返回false时停止
+     * Hand the whole blocks in [fromHeight, toHeight] to the visitor one by one, it stops when the visitor returns false.
+     */
+    @Override
+    public int scanBlocks(long fromHeight, long toHeight, boolean descending, Predicate<Block> visitor) {
+        return blockHeaderStorageService.scanBlockHeaders(fromHeight, toHeight, descending,
+                po -> visitor.test(getBlock(po)));
+    }
+
     /**
      * 保存区块到存储中
      * Save the block to the store.
@@ -291,23 +347,34 @@ public class BlockServiceImpl implements BlockService {
         }
         long height = block.getHeader().getHeight();
         List<Transaction> savedList = new ArrayList<>();
-        for (Transaction transaction : block.getTxs()) {
-            transaction.setBlockHeight(height);
-            Result result = transactionService.commitTx(transaction, block.getHeader());
-            if (result.isSuccess()) {
-                result = ledgerService.saveTx(transaction);
+        // 整个区块的账本写入和区块头在一次批量操作中原子提交，失败时账本的写入直接丢弃，只需要回滚各个交易的业务数据
+        // The ledger writes of the whole block and the header are committed atomically in one batch,
+        // on failure the ledger writes are just discarded and only the business data of the transactions is rolled back.
+        MultiAreaBatchOperation batch = ledgerService.beginBlockBatch();
+        try {
+            for (Transaction transaction : block.getTxs()) {
+                transaction.setBlockHeight(height);
+                Result result = transactionService.commitTx(transaction, block.getHeader());
+                if (result.isSuccess()) {
+                    result = ledgerService.saveTx(transaction);
+                }
+                if (result.isSuccess()) {
+                    savedList.add(transaction);
+                } else {
+                    this.rollbackTxList(savedList, block.getHeader(), false);
+                    return result;
+                }
             }
+            Result result = this.blockHeaderStorageService.saveBlockHeader(batch, PoConvertUtil.toBlockHeaderPo(block));
             if (result.isSuccess()) {
-                savedList.add(transaction);
-            } else {
+                result = ledgerService.commitBlockBatch();
+            }
+            if (result.isFailed()) {
                 this.rollbackTxList(savedList, block.getHeader(), false);
                 return result;
             }
-        }
-        Result result = this.blockHeaderStorageService.saveBlockHeader(PoConvertUtil.toBlockHeaderPo(block));
-        if (result.isFailed()) {
-            this.rollbackTxList(savedList, block.getHeader(), false);
-            return result;
+        } finally {
+            ledgerService.endBlockBatch();
         }
         try {
             accountLedgerService.saveConfirmedTransactionList(block.getTxs());
@@ -359,17 +426,33 @@ public class BlockServiceImpl implements BlockService {
         if (null == block) {
             return Result.getFailed(ProtocolErroeCode.BLOCK_IS_NULL);
         }
-        boolean b = this.rollbackTxList(block.getTxs(), block.getHeader(), true);
-        if (!b) {
-            return Result.getFailed(KernelErrorCode.DATA_ERROR);
-        }
         BlockHeaderPo po = new BlockHeaderPo();
         po.setHash(block.getHeader().getHash());
         po.setHeight(block.getHeader().getHeight());
         po.setPreHash(block.getHeader().getPreHash());
-        Result result = this.blockHeaderStorageService.removeBlockHerader(po);
-        if (result.isFailed()) {
-            return result;
+        Result result;
+        // 整个区块的账本回滚和区块头删除在一次批量操作中原子提交
+        // The ledger rollback of the whole block and the header removal are committed atomically in one batch.
+        MultiAreaBatchOperation batch = ledgerService.beginBlockBatch();
+        try {
+            boolean b = this.rollbackTxList(block.getTxs(), block.getHeader(), true);
+            if (!b) {
+                return Result.getFailed(KernelErrorCode.DATA_ERROR);
+            }
+            result = this.blockHeaderStorageService.removeBlockHerader(batch, po);
+            if (result.isSuccess()) {
+                result = ledgerService.commitBlockBatch();
+            }
+            if (result.isFailed()) {
+                // 账本的回滚已丢弃，重新提交交易的业务数据
+                // The ledger rollback is discarded, commit the business data of the transactions again.
+                for (Transaction tx : block.getTxs()) {
+                    transactionService.commitTx(tx, block.getHeader());
+                }
+                return result;
+            }
+        } finally {
+            ledgerService.endBlockBatch();
         }
         try {
             accountLedgerService.rollbackTransactions(block.getTxs());
@@ -383,7 +466,9 @@ public class BlockServiceImpl implements BlockService {
 
     /**
      * 转发区块给连接的其他对等节点，允许一个列外（不转发给它）
+     * 要求主动推送的节点(高带宽模式)直接收到紧凑区块，其余节点收到区块hash
      * Forward block to other peers of the connection, allowing one column (not forward to it)
+     * The peers that asked for pushing(high-bandwidth mode) receive the compact block directly, the others receive the block hash.
      *
      * @param blockHash   区块摘要/the hash of block
      * @param excludeNode 需要排除的节点，一般是因为从该节点处接收的本区块/The nodes that need to be excluded are generally due to the block received from the node.
@@ -391,14 +476,27 @@ public class BlockServiceImpl implements BlockService {
      */
     @Override
     public Result forwardBlock(NulsDigestData blockHash, Node excludeNode) {
+        SmallBlock smallBlock = temporaryCacheManager.getSmallBlockByHash(blockHash);
+        if (null != smallBlock) {
+            CompactBlockMessage compactBlockMessage = null;
+            for (Node node : compactBlockPeerManager.getPushPeers()) {
+                if (null != excludeNode && node.getId().equals(excludeNode.getId())) {
+                    continue;
+                }
+                if (null == compactBlockMessage) {
+                    compactBlockMessage = new CompactBlockMessage(createCompactBlock(smallBlock));
+                }
+                sendToNode(compactBlockMessage, node);
+            }
+        }
         ForwardSmallBlockMessage message = new ForwardSmallBlockMessage();
         message.setMsgBody(blockHash);
         return messageBusService.broadcast(message, excludeNode, true, 100);
     }
 
     /**
-     * 广播小区块给连接的其他对等节点
-     * The broadcast small block gives the connection to other peers.
+     * 广播小区块给连接的其他对等节点，支持紧凑区块的节点收到紧凑区块
+     * The broadcast small block gives the connection to other peers, the peers supporting compact blocks receive the compact block.
      *
      * @param smallBlock 小区块/the small block
      * @return 广播结果/Broadcast the results
@@ -406,8 +504,39 @@ public class BlockServiceImpl implements BlockService {
     @Override
     public Result broadcastBlock(SmallBlock smallBlock) {
         SmallBlockMessage message = fillSmallBlockMessage(smallBlock);
-        Result<List<String>> result = messageBusService.broadcast(message, null, true, 100);
-        return result;
+        CompactBlockMessage compactBlockMessage = new CompactBlockMessage(createCompactBlock(smallBlock));
+        List<String> nodeIdList = new ArrayList<>();
+        for (Node node : networkService.getAvailableNodes()) {
+            BaseMessage nodeMessage = compactBlockPeerManager.isCompactPeer(node) ? compactBlockMessage : message;
+            if (sendToNode(nodeMessage, node)) {
+                nodeIdList.add(node.getId());
+            }
+        }
+        return Result.getSuccess().setData(nodeIdList);
+    }
+
+    /**
+     * 生成紧凑区块，本节点接收该区块时向对等节点获取过的交易预先填入
+     * Create the compact block, the transactions this node fetched from a peer when receiving the block are prefilled.
+     */
+    private CompactBlock createCompactBlock(SmallBlock smallBlock) {
+        Map<NulsDigestData, Transaction> fetchedTxs = new HashMap<>();
+        for (NulsDigestData hash : smallBlock.getTxHashList()) {
+            Transaction tx = temporaryCacheManager.getFetchedTx(hash);
+            if (null != tx) {
+                fetchedTxs.put(hash, tx);
+            }
+        }
+        return CompactBlockUtil.createCompactBlock(smallBlock, fetchedTxs, ThreadLocalRandom.current().nextLong());
+    }
+
+    private boolean sendToNode(BaseMessage message, Node node) {
+        Result result = messageBusService.sendToNode(message, node, true);
+        if (result.isFailed()) {
+            compactBlockPeerManager.removeNode(node);
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.SmallBlock;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑区块的组装与还原
+ * Creates compact blocks and restores the transactions of a received one.
+ */
+public class CompactBlockUtil {
+
+    /**
+     * 由小区块生成紧凑区块，小区块中的完整交易(coinbase等系统交易)和likelyMissingTxs中的交易预先填入，其余交易只发送短id
+     * Create a compact block from a small block, the whole transactions of the small block (coinbase and other system transactions)
+     * and the likelyMissingTxs are prefilled, the other transactions are sent as short ids.
+     *
+     * @param smallBlock       小区块/the small block
+     * @param likelyMissingTxs 对方很可能没有的交易，可以为null/transactions the peer probably does not have, nullable
+     * @param nonce            短id的随机盐/the nonce salting the short ids
+     * @return CompactBlock
+     */
+    public static CompactBlock createCompactBlock(SmallBlock smallBlock, Map<NulsDigestData, Transaction> likelyMissingTxs, long nonce) {
+        CompactBlock compactBlock = new CompactBlock();
+        compactBlock.setHeader(smallBlock.getHeader());
+        compactBlock.setNonce(nonce);
+        Map<NulsDigestData, Transaction> prefilledMap = new HashMap<>();
+        if (null != likelyMissingTxs) {
+            prefilledMap.putAll(likelyMissingTxs);
+        }
+        for (Transaction tx : smallBlock.getSubTxList()) {
+            prefilledMap.put(tx.getHash(), tx);
+        }
+        List<NulsDigestData> txHashList = smallBlock.getTxHashList();
+        for (int i = 0; i < txHashList.size(); i++) {
+            NulsDigestData hash = txHashList.get(i);
+            Transaction tx = prefilledMap.get(hash);
+            if (null != tx) {
+                compactBlock.addPrefilledTx(i, tx);
+            } else {
+                compactBlock.addShortId(hash);
+            }
+        }
+        return compactBlock;
+    }
+
+    /**
+     * 用预先填入的交易和本地交易还原紧凑区块中的交易，本地交易按本区块的短id建立索引后逐一匹配
+     * 找不到或者有多笔本地交易短id相同的位置为null，调用者需要另行获取
+     * Restore the transactions of a compact block from the prefilled ones and the local ones, the local transactions
+     * are indexed by the short ids of this block and matched one by one.
+     * The positions not found or matched by more than one local transaction are left null, the caller must get them elsewhere.
+     *
+     * @param compactBlock 紧凑区块/the compact block
+     * @param sources      本地交易来源，如交易池、临时交易缓存/local transactions, such as the memory pool and the temporary tx cache
+     * @return 区块中的交易，格式错误(数量不符、区块内短id重复)时返回null/transactions of the block, null when the compact block is malformed
+     */
+    @SafeVarargs
+    public static Transaction[] fillTransactions(CompactBlock compactBlock, Collection<Transaction>... sources) {
+        int txCount = compactBlock.getTxCount();
+        if (txCount != compactBlock.getHeader().getTxCount()) {
+            return null;
+        }
+        Transaction[] txs = new Transaction[txCount];
+        List<Integer> prefilledIndexList = compactBlock.getPrefilledIndexList();
+        for (int i = 0; i < prefilledIndexList.size(); i++) {
+            int index = prefilledIndexList.get(i);
+            if (index < 0 || index >= txCount || null != txs[index]) {
+                return null;
+            }
+            txs[index] = compactBlock.getPrefilledTxList().get(i);
+        }
+
+        Map<Long, Integer> shortIdIndex = new HashMap<>();
+        int position = 0;
+        for (Long shortId : compactBlock.getShortIdList()) {
+            while (null != txs[position]) {
+                position++;
+            }
+            if (null != shortIdIndex.put(shortId, position)) {
+                return null;
+            }
+            position++;
+        }
+        if (shortIdIndex.isEmpty()) {
+            return txs;
+        }
+
+        boolean[] conflicts = new boolean[txCount];
+        for (Collection<Transaction> source : sources) {
+            if (null == source) {
+                continue;
+            }
+            for (Transaction tx : source) {
+                Integer index = shortIdIndex.get(compactBlock.getShortId(tx.getHash()));
+                if (null == index || conflicts[index]) {
+                    continue;
+                }
+                if (null == txs[index]) {
+                    txs[index] = tx;
+                } else if (!txs[index].getHash().equals(tx.getHash())) {
+                    txs[index] = null;
+                    conflicts[index] = true;
+                }
+            }
+        }
+        return txs;
+    }
+}
@@ -29,48 +29,116 @@ import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnels;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 向量清单过滤器
+ * 滚动的布隆过滤器：由若干代组成，写满的一代不再写入，新建一代时丢弃最老的一代，
+ * 所以过滤器始终记得最近插入的elements个对象，误判率也不会随插入次数变化
+ * 插入和查询都不加锁(Guava布隆过滤器本身是无锁线程安全的，换代用CAS)，可以在网络IO线程中直接调用
+ * Inventory filter.
+ * A rolling bloom filter: it is made of several generations, a full generation is not written any more,
+ * and the oldest generation is dropped when a new one is created,
+ * so the filter always remembers the most recent elements objects, and the false positive rate does not grow with the inserts.
+ * Neither insert nor query takes a lock (the Guava bloom filter is lock-free thread-safe, the rotation uses CAS),
+ * so it can be called from the network IO threads directly.
  *
  * @author ln
  */
 public class InventoryFilter {
 
+    private static final double DEFAULT_FPP = 0.00001;
+
+    /**
+     * 同时保留的代数，写满的两代加上正在写入的一代
+     * Generations kept at the same time, two full ones plus the one being written.
+     */
+    private static final int GENERATIONS = 3;
+
     private final int elements;
-    private AtomicInteger size = new AtomicInteger(0);
 
-    private BloomFilter<byte[]> filter;
+    /**
+     * 每一代的容量，elements的一半，保证写满的两代覆盖最近的elements个对象
+     * Capacity of each generation, half of elements, so the two full generations cover the most recent elements objects.
+     */
+    private final int generationCapacity;
 
-//    private Lock lock = new ReentrantLock();
+    private final double generationFpp;
+
+    private final AtomicReference<Generation[]> generations = new AtomicReference<>();
 
     public InventoryFilter(int elements) {
+        this(elements, DEFAULT_FPP);
+    }
+
+    /**
+     * @param elements 至少记住的最近插入数量/the number of most recent inserts remembered at least
+     * @param fpp      整体误判率/the false positive probability of the whole filter
+     */
+    public InventoryFilter(int elements, double fpp) {
         this.elements = elements;
-        filter = BloomFilter.create(Funnels.byteArrayFunnel(), elements, 0.00001);
+        this.generationCapacity = Math.max(1, (elements + 1) / 2);
+        this.generationFpp = fpp / GENERATIONS;
+        this.clear();
     }
 
+    /**
+     * 正在写入的一代的布隆过滤器
+     * The bloom filter of the generation being written.
+     */
     public BloomFilter getFilter() {
-        return filter;
+        return generations.get()[0].filter;
     }
 
     public void insert(byte[] object) {
-//        lock.lock();
-//        try {
-        filter.put(object);
-        int count = size.incrementAndGet();
-        if (count >= elements - 100) {
-            this.clear();
+        while (true) {
+            Generation[] current = generations.get();
+            Generation newest = current[0];
+            if (newest.count.incrementAndGet() <= generationCapacity) {
+                newest.filter.put(object);
+                return;
+            }
+            rotate(current);
         }
-//        } finally {
-//            lock.unlock();
-//        }
     }
 
     public boolean contains(byte[] object) {
-        return filter.mightContain(object);
+        for (Generation generation : generations.get()) {
+            if (null != generation && generation.filter.mightContain(object)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void clear() {
-        filter = BloomFilter.create(Funnels.byteArrayFunnel(), elements, 0.00001);
+        Generation[] empty = new Generation[GENERATIONS];
+        empty[0] = new Generation();
+        generations.set(empty);
+    }
+
+    public int getElements() {
+        return elements;
+    }
+
+    /**
+     * 新建一代放在最前面，丢弃最老的一代；并发时只有一个线程换代成功，其他线程在新的一代中重试
+     * Put a new generation in front and drop the oldest one, only one thread wins the race, the others retry in the new generation.
+     */
+    private void rotate(Generation[] current) {
+        if (generations.get() != current) {
+            return;
+        }
+        Generation[] next = new Generation[GENERATIONS];
+        next[0] = new Generation();
+        System.arraycopy(current, 0, next, 1, GENERATIONS - 1);
+        generations.compareAndSet(current, next);
+    }
+
+    private final class Generation {
+
+        private final BloomFilter<byte[]> filter = BloomFilter.create(Funnels.byteArrayFunnel(), generationCapacity, generationFpp);
+
+        private final AtomicInteger count = new AtomicInteger(0);
     }
 }
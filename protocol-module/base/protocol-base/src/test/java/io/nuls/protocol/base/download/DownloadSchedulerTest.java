@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download;
+
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.protocol.base.download.entity.DownloadRange;
+import io.nuls.protocol.base.download.entity.HeaderChain;
+import io.nuls.protocol.base.download.thread.DownloadScheduler;
+import io.nuls.protocol.base.download.utils.BlockPreVerifier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class DownloadSchedulerTest {
+
+    private static List<Block> blocks(DownloadRange range) {
+        List<Block> list = new ArrayList<>();
+        for (long height = range.getStartHeight(); height <= range.getEndHeight(); height++) {
+            BlockHeader header = new BlockHeader();
+            header.setHeight(height);
+            header.setPreHash(NulsDigestData.calcDigestData(new byte[]{0}));
+            header.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{1}));
+            Block block = new Block();
+            block.setHeader(header);
+            block.setTxs(new ArrayList<>());
+            list.add(block);
+        }
+        return list;
+    }
+
+    @Test
+    public void testInOrderDelivery() throws Exception {
+        BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+        DownloadScheduler scheduler = new DownloadScheduler(1, 25, queue);
+        scheduler.addPeer("a");
+        scheduler.addPeer("b");
+        DownloadRange first = scheduler.take("a");
+        DownloadRange second = scheduler.take("b");
+        DownloadRange third = scheduler.take("b");
+        assertEquals(1, first.getStartHeight());
+        assertEquals(11, second.getStartHeight());
+        assertEquals(5, third.getSize());
+
+        scheduler.complete("b", second, blocks(second), 100);
+        scheduler.complete("b", third, blocks(third), 100);
+        assertTrue(queue.isEmpty());
+        scheduler.complete("a", first, blocks(first), 100);
+        assertEquals(25, queue.size());
+        long height = 1;
+        for (Block block : queue) {
+            assertEquals(height++, block.getHeader().getHeight());
+        }
+        assertTrue(scheduler.await());
+        assertNull(scheduler.take("a"));
+    }
+
+    @Test
+    public void testFailedRangeMovesToOtherPeer() throws Exception {
+        BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+        DownloadScheduler scheduler = new DownloadScheduler(1, 100, queue);
+        scheduler.addPeer("slow");
+        scheduler.addPeer("fast");
+        DownloadRange range = scheduler.take("slow");
+        scheduler.complete("slow", range, null, 60000);
+
+        DownloadRange next = scheduler.take("slow");
+        assertNotEquals(range.getStartHeight(), next.getStartHeight());
+        DownloadRange stolen = scheduler.take("fast");
+        assertSame(range, stolen);
+        scheduler.complete("fast", stolen, blocks(stolen), 50);
+        assertEquals(10, queue.size());
+    }
+
+    @Test
+    public void testBatchSizeAdapts() throws Exception {
+        DownloadScheduler scheduler = new DownloadScheduler(1, 100000, new LinkedBlockingQueue<>());
+        scheduler.addPeer("a");
+        DownloadRange range = scheduler.take("a");
+        scheduler.complete("a", range, blocks(range), 20);
+        DownloadRange next = scheduler.take("a");
+        assertTrue(next.getSize() > range.getSize());
+    }
+
+    @Test
+    public void testWindowBoundsUnconsumedBlocks() throws Exception {
+        BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+        DownloadScheduler scheduler = new DownloadScheduler(1, 1000000, queue);
+        scheduler.addPeer("a");
+        scheduler.addPeer("b");
+        long assigned = 0;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            while (true) {
+                Future<DownloadRange> future = executor.submit(() -> scheduler.take("a"));
+                DownloadRange range;
+                try {
+                    range = future.get(500, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    scheduler.removePeer("a");
+                    break;
+                }
+                assigned += range.getSize();
+                assertTrue(assigned < 1000000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(assigned <= 20000);
+    }
+
+    @Test
+    public void testHeaderHeightLimitsAssignment() throws Exception {
+        BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+        DownloadScheduler scheduler = new DownloadScheduler(1, 30, queue);
+        scheduler.setHeaderHeight(4);
+        scheduler.addPeer("a");
+        DownloadRange first = scheduler.take("a");
+        assertEquals(1, first.getStartHeight());
+        assertEquals(4, first.getSize());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<DownloadRange> waiting = executor.submit(() -> scheduler.take("a"));
+        Thread.sleep(300L);
+        assertFalse(waiting.isDone());
+        scheduler.setHeaderHeight(30);
+        DownloadRange second = waiting.get(2, TimeUnit.SECONDS);
+        assertEquals(5, second.getStartHeight());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPreVerifierRejectsBlockNotMatchingHeader() {
+        List<Block> blockList = blocks(new DownloadRange(1, 3));
+        BlockHeader start = new BlockHeader();
+        start.setHeight(0);
+        start.setPreHash(NulsDigestData.calcDigestData(new byte[]{2}));
+        start.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{3}));
+        HeaderChain headerChain = new HeaderChain(start);
+        List<BlockHeader> headerList = new ArrayList<>();
+        for (Block block : blockList) {
+            headerList.add(block.getHeader());
+        }
+        headerChain.add(headerList);
+        assertTrue(BlockPreVerifier.verify(blockList, headerChain));
+
+        List<Block> otherList = blocks(new DownloadRange(1, 3));
+        otherList.get(1).getHeader().setTime(1L);
+        assertFalse(BlockPreVerifier.verify(otherList, headerChain));
+
+        headerChain.removeTo(3);
+        assertNull(headerChain.getHash(2));
+        assertTrue(BlockPreVerifier.verify(otherList, headerChain));
+    }
+
+    /**
+     * 放弃的区块头链不再比较hash，也不再接受新的区块头
+     * An abandoned header chain compares no hashes and accepts no more headers.
+     */
+    @Test
+    public void testAbandonHeaderChain() {
+        List<Block> blockList = blocks(new DownloadRange(1, 3));
+        BlockHeader start = new BlockHeader();
+        start.setHeight(0);
+        HeaderChain headerChain = new HeaderChain(start);
+        List<BlockHeader> headerList = new ArrayList<>();
+        for (Block block : blockList) {
+            headerList.add(block.getHeader());
+        }
+        headerChain.add(headerList);
+
+        List<Block> otherList = blocks(new DownloadRange(1, 3));
+        otherList.get(1).getHeader().setTime(1L);
+        assertTrue(BlockPreVerifier.verify(otherList, null));
+        assertFalse(BlockPreVerifier.matchesHeaders(otherList, headerChain));
+
+        headerChain.abandon();
+        assertTrue(headerChain.isAbandoned());
+        assertTrue(BlockPreVerifier.matchesHeaders(otherList, headerChain));
+        headerChain.add(headerList);
+        assertNull(headerChain.getHash(1));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.TransactionManager;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.SmallBlock;
+import io.nuls.protocol.model.tx.CoinBaseTransaction;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactBlockUtilTest {
+
+    private List<Transaction> txList;
+
+    private SmallBlock smallBlock;
+
+    @Before
+    public void init() throws Exception {
+        TransactionManager.putTx(CoinBaseTransaction.class, null);
+        TransactionManager.putTx(TransferTransaction.class, null);
+
+        txList = new ArrayList<>();
+        CoinBaseTransaction coinBase = new CoinBaseTransaction();
+        coinBase.setTime(1);
+        coinBase.setHash(NulsDigestData.calcDigestData(coinBase.serializeForHash()));
+        txList.add(coinBase);
+        for (int i = 0; i < 100; i++) {
+            Transaction tx = new TransferTransaction();
+            tx.setTime(1000 + i);
+            tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+            txList.add(tx);
+        }
+        List<NulsDigestData> txHashList = new ArrayList<>();
+        for (Transaction tx : txList) {
+            txHashList.add(tx.getHash());
+        }
+        BlockHeader header = new BlockHeader();
+        header.setHeight(10);
+        header.setTime(12345L);
+        header.setTxCount(txList.size());
+        header.setPreHash(NulsDigestData.calcDigestData(new byte[]{1}));
+        header.setMerkleHash(NulsDigestData.calcMerkleDigestData(new ArrayList<>(txHashList)));
+
+        smallBlock = new SmallBlock();
+        smallBlock.setHeader(header);
+        smallBlock.setTxHashList(txHashList);
+        smallBlock.addBaseTx(coinBase);
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        Map<NulsDigestData, Transaction> likelyMissing = new HashMap<>();
+        likelyMissing.put(txList.get(50).getHash(), txList.get(50));
+        CompactBlock compactBlock = CompactBlockUtil.createCompactBlock(smallBlock, likelyMissing, 7L);
+        assertEquals(2, compactBlock.getPrefilledTxList().size());
+        assertEquals(Integer.valueOf(0), compactBlock.getPrefilledIndexList().get(0));
+        assertEquals(Integer.valueOf(50), compactBlock.getPrefilledIndexList().get(1));
+        assertTrue(compactBlock.size() < smallBlock.size());
+
+        CompactBlock received = new NulsByteBuffer(compactBlock.serialize()).readNulsData(new CompactBlock());
+        assertEquals(compactBlock.getShortIdList(), received.getShortIdList());
+        assertEquals(compactBlock.getPrefilledIndexList(), received.getPrefilledIndexList());
+
+        List<Transaction> pool = new ArrayList<>(txList.subList(1, txList.size()));
+        Collections.shuffle(pool);
+        List<Transaction> others = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Transaction tx = new TransferTransaction();
+            tx.setTime(5000 + i);
+            tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+            others.add(tx);
+        }
+        Transaction[] txs = CompactBlockUtil.fillTransactions(received, others, pool);
+        assertNotNull(txs);
+        assertEquals(txList.size(), txs.length);
+        for (int i = 0; i < txs.length; i++) {
+            assertEquals(txList.get(i).getHash(), txs[i].getHash());
+        }
+    }
+
+    @Test
+    public void testMissing() {
+        CompactBlock compactBlock = CompactBlockUtil.createCompactBlock(smallBlock, null, 8L);
+        List<Transaction> pool = new ArrayList<>(txList.subList(1, txList.size()));
+        pool.remove(30);
+        Transaction[] txs = CompactBlockUtil.fillTransactions(compactBlock, pool);
+        assertNotNull(txs);
+        for (int i = 0; i < txs.length; i++) {
+            if (i == 31) {
+                assertNull(txs[i]);
+            } else {
+                assertEquals(txList.get(i).getHash(), txs[i].getHash());
+            }
+        }
+    }
+
+    @Test
+    public void testShortIdSaltedPerBlock() {
+        CompactBlock first = CompactBlockUtil.createCompactBlock(smallBlock, null, 1L);
+        CompactBlock second = CompactBlockUtil.createCompactBlock(smallBlock, null, 2L);
+        assertNotEquals(first.getShortIdList(), second.getShortIdList());
+        for (Long shortId : first.getShortIdList()) {
+            assertTrue(shortId >= 0 && shortId < (1L << 48));
+        }
+    }
+
+    @Test
+    public void testMalformed() {
+        CompactBlock compactBlock = CompactBlockUtil.createCompactBlock(smallBlock, null, 9L);
+        compactBlock.getShortIdList().add(compactBlock.getShortIdList().get(0));
+        compactBlock.getHeader().setTxCount(txList.size() + 1);
+        assertNull(CompactBlockUtil.fillTransactions(compactBlock, txList));
+        compactBlock.getShortIdList().remove(compactBlock.getShortIdList().size() - 1);
+        assertNull(CompactBlockUtil.fillTransactions(compactBlock, txList));
+    }
+
+    @Test
+    public void testNegativePrefilledIndex() throws Exception {
+        Map<NulsDigestData, Transaction> likelyMissing = new HashMap<>();
+        likelyMissing.put(txList.get(50).getHash(), txList.get(50));
+        CompactBlock compactBlock = CompactBlockUtil.createCompactBlock(smallBlock, likelyMissing, 10L);
+        compactBlock.getPrefilledIndexList().set(1, -5);
+        assertNull(CompactBlockUtil.fillTransactions(compactBlock, txList));
+        try {
+            new NulsByteBuffer(compactBlock.serialize()).readNulsData(new CompactBlock());
+            fail();
+        } catch (NulsException e) {
+            // 负的增量被拒绝
+            // The negative delta is rejected.
+        }
+    }
+}
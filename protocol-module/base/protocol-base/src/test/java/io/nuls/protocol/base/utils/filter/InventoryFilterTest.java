@@ -37,8 +37,11 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertTrue;
+
 /**
  * @author: Niels Wang
  * @date: 2018/7/8
@@ -119,4 +122,46 @@ public class InventoryFilterTest {
         System.out.println("real-size====" + set.size());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRollingKeepsRecentItems() {
+        int elements = 10000;
+        InventoryFilter filter = new InventoryFilter(elements);
+        int total = elements * 5 + 123;
+        for (int i = 0; i < total; i++) {
+            filter.insert(NulsDigestData.calcDigestData(String.valueOf(i).getBytes()).getDigestBytes());
+        }
+        for (int i = total - elements; i < total; i++) {
+            assertTrue(filter.contains(NulsDigestData.calcDigestData(String.valueOf(i).getBytes()).getDigestBytes()));
+        }
+        int falsePositive = 0;
+        for (int i = total; i < total + 100000; i++) {
+            if (filter.contains(NulsDigestData.calcDigestData(String.valueOf(i).getBytes()).getDigestBytes())) {
+                falsePositive++;
+            }
+        }
+        assertTrue(falsePositive < 10);
+    }
+
+    @Test
+    public void testConcurrentInsert() throws InterruptedException {
+        int elements = 20000;
+        InventoryFilter filter = new InventoryFilter(elements);
+        int threads = 4;
+        int perThread = elements / threads;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    filter.insert(NulsDigestData.calcDigestData(String.valueOf(offset + i).getBytes()).getDigestBytes());
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        for (int i = 0; i < elements; i++) {
+            assertTrue(filter.contains(NulsDigestData.calcDigestData(String.valueOf(i).getBytes()).getDigestBytes()));
+        }
+    }
+}
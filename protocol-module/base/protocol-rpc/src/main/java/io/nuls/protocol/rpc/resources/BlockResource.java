@@ -261,11 +261,10 @@ public class BlockResource {
         }
         List<BlockDto> list = new ArrayList<>();
 
-        for (int i = 0; i < size && (startHeight + i) <= bestHeight; i++) {
-            Block block = blockService.getBlock(startHeight + i).getData();
-            if (null == block) {
-                break;
-            }
+        long endHeight = Math.min(bestHeight, startHeight + size - 1);
+        List<Block> blockList = new ArrayList<>();
+        blockService.scanBlocks(startHeight, endHeight, false, block -> blockList.add(block));
+        for (Block block : blockList) {
             BlockDto dto = new BlockDto(block);
             fillBlockTxInputAddress(dto);
             calTransactionValue(dto);
@@ -338,26 +337,18 @@ public class BlockResource {
     public RpcClientResult getBlockInfoList() throws IOException {
         Block bestBlock = NulsContext.getInstance().getBestBlock();
         List<BlockInfoDto> list = new ArrayList<>();
-        int count = 0;
-        NulsDigestData preHash = null;
-        while (count < 5) {
-            count++;
-            BlockHeader header = null;
-            if (null != preHash) {
-                header = blockService.getBlockHeader(preHash).getData();
-            } else {
-                header = bestBlock.getHeader();
-            }
-            if (null == header) {
-                return RpcClientResult.getFailed(KernelErrorCode.DATA_ERROR);
-            }
+        long bestHeight = bestBlock.getHeader().getHeight();
+        blockService.scanBlockHeaders(bestHeight - 4, bestHeight, true, header -> {
             BlockInfoDto dto = new BlockInfoDto();
             dto.setHeight(header.getHeight());
             dto.setHash(header.getHash().getDigestHex());
             dto.setPackingAddress(AddressTool.getStringAddressByBytes(header.getPackingAddress()));
             dto.setTxCount(header.getTxCount());
             list.add(dto);
-            preHash = header.getPreHash();
+            return true;
+        });
+        if (list.size() < Math.min(5L, bestHeight + 1)) {
+            return RpcClientResult.getFailed(KernelErrorCode.DATA_ERROR);
         }
         Map<String, List<BlockInfoDto>> map = new HashMap<>();
         map.put("list", list);
@@ -36,17 +36,29 @@ import io.nuls.core.tools.str.StringUtils;
  */
 public interface ProtocolStorageConstant {
     /**
-     * 区块头高度索引表名称
-     * Block header height index table.
+     * 旧版区块头高度索引表名称，以VarInt编码的高度为key，仅用于启动时迁移
+     * The legacy block header height index table keyed by VarInt heights, only used by the migration at startup.
      */
     String DB_NAME_BLOCK_HEADER_INDEX = "block_header_index";
 
     /**
-     * 区块头表名称
-     * Block header table name.
+     * 旧版区块头表名称，以hash为key，仅用于启动时迁移
+     * The legacy block header table keyed by hash, only used by the migration at startup.
      */
     String DB_NAME_BLOCK_HEADER = "block_header";
 
+    /**
+     * 区块头表名称，以8字节大端高度为key，按高度有序，value为hash加区块头
+     * Block header table keyed by 8-byte big-endian heights in height order, the value is the hash followed by the header.
+     */
+    String DB_NAME_BLOCK_HEADER_HEIGHT = "block_header_height";
+
+    /**
+     * 区块hash到高度的索引表名称
+     * Block hash to height index table.
+     */
+    String DB_NAME_BLOCK_HEADER_HASH_INDEX = "block_header_hash_index";
+
     /**
      * 数据库中存储的最新区块hash的索引值
      * The index value of the latest block hash stored in the database.
@@ -25,10 +25,14 @@
 
 package io.nuls.protocol.storage.service;
 
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.protocol.storage.po.BlockHeaderPo;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * 区块头数据存储服务接口
  * Block header data storage service interface.
@@ -55,6 +59,29 @@ public interface BlockHeaderStorageService {
      */
     BlockHeaderPo getBlockHeaderPo(NulsDigestData hash);
 
+    /**
+     * 按高度升序读取[fromHeight, toHeight]范围内的区块头
+     * Read the headers in [fromHeight, toHeight] in ascending height order.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 区块头列表/header list
+     */
+    List<BlockHeaderPo> getBlockHeaders(long fromHeight, long toHeight);
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的区块头交给visitor，visitor返回false时停止，不会一次加载整个范围
+     * Hand the headers in [fromHeight, toHeight] to the visitor one by one without loading the whole range,
+     * it stops when the visitor returns false.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @param descending 是否从高到低/from high to low or not
+     * @param visitor    区块头处理者/the header visitor
+     * @return 交给visitor的区块头数量/the number of headers handed to the visitor
+     */
+    int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeaderPo> visitor);
+
     /**
      * 保存区块头数据到存储中
      * Save the block header data to the storage.
@@ -64,6 +91,16 @@ public interface BlockHeaderStorageService {
      */
     Result saveBlockHeader(BlockHeaderPo po);
 
+    /**
+     * 把保存区块头的写入追加到批量操作中，随批量操作一起提交
+     * Append the writes of saving the block header to the batch, they are committed with the batch.
+     *
+     * @param batch 批量操作/the batch
+     * @param po    区块头数据/block header data
+     * @return 操作结果/operating result
+     */
+    Result saveBlockHeader(MultiAreaBatchOperation batch, BlockHeaderPo po);
+
     /**
      * 从存储中删除区块头数据
      * Remove block header data from storage.
@@ -73,6 +110,16 @@ public interface BlockHeaderStorageService {
      */
     Result removeBlockHerader(BlockHeaderPo po);
 
+    /**
+     * 把删除区块头的写入追加到批量操作中，随批量操作一起提交
+     * Append the writes of removing the block header to the batch, they are committed with the batch.
+     *
+     * @param batch 批量操作/the batch
+     * @param po    区块头/block header data
+     * @return 操作结果/operating result
+     */
+    Result removeBlockHerader(MultiAreaBatchOperation batch, BlockHeaderPo po);
+
     /**
      * 获取最新的区块头
      * Get the latest block header.
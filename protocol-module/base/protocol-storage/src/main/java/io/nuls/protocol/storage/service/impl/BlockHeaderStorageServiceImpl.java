@@ -27,7 +27,10 @@ package io.nuls.protocol.storage.service.impl;
 
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBCursor;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -36,16 +39,26 @@ import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
+import io.nuls.kernel.utils.NulsByteBuffer;
 import io.nuls.kernel.utils.VarInt;
 import io.nuls.protocol.storage.constant.ProtocolStorageConstant;
 import io.nuls.protocol.storage.po.BlockHeaderPo;
 import io.nuls.protocol.storage.service.BlockHeaderStorageService;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * 区块头数据存储服务实现类
  * Block header data storage service implementation class.
+ * 区块头按8字节大端高度存储，key的字节序即高度顺序，连续高度的读取是一次顺序扫描
+ * Headers are stored under 8-byte big-endian heights, so the key order is the height order
+ * and reading consecutive heights is one sequential scan.
  *
  * @author: Niels Wang
  */
@@ -53,6 +66,12 @@ import java.io.IOException;
 @Service
 public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService, InitializingBean {
 
+    /**
+     * 迁移和倒序读取时每批处理的区块头数量
+     * The number of headers handled per batch by the migration and the descending reads.
+     */
+    private static final int BATCH_SIZE = 1000;
+
     private byte[] bestBlockKey;
 
     /**
@@ -68,11 +87,11 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public void afterPropertiesSet() {
-        Result result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        Result result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT);
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
-        result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+        result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX);
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
@@ -81,6 +100,130 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         } catch (IOException e) {
             throw new NulsRuntimeException(e.getCause());
         }
+        this.migrateLegacyLayout();
+    }
+
+    /**
+     * 把旧版以VarInt高度为key的索引表和以hash为key的区块头表迁移到按高度有序的新表，完成后删除旧表
+     * 迁移中断时旧表仍然存在，下次启动会重新迁移，重复写入的数据相同
+     * Migrate the legacy VarInt height index and the hash keyed header table into the height ordered tables,
+     * the legacy tables are destroyed afterwards.
+     * When the migration is interrupted the legacy tables are still there and the next startup migrates again,
+     * writing the same data.
+     */
+    private void migrateLegacyLayout() {
+        List<String> areaList = Arrays.asList(dbService.listArea());
+        if (!areaList.contains(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX)) {
+            if (areaList.contains(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER)) {
+                dbService.destroyArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+            }
+            return;
+        }
+        Log.info("migrate the block headers to the height ordered layout");
+        DBCursor cursor = dbService.openCursor(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        if (null == cursor) {
+            throw new NulsRuntimeException(DBErrorCode.DB_AREA_NOT_EXIST);
+        }
+        long count = 0;
+        try {
+            MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+            int batchCount = 0;
+            while (cursor.hasNext()) {
+                Entry<byte[], byte[]> entry = cursor.next();
+                if (Arrays.equals(bestBlockKey, entry.getKey())) {
+                    continue;
+                }
+                long height = new VarInt(entry.getKey(), 0).value;
+                byte[] hashBytes = entry.getValue();
+                byte[] poBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
+                if (null == poBytes) {
+                    continue;
+                }
+                byte[] heightKey = heightKey(height);
+                batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey, toRecord(hashBytes, poBytes));
+                batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, hashBytes, heightKey);
+                count++;
+                if (++batchCount >= BATCH_SIZE) {
+                    checkMigrationResult(batch.executeBatch());
+                    batch = dbService.createMultiAreaWriteBatch();
+                    batchCount = 0;
+                }
+            }
+            byte[] bestHashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey);
+            if (null != bestHashBytes) {
+                byte[] heightKey = legacyHeightKey(bestHashBytes);
+                if (null != heightKey) {
+                    batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, bestBlockKey, heightKey);
+                }
+            }
+            checkMigrationResult(batch.executeBatch());
+        } finally {
+            cursor.close();
+        }
+        dbService.destroyArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        dbService.destroyArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+        Log.info("migrated " + count + " block headers");
+    }
+
+    /**
+     * 从旧版区块头表读取区块的高度
+     * Read the height of a block from the legacy header table.
+     */
+    private byte[] legacyHeightKey(byte[] hashBytes) {
+        byte[] poBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
+        if (null == poBytes) {
+            return null;
+        }
+        BlockHeaderPo po = new BlockHeaderPo();
+        try {
+            po.parse(poBytes, 0);
+        } catch (NulsException e) {
+            Log.error(e);
+            return null;
+        }
+        return heightKey(po.getHeight());
+    }
+
+    private void checkMigrationResult(Result result) {
+        if (result.isFailed()) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+    }
+
+    /**
+     * 8字节大端编码的高度，字节序与高度顺序一致
+     * The 8-byte big-endian height, whose bytewise order is the height order.
+     */
+    private static byte[] heightKey(long height) {
+        return ByteBuffer.allocate(8).putLong(height).array();
+    }
+
+    private static byte[] toRecord(byte[] hashBytes, byte[] poBytes) {
+        byte[] record = new byte[hashBytes.length + poBytes.length];
+        System.arraycopy(hashBytes, 0, record, 0, hashBytes.length);
+        System.arraycopy(poBytes, 0, record, hashBytes.length, poBytes.length);
+        return record;
+    }
+
+    /**
+     * 解析区块头表中的数据：hash后紧跟区块头
+     * Parse a record of the header table: the hash followed by the header.
+     */
+    private BlockHeaderPo parseRecord(byte[] record) {
+        if (null == record) {
+            return null;
+        }
+        NulsByteBuffer byteBuffer = new NulsByteBuffer(record);
+        BlockHeaderPo po = new BlockHeaderPo();
+        try {
+            NulsDigestData hash = byteBuffer.readHash();
+            po.parse(byteBuffer);
+            po.setHash(hash);
+        } catch (NulsException e) {
+            Log.error(e);
+            return null;
+        }
+        return po;
     }
 
     /**
@@ -95,11 +238,7 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if(height < 0L) {
             return null;
         }
-        byte[] hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(height).encode());
-        if (null == hashBytes) {
-            return null;
-        }
-        return getBlockHeaderPo(hashBytes);
+        return parseRecord(dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey(height)));
     }
 
     /**
@@ -114,40 +253,108 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if (null == hash) {
             return null;
         }
+        byte[] heightKey;
         try {
-            return getBlockHeaderPo(hash.serialize());
+            heightKey = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, hash.serialize());
         } catch (IOException e) {
             Log.error(e);
             return null;
         }
+        if (null == heightKey) {
+            return null;
+        }
+        BlockHeaderPo po = parseRecord(dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey));
+        // 该高度已经被其他区块覆盖时，索引已经失效
+        // The index is stale when the height has been overwritten by another block.
+        if (null == po || !hash.equals(po.getHash())) {
+            return null;
+        }
+        return po;
     }
 
     /**
-     * 根据区块hash查询区块头数据
-     * Query block header data according to block hash.
+     * 按高度升序读取[fromHeight, toHeight]范围内的区块头，一次顺序扫描
+     * Read the headers in [fromHeight, toHeight] in ascending height order with one sequential scan.
      *
-     * @param hashBytes 区块头摘要/block hash
-     * @return BlockHeaderPo 区块头数据
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 区块头列表/header list
      */
-    private BlockHeaderPo getBlockHeaderPo(byte[] hashBytes) {
-        byte[] bytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
-        if (null == bytes) {
-            return null;
+    @Override
+    public List<BlockHeaderPo> getBlockHeaders(long fromHeight, long toHeight) {
+        List<BlockHeaderPo> list = new ArrayList<>();
+        this.scanBlockHeaders(fromHeight, toHeight, false, po -> list.add(po));
+        return list;
+    }
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的区块头交给visitor，visitor返回false时停止
+     * 倒序读取时按批次从高到低顺序扫描，每批内部再倒序交给visitor
+     * Hand the headers in [fromHeight, toHeight] to the visitor one by one, it stops when the visitor returns false.
+     * A descending read scans batch by batch from high to low, each batch is handed over in reverse.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @param descending 是否从高到低/from high to low or not
+     * @param visitor    区块头处理者/the header visitor
+     * @return 交给visitor的区块头数量/the number of headers handed to the visitor
+     */
+    @Override
+    public int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeaderPo> visitor) {
+        if (fromHeight < 0L) {
+            fromHeight = 0L;
         }
-        BlockHeaderPo po = new BlockHeaderPo();
-        try {
-            po.parse(bytes,0);
-        } catch (NulsException e) {
-            Log.error(e);
+        if (null == visitor || toHeight < fromHeight) {
+            return 0;
+        }
+        if (!descending) {
+            return scanAscending(fromHeight, toHeight, visitor);
+        }
+        int count = 0;
+        long high = toHeight;
+        while (high >= fromHeight) {
+            long low = Math.max(fromHeight, high - BATCH_SIZE + 1);
+            List<BlockHeaderPo> batch = new ArrayList<>();
+            scanAscending(low, high, po -> batch.add(po));
+            Collections.reverse(batch);
+            for (BlockHeaderPo po : batch) {
+                count++;
+                if (!visitor.test(po)) {
+                    return count;
+                }
+            }
+            if (batch.size() < high - low + 1) {
+                // 这一段有缺失，更低的区块头不再连续
+                // There is a gap in this batch, the lower headers are not continuous any more.
+                break;
+            }
+            high = low - 1;
+        }
+        return count;
+    }
+
+    private int scanAscending(long fromHeight, long toHeight, Predicate<BlockHeaderPo> visitor) {
+        int count = 0;
+        byte[] toKey = toHeight == Long.MAX_VALUE ? null : heightKey(toHeight + 1);
+        DBCursor cursor = dbService.openCursor(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey(fromHeight), toKey);
+        if (null == cursor) {
+            return count;
         }
-        NulsDigestData hash = new NulsDigestData();
         try {
-            hash.parse(hashBytes,0);
-        } catch (NulsException e) {
-            Log.error(e);
+            while (cursor.hasNext()) {
+                BlockHeaderPo po = parseRecord(cursor.next().getValue());
+                if (null == po) {
+                    break;
+                }
+                count++;
+                if (!visitor.test(po)) {
+                    break;
+                }
+            }
+        } finally {
+            cursor.close();
         }
-        po.setHash(hash);
-        return po;
+        return count;
     }
 
     /**
@@ -159,40 +366,40 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public Result saveBlockHeader(BlockHeaderPo po) {
-        if (null == po) {
+        // 区块头、hash索引和最新区块在一次批量操作中原子提交
+        // The header, the hash index and the best block are committed atomically in one batch.
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        Result result = saveBlockHeader(batch, po);
+        if (result.isFailed()) {
+            return result;
+        }
+        return batch.executeBatch();
+    }
+
+    @Override
+    public Result saveBlockHeader(MultiAreaBatchOperation batch, BlockHeaderPo po) {
+        if (null == batch || null == po) {
             return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
-        byte[] hashBytes = null;
+        byte[] hashBytes;
+        byte[] record;
         try {
             hashBytes = po.getHash().serialize();
+            record = toRecord(hashBytes, po.serialize());
         } catch (IOException e) {
             Log.error(e);
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
-        Result result = null;
-        try {
-            result = dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, po.serialize());
-        } catch (IOException e) {
-            Log.error(e);
-            return Result.getFailed(KernelErrorCode.IO_ERROR);
-        }
+        byte[] heightKey = heightKey(po.getHeight());
+        Result result = batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey, record);
         if (result.isFailed()) {
             return result;
         }
-        result = dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode(), hashBytes);
+        result = batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, hashBytes, heightKey);
         if (result.isFailed()) {
-            this.removeBlockHerader(hashBytes);
             return result;
         }
-        dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, hashBytes);
-        return Result.getSuccess();
-    }
-
-    private Result removeBlockHerader(byte[] hashBytes) {
-        if (null == hashBytes) {
-            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
-        }
-        return dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
+        return batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, bestBlockKey, heightKey);
     }
 
     /**
@@ -204,21 +411,28 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public Result removeBlockHerader(BlockHeaderPo po) {
-        if (null == po || po.getHeight() < 0 || po.getHash() == null || po.getPreHash() == null) {
-            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        Result result = removeBlockHerader(batch, po);
+        if (result.isFailed()) {
+            return result;
         }
-        dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode());
-        try {
-            dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, po.getPreHash().serialize());
-        } catch (IOException e) {
-            Log.error(e);
+        return batch.executeBatch();
+    }
+
+    @Override
+    public Result removeBlockHerader(MultiAreaBatchOperation batch, BlockHeaderPo po) {
+        if (null == batch || null == po || po.getHeight() < 0 || po.getHash() == null || po.getPreHash() == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
         try {
-            return removeBlockHerader(po.getHash().serialize());
+            batch.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey(po.getHeight()));
+            batch.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, po.getHash().serialize());
+            batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, bestBlockKey, heightKey(po.getHeight() - 1));
         } catch (IOException e) {
             Log.error(e);
-            return Result.getFailed();
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
+        return Result.getSuccess();
     }
 
     /**
@@ -227,11 +441,11 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public BlockHeaderPo getBestBlockHeaderPo() {
-        byte[] hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey);
-        if (null == hashBytes) {
+        byte[] heightKey = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HASH_INDEX, bestBlockKey);
+        if (null == heightKey) {
             return null;
         }
-        return getBlockHeaderPo(hashBytes);
+        return parseRecord(dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_HEIGHT, heightKey));
     }
 
 }
@@ -26,16 +26,22 @@
 package io.nuls.protocol.storage.service.impl;
 
 import io.nuls.db.module.impl.LevelDbModuleBootstrap;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.MicroKernelBootstrap;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.NulsSignData;
 import io.nuls.kernel.model.Result;
 
 import io.nuls.kernel.script.BlockSignature;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.protocol.storage.constant.ProtocolStorageConstant;
 import io.nuls.protocol.storage.po.BlockHeaderPo;
 import io.nuls.protocol.storage.service.BlockHeaderStorageService;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -49,12 +55,16 @@ import static org.junit.Assert.*;
  */
 public class BlockHeaderStorageServiceImplTest {
 
-    private BlockHeaderStorageService service;
+    private static BlockHeaderStorageService service;
 
     private BlockHeaderPo entity;
 
-    @Before
-    public void init() {
+    /**
+     * 内核的bean只能扫描一次，多个测试共用同一个上下文
+     * The kernel beans can be scanned only once, the tests share one context.
+     */
+    @BeforeClass
+    public static void initKernel() {
         MicroKernelBootstrap mk = MicroKernelBootstrap.getInstance();
         mk.init();
         mk.start();
@@ -64,6 +74,10 @@ public class BlockHeaderStorageServiceImplTest {
         bootstrap.start();
 
         service = NulsContext.getServiceBean(BlockHeaderStorageService.class);
+    }
+
+    @Before
+    public void init() {
         BlockHeaderPo po = new BlockHeaderPo();
         po.setHash(NulsDigestData.calcDigestData("hashhash".getBytes()));
         po.setHeight(1286L);
@@ -76,7 +90,7 @@ public class BlockHeaderStorageServiceImplTest {
             e.printStackTrace();
             assertTrue(false);
         }
-        po.setScriptSign(new BlockSignature());
+        po.setScriptSign(createSignature());
         po.setTime(12345678901L);
         po.setTxCount(3);
         List<NulsDigestData> txHashList = new ArrayList<>();
@@ -87,6 +101,15 @@ public class BlockHeaderStorageServiceImplTest {
         this.entity = po;
     }
 
+    private BlockSignature createSignature() {
+        BlockSignature signature = new BlockSignature();
+        signature.setPublicKey("public-key".getBytes());
+        NulsSignData signData = new NulsSignData();
+        signData.setSignBytes("sign-bytes".getBytes());
+        signature.setSignData(signData);
+        return signature;
+    }
+
     @Test
     public void test() {
         assertNotNull(service);
@@ -99,6 +122,102 @@ public class BlockHeaderStorageServiceImplTest {
         this.removeBlockHerader();
     }
 
+    @Test
+    public void testRange() {
+        List<BlockHeaderPo> saved = new ArrayList<>();
+        NulsDigestData preHash = entity.getPreHash();
+        for (int i = 0; i < 5; i++) {
+            BlockHeaderPo po = new BlockHeaderPo();
+            po.setHash(NulsDigestData.calcDigestData(("range-hash-" + i).getBytes()));
+            po.setHeight(255L + i);
+            po.setExtend("extends".getBytes());
+            po.setMerkleHash(entity.getMerkleHash());
+            po.setPreHash(preHash);
+            po.setPackingAddress("address".getBytes());
+            po.setScriptSign(createSignature());
+            po.setTime(12345678901L + i);
+            po.setTxCount(3);
+            po.setTxHashList(entity.getTxHashList());
+            assertTrue(service.saveBlockHeader(po).isSuccess());
+            saved.add(po);
+            preHash = po.getHash();
+        }
+        assertEquals(saved.get(4).getHash(), service.getBestBlockHeaderPo().getHash());
+
+        // 255和256的VarInt编码长度不同，大端key仍然按高度排序
+        // The VarInt encodings of 255 and 256 differ in length, the big-endian keys still sort by height.
+        List<BlockHeaderPo> list = service.getBlockHeaders(255L, 259L);
+        assertEquals(5, list.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(saved.get(i).getHash(), list.get(i).getHash());
+            assertEquals(saved.get(i).getHeight(), list.get(i).getHeight());
+            assertEquals(saved.get(i).getPreHash(), list.get(i).getPreHash());
+            assertEquals(saved.get(i).getTime(), list.get(i).getTime());
+        }
+
+        List<BlockHeaderPo> descList = new ArrayList<>();
+        int count = service.scanBlockHeaders(255L, 259L, true, po -> {
+            descList.add(po);
+            return po.getHeight() > 257L;
+        });
+        assertEquals(3, count);
+        assertEquals(259L, descList.get(0).getHeight());
+        assertEquals(257L, descList.get(2).getHeight());
+
+        for (int i = 4; i >= 0; i--) {
+            assertTrue(service.removeBlockHerader(saved.get(i)).isSuccess());
+        }
+        assertTrue(service.getBlockHeaders(255L, 259L).isEmpty());
+        assertNull(service.getBlockHeaderPo(saved.get(0).getHash()));
+    }
+
+    @Test
+    public void testSaveInBatch() {
+        DBService dbService = NulsContext.getServiceBean(DBService.class);
+        entity.setHeight(400L);
+        // 追加到批量操作中的区块头在提交之前不可见
+        // The header appended to the batch is not visible before the batch is committed.
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        assertTrue(service.saveBlockHeader(batch, entity).isSuccess());
+        assertNull(service.getBlockHeaderPo(400L));
+        assertTrue(batch.executeBatch().isSuccess());
+        assertEquals(entity.getHash(), service.getBlockHeaderPo(400L).getHash());
+        assertEquals(entity.getHash(), service.getBestBlockHeaderPo().getHash());
+
+        batch = dbService.createMultiAreaWriteBatch();
+        assertTrue(service.removeBlockHerader(batch, entity).isSuccess());
+        assertNotNull(service.getBlockHeaderPo(entity.getHash()));
+        assertTrue(batch.executeBatch().isSuccess());
+        assertNull(service.getBlockHeaderPo(entity.getHash()));
+        assertNull(service.getBlockHeaderPo(400L));
+    }
+
+    @Test
+    public void testMigrateLegacyLayout() throws Exception {
+        DBService dbService = NulsContext.getServiceBean(DBService.class);
+        dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+        BlockHeaderPo po = entity;
+        po.setHeight(300L);
+        byte[] hashBytes = po.getHash().serialize();
+        dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, po.serialize());
+        dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(300L).encode(), hashBytes);
+        byte[] bestBlockKey = NulsDigestData.calcDigestData(ProtocolStorageConstant.BEST_BLOCK_HASH_INDEX.getBytes()).serialize();
+        dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, hashBytes);
+
+        ((BlockHeaderStorageServiceImpl) service).afterPropertiesSet();
+
+        List<String> areaList = Arrays.asList(dbService.listArea());
+        assertFalse(areaList.contains(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX));
+        assertFalse(areaList.contains(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER));
+        assertEquals(po.getHash(), service.getBlockHeaderPo(300L).getHash());
+        assertEquals(300L, service.getBlockHeaderPo(po.getHash()).getHeight());
+        assertEquals(po.getHash(), service.getBestBlockHeaderPo().getHash());
+
+        assertTrue(service.removeBlockHerader(po).isSuccess());
+        assertNull(service.getBlockHeaderPo(300L));
+    }
+
     public void getBlockPo() {
         BlockHeaderPo po = this.service.getBlockHeaderPo(entity.getHeight());
         this.testEquals(po, entity);
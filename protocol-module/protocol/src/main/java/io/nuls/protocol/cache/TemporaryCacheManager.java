@@ -29,6 +29,8 @@ import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.protocol.model.SmallBlock;
 
+import java.util.Collection;
+
 /**
  * Used for sharing temporary data between multiple hander.
  * 用于不同的handler之间共享交易数据，交易缓存池中的数据已经放入，直到自动销毁前，不做清理
@@ -44,6 +46,13 @@ public class TemporaryCacheManager {
 
     private LimitHashMap<NulsDigestData, Transaction> txCacheMap = new LimitHashMap<>(100000);
 
+    /**
+     * 接收新区块时本地没有、需要向对等节点获取的交易，转发紧凑区块时预先填入
+     * Transactions that were missing locally when receiving a new block and had to be fetched from a peer,
+     * they are prefilled when forwarding the compact block.
+     */
+    private LimitHashMap<NulsDigestData, Transaction> fetchedTxMap = new LimitHashMap<>(10000);
+
     private TemporaryCacheManager() {
 
     }
@@ -109,6 +118,37 @@ public class TemporaryCacheManager {
         return txCacheMap.get(hash);
     }
 
+    /**
+     * 获取缓存中的所有交易，用于还原紧凑区块
+     * Get all the cached transactions, used to restore compact blocks.
+     *
+     * @return 缓存的交易/cached transactions
+     */
+    public Collection<Transaction> getAllTx() {
+        return txCacheMap.values();
+    }
+
+    /**
+     * 缓存一笔接收区块时需要向对等节点获取的交易
+     * Cache a transaction which had to be fetched from a peer when receiving a block.
+     *
+     * @param tx transaction
+     */
+    public void cacheFetchedTx(Transaction tx) {
+        fetchedTxMap.put(tx.getHash(), tx);
+    }
+
+    /**
+     * 根据交易hash获取接收区块时向对等节点获取的交易
+     * Get the transaction fetched from a peer when receiving a block.
+     *
+     * @param hash transaction digest data
+     * @return 完整交易，不存在时返回null/whole transaction, null when not found
+     */
+    public Transaction getFetchedTx(NulsDigestData hash) {
+        return fetchedTxMap.get(hash);
+    }
+
     /**
      * 根据区块摘要对象从缓存中移出一个SmallBlock，移除后再获取时将返回null
      * A SmallBlock is removed from the cache based on the block summary object, and null is returned when it is removed.
@@ -130,6 +170,7 @@ public class TemporaryCacheManager {
     public void clear() {
         this.smallBlockCacheMap.clear();
         this.txCacheMap.clear();
+        this.fetchedTxMap.clear();
     }
 
     /**
@@ -139,6 +180,7 @@ public class TemporaryCacheManager {
     public void destroy() {
         this.smallBlockCacheMap.clear();
         this.txCacheMap.clear();
+        this.fetchedTxMap.clear();
     }
 
     public boolean containsTx(NulsDigestData txHash) {
@@ -63,6 +63,12 @@ public enum MessageDataType {
 
     REQUEST(7),
 
+    /**
+     * 批量获取区块头找不到时，返回的Not Found 类型
+     * When the block headers cannot be Found, the returned Not Found type.
+     */
+    HEADERS(8),
+
     ;
 
     /**
@@ -102,6 +108,8 @@ public enum MessageDataType {
 //                return TRANSACTIONS;
             case 4:
                 return HASHES;
+            case 8:
+                return HEADERS;
             default:
                 return null;
         }
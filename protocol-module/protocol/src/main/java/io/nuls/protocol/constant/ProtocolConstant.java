@@ -158,6 +158,41 @@ public interface ProtocolConstant extends NulsConstant {
     short PROTOCOL_FORWARD_NEW_BLOCK = 18;
     short PROTOCOL_GET_SMALL_BLOCK = 19;
     short PROTOCOL_GET_TRANSACTION = 20;
+    /**
+     * 新区块以紧凑区块形式发送的消息类型
+     * The type of message that sends the new block as a CompactBlock.
+     */
+    short PROTOCOL_COMPACT_BLOCK = 21;
+    /**
+     * 声明支持紧凑区块及高带宽模式的消息类型
+     * The type of message announcing compact block support and the high-bandwidth mode.
+     */
+    short PROTOCOL_SEND_COMPACT = 22;
+    /**
+     * 按高度批量获取区块头的消息类型，用于先同步区块头的下载模式
+     * The type of message that gets a range of block headers by height, used by the headers-first download.
+     */
+    short PROTOCOL_GET_BLOCK_HEADERS = 23;
+    /**
+     * 批量区块头应答的消息类型
+     * The type of message that replies a range of block headers.
+     */
+    short PROTOCOL_BLOCK_HEADERS = 24;
+    /**
+     * 一次最多请求的区块头数量
+     * Max number of block headers in one request.
+     */
+    int MAX_HEADERS_PER_REQUEST = 1000;
+    /**
+     * 支持批量获取区块头消息的最低程序版本
+     * The lowest program version supporting the message that gets a range of block headers.
+     */
+    String HEADERS_MIN_VERSION = "1.1.3";
+    /**
+     * 高带宽模式下最多请求几个节点主动推送紧凑区块
+     * How many peers at most are asked to push compact blocks unsolicited(high-bandwidth mode).
+     */
+    int COMPACT_BLOCK_HIGH_BANDWIDTH_PEERS = 3;
     //协议升级要求最低覆盖率
     int MIN_PROTOCOL_UPGRADE_RATE = 60;
     //协议升级要求最低延迟块数
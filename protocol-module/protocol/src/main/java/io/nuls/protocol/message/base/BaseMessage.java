@@ -42,6 +42,12 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
 
     private transient NulsDigestData hash;
 
+    /**
+     * 消息体序列化结果的缓存，校验值、长度、hash和序列化都基于它计算
+     * The cached serialization of the message body, the xor, length, hash and serialization are all derived from it.
+     */
+    private transient byte[] bodyBytes;
+
     private MessageHeader header;
 
     private T msgBody;
@@ -64,7 +70,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
     @Override
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
         stream.write(header.serialize());
-        stream.write(msgBody.serialize());
+        stream.write(getBodyBytes());
     }
 
     @Override
@@ -73,6 +79,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
         header.parse(byteBuffer);
         this.header = header;
         this.msgBody = parseMessageBody(byteBuffer);
+        this.invalidateCache();
     }
 
     protected abstract T parseMessageBody(NulsByteBuffer byteBuffer) throws NulsException;
@@ -81,10 +88,43 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
     public int size() {
         int s = 0;
         s += header.size();
-        s += msgBody.size();
+        s += getBodySize();
         return s;
     }
 
+    /**
+     * 获取消息体的序列化结果，只在第一次调用时序列化，之后复用缓存
+     * Get the serialized message body, it is serialized on the first call only and the cached bytes are reused afterwards.
+     *
+     * @return 消息体字节，message body bytes
+     */
+    public byte[] getBodyBytes() throws IOException {
+        if (bodyBytes == null) {
+            bodyBytes = msgBody.serialize();
+        }
+        return bodyBytes;
+    }
+
+    /**
+     * 获取消息体的长度，优先使用缓存的序列化结果
+     * Get the length of the message body, the cached serialization is used when available.
+     */
+    public int getBodySize() {
+        if (bodyBytes != null) {
+            return bodyBytes.length;
+        }
+        return msgBody.size();
+    }
+
+    /**
+     * 消息体被直接修改后，需要调用此方法清除缓存的序列化结果和hash
+     * This method must be called after the message body is modified in place, it clears the cached serialization and hash.
+     */
+    public void invalidateCache() {
+        this.bodyBytes = null;
+        this.hash = null;
+    }
+
     /**
      * 计算msgBody的验证值，通过简单的异或得出结果，将结果放入消息头中
      * The verification value of msgBody is calculated,
@@ -99,7 +139,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
         byte xor = 0x00;
         byte[] data = new byte[0];
         try {
-            data = msgBody.serialize();
+            data = getBodyBytes();
         } catch (IOException e) {
             Log.error(e);
         }
@@ -116,6 +156,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
 
     public void setMsgBody(T msgBody) {
         this.msgBody = msgBody;
+        this.invalidateCache();
     }
 
     public MessageHeader getHeader() {
@@ -124,6 +165,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
 
     public void setHeader(MessageHeader header) {
         this.header = header;
+        this.hash = null;
     }
 
     public NulsDigestData getHash() {
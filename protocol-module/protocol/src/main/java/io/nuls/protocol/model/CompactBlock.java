@@ -0,0 +1,256 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.model;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.nuls.core.tools.crypto.Sha256Hash;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 紧凑区块，用6字节的短交易id代替完整的交易摘要，短id以区块hash和随机数为盐计算，每个区块不同
+ * 区块中对方一定没有或者很可能没有的交易（系统交易、转发者自己也需要下载的交易）以完整交易的形式预先填入
+ * Compact block, announces every transaction with a 6-byte short id instead of the whole digest,
+ * the short ids are salted by the block hash and a nonce, so they are different in every block.
+ * The transactions the receiver must not have or probably does not have (system transactions,
+ * transactions the sender had to download itself) are prefilled as whole transactions.
+ */
+public class CompactBlock extends BaseNulsData {
+
+    /**
+     * 短交易id的字节数
+     * Bytes of a short transaction id.
+     */
+    public static final int SHORT_ID_LENGTH = 6;
+
+    private static final long SHORT_ID_MASK = 0xFFFFFFFFFFFFL;
+
+    /**
+     * 区块头
+     * block header
+     */
+    private BlockHeader header;
+
+    /**
+     * 计算短id时使用的随机数
+     * The nonce used to salt the short ids.
+     */
+    private long nonce;
+
+    /**
+     * 未预先填入的交易的短id，按区块中的顺序排列
+     * Short ids of the transactions which are not prefilled, in block order.
+     */
+    private List<Long> shortIdList = new ArrayList<>();
+
+    /**
+     * 预先填入的交易在区块中的位置，升序
+     * Positions of the prefilled transactions in the block, ascending.
+     */
+    private List<Integer> prefilledIndexList = new ArrayList<>();
+
+    private List<Transaction> prefilledTxList = new ArrayList<>();
+
+    private transient HashFunction shortIdFunction;
+
+    public CompactBlock() {
+    }
+
+    @Override
+    public int size() {
+        int size = header.size();
+        size += SerializeUtils.sizeOfInt64();
+        size += SerializeUtils.sizeOfVarInt(shortIdList.size());
+        size += shortIdList.size() * SHORT_ID_LENGTH;
+        size += SerializeUtils.sizeOfVarInt(prefilledTxList.size());
+        int lastIndex = -1;
+        for (int i = 0; i < prefilledTxList.size(); i++) {
+            int index = prefilledIndexList.get(i);
+            size += SerializeUtils.sizeOfVarInt(index - lastIndex - 1);
+            size += SerializeUtils.sizeOfNulsData(prefilledTxList.get(i));
+            lastIndex = index;
+        }
+        return size;
+    }
+
+    /**
+     * 预先填入交易的位置按与前一个位置的差值写入，通常只需要一个字节
+     * The prefilled positions are written as the distance to the previous one, it usually takes only one byte.
+     */
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.writeNulsData(header);
+        stream.writeInt64(nonce);
+        stream.writeVarInt(shortIdList.size());
+        for (Long shortId : shortIdList) {
+            stream.writeUint48(shortId);
+        }
+        stream.writeVarInt(prefilledTxList.size());
+        int lastIndex = -1;
+        for (int i = 0; i < prefilledTxList.size(); i++) {
+            int index = prefilledIndexList.get(i);
+            stream.writeVarInt(index - lastIndex - 1);
+            stream.writeNulsData(prefilledTxList.get(i));
+            lastIndex = index;
+        }
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.header = byteBuffer.readNulsData(new BlockHeader());
+        this.nonce = byteBuffer.readInt64();
+        this.shortIdFunction = null;
+
+        long shortIdCount = byteBuffer.readVarInt();
+        this.shortIdList = new ArrayList<>();
+        for (int i = 0; i < shortIdCount; i++) {
+            this.shortIdList.add(byteBuffer.readUint48() & SHORT_ID_MASK);
+        }
+
+        long prefilledCount = byteBuffer.readVarInt();
+        this.prefilledIndexList = new ArrayList<>();
+        this.prefilledTxList = new ArrayList<>();
+        long lastIndex = -1;
+        for (int i = 0; i < prefilledCount; i++) {
+            // 增量来自对端，读成负数或过大时拒绝，避免出现负的或溢出的下标
+            // The delta comes from the peer, reject it when it reads negative or too large so the index never goes negative or overflows.
+            long delta = byteBuffer.readVarInt();
+            if (delta < 0 || delta > Integer.MAX_VALUE) {
+                throw new NulsException(KernelErrorCode.DATA_PARSE_ERROR);
+            }
+            lastIndex = lastIndex + delta + 1;
+            if (lastIndex > Integer.MAX_VALUE) {
+                throw new NulsException(KernelErrorCode.DATA_PARSE_ERROR);
+            }
+            Transaction tx = byteBuffer.readTransaction();
+            tx.setBlockHeight(header.getHeight());
+            this.prefilledIndexList.add((int) lastIndex);
+            this.prefilledTxList.add(tx);
+        }
+    }
+
+    /**
+     * 计算交易在本区块中的短id
+     * Calculate the short id of a transaction in this block.
+     *
+     * @param txHash 交易摘要/transaction hash
+     * @return 48位短id/48-bit short id
+     */
+    public long getShortId(NulsDigestData txHash) {
+        HashFunction function = this.shortIdFunction;
+        if (null == function) {
+            function = createShortIdFunction(header.getHash(), nonce);
+            this.shortIdFunction = function;
+        }
+        return function.hashBytes(txHash.getDigestBytes()).asLong() & SHORT_ID_MASK;
+    }
+
+    /**
+     * 短id使用SipHash-2-4计算，密钥取自sha256(区块摘要 + 随机数)，外部节点无法预先构造冲突的交易
+     * The short ids use SipHash-2-4, keyed by sha256(block hash + nonce), so nobody can grind colliding transactions in advance.
+     */
+    private static HashFunction createShortIdFunction(NulsDigestData blockHash, long nonce) {
+        byte[] hashBytes = blockHash.getDigestBytes();
+        byte[] seed = new byte[hashBytes.length + 8];
+        System.arraycopy(hashBytes, 0, seed, 0, hashBytes.length);
+        for (int i = 0; i < 8; i++) {
+            seed[hashBytes.length + i] = (byte) (nonce >>> (8 * i));
+        }
+        byte[] key = Sha256Hash.hash(seed);
+        return Hashing.sipHash24(SerializeUtils.readInt64LE(key, 0), SerializeUtils.readInt64LE(key, 8));
+    }
+
+    /**
+     * 区块中的交易总数
+     * Count of the transactions in the block.
+     */
+    public int getTxCount() {
+        return shortIdList.size() + prefilledTxList.size();
+    }
+
+    /**
+     * 区块头
+     * block header
+     *
+     * @return BlockHeader
+     */
+    public BlockHeader getHeader() {
+        return header;
+    }
+
+    public void setHeader(BlockHeader header) {
+        this.header = header;
+        this.shortIdFunction = null;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(long nonce) {
+        this.nonce = nonce;
+        this.shortIdFunction = null;
+    }
+
+    public List<Long> getShortIdList() {
+        return shortIdList;
+    }
+
+    public void addShortId(NulsDigestData txHash) {
+        this.shortIdList.add(getShortId(txHash));
+    }
+
+    public List<Integer> getPrefilledIndexList() {
+        return prefilledIndexList;
+    }
+
+    public List<Transaction> getPrefilledTxList() {
+        return prefilledTxList;
+    }
+
+    /**
+     * 预先填入一笔交易，位置必须大于已填入的交易
+     * Prefill a transaction, the position must be greater than the prefilled ones.
+     *
+     * @param index 交易在区块中的位置/position of the transaction in the block
+     * @param tx    完整交易/whole transaction
+     */
+    public void addPrefilledTx(int index, Transaction tx) {
+        this.prefilledIndexList.add(index);
+        this.prefilledTxList.add(tx);
+    }
+}
@@ -32,6 +32,9 @@ import io.nuls.kernel.model.Result;
 import io.nuls.network.model.Node;
 import io.nuls.protocol.model.SmallBlock;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * 区块处理服务接口
  * The block handles the service interface.
@@ -113,6 +116,40 @@ public interface BlockService {
      */
     Result<Block> getBlock(long height, boolean isNeedContractTransfer);
 
+    /**
+     * 按高度升序获取[fromHeight, toHeight]范围内的区块头（从存储中顺序读取）
+     * Get the block headers in [fromHeight, toHeight] in ascending height order (read sequentially from storage)
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 区块头列表/block header list
+     */
+    Result<List<BlockHeader>> getBlockHeaders(long fromHeight, long toHeight);
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的区块头交给visitor，visitor返回false时停止
+     * Hand the block headers in [fromHeight, toHeight] to the visitor one by one, it stops when the visitor returns false.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @param descending 是否从高到低/from high to low or not
+     * @param visitor    区块头处理者/the block header visitor
+     * @return 交给visitor的区块头数量/the number of block headers handed to the visitor
+     */
+    int scanBlockHeaders(long fromHeight, long toHeight, boolean descending, Predicate<BlockHeader> visitor);
+
+    /**
+     * 逐个读取[fromHeight, toHeight]范围内的完整区块交给visitor，visitor返回false时停止
+     * Hand the whole blocks in [fromHeight, toHeight] to the visitor one by one, it stops when the visitor returns false.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @param descending 是否从高到低/from high to low or not
+     * @param visitor    区块处理者/the block visitor
+     * @return 交给visitor的区块数量/the number of blocks handed to the visitor
+     */
+    int scanBlocks(long fromHeight, long toHeight, boolean descending, Predicate<Block> visitor);
+
     /**
      * 保存区块到存储中
      * Save the block to the store.
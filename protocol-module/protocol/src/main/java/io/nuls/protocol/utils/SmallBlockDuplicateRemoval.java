@@ -38,16 +38,24 @@ public class SmallBlockDuplicateRemoval {
     private static HashSetDuplicateProcessor processorOfSmallBlock = new HashSetDuplicateProcessor(1000);
     private static HashSetDuplicateProcessor processorOfForward = new HashSetDuplicateProcessor(1000);
 
-    public static boolean needDownloadSmallBlock(NulsDigestData hash) {
+    public static synchronized boolean needDownloadSmallBlock(NulsDigestData hash) {
         return processorOfForward.insertAndCheck(hash);
     }
 
-    public static boolean needProcess(NulsDigestData hash) {
+    public static synchronized boolean needProcess(NulsDigestData hash) {
         processorOfForward.insertAndCheck(hash);
         return processorOfSmallBlock.insertAndCheck(hash);
     }
 
-    public static void removeForward(NulsDigestData hash) {
+    public static synchronized void removeForward(NulsDigestData hash) {
         processorOfForward.remove(hash);
     }
+
+    /**
+     * 紧凑区块无法还原时，允许重新处理该区块的完整小区块
+     * Allow the whole SmallBlock to be processed again when the compact block could not be restored.
+     */
+    public static synchronized void removeSmallBlock(NulsDigestData hash) {
+        processorOfSmallBlock.remove(hash);
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.message.base;
+
+import io.nuls.core.tools.str.StringUtils;
+import io.nuls.protocol.model.basic.NulsStringData;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 消息体序列化缓存测试，验证缓存结果与直接序列化一致，且更换消息体后缓存失效
+ * <p>
+ * Message body serialization cache test, verifies the cached bytes match a direct serialization and are dropped when the body changes.
+ */
+public class BaseMessageTest {
+
+    @Test
+    public void testBodyCache() throws IOException {
+        CommonStringMessage message = new CommonStringMessage();
+        message.setMessage("first message");
+
+        byte[] body = message.getBodyBytes();
+        assertArrayEquals(message.getMsgBody().serialize(), body);
+        assertSame(body, message.getBodyBytes());
+        assertEquals(body.length, message.getBodySize());
+        assertEquals(StringUtils.caculateXor(body), message.caculateXor());
+
+        byte[] bytes = message.serialize();
+        assertEquals(message.getHeader().size() + body.length, bytes.length);
+
+        message.setMsgBody(new NulsStringData("second, longer message"));
+        byte[] newBody = message.getBodyBytes();
+        assertNotSame(body, newBody);
+        assertArrayEquals(message.getMsgBody().serialize(), newBody);
+        assertNotEquals(bytes.length, message.serialize().length);
+    }
+
+    @Test
+    public void testHashInvalidate() {
+        CommonStringMessage message = new CommonStringMessage();
+        message.setMessage("first message");
+        String hash = message.getHash().getDigestHex();
+        assertEquals(hash, message.getHash().getDigestHex());
+
+        message.setMessage("second message");
+        assertNotEquals(hash, message.getHash().getDigestHex());
+    }
+}
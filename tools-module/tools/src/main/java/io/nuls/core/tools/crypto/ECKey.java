@@ -234,6 +234,14 @@ public class ECKey {
     }
 
     public static boolean verify(byte[] data, ECDSASignature signature, byte[] pub) {
+        return Secp256k1Verifier.verify(data, signature, pub);
+    }
+
+    /**
+     * 基于ECDSASigner的通用实现，作为Secp256k1Verifier的参照
+     * The generic implementation based on ECDSASigner, kept as the reference of Secp256k1Verifier.
+     */
+    public static boolean verifyReference(byte[] data, ECDSASignature signature, byte[] pub) {
         ECDSASigner signer = new ECDSASigner();
         ECPublicKeyParameters params = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(pub), CURVE);
         signer.init(false, params);
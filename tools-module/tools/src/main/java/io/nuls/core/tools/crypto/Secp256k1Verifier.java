@@ -0,0 +1,268 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.core.tools.crypto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.spongycastle.crypto.params.ECDomainParameters;
+import org.spongycastle.crypto.params.ECPublicKeyParameters;
+import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECFieldElement;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.ECPointMap;
+import org.spongycastle.math.ec.WNafUtil;
+import org.spongycastle.math.ec.endo.GLVEndomorphism;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * secp256k1专用的ECDSA签名验证器，计算u1*G + u2*Q：
+ * 两个标量都用GLV自同态分解为两个约128位的标量，四个wNAF在一次Straus交错循环中共享倍点运算；
+ * G及其自同态像使用类加载时预计算好的宽窗口表，公钥点的奇数倍表与解压后的点一起缓存，
+ * 同一公钥的后续验证不再需要开方解压和预计算
+ * ECDSA signature verifier specialized for secp256k1, it computes u1*G + u2*Q.
+ * Both scalars are split into two scalars of about 128 bits with the GLV endomorphism, and the four wNAFs share the
+ * doublings in one interleaved Straus loop. G and its endomorphism image use wide window tables precomputed at class
+ * loading, and the odd multiple tables of a public key are cached together with the decompressed point, so later
+ * verifications with the same key skip the square root and the precomputation.
+ */
+public final class Secp256k1Verifier {
+
+    /**
+     * 公钥点缓存的最大数量
+     * The maximum number of cached public keys
+     */
+    private static final long MAX_CACHED_KEYS = 20000L;
+
+    /**
+     * G的wNAF窗口宽度，表中有2^(8-2)=64个点
+     * The wNAF window width of G, the table holds 2^(8-2)=64 points
+     */
+    private static final int G_WINDOW = 8;
+
+    /**
+     * 公钥的wNAF窗口宽度
+     * The wNAF window width of public keys
+     */
+    private static final int KEY_WINDOW = 5;
+
+    private static final ECDomainParameters CURVE = ECKey.CURVE;
+    private static final BigInteger N = CURVE.getN();
+    private static final GLVEndomorphism GLV = (GLVEndomorphism) CURVE.getCurve().getEndomorphism();
+
+    private static final PointTable G_TABLE = new PointTable(CURVE.getG(), G_WINDOW);
+
+    private static final Cache<ByteBuffer, PointTable> KEY_CACHE = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
+
+    private Secp256k1Verifier() {
+    }
+
+    /**
+     * 验证签名，与ECDSASigner的结果一致；公钥无效时抛出IllegalArgumentException
+     * Verify the signature, the result is the same as ECDSASigner. IllegalArgumentException is thrown for an invalid public key.
+     *
+     * @param data      被签名的数据/the signed data
+     * @param signature 签名/the signature
+     * @param pub       公钥/the public key
+     */
+    public static boolean verify(byte[] data, ECKey.ECDSASignature signature, byte[] pub) {
+        PointTable keyTable = getKeyTable(pub);
+        BigInteger r = signature.r;
+        BigInteger s = signature.s;
+        if (r.signum() <= 0 || r.compareTo(N) >= 0 || s.signum() <= 0 || s.compareTo(N) >= 0) {
+            return false;
+        }
+        BigInteger e = calculateE(data);
+        BigInteger w = s.modInverse(N);
+        BigInteger u1 = e.multiply(w).mod(N);
+        BigInteger u2 = r.multiply(w).mod(N);
+
+        ECPoint point = sumOfTwoMultiplies(u1, keyTable, u2);
+        if (point.isInfinity()) {
+            return false;
+        }
+        return matchesR(point, r);
+    }
+
+    public static boolean verify(byte[] data, byte[] signature, byte[] pub) {
+        return verify(data, ECKey.ECDSASignature.decodeFromDER(signature), pub);
+    }
+
+    /**
+     * 批量验证，全部通过时返回true，遇到第一个失败即返回false
+     * Verify a batch of signatures, true is returned only when all of them pass, it stops at the first failure.
+     */
+    public static boolean verifyBatch(List<VerifyItem> items) {
+        if (items == null) {
+            return false;
+        }
+        for (VerifyItem item : items) {
+            if (!verify(item.data, item.signature, item.publicKey)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算u1*G + u2*Q
+     * Compute u1*G + u2*Q
+     */
+    static ECPoint sumOfTwoMultiplies(BigInteger u1, PointTable keyTable, BigInteger u2) {
+        BigInteger[] ab = GLV.decomposeScalar(u1);
+        BigInteger[] cd = GLV.decomposeScalar(u2);
+        byte[] nafA = WNafUtil.generateWindowNaf(G_WINDOW, ab[0].abs());
+        byte[] nafB = WNafUtil.generateWindowNaf(G_WINDOW, ab[1].abs());
+        byte[] nafC = WNafUtil.generateWindowNaf(KEY_WINDOW, cd[0].abs());
+        byte[] nafD = WNafUtil.generateWindowNaf(KEY_WINDOW, cd[1].abs());
+        boolean negA = ab[0].signum() < 0;
+        boolean negB = ab[1].signum() < 0;
+        boolean negC = cd[0].signum() < 0;
+        boolean negD = cd[1].signum() < 0;
+
+        int length = Math.max(Math.max(nafA.length, nafB.length), Math.max(nafC.length, nafD.length));
+        ECPoint result = CURVE.getCurve().getInfinity();
+        for (int i = length - 1; i >= 0; i--) {
+            result = result.twice();
+            result = addDigit(result, nafA, i, negA ? G_TABLE.negative : G_TABLE.positive);
+            result = addDigit(result, nafB, i, negB ? G_TABLE.lambdaNegative : G_TABLE.lambdaPositive);
+            result = addDigit(result, nafC, i, negC ? keyTable.negative : keyTable.positive);
+            result = addDigit(result, nafD, i, negD ? keyTable.lambdaNegative : keyTable.lambdaPositive);
+        }
+        return result;
+    }
+
+    private static ECPoint addDigit(ECPoint point, byte[] naf, int index, ECPoint[][] tables) {
+        if (index >= naf.length) {
+            return point;
+        }
+        int digit = naf[index];
+        if (digit == 0) {
+            return point;
+        }
+        // tables[0]为正表，tables[1]为负表；标量为负时调用方已交换两者
+        // tables[0] is the positive table and tables[1] the negative one, they are swapped by the caller for a negative scalar
+        if (digit > 0) {
+            return point.add(tables[0][digit >>> 1]);
+        }
+        return point.add(tables[1][(-digit) >>> 1]);
+    }
+
+    private static PointTable getKeyTable(byte[] pub) {
+        PointTable table = KEY_CACHE.getIfPresent(ByteBuffer.wrap(pub));
+        if (table == null) {
+            // 与ECDSASigner相同的校验：点必须在曲线上且不是无穷远点
+            // The same validation as ECDSASigner: the point must be on the curve and not at infinity
+            ECPoint point = new ECPublicKeyParameters(CURVE.getCurve().decodePoint(pub), CURVE).getQ();
+            table = new PointTable(point, KEY_WINDOW);
+            KEY_CACHE.put(ByteBuffer.wrap(pub.clone()), table);
+        }
+        return table;
+    }
+
+    /**
+     * 在雅可比坐标下比较x坐标与r，即X == (r + k*n) * Z^2，省去求仿射坐标所需的模逆
+     * Compare the x coordinate with r in Jacobian coordinates, that is X == (r + k*n) * Z^2, which avoids the
+     * modular inversion needed for the affine coordinates.
+     */
+    private static boolean matchesR(ECPoint point, BigInteger r) {
+        ECFieldElement x = point.getRawXCoord();
+        if (point.isNormalized()) {
+            return x.toBigInteger().mod(N).equals(r);
+        }
+        ECCurve curve = point.getCurve();
+        ECFieldElement z2 = point.getZCoord(0).square();
+        for (BigInteger v = r; curve.isValidFieldElement(v); v = v.add(N)) {
+            if (curve.fromBigInteger(v).multiply(z2).equals(x)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BigInteger calculateE(byte[] message) {
+        int log2n = N.bitLength();
+        int messageBitLength = message.length * 8;
+        BigInteger e = new BigInteger(1, message);
+        if (log2n < messageBitLength) {
+            e = e.shiftRight(messageBitLength - log2n);
+        }
+        return e;
+    }
+
+    /**
+     * 一个点的奇数倍表(P, 3P, 5P, ...)及其负值和自同态像，均为仿射坐标
+     * The odd multiples (P, 3P, 5P, ...) of a point with their negations and endomorphism images, all in affine coordinates
+     */
+    static class PointTable {
+        private final ECPoint[][] positive;
+        private final ECPoint[][] negative;
+        private final ECPoint[][] lambdaPositive;
+        private final ECPoint[][] lambdaNegative;
+
+        PointTable(ECPoint point, int width) {
+            int size = 1 << (width - 2);
+            ECPoint[] odd = new ECPoint[size];
+            odd[0] = point;
+            ECPoint twice = point.twice();
+            for (int i = 1; i < size; i++) {
+                odd[i] = odd[i - 1].add(twice);
+            }
+            point.getCurve().normalizeAll(odd);
+
+            ECPoint[] oddNegative = new ECPoint[size];
+            ECPoint[] lambda = new ECPoint[size];
+            ECPoint[] lambdaOddNegative = new ECPoint[size];
+            ECPointMap pointMap = GLV.getPointMap();
+            for (int i = 0; i < size; i++) {
+                oddNegative[i] = odd[i].negate();
+                lambda[i] = pointMap.map(odd[i]);
+                lambdaOddNegative[i] = lambda[i].negate();
+            }
+            this.positive = new ECPoint[][]{odd, oddNegative};
+            this.negative = new ECPoint[][]{oddNegative, odd};
+            this.lambdaPositive = new ECPoint[][]{lambda, lambdaOddNegative};
+            this.lambdaNegative = new ECPoint[][]{lambdaOddNegative, lambda};
+        }
+    }
+
+    /**
+     * 批量验证中的一条签名
+     * One signature of a batch verification
+     */
+    public static class VerifyItem {
+        private final byte[] data;
+        private final byte[] signature;
+        private final byte[] publicKey;
+
+        public VerifyItem(byte[] data, byte[] signature, byte[] publicKey) {
+            this.data = data;
+            this.signature = signature;
+            this.publicKey = publicKey;
+        }
+    }
+}
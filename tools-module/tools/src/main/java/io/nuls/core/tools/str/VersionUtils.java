@@ -115,6 +115,28 @@ public class VersionUtils {
         return result;
     }
 
+    /**
+     * 按数字部分逐位比较版本号，缺少的位按0处理，后缀不参与比较
+     * Compare the numeric parts of the versions one by one, a missing part counts as 0 and suffixes are ignored.
+     *
+     * @return 负数、0、正数分别表示version0低于、等于、高于version1/negative, zero or positive when version0 is lower than, equal to or higher than version1
+     */
+    public static int compare(String version0, String version1) {
+        if (StringUtils.isBlank(version0) || StringUtils.isBlank(version1)) {
+            throw new RuntimeException("version is null");
+        }
+        Integer[] intArr0 = strArrayToInt(version0);
+        Integer[] intArr1 = strArrayToInt(version1);
+        for (int i = 0; i < Math.max(intArr0.length, intArr1.length); i++) {
+            int val0 = i < intArr0.length ? intArr0[i] : 0;
+            int val1 = i < intArr1.length ? intArr1[i] : 0;
+            if (val0 != val1) {
+                return Integer.compare(val0, val1);
+            }
+        }
+        return 0;
+    }
+
     private static Integer[] strArrayToInt(String version) {
         if (StringUtils.isBlank(version)) {
             return null;
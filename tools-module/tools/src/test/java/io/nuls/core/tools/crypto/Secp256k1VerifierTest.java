@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.core.tools.crypto;
+
+import org.junit.Test;
+import org.spongycastle.math.ec.ECAlgorithms;
+import org.spongycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Secp256k1Verifier与ECKey.verifyReference的差分测试，所有输入下两者结果必须一致
+ * Differential test of Secp256k1Verifier against ECKey.verifyReference, both must agree on every input.
+ */
+public class Secp256k1VerifierTest {
+
+    private final Random random = new Random(20181018L);
+
+    @Test
+    public void testValidSignatures() {
+        for (int i = 0; i < 200; i++) {
+            ECKey key = new ECKey();
+            byte[] hash = randomBytes(32);
+            ECKey.ECDSASignature signature = ECKey.ECDSASignature.decodeFromDER(key.sign(hash));
+            assertAgree(signature, key.getPubKey(), hash, true);
+            assertAgree(signature, key.getPubKey(false), hash, true);
+        }
+    }
+
+    @Test
+    public void testInvalidSignatures() {
+        BigInteger n = ECKey.CURVE.getN();
+        for (int i = 0; i < 100; i++) {
+            ECKey key = new ECKey();
+            byte[] hash = randomBytes(32);
+            ECKey.ECDSASignature signature = ECKey.ECDSASignature.decodeFromDER(key.sign(hash));
+
+            byte[] otherHash = hash.clone();
+            otherHash[random.nextInt(32)] ^= 1 << random.nextInt(8);
+            assertAgree(signature, key.getPubKey(), otherHash, false);
+            assertAgree(signature, new ECKey().getPubKey(), hash, false);
+            assertAgree(new ECKey.ECDSASignature(signature.r.add(BigInteger.ONE), signature.s), key.getPubKey(), hash, false);
+            assertAgree(new ECKey.ECDSASignature(signature.r, signature.s.add(BigInteger.ONE)), key.getPubKey(), hash, false);
+            // 高S值的签名同样有效
+            // the high-S form of a signature is valid as well
+            assertAgree(new ECKey.ECDSASignature(signature.r, n.subtract(signature.s)), key.getPubKey(), hash, true);
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        BigInteger n = ECKey.CURVE.getN();
+        ECKey key = new ECKey();
+        byte[] hash = randomBytes(32);
+        ECKey.ECDSASignature signature = ECKey.ECDSASignature.decodeFromDER(key.sign(hash));
+        BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE.negate(), n, n.add(BigInteger.ONE), BigInteger.ONE, n.subtract(BigInteger.ONE)};
+        for (BigInteger value : values) {
+            assertAgree(new ECKey.ECDSASignature(value, signature.s), key.getPubKey(), hash, false);
+            assertAgree(new ECKey.ECDSASignature(signature.r, value), key.getPubKey(), hash, false);
+        }
+        // 非32字节的消息
+        // messages that are not 32 bytes long
+        for (int length : new int[]{0, 1, 20, 33, 64}) {
+            byte[] data = randomBytes(length);
+            assertAgree(ECKey.ECDSASignature.decodeFromDER(key.sign(Sha256Hash.hash(data))), key.getPubKey(), data, false);
+        }
+        byte[] longData = randomBytes(40);
+        byte[] truncated = new byte[32];
+        System.arraycopy(longData, 0, truncated, 0, 32);
+        assertAgree(ECKey.ECDSASignature.decodeFromDER(key.sign(truncated)), key.getPubKey(), longData, true);
+    }
+
+    @Test
+    public void testInvalidPublicKey() {
+        ECKey key = new ECKey();
+        byte[] hash = randomBytes(32);
+        ECKey.ECDSASignature signature = ECKey.ECDSASignature.decodeFromDER(key.sign(hash));
+        byte[] pub = key.getPubKey(false);
+        pub[pub.length - 1] ^= 1;
+        boolean referenceFailed = false;
+        try {
+            ECKey.verifyReference(hash, signature, pub);
+        } catch (IllegalArgumentException e) {
+            referenceFailed = true;
+        }
+        boolean failed = false;
+        try {
+            Secp256k1Verifier.verify(hash, signature, pub);
+        } catch (IllegalArgumentException e) {
+            failed = true;
+        }
+        assertTrue(referenceFailed);
+        assertTrue(failed);
+    }
+
+    @Test
+    public void testSumOfTwoMultiplies() {
+        BigInteger n = ECKey.CURVE.getN();
+        ECPoint g = ECKey.CURVE.getG();
+        ECPoint q = ECKey.CURVE.getCurve().decodePoint(new ECKey().getPubKey());
+        Secp256k1Verifier.PointTable table = new Secp256k1Verifier.PointTable(q, 5);
+        List<BigInteger> scalars = new ArrayList<>();
+        scalars.add(BigInteger.ZERO);
+        scalars.add(BigInteger.ONE);
+        scalars.add(BigInteger.valueOf(2));
+        scalars.add(n.subtract(BigInteger.ONE));
+        scalars.add(n.shiftRight(1));
+        for (int i = 0; i < 50; i++) {
+            scalars.add(new BigInteger(256, random).mod(n));
+            scalars.add(new BigInteger(1 + random.nextInt(255), random));
+        }
+        for (int i = 0; i < scalars.size(); i++) {
+            BigInteger u1 = scalars.get(i);
+            BigInteger u2 = scalars.get(scalars.size() - 1 - i);
+            ECPoint expected = ECAlgorithms.referenceMultiply(g, u1).add(ECAlgorithms.referenceMultiply(q, u2)).normalize();
+            assertEquals(expected, Secp256k1Verifier.sumOfTwoMultiplies(u1, table, u2).normalize());
+        }
+
+        // u1*G + u2*G为无穷远点
+        // u1*G + u2*G is the point at infinity
+        Secp256k1Verifier.PointTable gTable = new Secp256k1Verifier.PointTable(g, 5);
+        BigInteger u1 = new BigInteger(256, random).mod(n);
+        assertTrue(Secp256k1Verifier.sumOfTwoMultiplies(u1, gTable, n.subtract(u1)).isInfinity());
+    }
+
+    @Test
+    public void testBatch() {
+        List<Secp256k1Verifier.VerifyItem> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ECKey key = new ECKey();
+            byte[] hash = randomBytes(32);
+            items.add(new Secp256k1Verifier.VerifyItem(hash, key.sign(hash), key.getPubKey()));
+        }
+        assertTrue(Secp256k1Verifier.verifyBatch(items));
+
+        ECKey key = new ECKey();
+        byte[] hash = randomBytes(32);
+        items.add(new Secp256k1Verifier.VerifyItem(randomBytes(32), key.sign(hash), key.getPubKey()));
+        assertFalse(Secp256k1Verifier.verifyBatch(items));
+    }
+
+    private void assertAgree(ECKey.ECDSASignature signature, byte[] pub, byte[] data, boolean expected) {
+        boolean reference = ECKey.verifyReference(data, signature, pub);
+        assertEquals(expected, reference);
+        assertEquals(reference, Secp256k1Verifier.verify(data, signature, pub));
+        // 第二次使用缓存的公钥点
+        // the second call uses the cached public key point
+        assertEquals(reference, Secp256k1Verifier.verify(data, signature, pub));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
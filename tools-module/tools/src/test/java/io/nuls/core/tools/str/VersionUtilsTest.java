@@ -69,4 +69,13 @@ public class VersionUtilsTest {
 
         assertTrue(VersionUtils.equalsWith(v1, v2));
     }
+
+    @Test
+    public void compare() {
+        assertEquals(0, VersionUtils.compare("1.1.3-BETA", "1.1.3"));
+        assertEquals(0, VersionUtils.compare("1.1", "1.1.0"));
+        assertTrue(VersionUtils.compare("1.2.0", "1.1.3") > 0);
+        assertTrue(VersionUtils.compare("1.0.9", "1.1.3") < 0);
+        assertTrue(VersionUtils.compare("1.1.10", "1.1.9") > 0);
+    }
 }
\ No newline at end of file
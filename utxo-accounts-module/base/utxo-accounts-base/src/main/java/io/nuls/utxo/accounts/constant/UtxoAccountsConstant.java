@@ -49,4 +49,23 @@ public interface UtxoAccountsConstant extends NulsConstant {
      * contract transfer
      */
     int TX_TYPE_CONTRACT_TRANSFER = 103;
+
+    /**
+     * 每次批量提交的区块数，需小于保留的回滚快照数
+     * The number of blocks committed in one batch, it must be less than the number of the rollback snapshots kept
+     */
+    int SYN_BATCH_BLOCK_NUM = 100;
+
+    /**
+     * 预读区块的线程数和每个线程预读的区块数
+     * The number of threads reading blocks ahead and the number of blocks read ahead per thread
+     */
+    int READ_AHEAD_THREAD_NUM = 4;
+    int READ_AHEAD_BLOCK_NUM_PER_THREAD = 8;
+
+    /**
+     * 缓存的输出(交易hash+序号)到所有者的最大数量
+     * The maximum number of cached output (tx hash + index) to owner entries
+     */
+    int OUTPUT_OWNER_CACHE_SIZE = 200000;
 }
@@ -31,4 +31,14 @@ public interface UtxoAccountsService {
 //    public boolean validateBlock();
 //    public boolean rollbackBlock();
     boolean  synBlock(long blockHeight);
+
+    /**
+     * 同步[fromHeight, toHeight]范围内的区块
+     * Sync the blocks in [fromHeight, toHeight].
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 是否全部同步完成/whether all the blocks are synced
+     */
+    boolean synBlocks(long fromHeight, long toHeight);
 }
@@ -27,27 +27,36 @@ package io.nuls.utxo.accounts.service.impl;
 import io.nuls.contract.dto.ContractResult;
 import io.nuls.contract.dto.ContractTransfer;
 import io.nuls.contract.service.ContractService;
+import io.nuls.core.tools.crypto.Hex;
 import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.utxo.accounts.constant.UtxoAccountsConstant;
 import io.nuls.utxo.accounts.service.UtxoAccountsService;
-import io.nuls.utxo.accounts.storage.constant.UtxoAccountsStorageConstant;
 import io.nuls.utxo.accounts.storage.po.LocalCacheBlockBalance;
 import io.nuls.utxo.accounts.storage.po.LockedBalance;
 import io.nuls.utxo.accounts.storage.po.UtxoAccountsBalancePo;
 import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
+import io.nuls.utxo.accounts.task.UtxoAccountsBlockReader;
+import io.nuls.utxo.accounts.util.OutputOwnerCache;
 import io.nuls.utxo.accounts.util.UtxoAccountsUtil;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Service
 public class UtxoAccountsServiceImpl implements UtxoAccountsService {
@@ -57,6 +66,10 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
     @Autowired
     ContractService contractService;
 
+    private final OutputOwnerCache outputOwnerCache = new OutputOwnerCache(UtxoAccountsConstant.OUTPUT_OWNER_CACHE_SIZE);
+
+    private ThreadPoolExecutor readAheadPool;
+
     private boolean isPermanentLocked(int txType) {
         if (txType == UtxoAccountsConstant.TX_TYPE_REGISTER_AGENT || txType == UtxoAccountsConstant.TX_TYPE_JOIN_CONSENSUS) {
             return true;
@@ -78,17 +91,59 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
         // owner拆分出txHash和index
         fromHash = UtxoAccountsUtil.getTxHashBytes(owner);
         fromIndex = UtxoAccountsUtil.getIndex(owner);
+        byte[] cachedOwner = outputOwnerCache.get(owner);
+        if (cachedOwner != null) {
+            return cachedOwner;
+        }
         NulsDigestData fromHashObj = new NulsDigestData();
         try {
             fromHashObj.parse(fromHash, 0);
             Transaction outPutTx = utxoAccountsStorageService.getTx(fromHashObj);
+            if (outPutTx == null) {
+                return null;
+            }
+            // 同一笔交易的其他输出通常也会被花费，一并缓存
+            // The other outputs of the transaction are usually spent as well, cache them together.
+            outputOwnerCache.putOutputs(outPutTx);
             return outPutTx.getCoinData().getTo().get(fromIndex).getOwner();
-        } catch (NulsException e) {
+        } catch (NulsException | IOException e) {
             Log.error(e);
             return null;
         }
     }
 
+    /**
+     * 在预读线程中读取区块，缓存区块的输出并解析所有输入的所有者
+     * Load the block on a read-ahead thread, cache its outputs and resolve the owners of all its inputs.
+     */
+    private Block loadBlock(long height) {
+        Block block = utxoAccountsStorageService.getBlock(height).getData();
+        if (block == null) {
+            return null;
+        }
+        try {
+            for (Transaction tx : block.getTxs()) {
+                outputOwnerCache.putOutputs(tx);
+            }
+        } catch (IOException e) {
+            throw new NulsRuntimeException(KernelErrorCode.IO_ERROR);
+        }
+        for (Transaction tx : block.getTxs()) {
+            if (tx.getCoinData() == null) {
+                break;
+            }
+            for (Coin inputCoin : tx.getCoinData().getFrom()) {
+                byte[] inputOwner = getInputAddress(inputCoin);
+                if (inputOwner == null) {
+                    Log.error("utxoAccounts input owner not found,blockHeight:" + height);
+                    throw new NulsRuntimeException(KernelErrorCode.DATA_NOT_FOUND);
+                }
+                inputCoin.setOwner(inputOwner);
+            }
+        }
+        return block;
+    }
+
     private boolean buildUtxoAccountsMap(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, Block block) {
         List<Transaction> txs = block.getTxs();
         int txIndex = 0;
@@ -99,9 +154,8 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
             List<Coin> from = tx.getCoinData().getFrom();
             List<Coin> to = tx.getCoinData().getTo();
 
+            //input owners are resolved by loadBlock/输入的所有者已由loadBlock解析
             for (Coin inputCoin : from) {
-                byte[] inputOwner = getInputAddress(inputCoin);
-                inputCoin.setOwner(inputOwner);
                 buildUtxoAccountsBalance(utxoAccountsMap, inputCoin, tx, txIndex, true);
             }
             for (Coin outputCoin : to) {
@@ -219,14 +273,19 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
      * @return
      * @throws NulsException
      */
-    private List<UtxoAccountsBalancePo> utxoAccountsMapToList(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, LocalCacheBlockBalance preSnapshot)
+    private List<UtxoAccountsBalancePo> utxoAccountsMapToList(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, LocalCacheBlockBalance preSnapshot,
+                                                              Map<String, UtxoAccountsBalancePo> pendingBalanceMap)
             throws NulsException {
         List<UtxoAccountsBalancePo> list = new ArrayList<>();
         List<UtxoAccountsBalancePo> preList = new ArrayList<>();
         preSnapshot.setBalanceList(preList);
         Collection<UtxoAccountsBalancePo> utxoAccountsBalances = utxoAccountsMap.values();
         for (UtxoAccountsBalancePo balance : utxoAccountsBalances) {
-            UtxoAccountsBalancePo localBalance = utxoAccountsStorageService.getUtxoAccountsBalanceByAddress(balance.getOwner()).getData();
+            //本批次中尚未提交的余额优先/the balances not committed yet in this batch come first
+            UtxoAccountsBalancePo localBalance = pendingBalanceMap.get(Hex.encode(balance.getOwner()));
+            if (localBalance == null) {
+                localBalance = utxoAccountsStorageService.getUtxoAccountsBalanceByAddress(balance.getOwner()).getData();
+            }
             if (localBalance == null) {
                 list.add(balance);
                 UtxoAccountsBalancePo preBalance = new UtxoAccountsBalancePo();
@@ -324,22 +383,37 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
     }
 
 
+    @Override
+    public boolean synBlock(long blockHeight) {
+        return synBlocks(blockHeight, blockHeight);
+    }
+
     /**
-     * @param blockHeight
-     * @return
+     * 同步[fromHeight, toHeight]范围内的区块
+     * 区块由预读线程读取并解析，余额变化在内存中累积，每SYN_BATCH_BLOCK_NUM个区块与各区块的回滚快照一起原子提交
+     * Sync the blocks in [fromHeight, toHeight].
+     * The blocks are loaded and parsed by the read-ahead threads, the balance changes are accumulated in memory and
+     * committed atomically with the rollback snapshot of each block every SYN_BATCH_BLOCK_NUM blocks.
+     *
+     * @param fromHeight 起始高度(包含)/start height(inclusive)
+     * @param toHeight   结束高度(包含)/end height(inclusive)
+     * @return 是否全部同步完成/whether all the blocks are synced
      */
     @Override
-    public boolean synBlock(long blockHeight) {
-        Log.debug("synBlock begin===blockHeight:" + blockHeight);
+    public boolean synBlocks(long fromHeight, long toHeight) {
+        Log.debug("synBlocks begin===blockHeight:" + fromHeight + "-" + toHeight);
+        long blockHeight = fromHeight;
         Block nodeBlock = utxoAccountsStorageService.getBlock(blockHeight).getData();
         if (nodeBlock == null) {
             Log.error("utxoAccounts getBlock faile,blockHeight:" + blockHeight);
             return false;
         }
+        NulsDigestData preHash;
         boolean hadRoll = false;
         try {
             //get local pre block info /从本地取上一个已同步的区块
             LocalCacheBlockBalance localLatestCacheBlock = utxoAccountsStorageService.getLocalCacheBlock(blockHeight - 1).getData();
+            preHash = localLatestCacheBlock == null ? null : localLatestCacheBlock.getHash();
             //rollback judge /判断回滚
             while (localLatestCacheBlock != null && !nodeBlock.getHeader().getPreHash().equals(localLatestCacheBlock.getHash())) {
                 //roll back info /进行数据回滚
@@ -358,41 +432,98 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
             Log.error("block syn error======blockHeight:" + blockHeight);
             return false;
         }
+        UtxoAccountsBlockReader reader = new UtxoAccountsBlockReader(getReadAheadPool(), this::loadBlock,
+                UtxoAccountsConstant.READ_AHEAD_THREAD_NUM * UtxoAccountsConstant.READ_AHEAD_BLOCK_NUM_PER_THREAD, fromHeight, toHeight);
+        Map<String, UtxoAccountsBalancePo> pendingBalanceMap = new LinkedHashMap<>();
+        List<LocalCacheBlockBalance> pendingCacheBlockList = new ArrayList<>();
+        boolean success = true;
+        try {
+            for (blockHeight = fromHeight; blockHeight <= toHeight; blockHeight++) {
+                nodeBlock = reader.next();
+                if (nodeBlock == null) {
+                    Log.error("utxoAccounts getBlock faile,blockHeight:" + blockHeight);
+                    success = false;
+                    break;
+                }
+                //预读期间链发生了切换，先提交已解析的区块，下一轮从这里判断回滚
+                //The chain switched while reading ahead, commit the parsed blocks first and judge the rollback from here in the next round.
+                if (preHash != null && !preHash.equals(nodeBlock.getHeader().getPreHash())) {
+                    success = false;
+                    break;
+                }
+                LocalCacheBlockBalance localCacheBlockBalance = synBlock(nodeBlock, blockHeight, pendingBalanceMap);
+                if (localCacheBlockBalance == null) {
+                    success = false;
+                    break;
+                }
+                pendingCacheBlockList.add(localCacheBlockBalance);
+                preHash = nodeBlock.getHeader().getHash();
+                if (pendingCacheBlockList.size() >= UtxoAccountsConstant.SYN_BATCH_BLOCK_NUM) {
+                    if (!commitBlocks(pendingBalanceMap, pendingCacheBlockList)) {
+                        return false;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.error(e);
+            Log.error("block syn error======blockHeight:" + blockHeight);
+            success = false;
+        } finally {
+            reader.close();
+        }
+        return commitBlocks(pendingBalanceMap, pendingCacheBlockList) && success;
+    }
+
+    /**
+     * 解析一个区块，把新的余额放入pendingBalanceMap，返回该区块的回滚快照
+     * Parse a block, put the new balances into pendingBalanceMap and return the rollback snapshot of the block.
+     */
+    private LocalCacheBlockBalance synBlock(Block nodeBlock, long blockHeight, Map<String, UtxoAccountsBalancePo> pendingBalanceMap) {
         //begin syn block/开始同步区块
         //analysis block/解析区块
         Map<String, UtxoAccountsBalancePo> utxoAccountsMap = new HashMap<>();
         if (!buildUtxoAccountsMap(utxoAccountsMap, nodeBlock)) {
-            return false;
+            return null;
         }
-        List<UtxoAccountsBalancePo> list = new ArrayList<>();
-
+        List<UtxoAccountsBalancePo> list;
         LocalCacheBlockBalance localCacheBlockBalance = new LocalCacheBlockBalance();
-//        LocalCacheBlockBalance preSnapshot=new LocalCacheBlockBalance();
         try {
-            list = utxoAccountsMapToList(utxoAccountsMap, localCacheBlockBalance);
+            list = utxoAccountsMapToList(utxoAccountsMap, localCacheBlockBalance, pendingBalanceMap);
         } catch (NulsException e) {
             Log.info("utxoAccountsMapToList error======blockHeight:" + blockHeight);
-            return false;
+            return null;
+        }
+        for (UtxoAccountsBalancePo balance : list) {
+            pendingBalanceMap.put(Hex.encode(balance.getOwner()), balance);
         }
         localCacheBlockBalance.setHash(nodeBlock.getHeader().getHash());
         localCacheBlockBalance.setPreHash(nodeBlock.getHeader().getPreHash());
-//        localCacheBlockBalance.setBalanceList(list);
         localCacheBlockBalance.setBlockHeight(blockHeight);
-        //save cache block info/缓存最近解析信息
-        utxoAccountsStorageService.saveLocalCacheBlock(blockHeight, localCacheBlockBalance);
-//        utxoAccountsStorageService.saveLocalCacheChangeSnapshot(blockHeight,localCacheBlockBalance);
-
-
-        utxoAccountsStorageService.batchSaveByteUtxoAcountsInfo(list);
-        //update latest block height/更新最近高度
-        utxoAccountsStorageService.saveHadSynBlockHeight(blockHeight);
+        return localCacheBlockBalance;
+    }
 
-        //delete overdue cache data/删除过期缓存数据
-        if (blockHeight > UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM) {
-            utxoAccountsStorageService.deleteLocalCacheBlock(blockHeight - UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM);
+    private boolean commitBlocks(Map<String, UtxoAccountsBalancePo> pendingBalanceMap, List<LocalCacheBlockBalance> pendingCacheBlockList) {
+        if (pendingCacheBlockList.isEmpty()) {
+            return true;
+        }
+        long blockHeight = pendingCacheBlockList.get(pendingCacheBlockList.size() - 1).getBlockHeight();
+        Result result = utxoAccountsStorageService.batchSaveSynBlocks(new ArrayList<>(pendingBalanceMap.values()), pendingCacheBlockList);
+        pendingBalanceMap.clear();
+        pendingCacheBlockList.clear();
+        if (result.isFailed()) {
+            Log.error("utxoAccounts commit blocks fail==blockHeight:" + blockHeight);
+            return false;
         }
         Log.debug("utxoAccounts synBlock success==blockHeight:" + blockHeight);
         return true;
     }
 
+    private synchronized ThreadPoolExecutor getReadAheadPool() {
+        if (readAheadPool == null) {
+            readAheadPool = TaskManager.createThreadPool(UtxoAccountsConstant.READ_AHEAD_THREAD_NUM, 0,
+                    new NulsThreadFactory(UtxoAccountsConstant.MODULE_ID_UTXOACCOUNTS, "utxoAccountsBlockReader"));
+        }
+        return readAheadPool;
+    }
+
 }
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.utxo.accounts.task;
+
+import io.nuls.kernel.model.Block;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * 按高度顺序预读区块：区块的读取和解析在线程池中并行进行，next按高度顺序返回
+ * Reads blocks ahead in height order: the blocks are loaded and parsed in parallel on the pool, and next returns them in height order.
+ */
+public class UtxoAccountsBlockReader {
+
+    private final ExecutorService executor;
+    private final LongFunction<Block> loader;
+    private final int readAheadNum;
+    private final long endHeight;
+    private final Deque<Future<Block>> futureQueue = new ArrayDeque<>();
+    private long nextSubmitHeight;
+
+    /**
+     * @param executor     读取区块的线程池/the pool loading the blocks
+     * @param loader       按高度读取并解析区块，区块不存在时返回null/loads and parses the block at a height, null when it does not exist
+     * @param readAheadNum 最多预读的区块数/the maximum number of blocks read ahead
+     * @param startHeight  起始高度(包含)/start height(inclusive)
+     * @param endHeight    结束高度(包含)/end height(inclusive)
+     */
+    public UtxoAccountsBlockReader(ExecutorService executor, LongFunction<Block> loader, int readAheadNum, long startHeight, long endHeight) {
+        this.executor = executor;
+        this.loader = loader;
+        this.readAheadNum = readAheadNum;
+        this.endHeight = endHeight;
+        this.nextSubmitHeight = startHeight;
+        fill();
+    }
+
+    private void fill() {
+        while (futureQueue.size() < readAheadNum && nextSubmitHeight <= endHeight) {
+            long height = nextSubmitHeight++;
+            futureQueue.add(executor.submit(() -> loader.apply(height)));
+        }
+    }
+
+    /**
+     * 按高度顺序获取下一个区块，全部读完或区块不存在时返回null
+     * Get the next block in height order, null when all are read or the block does not exist.
+     */
+    public Block next() throws Exception {
+        Future<Block> future = futureQueue.poll();
+        if (future == null) {
+            return null;
+        }
+        Block block = future.get();
+        fill();
+        return block;
+    }
+
+    /**
+     * 取消尚未使用的预读
+     * Cancel the reads ahead that have not been used.
+     */
+    public void close() {
+        for (Future<Block> future : futureQueue) {
+            future.cancel(true);
+        }
+        futureQueue.clear();
+    }
+}
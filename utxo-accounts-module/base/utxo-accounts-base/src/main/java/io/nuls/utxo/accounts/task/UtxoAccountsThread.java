@@ -45,11 +45,8 @@ public class UtxoAccountsThread implements Runnable {
         try {
             long hadSynBlockHeight = utxoAccountsStorageService.getHadSynBlockHeight();
             long end = NulsContext.getInstance().getBestHeight();
-            for (long i = hadSynBlockHeight + 1; i <= end; i++) {
-                if (!utxoAccountsService.synBlock(i)) {
-                    Log.error("utxoAccounts block syn fail!");
-                    break;
-                }
+            if (hadSynBlockHeight + 1 <= end && !utxoAccountsService.synBlocks(hadSynBlockHeight + 1, end)) {
+                Log.error("utxoAccounts block syn fail!");
             }
         } catch (Exception e) {
             Log.error(e);
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.utxo.accounts.util;
+
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 输出(交易hash+序号)到所有者的LRU缓存，解析输入时不必加载整笔前序交易
+ * 交易hash确定了交易内容，缓存项永远不会过期，分叉回滚时也不需要清理
+ * An LRU cache of output (tx hash + index) to owner, so that inputs are resolved without loading the whole previous transaction.
+ * The tx hash commits to the content of the transaction, so the entries never go stale, even when a fork is rolled back.
+ */
+public class OutputOwnerCache {
+
+    private final Map<String, byte[]> ownerMap;
+
+    public OutputOwnerCache(int maxSize) {
+        this.ownerMap = new LinkedHashMap<String, byte[]>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取输入引用的输出的所有者，未缓存时返回null
+     * Get the owner of the output referenced by an input, null when it is not cached.
+     *
+     * @param outputKey 输入的owner，即交易hash+序号/the owner of the input, that is tx hash + index
+     */
+    public synchronized byte[] get(byte[] outputKey) {
+        return ownerMap.get(Hex.encode(outputKey));
+    }
+
+    /**
+     * 缓存交易全部输出的所有者
+     * Cache the owners of all the outputs of the transaction.
+     */
+    public void putOutputs(Transaction tx) throws IOException {
+        if (tx.getCoinData() == null) {
+            return;
+        }
+        List<Coin> toList = tx.getCoinData().getTo();
+        byte[] txHash = tx.getHash().serialize();
+        synchronized (this) {
+            for (int i = 0; i < toList.size(); i++) {
+                ownerMap.put(Hex.encode(ArraysTool.concatenate(txHash, new VarInt(i).encode())), toList.get(i).getOwner());
+            }
+        }
+    }
+}
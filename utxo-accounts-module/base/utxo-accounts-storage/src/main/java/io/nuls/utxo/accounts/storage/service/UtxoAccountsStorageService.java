@@ -59,6 +59,17 @@ public interface UtxoAccountsStorageService {
 
     Result deleteLocalCacheBlock(long height);
 
+    /**
+     * 一次原子写入多个区块的同步结果：账户余额、每个区块的回滚快照、过期快照的删除和已同步高度
+     * Write the result of syncing several blocks atomically at once: the account balances, the rollback snapshot
+     * of each block, the removal of the overdue snapshots and the synced height.
+     *
+     * @param balanceList    同步后的账户余额/the account balances after syncing
+     * @param cacheBlockList 按高度排序的区块快照/the block snapshots in height order
+     * @return 操作结果/operating result
+     */
+    Result batchSaveSynBlocks(List<UtxoAccountsBalancePo> balanceList, List<LocalCacheBlockBalance> cacheBlockList);
+
     Transaction getTx(NulsDigestData hash);
     Result<Block> getBlock(long height);
 
@@ -24,8 +24,10 @@
  */
 package io.nuls.utxo.accounts.storage.service.impl;
 
+import io.nuls.core.tools.log.Log;
 import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -45,6 +47,7 @@ import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.protocol.service.BlockService;
 
+import java.io.IOException;
 import java.util.List;
 
 @Service
@@ -164,6 +167,34 @@ public class UtxoAccountsStorageServiceImpl implements UtxoAccountsStorageServic
         return dbService.delete(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE,String.valueOf(height).getBytes());
     }
 
+    @Override
+    public Result batchSaveSynBlocks(List<UtxoAccountsBalancePo> balanceList, List<LocalCacheBlockBalance> cacheBlockList) {
+        if (cacheBlockList == null || cacheBlockList.isEmpty()) {
+            return Result.getSuccess();
+        }
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        try {
+            for (UtxoAccountsBalancePo balance : balanceList) {
+                batch.put(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_CONFIRMED_BALANCE, balance.getOwner(), balance.serialize());
+            }
+            for (LocalCacheBlockBalance cacheBlock : cacheBlockList) {
+                long height = cacheBlock.getBlockHeight();
+                batch.put(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE, String.valueOf(height).getBytes(), cacheBlock.serialize());
+                //delete overdue cache data/删除过期缓存数据
+                if (height > UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM) {
+                    batch.delete(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE, String.valueOf(height - UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM).getBytes());
+                }
+            }
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        UtxoAccountsSynInfo utxoAccountsSynInfo = new UtxoAccountsSynInfo(cacheBlockList.get(cacheBlockList.size() - 1).getBlockHeight());
+        utxoAccountsSynInfo.setUpdateTimeMillion(System.currentTimeMillis());
+        batch.putModel(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE, UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_SYN_KEY, utxoAccountsSynInfo);
+        return batch.executeBatch();
+    }
+
     @Override
     public Transaction getTx(NulsDigestData hash) {
         return ledgerService.getTx(hash);